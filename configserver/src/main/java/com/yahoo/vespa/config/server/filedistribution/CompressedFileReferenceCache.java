@@ -0,0 +1,251 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.vespa.filedistribution.FileReferenceCompressor;
+import com.yahoo.vespa.filedistribution.LazyFileReferenceData;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.logging.Level.FINE;
+
+/**
+ * A disk cache of compressed directory file references, so that a file reference which is served to many nodes
+ * is compressed only once for each compression type. Since file references identify their content,
+ * a cached file is named by its file reference and compression type only.
+ *
+ * Only one thread compresses a given file reference with a given compression type, while other threads asking for
+ * the same wait for it to complete. When the total size of the cached files exceeds the limit, the least recently
+ * used files which are not currently being served are deleted.
+ *
+ * @author bratseth
+ */
+class CompressedFileReferenceCache {
+
+    private static final Logger log = Logger.getLogger(CompressedFileReferenceCache.class.getName());
+
+    private static final String temporarySuffix = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long totalBytes = 0; // of the entries which are completed
+    private long useCount = 0;
+    private boolean initialized = false;
+
+    CompressedFileReferenceCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the content of the given file reference, which is the given directory, compressed with the given type.
+     * The content is compressed first, unless it is already in this. The returned data must be closed after use.
+     */
+    LazyFileReferenceData get(FileReference reference, File file, CompressionType compressionType) throws IOException {
+        String name = URLEncoder.encode(reference.value(), UTF_8) + "." + compressionType.name();
+        Entry entry;
+        boolean create = false;
+        synchronized (this) {
+            initialize();
+            entry = entries.get(name);
+            if (entry != null && entry.leases == 0 && isCompleted(entry) && ! Files.exists(entry.path)) { // deleted by someone else
+                entries.remove(name);
+                totalBytes -= entry.size;
+                entry = null;
+            }
+            if (entry == null) {
+                entries.put(name, entry = new Entry(name, directory.resolve(name)));
+                create = true;
+            }
+            entry.leases++;
+            entry.lastUsed = ++useCount;
+        }
+
+        try {
+            if (create)
+                create(entry, reference, file, compressionType);
+            else
+                awaitCreation(entry);
+            return new CachedFileReferenceData(reference, file.getName(), entry, compressionType);
+        }
+        catch (IOException | RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+    }
+
+    /** Returns the total size of the files in this */
+    synchronized long sizeInBytes() { return totalBytes; }
+
+    private void create(Entry entry, FileReference reference, File file, CompressionType compressionType) throws IOException {
+        try {
+            Path temporary = Files.createTempFile(directory, entry.name, temporarySuffix);
+            try {
+                Instant start = Instant.now();
+                new FileReferenceCompressor(compressed, compressionType).compress(file.getParentFile(), temporary.toFile());
+                Duration duration = Duration.between(start, Instant.now());
+                log.log(duration.compareTo(Duration.ofSeconds(10)) > 0 ? Level.INFO : FINE,
+                        () -> "Compressed " + reference + " with " + compressionType + " in " + duration);
+                Files.move(temporary, entry.path, ATOMIC_MOVE, REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(temporary);
+            }
+            long size = Files.size(entry.path);
+            synchronized (this) {
+                entry.size = size;
+                totalBytes += size;
+                evict();
+            }
+            entry.created.complete(null);
+        }
+        catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                entries.remove(entry.name, entry);
+            }
+            entry.created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void awaitCreation(Entry entry) throws IOException {
+        try {
+            entry.created.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause)
+                throw new IOException("Failed compressing " + entry.name, cause);
+            throw new RuntimeException("Failed compressing " + entry.name, e.getCause());
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        evict();
+    }
+
+    /** Deletes least recently used files which are not in use until the size of this is within the limit. */
+    private void evict() {
+        while (totalBytes > maxBytes) {
+            Entry victim = entries.values().stream()
+                                  .filter(entry -> entry.leases == 0 && isCompleted(entry))
+                                  .min(Comparator.comparingLong(entry -> entry.lastUsed))
+                                  .orElse(null);
+            if (victim == null) return;
+
+            entries.remove(victim.name);
+            totalBytes -= victim.size;
+            try {
+                Files.deleteIfExists(victim.path);
+                log.log(FINE, () -> "Evicted " + victim.name + " from the compressed file reference cache");
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Failed deleting " + victim.path, e);
+            }
+        }
+    }
+
+    /** Creates the directory of this, or picks up the files already in it, and removes unfinished files */
+    private void initialize() {
+        if (initialized) return;
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (var paths = Files.list(directory)) {
+                files = paths.filter(Files::isRegularFile).toList();
+            }
+            for (Path path : files.stream().sorted(Comparator.comparing(CompressedFileReferenceCache::lastModified)).toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(temporarySuffix)) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                Entry entry = new Entry(name, path);
+                entry.size = Files.size(path);
+                entry.lastUsed = ++useCount;
+                entry.created.complete(null);
+                entries.put(name, entry);
+                totalBytes += entry.size;
+            }
+            evict();
+            initialized = true;
+        }
+        catch (IOException e) {
+            entries.clear();
+            totalBytes = 0;
+            throw new UncheckedIOException("Failed initializing compressed file reference cache in " + directory, e);
+        }
+    }
+
+    private static boolean isCompleted(Entry entry) {
+        return entry.created.isDone() && ! entry.created.isCompletedExceptionally();
+    }
+
+    private static long lastModified(Path path) {
+        return path.toFile().lastModified();
+    }
+
+    private static class Entry {
+
+        private final String name;
+        private final Path path;
+        private final CompletableFuture<Void> created = new CompletableFuture<>();
+        private long size = 0;
+        private long lastUsed = 0;
+        private int leases = 0;
+
+        Entry(String name, Path path) {
+            this.name = name;
+            this.path = path;
+        }
+
+    }
+
+    /** Streams a cached file, which is kept in the cache until this is closed. */
+    private class CachedFileReferenceData extends LazyFileReferenceData {
+
+        private final Entry entry;
+        private boolean closed = false;
+
+        CachedFileReferenceData(FileReference reference, String filename, Entry entry, CompressionType compressionType) throws IOException {
+            super(reference, filename, compressed, entry.path.toFile(), compressionType);
+            this.entry = entry;
+        }
+
+        @Override
+        public void close() {
+            try {
+                super.close();
+            }
+            finally {
+                if ( ! closed) {
+                    closed = true;
+                    release(entry);
+                }
+            }
+        }
+
+    }
+
+}
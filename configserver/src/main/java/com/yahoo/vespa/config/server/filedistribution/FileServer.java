@@ -12,6 +12,7 @@ import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
 import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.defaults.Defaults;
 import com.yahoo.vespa.filedistribution.FileApiErrorCodes;
 import com.yahoo.vespa.filedistribution.FileDistributionConnectionPool;
 import com.yahoo.vespa.filedistribution.FileDownloader;
@@ -68,6 +69,7 @@ public class FileServer {
     private final ThreadPoolExecutor executor;
     private final FileDownloader downloader; // downloads files from other config servers
     private final List<CompressionType> compressionTypes; // compression types to use, in preferred order
+    private final Optional<CompressedFileReferenceCache> compressedCache;
 
     public static class ReplayStatus {
         private final int code;
@@ -90,7 +92,9 @@ public class FileServer {
     public FileServer(ConfigserverConfig configserverConfig, FlagSource flagSource, FileDirectory fileDirectory) {
         this(createFileDownloader(getOtherConfigServersInCluster(configserverConfig)),
              compressionTypesToServe,
-             fileDirectory);
+             fileDirectory,
+             Paths.get(Defaults.getDefaults().underVespaHome("var/db/vespa/filedistribution-cache")),
+             configserverConfig.compressedFileReferencesCacheSize());
         // Clean up temporary files from previous runs (e.g. if JVM was killed)
         try (var files = uncheck(() -> Files.list(tempFilereferencedataDir))) {
             files.filter(path -> path.toFile().isFile())
@@ -100,11 +104,23 @@ public class FileServer {
     }
 
     FileServer(FileDownloader fileDownloader, List<CompressionType> compressionTypes, FileDirectory fileDirectory) {
+        this(fileDownloader, compressionTypes, fileDirectory, null, 0);
+    }
+
+    /**
+     * Creates a file server which caches compressed file references in the given directory,
+     * up to the given total size in bytes, if positive
+     */
+    FileServer(FileDownloader fileDownloader, List<CompressionType> compressionTypes, FileDirectory fileDirectory,
+               Path compressedCacheDirectory, long compressedCacheSize) {
         this.downloader = fileDownloader;
         this.fileDirectory = fileDirectory;
         this.executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors()),
                                                                           new DaemonThreadFactory("file-server-"));
         this.compressionTypes = compressionTypes;
+        this.compressedCache = compressedCacheSize > 0
+                               ? Optional.of(new CompressedFileReferenceCache(compressedCacheDirectory, compressedCacheSize))
+                               : Optional.empty();
     }
 
     boolean hasFile(String fileReference) {
@@ -120,7 +136,7 @@ public class FileServer {
         return false;
     }
 
-    FileDirectory getRootDir() { return fileDirectory; }
+    public FileDirectory getRootDir() { return fileDirectory; }
 
     void startFileServing(FileReference reference, File file, Receiver target, Set<CompressionType> acceptedCompressionTypes) {
         var absolutePath = file.getAbsolutePath();
@@ -141,7 +157,9 @@ public class FileServer {
                                                 File file) throws IOException {
         CompressionType compressionType = chooseCompressionType(acceptedCompressionTypes);
         log.log(Level.FINE, () -> "accepted compression types: " + acceptedCompressionTypes + ", will use " + compressionType);
-        if (file.isDirectory()) {
+        if (file.isDirectory() && compressedCache.isPresent()) {
+            return compressedCache.get().get(reference, file, compressionType);
+        } else if (file.isDirectory()) {
             Path tempFile = Files.createTempFile(tempFilereferencedataDir, tempFilereferencedataPrefix, reference.value());
             var start = Instant.now();
             File compressedFile = new FileReferenceCompressor(compressed, compressionType)
@@ -40,6 +40,7 @@ import com.yahoo.vespa.config.server.rpc.security.RpcAuthorizer;
 import com.yahoo.vespa.config.server.tenant.Tenant;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
+import com.yahoo.vespa.filedistribution.FileChunkServer;
 import com.yahoo.vespa.filedistribution.FileDownloader;
 import com.yahoo.vespa.filedistribution.FileReceiver;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
@@ -106,6 +107,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
 
     private final ThreadPoolExecutor executorService;
     private final FileDownloader downloader;
+    private final FileChunkServer chunkServer;
     private volatile boolean allTenantsLoaded = false;
     private boolean isRunning = false;
     boolean isServingConfigRequests = false;
@@ -147,6 +149,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         downloader = fileServer.downloader();
         handlerProvider.setInstance(this);
         setUpFileDistributionHandlers();
+        chunkServer = new FileChunkServer(getSupervisor(), fileServer.getRootDir().getRoot(), Capability.CONFIGSERVER__FILEDISTRIBUTION_API);
     }
 
     private static int threadsToUse() {
@@ -202,6 +205,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         }
         delayedConfigResponses.stop();
         fileServer.close();
+        chunkServer.close();
         supervisor.transport().shutdown().join();
         isRunning = false;
     }
@@ -0,0 +1,124 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.io.IOUtils;
+import com.yahoo.vespa.filedistribution.FileReferenceCompressor;
+import com.yahoo.vespa.filedistribution.FileReferenceData;
+import com.yahoo.vespa.filedistribution.LazyFileReferenceData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class CompressedFileReferenceCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCaching() throws Exception {
+        File root = temporaryFolder.newFolder("references");
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        CompressedFileReferenceCache cache = new CompressedFileReferenceCache(cacheDir, 1 << 20);
+        File file = writeReference(root, "abc", "content-1");
+        FileReference reference = new FileReference("abc");
+
+        assertEquals("content-1", contentOf(cache.get(reference, file, lz4), "abc/f1"));
+
+        // Content is served from the cache, and not compressed again
+        IOUtils.writeFile(new File(file, "f1"), "content-2", false);
+        assertEquals("content-1", contentOf(cache.get(reference, file, lz4), "abc/f1"));
+        assertEquals("content-2", contentOf(cache.get(reference, file, zstd), "abc/f1"));
+        assertEquals(2, filesIn(cacheDir));
+
+        // Concurrent requests for a new entry compress it once
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            File other = writeReference(root, "def", "content-3");
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++)
+                results.add(executor.submit(() -> contentOf(cache.get(new FileReference("def"), other, lz4), "def/f1")));
+            for (Future<String> result : results)
+                assertEquals("content-3", result.get());
+            assertEquals(3, filesIn(cacheDir));
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // A new cache picks up the files of a previous one
+        CompressedFileReferenceCache restarted = new CompressedFileReferenceCache(cacheDir, 1 << 20);
+        assertEquals("content-1", contentOf(restarted.get(reference, file, lz4), "abc/f1"));
+        assertEquals(cache.sizeInBytes(), restarted.sizeInBytes());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        File root = temporaryFolder.newFolder("references");
+        Path cacheDir = temporaryFolder.getRoot().toPath().resolve("cache");
+        File first = writeReference(root, "first", "1".repeat(1000));
+        File second = writeReference(root, "second", "2".repeat(1000));
+        File third = writeReference(root, "third", "3".repeat(1000));
+
+        CompressedFileReferenceCache unbounded = new CompressedFileReferenceCache(temporaryFolder.getRoot().toPath().resolve("unbounded"), Long.MAX_VALUE);
+        contentOf(unbounded.get(new FileReference("first"), first, lz4), "first/f1");
+        long entrySize = unbounded.sizeInBytes();
+
+        CompressedFileReferenceCache cache = new CompressedFileReferenceCache(cacheDir, 2 * entrySize + entrySize / 2);
+        contentOf(cache.get(new FileReference("first"), first, lz4), "first/f1");
+        contentOf(cache.get(new FileReference("second"), second, lz4), "second/f1");
+        contentOf(cache.get(new FileReference("first"), first, lz4), "first/f1"); // second is now least recently used
+        assertEquals(2, filesIn(cacheDir));
+
+        // Entries in use are not evicted, so the cache may exceed its limit until they are closed
+        try (LazyFileReferenceData third1 = cache.get(new FileReference("third"), third, lz4);
+             LazyFileReferenceData first1 = cache.get(new FileReference("first"), first, lz4)) {
+            assertEquals(2, filesIn(cacheDir));
+            assertFalse(Files.exists(cacheDir.resolve("second.lz4")));
+            assertTrue(Files.exists(cacheDir.resolve("third.lz4")));
+        }
+        assertEquals(2 * entrySize, cache.sizeInBytes());
+    }
+
+    private File writeReference(File root, String name, String content) throws IOException {
+        File dir = new File(root, name);
+        IOUtils.writeFile(new File(dir, "f1"), content, false);
+        return dir;
+    }
+
+    private String contentOf(FileReferenceData data, String path) throws IOException {
+        try (data) {
+            File compressed = temporaryFolder.newFile();
+            IOUtils.writeFile(compressed, data.content().array());
+            File decompressed = temporaryFolder.newFolder();
+            new FileReferenceCompressor(FileReferenceData.Type.compressed, data.compressionType()).decompress(compressed, decompressed);
+            return IOUtils.readFile(new File(decompressed, path));
+        }
+    }
+
+    private static long filesIn(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+
+}
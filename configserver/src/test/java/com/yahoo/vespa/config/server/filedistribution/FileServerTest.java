@@ -28,6 +28,7 @@ import java.util.concurrent.ExecutionException;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.none;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -112,6 +113,26 @@ public class FileServerTest {
         assertEquals("dummy-data-2", IOUtils.readFile(new File(downloadedFileUncompressed, "12z/f1")));
     }
 
+    @Test
+    public void requireThatCompressedDirIsCachedInGivenDirectory() throws IOException, InterruptedException, ExecutionException {
+        File rootDir = new File(temporaryFolder.newFolder("fileserver-root-4").getAbsolutePath());
+        File cacheDir = temporaryFolder.newFolder("fileserver-cache");
+        fileServer = new FileServer(new MockFileDownloader(rootDir), List.of(lz4), new FileDirectory(rootDir), cacheDir.toPath(), 1 << 20);
+        IOUtils.writeFile(rootDir + "/subdir/12z/f1", "dummy-data-2", true);
+        FileReference fileReference = new FileReference("subdir");
+        var file = fileServer.getFileDownloadIfNeeded(new FileReferenceDownload(fileReference, "test"));
+
+        CompletableFuture<byte []> first = new CompletableFuture<>();
+        fileServer.startFileServing(fileReference, file.get(), new FileReceiver(first), Set.of(lz4));
+        String[] cached = cacheDir.list();
+        assertEquals(1, cached.length);
+
+        CompletableFuture<byte []> second = new CompletableFuture<>();
+        fileServer.startFileServing(fileReference, file.get(), new FileReceiver(second), Set.of(lz4));
+        assertArrayEquals(cached, cacheDir.list());
+        assertArrayEquals(first.get(), second.get());
+    }
+
     @Test
     public void requireThatDifferentNumberOfConfigServersWork() throws IOException {
         // Empty connection pool in tests etc.
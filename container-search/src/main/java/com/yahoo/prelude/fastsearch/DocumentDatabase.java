@@ -3,6 +3,7 @@ package com.yahoo.prelude.fastsearch;
 
 import com.yahoo.search.schema.Schema;
 
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Representation of a document database realizing a schema in a content cluster.
@@ -14,16 +15,26 @@ public class DocumentDatabase {
     public static final String MATCH_PROPERTY = "match";
     public static final String SEARCH_DOC_TYPE_KEY = "documentdb.searchdoctype";
 
+    private static final AtomicLong generations = new AtomicLong();
+
     private final Schema schema;
     private final DocsumDefinitionSet docsumDefSet;
+    private final long generation;
 
     public DocumentDatabase(Schema schema) {
         this.schema = schema;
         this.docsumDefSet = new DocsumDefinitionSet(schema);
+        this.generation = generations.incrementAndGet();
     }
 
     public Schema schema() { return schema; }
 
+    /**
+     * Returns the generation of this, which is unique to this instance. A new instance is created
+     * each time the backend is reconfigured, e.g. on redeployment.
+     */
+    public long generation() { return generation; }
+
     /** Returns the document summary model in this which knows how to convert serialized data to hit fields. */
     public DocsumDefinitionSet getDocsumDefinitionSet() { return docsumDefSet; }
 
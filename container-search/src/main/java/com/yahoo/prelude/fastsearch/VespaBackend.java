@@ -102,11 +102,26 @@ public abstract class VespaBackend {
      */
     public boolean summaryNeedsQuery(Query query) {
         if (query.getRanking().getQueryCache()) return false;  // Query is cached in backend
+        return summaryDependsOnQuery(query);
+    }
+
+    /**
+     * Returns whether the summaries requested by this query depends on the query, such that
+     * the same summary of a document may be different for other queries.
+     */
+    public boolean summaryDependsOnQuery(Query query) {
+        return summaryDependsOnQuery(query, query.getPresentation().getSummary());
+    }
 
+    /**
+     * Returns whether the given summary class, when filled for this query, depends on the query, such that
+     * the same summary of a document may be different for other queries.
+     */
+    public boolean summaryDependsOnQuery(Query query, String summaryClass) {
         DocumentDatabase documentDb = getDocumentDatabase(query);
 
         // Needed to generate a dynamic summary?
-        DocsumDefinition docsumDefinition = documentDb.getDocsumDefinitionSet().getDocsum(query.getPresentation().getSummary());
+        DocsumDefinition docsumDefinition = documentDb.getDocsumDefinitionSet().getDocsum(summaryClass);
         if (docsumDefinition.isDynamic()) return true;
 
         if (hasLocation(query.getModel().getQueryTree())) return true;
@@ -117,8 +132,6 @@ public abstract class VespaBackend {
         if (rankProfile.hasSummaryFeatures()) return true;
         if (query.getRanking().getListFeatures()) return true;
 
-        // (Don't just add other checks here as there is a return false above)
-
         return false;
     }
 
@@ -301,6 +301,7 @@ public class RuleBase {
     public void initialize() {
         inlineIncluded();
         makeReferences();
+        analyzer.initialize();
     }
 
     /**
@@ -366,7 +367,7 @@ public class RuleBase {
         }
     }
 
-    /** Returns the rules in added order */
+    /** Returns the rules in added order. Call {@link #initialize} after modifying rules through this. */
     public ListIterator<ProductionRule> ruleIterator() { return productionRules.listIterator(); }
 
     /** Returns the rules unmodifiable */
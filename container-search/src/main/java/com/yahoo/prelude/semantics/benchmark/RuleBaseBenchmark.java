@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.search.Query;
@@ -15,6 +16,10 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleImporter;
 import com.yahoo.prelude.semantics.parser.ParseException;
 
+/**
+ * Measures the time used to evaluate a rule base over a set of queries, either given as files,
+ * or generated to measure how the time spent per query depends on rule base size.
+ */
 public class RuleBaseBenchmark {
 
     public void benchmark(String ruleBaseFile, String queryFile, int iterations)
@@ -49,18 +54,61 @@ public class RuleBaseBenchmark {
                 "\n           fsa=" + fsaFile +
                 "\n           queries=" + queryFile +
                 "\n           iterations=" + iterations +
-                "\n           elapsed=" + elapsed + "ms\n");
+                "\n           elapsed=" + elapsed + "ms" +
+                "\n           per query=" + perQuery(elapsed, queries.size() * iterations) + "\n");
+    }
+
+    /**
+     * Benchmarks generated synonym rule bases of increasing size up to the given number of rules,
+     * over queries where some terms trigger a rule and some do not. As only the rules triggered by a query
+     * are evaluated, the time per query should not grow with the number of rules.
+     */
+    public void benchmarkSynthetic(int maxRuleCount, int iterations) throws IOException, ParseException {
+        List<String> queries = List.of("term1", "term7 other", "unmatched words only", "term42 term43 more words",
+                                       "a somewhat longer query with term3 in it", "nothing here either");
+        for (int ruleCount = Math.min(100, maxRuleCount); ruleCount <= maxRuleCount; ruleCount *= 10) {
+            StringBuilder rules = new StringBuilder();
+            for (int i = 0; i < ruleCount; i++)
+                rules.append("term").append(i).append(" +> synonym").append(i).append(";\n");
+            rules.append("[brand] -> brand:[brand];\n");
+            rules.append("[brand] :- brand1, brand2, brand3;\n");
+            RuleBase ruleBase = RuleBase.createFromString("synthetic", rules.toString(), null, new SimpleLinguistics());
+
+            for (int i = 0; i < iterations / 10; i++) // warmup
+                analyze(ruleBase, queries);
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                analyze(ruleBase, queries);
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+            System.out.print("BENCHMARK: rules=" + ruleCount +
+                             "\n           iterations=" + iterations +
+                             "\n           elapsed=" + elapsed + "ms" +
+                             "\n           per query=" + perQuery(elapsed, queries.size() * iterations) + "\n");
+        }
+    }
+
+    private void analyze(RuleBase ruleBase, List<String> queries) {
+        for (String queryString : queries)
+            ruleBase.analyze(new Query("?query=" + queryString.replace(' ', '+')), 0);
+    }
+
+    private static String perQuery(long elapsedMillis, long queryCount) {
+        return String.format("%.1f", elapsedMillis * 1000.0 / queryCount) + "us";
     }
 
 
     public static void main(String[] args) {
         if(args.length<3){
             System.out.println("USAGE: RuleBaseBenchmark ruleBaseFile queryFile iterations");
+            System.out.println("       RuleBaseBenchmark --synthetic maxRuleCount iterations");
             System.exit(1);
         }
 
         try {
-            new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
+            if (args[0].equals("--synthetic"))
+                new RuleBaseBenchmark().benchmarkSynthetic(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            else
+                new RuleBaseBenchmark().benchmark(args[0],args[1],Integer.parseInt(args[2]));
         }
         catch (Exception e) {
             System.out.println("ERROR: " + collectMessage(e));
@@ -6,6 +6,7 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.search.Query;
 import com.yahoo.search.query.QueryTree;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -117,6 +118,9 @@ public class Evaluation {
 
     public int getQuerySize() { return flattenedItems.size(); }
 
+    /** Returns the items of the query as of the last reset, in the order rules are matched against them */
+    List<FlattenedItem> items() { return Collections.unmodifiableList(flattenedItems); }
+
     /** Advances to the next item as current item */
     public void next() {
         currentIndex++;
@@ -7,7 +7,7 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.RuleBaseException;
 import com.yahoo.prelude.semantics.rule.ProductionRule;
 
-import java.util.ListIterator;
+import java.util.BitSet;
 
 /**
  * Evaluates the rules of a rule base. This method is thread safe on analyze calls, but
@@ -19,10 +19,25 @@ public class RuleEngine {
 
     private final RuleBase rules;
 
+    /** The index of the rules of the rule base, or null if not created yet */
+    private volatile RuleIndex index = null;
+
     public RuleEngine(RuleBase rules) {
         this.rules=rules;
     }
 
+    /** Prepares this for evaluating the rules currently in the rule base. This must be called when rules are changed. */
+    public void initialize() {
+        index = new RuleIndex(rules.rules());
+    }
+
+    private RuleIndex index() {
+        RuleIndex index = this.index;
+        if (index == null)
+            this.index = index = new RuleIndex(rules.rules());
+        return index;
+    }
+
     /**
      * Evaluates a rule base over a query
      *
@@ -32,19 +47,22 @@ public class RuleEngine {
      *         If there is an error, this query is destroyed (unusable)
      */
     public String evaluate(Query query, int traceLevel) {
-        // TODO: This is O(query size*rule base size). We'll eventually need to create indices
-        //       on rules to look up rule candidates per term to make it O(query size) instead
-        //       Probably create indices on the first term like Prolog implementations use to
-
         boolean matchedAnything = false;
         Evaluation evaluation = new Evaluation(query, rules, traceLevel);
         if (traceLevel >= 2)
             evaluation.trace(2,"Evaluating query '" + evaluation.getQuery().getModel().getQueryTree().getRoot() + "':");
-        for (ListIterator<ProductionRule> i = rules.ruleIterator(); i.hasNext(); ) {
+
+        // Only rules triggered by some term in the query can match it. Skipping the others
+        // does not change the result since evaluating a rule which does not match has no effect
+        RuleIndex index = index();
+        BitSet candidates = index.candidates(evaluation.items());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
             evaluation.reset();
-            ProductionRule rule = i.next();
+            ProductionRule rule = index.rule(i);
             boolean matched = matchRuleAtAllStartPoints(evaluation,rule);
             matchedAnything |= matched;
+            if (matched) // the query is rewritten, which may trigger subsequent rules
+                candidates.or(index.candidates(evaluation.items()));
         }
 
         if ( ! matchedAnything) return null;
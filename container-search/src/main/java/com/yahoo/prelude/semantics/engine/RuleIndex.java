@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.engine;
+
+import com.yahoo.prelude.query.TermItem;
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+import com.yahoo.prelude.semantics.rule.TermCondition;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An index of the rules of a rule base by the terms which triggers them: A rule is only a candidate
+ * to match a query if the query contains one of its trigger terms.
+ * Rules whose conditions may match without any particular term are candidates for all queries.
+ * Candidates are returned as positions in rule order, such that rules can be evaluated in the order they are
+ * specified while skipping the others.
+ *
+ * This is immutable and thread safe.
+ *
+ * @author bratseth
+ */
+final class RuleIndex {
+
+    private final List<ProductionRule> rules;
+
+    /** The rules which may match any query */
+    private final BitSet unconditionalRules = new BitSet();
+
+    /** Rule positions by trigger term, by the linguistics the terms are processed with */
+    private final Map<RuleBaseLinguistics, Map<String, int[]>> rulesByTerm;
+
+    RuleIndex(List<ProductionRule> rules) {
+        this.rules = List.copyOf(rules);
+        Map<RuleBaseLinguistics, Map<String, List<Integer>>> rulesByTerm = new LinkedHashMap<>();
+        for (int i = 0; i < this.rules.size(); i++) {
+            Optional<List<TermCondition>> triggerTerms = this.rules.get(i).triggerTerms();
+            if (triggerTerms.isEmpty()) {
+                unconditionalRules.set(i);
+                continue;
+            }
+            for (TermCondition term : triggerTerms.get()) {
+                List<Integer> positions = rulesByTerm.computeIfAbsent(term.linguistics(), __ -> new HashMap<>())
+                                                     .computeIfAbsent(term.term(), __ -> new ArrayList<>());
+                if (positions.isEmpty() || positions.get(positions.size() - 1) != i)
+                    positions.add(i);
+            }
+        }
+        this.rulesByTerm = new LinkedHashMap<>();
+        rulesByTerm.forEach((linguistics, positionsByTerm) -> {
+            Map<String, int[]> compacted = new HashMap<>();
+            positionsByTerm.forEach((term, positions) -> compacted.put(term, positions.stream().mapToInt(Integer::intValue).toArray()));
+            this.rulesByTerm.put(linguistics, compacted);
+        });
+    }
+
+    /** Returns the rule at the given position */
+    ProductionRule rule(int position) { return rules.get(position); }
+
+    /** Returns the number of rules in this */
+    int size() { return rules.size(); }
+
+    /** Returns the positions of the rules which may match a query containing the given items */
+    BitSet candidates(List<FlattenedItem> items) {
+        BitSet candidates = (BitSet)unconditionalRules.clone();
+        for (var entry : rulesByTerm.entrySet()) {
+            for (FlattenedItem item : items) {
+                TermItem termItem = item.getItem();
+                if (termItem == null) continue;
+                int[] positions = entry.getValue().get(entry.getKey().process(termItem.stringValue()));
+                if (positions == null) continue;
+                for (int position : positions)
+                    candidates.set(position);
+            }
+        }
+        return candidates;
+    }
+
+}
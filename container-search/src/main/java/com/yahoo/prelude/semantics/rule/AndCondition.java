@@ -2,6 +2,9 @@
 package com.yahoo.prelude.semantics.rule;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.Choicepoint;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -32,6 +35,11 @@ public class AndCondition extends CompositeCondition {
                 && ! (getParent() instanceof ChoiceCondition));
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return triggerTermsOfAll(expanding);
+    }
+
     protected String toInnerString() {
          return toInnerString(" & ");
      }
@@ -2,6 +2,9 @@
 package com.yahoo.prelude.semantics.rule;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
@@ -26,6 +29,11 @@ public class ChoiceCondition extends CompositeCondition {
         return false;
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return triggerTermsOfAny(expanding);
+    }
+
     protected String toInnerString() {
          return toInnerString(", ");
      }
@@ -3,7 +3,10 @@ package com.yahoo.prelude.semantics.rule;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.Choicepoint;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -79,6 +82,11 @@ public class ComparisonCondition extends CompositeCondition {
         setCondition(1,rightCondition);
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return triggerTermsOfAll(expanding);
+    }
+
     protected String toInnerString() {
         return toInnerString(operator.toString());
     }
@@ -1,9 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.prelude.semantics.rule;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -92,6 +95,28 @@ public abstract class CompositeCondition extends Condition {
         }
     }
 
+    /** Returns the smallest trigger terms of any subcondition, for conditions which match only if all subconditions do */
+    protected final Optional<List<TermCondition>> triggerTermsOfAll(Set<NamedCondition> expanding) {
+        Optional<List<TermCondition>> smallest = Optional.empty();
+        for (Condition condition : conditions) {
+            var terms = condition.triggerTerms(expanding);
+            if (terms.isPresent() && (smallest.isEmpty() || terms.get().size() < smallest.get().size()))
+                smallest = terms;
+        }
+        return smallest;
+    }
+
+    /** Returns the trigger terms of all subconditions, for conditions which match if any subcondition does */
+    protected final Optional<List<TermCondition>> triggerTermsOfAny(Set<NamedCondition> expanding) {
+        List<TermCondition> all = new ArrayList<>();
+        for (Condition condition : conditions) {
+            var terms = condition.triggerTerms(expanding);
+            if (terms.isEmpty()) return Optional.empty();
+            all.addAll(terms.get());
+        }
+        return Optional.of(all);
+    }
+
     /** Whether this should be output with parentheses, default is parent!=null */
     protected boolean useParentheses() {
         return getParent() != null;
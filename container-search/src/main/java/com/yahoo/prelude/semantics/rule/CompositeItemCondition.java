@@ -5,6 +5,10 @@ import com.yahoo.prelude.query.PhraseItem;
 import com.yahoo.prelude.semantics.engine.Choicepoint;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * A condition on the presense of a particular kind of composite item (possibly also with a particular content)
  *
@@ -25,6 +29,11 @@ public class CompositeItemCondition extends CompositeCondition {
 
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return triggerTermsOfAll(expanding);
+    }
+
     @Override
     protected String toInnerString() {
         if (getLabel()!=null)
@@ -6,6 +6,10 @@ import com.yahoo.prelude.semantics.RuleBase;
 import com.yahoo.prelude.semantics.engine.FlattenedItem;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * Superclass of all kinds of conditions of production rules
  *
@@ -211,6 +215,17 @@ public abstract class Condition {
     /** Override if references needs to be set in this condition of its children */
     public void makeReferences(RuleBase rules) { }
 
+    /**
+     * Returns the term conditions of which at least one must match some item in a query for this to match it,
+     * or empty if this may match queries which contain none of the terms it knows of.
+     * This returns empty by default, which is always correct.
+     *
+     * @param expanding the named conditions currently being expanded, to avoid following recursive references
+     */
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return Optional.empty();
+    }
+
     protected String getLabelString() {
         if (label == null) return "";
         return label + ":";
@@ -10,6 +10,11 @@ import com.yahoo.prelude.semantics.engine.FlattenedItem;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 import com.yahoo.protect.Validator;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * A reference to a named condition
  *
@@ -105,6 +110,14 @@ public class ConditionReference extends Condition {
         }
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        if (namedCondition == null || expanding.contains(namedCondition)) return Optional.empty();
+        Set<NamedCondition> expandingThis = new HashSet<>(expanding);
+        expandingThis.add(namedCondition);
+        return namedCondition.getCondition().triggerTerms(expandingThis);
+    }
+
     protected boolean hasOpenChoicepoint(RuleEvaluation e) {
         if (namedCondition == null) return false;
         return namedCondition.getCondition().hasOpenChoicepoint(e);
@@ -2,7 +2,10 @@
 package com.yahoo.prelude.semantics.rule;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import com.yahoo.prelude.semantics.RuleBase;
@@ -54,6 +57,15 @@ public abstract class ProductionRule {
         production.addMatchReferences(matchReferences);
     }
 
+    /**
+     * Returns the term conditions of which at least one must match an item in a query for this rule to match it,
+     * or empty if this may match queries regardless of their terms.
+     * References must be made before calling this.
+     */
+    public Optional<List<TermCondition>> triggerTerms() {
+        return condition.triggerTerms(new HashSet<>());
+    }
+
     /** Carries out the production of this rule */
     public void produce(RuleEvaluation e) {
         production.produce(e);
@@ -2,6 +2,9 @@
 package com.yahoo.prelude.semantics.rule;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 import com.yahoo.prelude.semantics.engine.Choicepoint;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
@@ -30,6 +33,11 @@ public class SequenceCondition extends CompositeCondition {
                 && ! (getParent() instanceof ChoiceCondition));
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        return triggerTermsOfAll(expanding);
+    }
+
     public String toInnerString() {
         return toInnerString(" ");
     }
@@ -3,6 +3,10 @@ package com.yahoo.prelude.semantics.rule;
 
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * A condition which evaluates the <i>last included</i> version of
  * the named condition this is a premise of.
@@ -25,6 +29,12 @@ public class SuperCondition extends Condition {
         return condition.matches(e);
     }
 
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        if (condition == null) return Optional.empty();
+        return condition.triggerTerms(expanding);
+    }
+
     public String toInnerString() {
         if (condition==null)
             return "@super";
@@ -5,6 +5,10 @@ import com.yahoo.prelude.semantics.engine.NameSpace;
 import com.yahoo.prelude.semantics.engine.RuleBaseLinguistics;
 import com.yahoo.prelude.semantics.engine.RuleEvaluation;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * A term in a rule
  *
@@ -50,6 +54,15 @@ public class TermCondition extends Condition {
 
     public String term() { return term; }
 
+    /** Returns the linguistics this processes terms with */
+    public RuleBaseLinguistics linguistics() { return linguistics; }
+
+    @Override
+    Optional<List<TermCondition>> triggerTerms(Set<NamedCondition> expanding) {
+        if (getNameSpace() != null) return Optional.empty();
+        return Optional.of(List.of(this));
+    }
+
     @Override
     public String toInnerString() {
         return getLabelString() + term;
@@ -6,12 +6,14 @@ import com.yahoo.component.ComponentId;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.VespaBackend;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.SearchPath.InvalidSearchPathException;
+import com.yahoo.search.dispatch.rpc.DocsumCache;
 import com.yahoo.search.dispatch.rpc.RpcConnectionPool;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
@@ -66,6 +68,8 @@ public class Dispatcher extends AbstractComponent {
     private final RpcConnectionPool rpcResourcePool;
     private final SearchCluster searchCluster;
     private final ClusterMonitor<Node> clusterMonitor;
+    private final Optional<Hedging> hedging;
+    private final GroupingMerging groupingMerging;
     private volatile VolatileItems volatileItems;
 
     private static class VolatileItems {
@@ -118,40 +122,51 @@ public class Dispatcher extends AbstractComponent {
     }
 
     @Inject
-    public Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, DispatchNodesConfig nodesConfig, VipStatus vipStatus) {
-        this(clusterId, dispatchConfig, new RpcResourcePool(dispatchConfig, nodesConfig), nodesConfig, vipStatus, RpcInvokerFactory::new);
+    public Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, DispatchNodesConfig nodesConfig,
+                      VipStatus vipStatus, Metric metric) {
+        this(clusterId, dispatchConfig, new RpcResourcePool(dispatchConfig, nodesConfig), nodesConfig, vipStatus, metric,
+             rpcInvokerFactories(DocsumCache.from(dispatchConfig, metric)));
         initialWarmup(dispatchConfig.warmuptime());
     }
 
+    /** Returns a factory of invoker factories which share the given summary cache across reconfigurations of nodes */
+    private static InvokerFactoryFactory rpcInvokerFactories(Optional<DocsumCache> docsumCache) {
+        return (rpcConnectionPool, searchGroups, dispatchConfig) -> new RpcInvokerFactory(rpcConnectionPool, searchGroups,
+                                                                                          dispatchConfig, docsumCache);
+    }
+
     Dispatcher(ComponentId clusterId, DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
-               DispatchNodesConfig nodesConfig, VipStatus vipStatus, InvokerFactoryFactory invokerFactories) {
+               DispatchNodesConfig nodesConfig, VipStatus vipStatus, Metric metric, InvokerFactoryFactory invokerFactories) {
         this(dispatchConfig, rpcConnectionPool,
              new SearchCluster(clusterId.stringValue(), AvailabilityPolicy.from(dispatchConfig),
                                toNodes(clusterId.stringValue(), nodesConfig), vipStatus, new RpcPingFactory(rpcConnectionPool)),
-             invokerFactories);
+             metric, invokerFactories);
     }
 
     Dispatcher(DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
-               SearchCluster searchCluster, InvokerFactoryFactory invokerFactories) {
-        this(dispatchConfig, rpcConnectionPool, searchCluster, new ClusterMonitor<>(searchCluster, false), invokerFactories);
+               SearchCluster searchCluster, Metric metric, InvokerFactoryFactory invokerFactories) {
+        this(dispatchConfig, rpcConnectionPool, searchCluster, new ClusterMonitor<>(searchCluster, false), metric, invokerFactories);
         this.clusterMonitor.start(); // Populate nodes to monitor before starting it.
     }
 
     Dispatcher(DispatchConfig dispatchConfig, RpcConnectionPool rpcConnectionPool,
-               SearchCluster searchCluster, ClusterMonitor<Node> clusterMonitor, InvokerFactoryFactory invokerFactories) {
+               SearchCluster searchCluster, ClusterMonitor<Node> clusterMonitor, Metric metric,
+               InvokerFactoryFactory invokerFactories) {
         this.dispatchConfig = dispatchConfig;
         this.rpcResourcePool = rpcConnectionPool;
         this.searchCluster = searchCluster;
         this.invokerFactories = invokerFactories;
         this.clusterMonitor = clusterMonitor;
+        this.hedging = Hedging.from(dispatchConfig, metric);
+        this.groupingMerging = GroupingMerging.from(dispatchConfig, metric);
         this.volatileItems = update();
         searchCluster.addMonitoring(clusterMonitor);
     }
 
     /* For simple mocking in tests. Beware that searchCluster is shutdown in deconstruct() */
     Dispatcher(ClusterMonitor<Node> clusterMonitor, SearchCluster searchCluster,
-               DispatchConfig dispatchConfig, InvokerFactory invokerFactory) {
-        this(dispatchConfig, null, searchCluster, clusterMonitor, (__, ___, ____) -> invokerFactory);
+               DispatchConfig dispatchConfig, Metric metric, InvokerFactory invokerFactory) {
+        this(dispatchConfig, null, searchCluster, clusterMonitor, metric, (__, ___, ____) -> invokerFactory);
     }
 
     /** Returns the snapshot of volatile items that need to be kept together, incrementing its reference counter. */
@@ -207,8 +222,10 @@ public class Dispatcher extends AbstractComponent {
     }
 
     private VolatileItems update() {
+        InvokerFactory invokerFactory = invokerFactories.create(rpcResourcePool, searchCluster.groupList(), dispatchConfig);
+        invokerFactory.setGroupingMerging(groupingMerging);
         return new VolatileItems(new LoadBalancer(searchCluster.groupList().groups(), toLoadBalancerPolicy(dispatchConfig.distributionPolicy())),
-                                 invokerFactories.create(rpcResourcePool, searchCluster.groupList(), dispatchConfig));
+                                 invokerFactory);
     }
 
     private void initialWarmup(double warmupTime) {
@@ -261,6 +278,7 @@ public class Dispatcher extends AbstractComponent {
         if (rpcResourcePool != null) {
             rpcResourcePool.close();
         }
+        groupingMerging.shutdown();
     }
 
     public FillInvoker getFillInvoker(Result result, VespaBackend searcher) {
@@ -273,7 +291,7 @@ public class Dispatcher extends AbstractComponent {
         try (var items = volatileItems()) { // Take a snapshot, and release it when we're done.
             int maxHitsPerNode = dispatchConfig.maxHitsPerNode();
             SearchInvoker invoker = getSearchPathInvoker(query, searcher, searchCluster.groupList(), items.get().invokerFactory, maxHitsPerNode)
-                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory, maxHitsPerNode));
+                    .orElseGet(() -> getInternalInvoker(query, searcher, searchCluster, items.get().loadBalancer, items.get().invokerFactory, hedging, maxHitsPerNode));
 
             if (query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
                 query.setHits(0);
@@ -305,7 +323,8 @@ public class Dispatcher extends AbstractComponent {
     }
 
     private static SearchInvoker getInternalInvoker(Query query, VespaBackend searcher, SearchCluster cluster,
-                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory, int maxHitsPerNode) {
+                                                    LoadBalancer loadBalancer, InvokerFactory invokerFactory,
+                                                    Optional<Hedging> hedging, int maxHitsPerNode) {
         Optional<Node> directNode = cluster.localCorpusDispatchTarget();
         if (directNode.isPresent()) {
             Node node = directNode.get();
@@ -335,7 +354,9 @@ public class Dispatcher extends AbstractComponent {
             if (invoker.isPresent()) {
                 query.trace(false, 2, "Dispatching to group ", group.id(), " after retries = ", i);
                 query.getModel().setSearchPath("/" + group.id());
-                invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+                releaseGroupOnTeardown(invoker.get(), group, loadBalancer, hedging);
+                if (hedging.isPresent() && groups > 1)
+                    return hedged(invoker.get(), group, query, searcher, loadBalancer, invokerFactory, hedging.get(), maxHitsPerNode);
                 return invoker.get();
             } else {
                 loadBalancer.releaseGroup(group, false, RequestDuration.of(Duration.ZERO));
@@ -345,4 +366,39 @@ public class Dispatcher extends AbstractComponent {
         throw new IllegalStateException("No suitable groups to dispatch query. Rejected: " + rejected);
     }
 
+    private static void releaseGroupOnTeardown(SearchInvoker invoker, Group group, LoadBalancer loadBalancer, Optional<Hedging> hedging) {
+        invoker.teardown((success, time) -> {
+            loadBalancer.releaseGroup(group, success, time);
+            if (success) hedging.ifPresent(h -> h.recordLatency(time.duration()));
+        });
+    }
+
+    /** Returns an invoker which will also dispatch to another group if the given one does not answer in time */
+    private static SearchInvoker hedged(SearchInvoker invoker, Group group, Query query, VespaBackend searcher,
+                                        LoadBalancer loadBalancer, InvokerFactory invokerFactory, Hedging hedging,
+                                        int maxHitsPerNode) {
+        Optional<Duration> delay = hedging.delay();
+        if (delay.isEmpty()) return invoker;
+
+        hedging.queryDispatched();
+        return new HedgedSearchInvoker(invoker, () -> {
+            Optional<Group> otherGroup = loadBalancer.takeGroup(Set.of(group.id()));
+            if (otherGroup.isEmpty()) return Optional.empty();
+
+            Optional<SearchInvoker> other = invokerFactory.createSearchInvoker(searcher,
+                                                                               query,
+                                                                               otherGroup.get().nodes(),
+                                                                               false,
+                                                                               maxHitsPerNode);
+            if (other.isPresent()) {
+                query.trace(false, 2, "Hedging query to group ", otherGroup.get().id());
+                releaseGroupOnTeardown(other.get(), otherGroup.get(), loadBalancer, Optional.of(hedging));
+            }
+            else {
+                loadBalancer.releaseGroup(otherGroup.get(), false, RequestDuration.of(Duration.ZERO));
+            }
+            return other;
+        }, delay.get(), hedging);
+    }
+
 }
@@ -0,0 +1,80 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how grouping results from content nodes are merged in the container: The top level groups of large
+ * groupings are split into shards which are merged by a bounded set of threads while further responses are received,
+ * while small groupings are merged on the query thread.
+ *
+ * This is multithread safe.
+ *
+ * @author bratseth
+ */
+class GroupingMerging {
+
+    /** Merges no groupings in parallel, and records no metrics */
+    static final GroupingMerging inline = new GroupingMerging(0, null);
+
+    /** Groupings with fewer top level groups than this are always merged on the query thread */
+    static final int minGroupsForParallelMerge = 100;
+
+    /** The max number of merges waiting for a thread, before merges are done by the thread submitting them instead */
+    private static final int maxQueuedMerges = 1000;
+
+    private final ThreadPoolExecutor executor;
+    private final Metric metric;
+
+    /**
+     * Creates a grouping merging policy.
+     *
+     * @param threads the number of threads to merge large groupings in, or 0 to merge all groupings on the query thread
+     * @param metric the metric to record merge time in, or null to not record it
+     */
+    GroupingMerging(int threads, Metric metric) {
+        if (threads < 0) throw new IllegalArgumentException("Grouping merge threads cannot be negative, but got " + threads);
+        this.executor = threads == 0 ? null : new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                                                                     new ArrayBlockingQueue<>(maxQueuedMerges),
+                                                                     new DaemonThreadFactory("grouping-merge-"),
+                                                                     (merge, executor) -> merge.run());
+        this.metric = metric;
+    }
+
+    static GroupingMerging from(DispatchConfig config, Metric metric) {
+        return new GroupingMerging(config.groupingMergeThreads(), metric);
+    }
+
+    /** Returns the executor to merge a grouping having the given number of top level groups in, or empty to merge it inline */
+    Optional<Executor> executorFor(int groups) {
+        if (executor == null || groups < minGroupsForParallelMerge) return Optional.empty();
+        return Optional.of(executor);
+    }
+
+    /** Returns the number of shards to split the top level groups of a grouping merged in parallel into */
+    int shards() {
+        return executor == null ? 1 : executor.getCorePoolSize();
+    }
+
+    /** Records the total time spent merging the grouping results of a query */
+    void recordMergeTime(Duration mergeTime) {
+        if (metric == null) return;
+        metric.set(ContainerMetrics.GROUPING_MERGE_LATENCY.baseName(), mergeTime.toNanos() / 1_000_000.0, null);
+    }
+
+    void shutdown() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
+}
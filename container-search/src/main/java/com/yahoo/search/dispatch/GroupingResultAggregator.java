@@ -4,29 +4,48 @@ package com.yahoo.search.dispatch;
 import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.GroupingListHit;
 import com.yahoo.search.Query;
+import com.yahoo.searchlib.aggregation.Group;
 import com.yahoo.searchlib.aggregation.Grouping;
 import com.yahoo.searchlib.aggregation.Hit;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Incrementally merges underlying {@link Grouping} instances from {@link GroupingListHit} hits.
+ * The top level groups of large groupings are split into shards by their id, and each shard is merged
+ * by other threads while further hits are received, such that merges of the same shard are done in sequence,
+ * and merges of different shards and groupings in parallel.
  *
  * @author bjorncs
  */
 class GroupingResultAggregator {
     private static final Logger log = Logger.getLogger(GroupingResultAggregator.class.getName());
 
-    private final Map<Integer, Grouping> groupings = new LinkedHashMap<>();
+    private final GroupingMerging merging;
+    private final Map<Integer, MergedGrouping> groupings = new LinkedHashMap<>();
+    private final List<Integer> incompleteGroupings = new ArrayList<>();
+    private final AtomicLong mergeNanos = new AtomicLong();
     private DocumentDatabase documentDatabase = null;
     private Query query = null;
     private int groupingHitsMerged = 0;
 
+    GroupingResultAggregator(GroupingMerging merging) {
+        this.merging = merging;
+    }
+
     void mergeWith(GroupingListHit result) {
         ++groupingHitsMerged;
         if (documentDatabase == null) documentDatabase = result.getDocumentDatBase();
@@ -35,25 +54,149 @@ class GroupingResultAggregator {
                 String.format("Merging hit #%d having %d groupings",
                         groupingHitsMerged, result.getGroupingList().size()));
         for (Grouping grouping : result.getGroupingList()) {
-            groupings.merge(grouping.getId(), grouping, (existingGrouping, newGrouping) -> {
-                existingGrouping.merge(newGrouping);
-                return existingGrouping;
-            });
+            MergedGrouping merged = groupings.get(grouping.getId());
+            if (merged == null)
+                groupings.put(grouping.getId(), new MergedGrouping(grouping));
+            else
+                merged.mergeWith(grouping);
         }
     }
 
-    Optional<GroupingListHit> toAggregatedHit() {
+    /**
+     * Returns a hit containing the merged groupings, waiting for merges done by other threads
+     * at most the given number of milliseconds. Groupings which are not merged by then are left out,
+     * and their ids are returned by {@link #incompleteGroupings()}.
+     */
+    Optional<GroupingListHit> toAggregatedHit(long timeoutMillis) {
         if (groupingHitsMerged == 0) return Optional.empty();
         log.log(Level.FINE, () ->
                 String.format("Creating aggregated hit containing %d groupings from %d hits with docsums '%s' and %s",
                         groupings.size(), groupingHitsMerged, documentDatabase.getDocsumDefinitionSet(), query));
-        GroupingListHit groupingHit = new GroupingListHit(List.copyOf(groupings.values()), documentDatabase, query);
+        GroupingListHit groupingHit = new GroupingListHit(awaitMerged(timeoutMillis), documentDatabase, query);
         groupingHit.setQuery(query);
+        long startTime = System.nanoTime();
         groupingHit.getGroupingList().forEach(g -> {
             g.select(o -> o instanceof Hit, o -> ((Hit)o).setContext(groupingHit));
             g.postMerge();
         });
+        mergeNanos.addAndGet(System.nanoTime() - startTime);
         return Optional.of(groupingHit);
     }
 
+    private List<Grouping> awaitMerged(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<Grouping> merged = new ArrayList<>(groupings.size());
+        try {
+            for (Map.Entry<Integer, MergedGrouping> grouping : groupings.entrySet()) {
+                try {
+                    merged.add(grouping.getValue().await(deadline));
+                }
+                catch (TimeoutException e) {
+                    incompleteGroupings.add(grouping.getKey());
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new RuntimeException("Failed merging grouping results", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while merging grouping results", e);
+        }
+        return List.copyOf(merged);
+    }
+
+    /** Returns the total time spent merging groupings in this, by any thread */
+    Duration mergeTime() { return Duration.ofNanos(mergeNanos.get()); }
+
+    /** Returns the number of grouping hits merged into this */
+    int groupingHitsMerged() { return groupingHitsMerged; }
+
+    /** Returns the ids of the groupings which were not merged before the timeout, and left out of the aggregated hit */
+    List<Integer> incompleteGroupings() { return List.copyOf(incompleteGroupings); }
+
+    /** The merge of all groupings having the same id */
+    private class MergedGrouping {
+
+        /** The first grouping received, which holds the merged root group, without children if this is sharded */
+        private final Grouping grouping;
+
+        /** The executor to merge the shards of this in, if this is sharded */
+        private final Optional<Executor> executor;
+
+        /** The merged groupings, if this is not sharded */
+        private CompletableFuture<Grouping> merged;
+
+        /** The merged top level groups, as the children of a group per shard, if this is sharded */
+        private final List<CompletableFuture<Group>> shards = new ArrayList<>();
+
+        MergedGrouping(Grouping first) {
+            this.grouping = first;
+            this.executor = merging.executorFor(first.getRoot().getNumChildren());
+            this.merged = CompletableFuture.completedFuture(first);
+            if (executor.isPresent()) {
+                for (Group shard : split(first))
+                    shards.add(CompletableFuture.completedFuture(shard));
+            }
+        }
+
+        void mergeWith(Grouping next) {
+            if (shards.isEmpty()) {
+                Optional<Executor> nextExecutor = merging.executorFor(next.getRoot().getNumChildren());
+                merged = nextExecutor.isPresent() ? merged.thenApplyAsync(existing -> merge(existing, next), nextExecutor.get())
+                                                  : merged.thenApply(existing -> merge(existing, next));
+                return;
+            }
+            List<Group> nextShards = split(next);
+            long startTime = System.nanoTime();
+            grouping.getRoot().merge(grouping.getFirstLevel(), 0, next.getRoot()); // Neither root has children now
+            mergeNanos.addAndGet(System.nanoTime() - startTime);
+            for (int i = 0; i < shards.size(); i++) {
+                Group nextShard = nextShards.get(i);
+                shards.set(i, shards.get(i).thenApplyAsync(shard -> merge(shard, nextShard), executor.get()));
+            }
+        }
+
+        /** Removes the top level groups from the given grouping, and returns them as the children of a group per shard */
+        private List<Group> split(Grouping grouping) {
+            List<Group> split = new ArrayList<>();
+            for (int i = 0; i < merging.shards(); i++)
+                split.add(new Group());
+            for (Group group : grouping.getRoot().removeChildren())
+                split.get(Math.floorMod(group.getId().hashCode(), split.size())).addChild(group);
+            return split;
+        }
+
+        private Grouping merge(Grouping existingGrouping, Grouping newGrouping) {
+            long startTime = System.nanoTime();
+            existingGrouping.merge(newGrouping);
+            mergeNanos.addAndGet(System.nanoTime() - startTime);
+            return existingGrouping;
+        }
+
+        private Group merge(Group existingShard, Group newShard) {
+            long startTime = System.nanoTime();
+            existingShard.merge(grouping.getFirstLevel(), 0, newShard); // The children of shards are top level groups
+            mergeNanos.addAndGet(System.nanoTime() - startTime);
+            return existingShard;
+        }
+
+        /** Returns the merged grouping, waiting at most until the given time in epoch milliseconds */
+        Grouping await(long deadline) throws ExecutionException, InterruptedException, TimeoutException {
+            if (shards.isEmpty())
+                return merged.get(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+
+            List<Group> mergedShards = new ArrayList<>(shards.size());
+            for (CompletableFuture<Group> shard : shards)
+                mergedShards.add(shard.get(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS));
+            Group root = grouping.getRoot();
+            for (Group shard : mergedShards)
+                shard.removeChildren().forEach(root::addChild);
+            root.sortChildrenById();
+            return grouping;
+        }
+
+    }
+
 }
@@ -0,0 +1,106 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A search invoker which also dispatches the query to another group if the first one has not
+ * answered within a given delay, and returns the result of the group which answers first.
+ * A group has answered once enough of its nodes have answered to meet the minimum search coverage,
+ * and its own adaptive timeout then decides how long to wait for the remaining nodes.
+ *
+ * @author bratseth
+ */
+class HedgedSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
+
+    private final SearchInvoker primary;
+    private final Supplier<Optional<SearchInvoker>> secondaryFactory;
+    private final Duration delay;
+    private final Hedging hedging;
+    private final LinkedBlockingQueue<SearchInvoker> answered = new LinkedBlockingQueue<>();
+
+    private Query query;
+    private SearchInvoker secondary = null;
+
+    /**
+     * Creates a hedged invoker.
+     *
+     * @param primary the invoker of the group the query is dispatched to first
+     * @param secondaryFactory returns an invoker for another group, or empty if none is available.
+     *                         The returned invoker is owned by this.
+     * @param delay how long to wait for the primary before dispatching to the secondary
+     * @param hedging the hedging policy deciding whether the budget allows dispatching to the secondary
+     */
+    HedgedSearchInvoker(SearchInvoker primary, Supplier<Optional<SearchInvoker>> secondaryFactory,
+                        Duration delay, Hedging hedging) {
+        super(Optional.empty());
+        this.primary = primary;
+        this.secondaryFactory = secondaryFactory;
+        this.delay = delay;
+        this.hedging = hedging;
+    }
+
+    @Override
+    protected Object sendSearchRequest(Query query, Object context) throws IOException {
+        this.query = query;
+        primary.setMonitor(this);
+        return primary.sendSearchRequest(query, context);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult() throws IOException {
+        try {
+            SearchInvoker first = answered.poll(Math.min(delay.toMillis(), query.getTimeLeft()), TimeUnit.MILLISECONDS);
+            if (first == null && query.getTimeLeft() > 0 && hedging.tryHedge() && sendToSecondary())
+                first = answered.poll(query.getTimeLeft(), TimeUnit.MILLISECONDS);
+
+            SearchInvoker winner = first == null ? primary : first; // If none answered, the primary reports the timeout
+            InvokerResult result = winner.getSearchResult();
+            winner.setFinalStatus(result.getResult().hits().getError() == null);
+            if (winner == secondary)
+                hedging.hedgeWon();
+            SearchInvoker loser = winner == primary ? secondary : primary;
+            if (first != null && loser != null)
+                loser.setFinalStatus(true); // Record the time the loser has spent so far as its latency when it is closed
+            return result;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for search results", e);
+        }
+    }
+
+    private boolean sendToSecondary() {
+        secondary = secondaryFactory.get().orElse(null);
+        if (secondary == null) return false;
+
+        secondary.setMonitor(this);
+        try {
+            secondary.sendSearchRequest(query, null);
+            return true;
+        } catch (IOException e) { // The primary may still answer
+            query.trace(false, 2, "Failed hedging query: ", e.getMessage());
+            secondary.close();
+            secondary = null;
+            return false;
+        }
+    }
+
+    @Override
+    public void responseAvailable(SearchInvoker from) {
+        answered.add(from);
+    }
+
+    @Override
+    protected void release() {
+        primary.close();
+        if (secondary != null)
+            secondary.close();
+    }
+
+}
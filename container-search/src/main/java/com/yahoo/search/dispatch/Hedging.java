@@ -0,0 +1,99 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Decides when a query which is not yet answered by the group it was dispatched to should also be
+ * dispatched to another group: When it has waited longer than a percentile of recent query latencies,
+ * and the fraction of queries hedged is below the configured maximum.
+ *
+ * This is multithread safe.
+ *
+ * @author bratseth
+ */
+class Hedging {
+
+    /** The number of recent latencies to compute the percentile from */
+    static final int latencySamples = 1000;
+
+    /** Queries are not hedged until this many latencies are recorded */
+    static final int minLatencySamples = 100;
+
+    /** The number of latencies recorded between each recomputation of the percentile */
+    private static final int recomputeInterval = 50;
+
+    /** The max number of hedges which may be saved up for bursts */
+    private static final double maxCredit = 10;
+
+    private final double percentile;
+    private final double maxFraction;
+    private final Metric metric;
+
+    private final long[] latencies = new long[latencySamples];
+    private long latencyCount = 0;
+    private volatile Duration delay = null;
+
+    /** The number of hedges allowed by the budget currently, which accumulates maxFraction for each query */
+    private double credit = 0;
+
+    Hedging(double percentile, double maxFraction, Metric metric) {
+        if (percentile <= 0 || percentile >= 100)
+            throw new IllegalArgumentException("Hedging percentile must be larger than 0 and less than 100, not " + percentile);
+        if (maxFraction < 0 || maxFraction > 1)
+            throw new IllegalArgumentException("Hedging max fraction must be between 0 and 1, not " + maxFraction);
+        this.percentile = percentile;
+        this.maxFraction = maxFraction;
+        this.metric = metric;
+    }
+
+    /** Returns the hedging policy given by this config, or empty if hedging is disabled */
+    static Optional<Hedging> from(DispatchConfig config, Metric metric) {
+        if (config.hedgingPercentile() <= 0 || config.hedgingMaxFraction() <= 0) return Optional.empty();
+        return Optional.of(new Hedging(config.hedgingPercentile(), config.hedgingMaxFraction(), metric));
+    }
+
+    /** Records the latency of a successful query to a group */
+    synchronized void recordLatency(Duration latency) {
+        latencies[(int)(latencyCount++ % latencySamples)] = latency.toNanos();
+        if (latencyCount >= minLatencySamples && latencyCount % recomputeInterval == 0)
+            delay = computeDelay();
+    }
+
+    private Duration computeDelay() {
+        long[] sorted = Arrays.copyOf(latencies, (int)Math.min(latencyCount, latencySamples));
+        Arrays.sort(sorted);
+        int index = (int)Math.ceil(percentile / 100 * sorted.length) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, index)]);
+    }
+
+    /** Returns how long to wait for an answer before hedging, or empty if there are too few latencies recorded yet */
+    Optional<Duration> delay() { return Optional.ofNullable(delay); }
+
+    /** Adds to the hedging budget. This must be called once for each query which may be hedged. */
+    synchronized void queryDispatched() {
+        credit = Math.min(credit + maxFraction, maxCredit);
+    }
+
+    /** Returns whether the budget allows hedging a query now, and if so, spends from it */
+    boolean tryHedge() {
+        synchronized (this) {
+            if (credit < 1) return false;
+            credit -= 1;
+        }
+        metric.add(ContainerMetrics.HEDGED_QUERIES.baseName(), 1, null);
+        return true;
+    }
+
+    /** Records that the group a query was hedged to answered before the group it was first dispatched to */
+    void hedgeWon() {
+        metric.add(ContainerMetrics.HEDGED_QUERY_WINS.baseName(), 1, null);
+    }
+
+}
@@ -12,7 +12,7 @@ import com.yahoo.search.searchchain.Execution;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
@@ -21,6 +21,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -40,9 +41,13 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private final DispatchConfig dispatchConfig;
     private final Group group;
     private final LinkedBlockingQueue<SearchInvoker> availableForProcessing;
+    private final AtomicInteger awaitedResponses = new AtomicInteger();
+    /** The number of awaited responses at which enough nodes have answered to produce a result */
+    private volatile int awaitedResponsesWhenAvailable;
     private final Set<Integer> alreadyFailedNodes;
     private final CoverageAggregator coverageAggregator;
     private final TopKEstimator hitEstimator;
+    private final GroupingMerging groupingMerging;
     private Query query;
 
     private TimeoutHandler timeoutHandler;
@@ -51,6 +56,15 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                                     DispatchConfig dispatchConfig,
                                     Group group,
                                     Set<Integer> alreadyFailedNodes) {
+        this(timer, invokers, hitEstimator, dispatchConfig, group, alreadyFailedNodes, GroupingMerging.inline);
+    }
+
+    InterleavedSearchInvoker(Timer timer, Collection<SearchInvoker> invokers,
+                             TopKEstimator hitEstimator,
+                             DispatchConfig dispatchConfig,
+                             Group group,
+                             Set<Integer> alreadyFailedNodes,
+                             GroupingMerging groupingMerging) {
         super(Optional.empty());
         this.timer = timer;
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -61,6 +75,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         this.alreadyFailedNodes = alreadyFailedNodes;
         this.coverageAggregator = new CoverageAggregator(invokers.size());
         this.hitEstimator = hitEstimator;
+        this.groupingMerging = groupingMerging;
     }
 
     private int estimateHitsToFetch(int wantedHits, int numPartitions) {
@@ -70,6 +85,11 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return hitEstimator.estimateK(wantedHits, numPartitions, topKProbability);
     }
 
+    /** Returns the number of nodes which must answer before the adaptive timeout may end the search */
+    private int minimumResponses(int askedNodes) {
+        return Math.max(1, (int) Math.ceil(askedNodes * Math.min(dispatchConfig.minSearchCoverage(), 100.0) / 100.0));
+    }
+
     private TimeoutHandler createTimeoutHandler(DispatchConfig config, int askedNodes, Query query) {
         return (config.minSearchCoverage() < 100.0D)
                 ? new AdaptiveTimeoutHandler(timer, config, askedNodes, query)
@@ -84,6 +104,8 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected Object sendSearchRequest(Query query, Object unusedContext) throws IOException {
         this.query = query;
+        awaitedResponses.set(invokers.size());
+        awaitedResponsesWhenAvailable = invokers.size() - minimumResponses(invokers.size());
         invokers.forEach(invoker -> invoker.setMonitor(this));
 
         int originalHits = query.getHits();
@@ -116,9 +138,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected InvokerResult getSearchResult() throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = List.of();
+        LeanHitMerger hitMerger = new LeanHitMerger(query.getOffset() + query.getHits());
         long nextTimeout = query.getTimeLeft();
-        var groupingResultAggregator = new GroupingResultAggregator();
+        var groupingResultAggregator = new GroupingResultAggregator(groupingMerging);
         try {
             while (!invokers.isEmpty() && nextTimeout >= 0) {
                 SearchInvoker invoker = availableForProcessing.poll(nextTimeout, TimeUnit.MILLISECONDS);
@@ -128,7 +150,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                     break;
                 } else {
                     InvokerResult toMerge = invoker.getSearchResult();
-                    merged = mergeResult(result.getResult(), toMerge, merged, groupingResultAggregator);
+                    mergeResult(result.getResult(), toMerge, hitMerger, groupingResultAggregator);
                     ejectInvoker(invoker);
                 }
                 nextTimeout = timeoutHandler.nextTimeoutMS(coverageAggregator.getAnsweredNodes());
@@ -136,12 +158,22 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while waiting for search results", e);
         }
-        groupingResultAggregator.toAggregatedHit().ifPresent(h -> result.getResult().hits().add(h));
+        groupingResultAggregator.toAggregatedHit(query.getTimeLeft()).ifPresent(h -> result.getResult().hits().add(h));
+        if ( ! groupingResultAggregator.incompleteGroupings().isEmpty())
+            result.getResult().hits().addError(ErrorMessage.createTimeout("Timed out merging grouping results: Left out groupings " +
+                                                                          groupingResultAggregator.incompleteGroupings()));
+        if (groupingResultAggregator.groupingHitsMerged() > 0) {
+            Duration mergeTime = groupingResultAggregator.mergeTime();
+            query.trace(false, 3, "Merged grouping results from ", groupingResultAggregator.groupingHitsMerged(),
+                        " nodes in ", mergeTime.toMillis(), " ms");
+            groupingMerging.recordMergeTime(mergeTime);
+        }
 
         insertNetworkErrors(result.getResult());
         CoverageAggregator adjusted = coverageAggregator.adjustedDegradedCoverage((int)dispatchConfig.redundancy(), timeoutHandler);
         result.getResult().setCoverage(adjusted.createCoverage(timeoutHandler));
 
+        List<LeanHit> merged = hitMerger.merge();
         int needed = query.getOffset() + query.getHits();
         for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
             result.getLeanHits().add(merged.get(index));
@@ -177,8 +209,8 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current,
-                                      GroupingResultAggregator groupingResultAggregator) {
+    private void mergeResult(Result result, InvokerResult partialResult, LeanHitMerger hitMerger,
+                             GroupingResultAggregator groupingResultAggregator) {
         coverageAggregator.add(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -192,44 +224,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 }
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
-
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incomingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incomingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incomingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
-            }
-        }
-        appendRemainingIfNeeded(merged, needed, current, indexCurrent);
-        appendRemainingIfNeeded(merged, needed, partial, indexPartial);
-        return merged;
-    }
-
-    private void appendRemainingIfNeeded(List<LeanHit> merged, int needed, List<LeanHit> hits, int index) {
-        while ((index < hits.size()) && (merged.size() < needed)) {
-            merged.add(hits.get(index++));
-        }
+        hitMerger.add(partialResult.getLeanHits());
     }
 
     private void ejectInvoker(SearchInvoker invoker) {
@@ -250,11 +245,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         if (availableForProcessing != null) {
             availableForProcessing.add(from);
         }
-    }
-
-    @Override
-    protected void setMonitor(ResponseMonitor<SearchInvoker> monitor) {
-        // never to be called
+        // Enough nodes have answered for minimum coverage, and getSearchResult awaits the rest by the adaptive timeout
+        if (awaitedResponses.decrementAndGet() == awaitedResponsesWhenAvailable)
+            responseAvailable();
     }
 
     // For overriding in tests
@@ -27,6 +27,7 @@ public abstract class InvokerFactory {
     private final SearchGroups cluster;
     private final DispatchConfig dispatchConfig;
     private final TopKEstimator hitEstimator;
+    private GroupingMerging groupingMerging = GroupingMerging.inline;
 
     public InvokerFactory(SearchGroups searchCluster, DispatchConfig dispatchConfig) {
         this.cluster = searchCluster;
@@ -34,6 +35,9 @@ public abstract class InvokerFactory {
         this.hitEstimator = new TopKEstimator(30.0, dispatchConfig.topKProbability(), SKEW_FACTOR);
     }
 
+    /** Sets how grouping results from multiple nodes are merged by the invokers created by this */
+    void setGroupingMerging(GroupingMerging groupingMerging) { this.groupingMerging = groupingMerging; }
+
     protected abstract Optional<SearchInvoker> createNodeSearchInvoker(VespaBackend searcher,
                                                                        Query query,
                                                                        int maxHits,
@@ -90,7 +94,8 @@ public abstract class InvokerFactory {
         if (invokers.size() == 1 && failed == null) {
             return Optional.of(invokers.get(0));
         } else {
-            return Optional.of(new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig, group, failed));
+            return Optional.of(new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig, group, failed,
+                                                                groupingMerging));
         }
     }
 
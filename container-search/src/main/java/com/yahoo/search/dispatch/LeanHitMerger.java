@@ -0,0 +1,97 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the sorted {@link LeanHit} lists returned from each content node, and merges them
+ * in a single bounded k-way pass when all responses are in, instead of merging pairwise as they arrive.
+ * Hits comparing equal to the previously merged hit are considered duplicates and dropped.
+ *
+ * @author baldersheim
+ */
+class LeanHitMerger {
+
+    private final int needed;
+    private final List<List<LeanHit>> partials = new ArrayList<>();
+
+    LeanHitMerger(int needed) {
+        this.needed = needed;
+    }
+
+    /** Adds a sorted list of hits from a single node */
+    void add(List<LeanHit> hits) {
+        if ( ! hits.isEmpty())
+            partials.add(hits);
+    }
+
+    /** Returns the merged, sorted list of at most the needed number of hits */
+    List<LeanHit> merge() {
+        if (partials.isEmpty()) return List.of();
+        if (partials.size() == 1) return partials.get(0);
+
+        Cursor[] heap = new Cursor[partials.size()];
+        int size = 0;
+        for (List<LeanHit> partial : partials)
+            heap[size++] = new Cursor(partial);
+        for (int i = size / 2 - 1; i >= 0; i--)
+            siftDown(heap, i, size);
+
+        List<LeanHit> merged = new ArrayList<>(Math.min(needed, totalSize()));
+        LeanHit previous = null;
+        while (size > 0 && merged.size() < needed) {
+            Cursor top = heap[0];
+            LeanHit hit = top.current();
+            if (previous == null || previous.compareTo(hit) != 0) {
+                merged.add(hit);
+                previous = hit;
+            }
+            if ( ! top.advance()) {
+                heap[0] = heap[--size];
+                heap[size] = null;
+            }
+            siftDown(heap, 0, size);
+        }
+        return merged;
+    }
+
+    private int totalSize() {
+        int total = 0;
+        for (List<LeanHit> partial : partials)
+            total += partial.size();
+        return total;
+    }
+
+    private static void siftDown(Cursor[] heap, int index, int size) {
+        Cursor cursor = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].current().compareTo(heap[child].current()) < 0)
+                child = right;
+            if (cursor.current().compareTo(heap[child].current()) <= 0)
+                break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = cursor;
+    }
+
+    private static class Cursor {
+
+        private final List<LeanHit> hits;
+        private int index = 0;
+
+        Cursor(List<LeanHit> hits) {
+            this.hits = hits;
+        }
+
+        LeanHit current() { return hits.get(index); }
+
+        boolean advance() { return ++index < hits.size(); }
+
+    }
+
+}
@@ -26,6 +26,9 @@ public class CompressService implements CompressPayload {
     @Override
     public byte[] decompress(Client.ProtobufResponse response) {
         CompressionType compression = CompressionType.valueOf(response.compression());
+        boolean uncompressed = compression == CompressionType.NONE || compression == CompressionType.INCOMPRESSIBLE;
+        if (uncompressed && response.uncompressedSize() == response.compressedPayload().length)
+            return response.compressedPayload(); // owned by the response only, so no need to copy
         return compressor.decompress(response.compressedPayload(), compression, response.uncompressedSize());
     }
     Compressor compressor() { return compressor; }
@@ -0,0 +1,139 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.document.GlobalId;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+import com.yahoo.vespa.config.search.DispatchConfig;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache of document summaries in the container, such that summaries which are requested repeatedly
+ * need not be fetched from content nodes each time. Only summaries which do not depend on the query can be cached.
+ *
+ * Summaries are stored as binary slime, bounded by their total size, with the least recently used evicted first.
+ * Since documents may change, summaries expire after a time to live. Keys include the generation of the
+ * document database, such that summaries from before a redeployment are not used after it.
+ *
+ * This is multithread safe.
+ *
+ * @author bratseth
+ */
+public class DocsumCache {
+
+    /** The estimated size of an entry in addition to the summary bytes */
+    static final int entryOverhead = 150;
+
+    private final long maxBytes;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final Metric metric;
+    private final Map<String, Metric.Context> metricContexts = new ConcurrentHashMap<>();
+
+    /** Entries in access order, guarded by this */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long bytes = 0;
+
+    DocsumCache(long maxBytes, Duration timeToLive, Metric metric, LongSupplier nanoClock) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("Max bytes must be positive, not " + maxBytes);
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.metric = metric;
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns the summary cache given by this config, or empty if summary caching is disabled */
+    public static Optional<DocsumCache> from(DispatchConfig config, Metric metric) {
+        if (config.summaryCacheMaxBytes() <= 0 || config.summaryCacheTtl() <= 0) return Optional.empty();
+        return Optional.of(new DocsumCache(config.summaryCacheMaxBytes(),
+                                           Duration.ofMillis((long)(config.summaryCacheTtl() * 1000)),
+                                           metric,
+                                           System::nanoTime));
+    }
+
+    /** Returns the cached summary for this key, or null if it is not cached or has expired */
+    Inspector get(Key key) {
+        byte[] docsum;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) return null;
+            if (nanoClock.getAsLong() - entry.created() > timeToLiveNanos) {
+                remove(key);
+                return null;
+            }
+            docsum = entry.docsum();
+        }
+        return BinaryView.inspect(docsum);
+    }
+
+    /** Adds a summary to this, evicting the least recently used summaries if this becomes too large */
+    void put(Key key, Inspector docsum) {
+        Slime copy = new Slime();
+        SlimeUtils.copyObject(docsum, copy.setObject());
+        Entry entry = new Entry(BinaryFormat.encode(copy), nanoClock.getAsLong());
+        if (entry.size() > maxBytes) return;
+
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null)
+                bytes -= previous.size();
+            bytes += entry.size();
+            for (Iterator<Entry> i = entries.values().iterator(); bytes > maxBytes && i.hasNext(); ) {
+                bytes -= i.next().size();
+                i.remove();
+            }
+        }
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            bytes -= removed.size();
+    }
+
+    /** Records the number of summaries of the given class which were and were not found in this in a fill */
+    void recordLookups(String summaryClass, int hits, int misses) {
+        Metric.Context context = metricContexts.computeIfAbsent(summaryClass,
+                                                                 summary -> metric.createContext(Map.of("summary", summary)));
+        if (hits > 0)
+            metric.add(ContainerMetrics.SUMMARY_CACHE_HITS.baseName(), hits, context);
+        if (misses > 0)
+            metric.add(ContainerMetrics.SUMMARY_CACHE_MISSES.baseName(), misses, context);
+    }
+
+    /** Returns the estimated number of bytes used by the entries of this */
+    synchronized long bytes() { return bytes; }
+
+    /** Returns the number of entries in this, including any expired ones */
+    synchronized int size() { return entries.size(); }
+
+    /**
+     * The key of a summary.
+     *
+     * @param generation the generation of the document database of the summary, which also identifies its schema
+     * @param globalId the global id of the document
+     * @param summaryClass the summary class requested
+     * @param fields the fields requested, or null if all fields in the summary class are
+     */
+    record Key(long generation, GlobalId globalId, String summaryClass, Set<String> fields) { }
+
+    private record Entry(byte[] docsum, long created) {
+
+        long size() { return docsum.length + entryOverhead; }
+
+    }
+
+}
@@ -2,7 +2,9 @@
 package com.yahoo.search.dispatch.rpc;
 
 import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
 import com.yahoo.collections.ListMap;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.protect.Error;
@@ -23,13 +25,16 @@ import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.BinaryView;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,9 +60,45 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private final String serverId;
     private final CompressPayload compressor;
     private final DecodePolicy decodePolicy;
+    private final Optional<DocsumCache> docsumCache;
+    private final Predicate<String> summaryDependsOnQuery;
+
+    /** The cache to use for the summary class being filled, or empty if it depends on the query */
+    private Optional<DocsumCache> cache = Optional.empty();
 
     private record ResponseAndHits(Client.ResponseOrError<ProtobufResponse> response, List<FastHit> hits) {}
 
+    /**
+     * A docsum reply where the slime summaries are located in the payload rather than copied out of it,
+     * such that they can be inspected directly from the payload.
+     */
+    record DocsumReply(int summariesOffset, int summariesLength, List<SearchProtocol.Error> errors) {
+
+        static DocsumReply parseFrom(byte[] payload) throws IOException {
+            CodedInputStream input = CodedInputStream.newInstance(payload);
+            int summariesOffset = 0;
+            int summariesLength = 0;
+            List<SearchProtocol.Error> errors = new ArrayList<>();
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                boolean delimited = WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+                int field = WireFormat.getTagFieldNumber(tag);
+                if (delimited && field == SearchProtocol.DocsumReply.SLIME_SUMMARIES_FIELD_NUMBER) {
+                    summariesLength = input.readRawVarint32();
+                    summariesOffset = input.getTotalBytesRead();
+                    input.skipRawBytes(summariesLength);
+                }
+                else if (delimited && field == SearchProtocol.DocsumReply.ERRORS_FIELD_NUMBER) {
+                    errors.add(input.readMessage(SearchProtocol.Error.parser(), ExtensionRegistryLite.getEmptyRegistry()));
+                }
+                else {
+                    input.skipField(tag);
+                }
+            }
+            return new DocsumReply(summariesOffset, summariesLength, errors);
+        }
+
+    }
+
     private BlockingQueue<ResponseAndHits> responses;
 
     /** Whether we have already logged/notified about an error - to avoid spamming */
@@ -70,12 +111,26 @@ public class RpcProtobufFillInvoker extends FillInvoker {
 
     RpcProtobufFillInvoker(RpcConnectionPool resourcePool, CompressPayload compressor, DocumentDatabase documentDb,
                            String serverId, DecodePolicy decodePolicy, boolean summaryNeedsQuery) {
+        this(resourcePool, compressor, documentDb, serverId, decodePolicy, summaryNeedsQuery, Optional.empty(), __ -> true);
+    }
+
+    /**
+     * Creates a fill invoker.
+     *
+     * @param docsumCache the cache to fill hits from and add summaries to, or empty to not cache
+     * @param summaryDependsOnQuery returns whether a summary class depends on the query, in which case it is not cached
+     */
+    RpcProtobufFillInvoker(RpcConnectionPool resourcePool, CompressPayload compressor, DocumentDatabase documentDb,
+                           String serverId, DecodePolicy decodePolicy, boolean summaryNeedsQuery,
+                           Optional<DocsumCache> docsumCache, Predicate<String> summaryDependsOnQuery) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
         this.serverId = serverId;
         this.summaryNeedsQuery = summaryNeedsQuery;
         this.compressor = compressor;
         this.decodePolicy = decodePolicy;
+        this.docsumCache = docsumCache;
+        this.summaryDependsOnQuery = summaryDependsOnQuery;
         this.partialSummaryHandler = new PartialSummaryHandler(documentDb);
     }
 
@@ -86,6 +141,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
             result.getQuery().trace(false, 3, "Skipping fill of ", summaryClass, " as result is already filled");
             return;
         }
+        cache = docsumCache.filter(__ -> ! summaryDependsOnQuery.test(partialSummaryHandler.askForSummary()));
         ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
         int queueSize = Math.max(hitsByNode.size(), resourcePool.knownNodeIds().size());
         responses = new LinkedBlockingQueue<>(queueSize);
@@ -150,18 +206,47 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         responses.add(new ResponseAndHits(response, hitsContext));
     }
 
-    /** Return a map of hits by their search node (partition) id */
+    /** Return a map of hits by their search node (partition) id, excluding those filled from the cache */
     private final ListMap<Integer, FastHit> hitsByNode(Result result) {
         ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+        int cacheHits = 0;
+        int cacheMisses = 0;
         for (Hit hit : (Iterable<Hit>) result.hits()::unorderedDeepIterator) {
             if (hit instanceof FastHit fastHit) {
                 ++numHitsToFill;
+                if (cache.isPresent()) {
+                    com.yahoo.slime.Inspector cached = cacheKey(fastHit).map(key -> cache.get().get(key)).orElse(null);
+                    if (cached != null) {
+                        fillHit(fastHit, new SlimeAdapter(cached));
+                        cacheHits++;
+                        continue;
+                    }
+                    cacheMisses++;
+                }
                 hitsByNode.put(fastHit.getDistributionKey(), fastHit);
             }
         }
+        if (cache.isPresent()) {
+            cache.get().recordLookups(partialSummaryHandler.askForSummary(), cacheHits, cacheMisses);
+            result.getQuery().trace(false, 5, "Filled ", cacheHits, " of ", numHitsToFill, " hits from the summary cache");
+        }
         return hitsByNode;
     }
 
+    /** Returns the key of the summary to fill this hit with, or empty if it cannot be cached */
+    private Optional<DocsumCache.Key> cacheKey(FastHit hit) {
+        if (hit.getRawGlobalId() == null) return Optional.empty();
+        return Optional.of(new DocsumCache.Key(documentDb.generation(), hit.getGlobalId(),
+                                               partialSummaryHandler.askForSummary(), partialSummaryHandler.askForFields()));
+    }
+
+    private void fillHit(FastHit hit, Inspector summary) {
+        hit.setField(Hit.SDDOCNAME_FIELD, documentDb.schema().name());
+        hit.addSummary(partialSummaryHandler.effectiveDocsumDef(), summary);
+        partialSummaryHandler.markFilled(hit);
+        ++numOkFilledHits;
+    }
+
     /** Send a docsums request to a node. Responses will be added to the given receiver. */
     private void sendDocsumsRequest(int nodeId, List<FastHit> hits, byte[] payload, Result result,
                                     double clientTimeout) {
@@ -253,19 +338,20 @@ public class RpcProtobufFillInvoker extends FillInvoker {
 
     private List<FastHit> fill(Result result, List<FastHit> hits, String summaryClass, byte[] payload, boolean isRetry) {
         try {
-            var protobuf = SearchProtocol.DocsumReply.parseFrom(payload);
+            var reply = DocsumReply.parseFrom(payload);
             var root = (decodePolicy == DecodePolicy.ONDEMAND)
-                    ? BinaryView.inspect(protobuf.getSlimeSummaries().toByteArray())
-                    : BinaryFormat.decode(protobuf.getSlimeSummaries().toByteArray()).get();
+                    ? BinaryView.inspect(payload, reply.summariesOffset(), reply.summariesLength())
+                    : BinaryFormat.decode(payload, reply.summariesOffset(), reply.summariesLength()).get();
             if (! isRetry) {
                 var errors = root.field("errors");
                 boolean hasErrors = errors.valid() && (errors.entries() > 0);
                 if (hasErrors) {
                     addErrors(result, errors);
                 }
-                convertErrorsFromDocsumReply(result, protobuf.getErrorsList());
+                convertErrorsFromDocsumReply(result, reply.errors());
             }
-            Inspector summaries = new SlimeAdapter(root.field("docsums"));
+            var docsums = root.field("docsums");
+            Inspector summaries = new SlimeAdapter(docsums);
             if (!summaries.valid()) {
                 return List.of(); // No summaries; Perhaps we requested a non-existing summary class
             }
@@ -275,16 +361,17 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                 FastHit hit = hits.get(i);
                 boolean needFill = isRetry ? partialSummaryHandler.needFill(hit) : true;
                 if (summary.valid() && needFill) {
-                    hit.setField(Hit.SDDOCNAME_FIELD, documentDb.schema().name());
-                    hit.addSummary(partialSummaryHandler.effectiveDocsumDef(), summary);
-                    partialSummaryHandler.markFilled(hit);
-                    ++numOkFilledHits;
+                    fillHit(hit, summary);
+                    if (cache.isPresent()) {
+                        var docsum = docsums.entry(i).field("docsum");
+                        cacheKey(hit).ifPresent(key -> cache.get().put(key, docsum));
+                    }
                 } else if (needFill) {
                     skippedHits.add(hit);
                 }
             }
             return skippedHits;
-        } catch (InvalidProtocolBufferException ex) {
+        } catch (IOException ex) {
             if (! isRetry) {
                 log.log(Level.WARNING, "Invalid response to docsum request", ex);
                 result.hits().addError(ErrorMessage.createInternalServerError("Invalid response to docsum request from backend"));
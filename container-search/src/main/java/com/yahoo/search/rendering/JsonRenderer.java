@@ -6,13 +6,16 @@ import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonFactoryBuilder;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.google.common.base.Preconditions;
 import com.yahoo.container.logging.TraceRenderer;
 import com.yahoo.data.JsonProducer;
 import com.yahoo.data.access.Inspectable;
 import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.ObjectTraverser;
 import com.yahoo.data.access.Type;
 import com.yahoo.data.access.simple.JsonRender;
 import com.yahoo.data.access.simple.Value;
@@ -51,6 +54,7 @@ import com.yahoo.tensor.serialization.JsonFormat;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UncheckedIOException;
@@ -562,7 +566,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         this.timeSource = timeSource;
     }
 
-    private static class WithBase64 extends JsonRender.StringEncoder {
+    static class WithBase64 extends JsonRender.StringEncoder {
         private final static Base64.Encoder encoder = Base64.getEncoder();
         @Override
         protected void encodeDATA(byte[] value) {
@@ -581,6 +585,161 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         }
     }
 
+    /**
+     * Writes slime data as tokens directly to a generator, without rendering it to an intermediate string first.
+     * The output is identical to that of {@link WithBase64#toJsonString}.
+     */
+    static class DirectEncoder implements ObjectTraverser {
+
+        private static final Base64.Encoder base64 = Base64.getEncoder();
+        private static final byte[] hex = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+        private final JsonGenerator generator;
+        private final boolean enableRawAsBase64;
+
+        DirectEncoder(JsonGenerator generator, boolean enableRawAsBase64) {
+            this.generator = generator;
+            this.enableRawAsBase64 = enableRawAsBase64;
+        }
+
+        void encode(Inspector value) throws IOException {
+            try {
+                encodeValue(value);
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void encodeValue(Inspector value) throws IOException {
+            switch (value.type()) {
+                case EMPTY -> generator.writeNull();
+                case BOOL -> generator.writeBoolean(value.asBool());
+                case LONG -> generator.writeNumber(value.asLong());
+                case DOUBLE -> encodeDouble(value.asDouble());
+                case STRING -> encodeUtf8(value.asUtf8());
+                case DATA -> encodeData(value.asData());
+                case ARRAY -> {
+                    generator.writeStartArray();
+                    for (int i = 0, entries = value.entryCount(); i < entries; i++)
+                        encodeValue(value.entry(i));
+                    generator.writeEndArray();
+                }
+                case OBJECT -> {
+                    generator.writeStartObject();
+                    value.traverse((ObjectTraverser) this);
+                    generator.writeEndObject();
+                }
+            }
+        }
+
+        @Override
+        public void field(String name, Inspector value) {
+            try {
+                generator.writeFieldName(name);
+                encodeValue(value);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void encodeDouble(double value) throws IOException {
+            if (Double.isFinite(value))
+                generator.writeNumber(value);
+            else
+                generator.writeNull();
+        }
+
+        private void encodeUtf8(byte[] utf8) throws IOException {
+            generator.writeUTF8String(utf8, 0, utf8.length);
+        }
+
+        private void encodeData(byte[] data) throws IOException {
+            if (enableRawAsBase64) {
+                encodeUtf8(base64.encode(data));
+                return;
+            }
+            byte[] encoded = new byte[2 + 2 * data.length];
+            encoded[0] = '0';
+            encoded[1] = 'x';
+            for (int i = 0; i < data.length; i++) {
+                encoded[2 + 2 * i] = hex[(data[i] >> 4) & 0xf];
+                encoded[3 + 2 * i] = hex[data[i] & 0xf];
+            }
+            encodeUtf8(encoded);
+        }
+
+    }
+
+    /**
+     * A JSON value which is already encoded as UTF-8, to be written as raw bytes without decoding it to a string.
+     * The quoted forms, which the generator does not use for raw values, are those of the decoded string.
+     */
+    static class RawUtf8Value implements SerializableString {
+
+        private final byte[] utf8;
+        private String value = null;
+        private SerializedString quoted = null;
+
+        RawUtf8Value(byte[] utf8) {
+            this.utf8 = utf8;
+        }
+
+        @Override
+        public String getValue() {
+            if (value == null)
+                value = new String(utf8, StandardCharsets.UTF_8);
+            return value;
+        }
+
+        @Override public int charLength() { return getValue().length(); }
+
+        @Override public byte[] asUnquotedUTF8() { return utf8; }
+
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + utf8.length > buffer.length) return -1;
+            System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+            return utf8.length;
+        }
+
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String value = getValue();
+            if (offset + value.length() > buffer.length) return -1;
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(utf8);
+            return utf8.length;
+        }
+
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (utf8.length > buffer.remaining()) return -1;
+            buffer.put(utf8);
+            return utf8.length;
+        }
+
+        @Override public char[] asQuotedChars() { return quoted().asQuotedChars(); }
+        @Override public byte[] asQuotedUTF8() { return quoted().asQuotedUTF8(); }
+        @Override public int appendQuotedUTF8(byte[] buffer, int offset) { return quoted().appendQuotedUTF8(buffer, offset); }
+        @Override public int appendQuoted(char[] buffer, int offset) { return quoted().appendQuoted(buffer, offset); }
+        @Override public int writeQuotedUTF8(OutputStream out) throws IOException { return quoted().writeQuotedUTF8(out); }
+        @Override public int putQuotedUTF8(ByteBuffer buffer) { return quoted().putQuotedUTF8(buffer); }
+
+        private SerializedString quoted() {
+            if (quoted == null)
+                quoted = new SerializedString(getValue());
+            return quoted;
+        }
+
+    }
+
     /**
      * Received callbacks when fields of hits are encountered.
      * This instance is reused for all hits of a Result since we are in a single-threaded context
@@ -806,7 +965,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
         }
 
         private void renderInspectorDirect(Inspector data) throws IOException {
-            generator().writeRawValue(WithBase64.toJsonString(data, settings.enableRawAsBase64));
+            new DirectEncoder(generator(), settings.enableRawAsBase64).encode(data);
         }
 
         protected void renderFieldContents(Object field) throws IOException {
@@ -869,8 +1028,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
 
         private void renderTensor(Optional<Tensor> tensor) throws IOException {
             var t = tensor.orElse(Tensor.Builder.of(TensorType.empty).build());
-            byte[] json = JsonFormat.encode(t, settings.tensorOptions);
-            generator().writeRawValue(new String(json, StandardCharsets.UTF_8));
+            generator().writeRawValue(new RawUtf8Value(JsonFormat.encode(t, settings.tensorOptions)));
         }
 
         private JsonGenerator generator() {
@@ -0,0 +1,79 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.jdisc.Metric;
+import org.antlr.v4.runtime.RecognitionException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of parsed YQL programs by their text, such that queries using the same YQL template
+ * need not run the YQL grammar each time.
+ *
+ * The programs cached are the syntax trees produced by {@link ProgramParser}, which are never modified after parsing.
+ * Parameter references (&#64;name) are left in the tree as variable references, so they are bound to the values
+ * of each query when the tree is converted to a query tree by {@link YqlParser}.
+ *
+ * This is multithread safe.
+ *
+ * @author bratseth
+ */
+class YqlProgramCache {
+
+    /** Programs longer than this are not cached, as they are unlikely to be templates */
+    static final int maxProgramLength = 10_000;
+
+    private final Metric metric;
+
+    /** Programs in access order, guarded by this */
+    private final Map<String, OperatorNode<StatementOperator>> programs;
+
+    YqlProgramCache(int maxSize, Metric metric) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Max size must be positive, not " + maxSize);
+        this.metric = metric;
+        this.programs = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OperatorNode<StatementOperator>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the parsed form of the given YQL program, from this cache if present.
+     *
+     * Programs which cannot be parsed are not cached.
+     */
+    OperatorNode<StatementOperator> parse(String yql) throws IOException, RecognitionException {
+        String key = normalize(yql);
+        if (key.length() > maxProgramLength) return new ProgramParser().parse("query", key);
+
+        OperatorNode<StatementOperator> program;
+        synchronized (this) {
+            program = programs.get(key);
+        }
+        if (program != null) {
+            metric.add(ContainerMetrics.YQL_PARSE_CACHE_HITS.baseName(), 1, null);
+            return program;
+        }
+
+        metric.add(ContainerMetrics.YQL_PARSE_CACHE_MISSES.baseName(), 1, null);
+        program = new ProgramParser().parse("query", key);
+        synchronized (this) {
+            programs.put(key, program);
+        }
+        return program;
+    }
+
+    /** Returns the number of programs in this */
+    synchronized int size() { return programs.size(); }
+
+    /** Removes surrounding whitespace, which is the only normalization which cannot change the meaning of a program */
+    private static String normalize(String yql) {
+        return yql.strip();
+    }
+
+}
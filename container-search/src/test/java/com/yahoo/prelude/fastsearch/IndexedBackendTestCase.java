@@ -108,6 +108,30 @@ public class IndexedBackendTestCase {
         assertTrue(backend.summaryNeedsQuery(q));
     }
 
+    @Test
+    void testSummaryDependsOnQueryForTheGivenSummaryClass() {
+        var schema = new Schema.Builder(SCHEMA)
+                .add(new DocumentSummary.Builder("default").build())
+                .add(new DocumentSummary.Builder("snippets").setDynamic(true).build())
+                .add(new RankProfile.Builder("default").setHasRankFeatures(false)
+                        .setHasSummaryFeatures(false)
+                        .build());
+        var backend = new IndexedBackend(new ClusterParams(CLUSTER_PARAMS.getSearcherName(), CLUSTER_PARAMS.getServerId(),
+                                                           CLUSTER_PARAMS.getDefaultSummary(), CLUSTER_PARAMS.getDocumentdbInfoConfig(),
+                                                           new SchemaInfo(List.of(schema.build()), List.of())),
+                                         MockDispatcher.create(List.of(new Node(CLUSTER, 0, "host0", 0))));
+        Query q = new Query("?query=foo&presentation.summary=snippets");
+        doSearch(backend, q, 0, 10);
+        assertTrue(backend.summaryDependsOnQuery(q));
+        assertTrue(backend.summaryDependsOnQuery(q, "snippets"));
+        assertFalse(backend.summaryDependsOnQuery(q, "default"));
+
+        q = new Query("?query=foo");
+        doSearch(backend, q, 0, 10);
+        assertFalse(backend.summaryDependsOnQuery(q));
+        assertTrue(backend.summaryDependsOnQuery(q, "snippets"));
+    }
+
     @Test
     void testSinglePassGroupingIsNotForcedWithSingleNodeGroups() {
         MockDispatcher dispatcher = MockDispatcher.create(List.of(new Node(CLUSTER, 0, "host0", 0), new Node(CLUSTER, 2, "host1", 0)));
@@ -0,0 +1,62 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.semantics.test;
+
+import com.yahoo.prelude.semantics.rule.ProductionRule;
+import com.yahoo.prelude.semantics.rule.TermCondition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that rules are evaluated when, and only when, triggered by the terms of the query.
+ *
+ * @author bratseth
+ */
+public class RuleIndexTestCase extends RuleBaseAbstractTestCase {
+
+    public RuleIndexTestCase() {
+        super("ruleindex.sr");
+    }
+
+    @Test
+    void testTriggerTerms() {
+        List<ProductionRule> rules = searcher.getDefaultRuleBase().rules();
+        assertEquals(List.of("a"), triggerTerms(rules.get(0)));
+        assertEquals(List.of("d"), triggerTerms(rules.get(2)));
+        assertEquals(List.of("x", "y", "w"), triggerTerms(rules.get(3)));
+        assertEquals(List.of("z"), triggerTerms(rules.get(4)));
+        assertTrue(rules.get(5).triggerTerms().isEmpty());
+    }
+
+    @Test
+    void testRulesTriggeredByEarlierRules() {
+        assertSemantics("RANK c foo:c", "a");
+        assertSemantics("RANK c foo:c", "b");
+    }
+
+    @Test
+    void testRulesAreNotReevaluated() {
+        assertSemantics("RANK a foo:a", "d");
+    }
+
+    @Test
+    void testNamedConditionTriggers() {
+        assertSemantics("RANK name foo:name", "x");
+        assertSemantics("RANK (AND name name) foo:\"name name\"", "x y");
+        assertSemantics("RANK last foo:last", "q z");
+    }
+
+    @Test
+    void testUntriggeredRules() {
+        assertSemantics("RANK q foo:q", "q");
+        assertSemantics("q", "q&ranking=category");
+    }
+
+    private List<String> triggerTerms(ProductionRule rule) {
+        return rule.triggerTerms().get().stream().map(TermCondition::term).toList();
+    }
+
+}
@@ -0,0 +1,231 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.concurrent.Timer;
+import com.yahoo.document.GlobalId;
+import com.yahoo.document.idstring.IdString;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.prelude.fastsearch.VespaBackend;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.cluster.ClusterMonitor;
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.MockSearchCluster;
+import com.yahoo.search.dispatch.searchcluster.Node;
+import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.dispatch.searchcluster.SearchGroups;
+import com.yahoo.search.result.Relevance;
+import com.yahoo.vespa.config.search.DispatchConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Simulates queries to a cluster where one group is slow, and verifies that queries are hedged to the other group.
+ *
+ * @author bratseth
+ */
+public class HedgingTest {
+
+    private static final Duration fast = Duration.ofMillis(1);
+
+    private final ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    public void shutdown() {
+        responder.shutdownNow();
+    }
+
+    @Test
+    void slow_group_is_hedged_to_the_other_group() throws IOException {
+        MockMetric metric = new MockMetric();
+        Simulation simulation = new Simulation(1.0, Duration.ofSeconds(5), metric);
+        simulation.run(Hedging.minLatencySamples, null); // learn the latency percentile
+
+        List<Integer> answeringGroups = simulation.run(10, 0);
+        assertEquals(List.of(1, 1, 1, 1, 1, 1, 1, 1, 1, 1), answeringGroups);
+        long hedged = count(ContainerMetrics.HEDGED_QUERIES, metric);
+        long wins = count(ContainerMetrics.HEDGED_QUERY_WINS, metric);
+        assertTrue(wins >= 5, "Hedged queries to the slow group won: " + wins);
+        assertTrue(hedged >= wins, "Hedged " + hedged + " queries, winning " + wins);
+        simulation.close();
+    }
+
+    @Test
+    void hedging_is_limited_by_the_budget() throws IOException {
+        MockMetric metric = new MockMetric();
+        Simulation simulation = new Simulation(0.1, Duration.ofMillis(100), metric);
+        simulation.run(Hedging.minLatencySamples, null); // learn the latency percentile
+
+        List<Integer> answeringGroups = simulation.run(30, 0);
+        long hedged = count(ContainerMetrics.HEDGED_QUERIES, metric);
+        assertTrue(hedged >= 1 && hedged <= 3, "At most 30 * 0.1 queries are hedged, but got " + hedged);
+        assertTrue(answeringGroups.stream().filter(group -> group == 0).count() >= 12,
+                   "Most queries to the slow group are not hedged: " + answeringGroups);
+        simulation.close();
+    }
+
+    @Test
+    void groups_answer_with_degraded_coverage_after_the_adaptive_timeout() throws IOException {
+        MockMetric metric = new MockMetric();
+        Simulation simulation = new Simulation(1.0, Duration.ofSeconds(5), 50, metric);
+        simulation.run(Hedging.minLatencySamples, null); // learn the latency percentile
+
+        simulation.invokerFactory.silentNodes = Set.of(1, 3); // One node in each group never answers
+        long startTime = System.currentTimeMillis();
+        Result result = simulation.search();
+        long elapsed = System.currentTimeMillis() - startTime;
+        assertTrue(elapsed < 5000, "Returned before the query timeout, but took " + elapsed + " ms");
+        assertTrue(result.getCoverage(false).isDegradedByAdapativeTimeout());
+        simulation.close();
+    }
+
+    @Test
+    void hedging_is_disabled_by_default() throws IOException {
+        MockMetric metric = new MockMetric();
+        SearchCluster cluster = new MockSearchCluster("test", 2, 2);
+        DispatchConfig config = MockSearchCluster.createDispatchConfig();
+        Dispatcher dispatcher = new Dispatcher(new ClusterMonitor<>(cluster, false), cluster, config, metric,
+                                               new SimulatedInvokerFactory(cluster.groupList(), config, fast));
+        for (int i = 0; i < 2 * Hedging.minLatencySamples; i++) {
+            Query query = new Query();
+            try (SearchInvoker invoker = dispatcher.getSearchInvoker(query, null)) {
+                assertTrue(invoker instanceof InterleavedSearchInvoker);
+                invoker.search(query);
+            }
+        }
+        assertTrue(metric.metrics().isEmpty());
+        dispatcher.deconstruct();
+    }
+
+    private static long count(ContainerMetrics metric, MockMetric metrics) {
+        return Math.round(metrics.metrics().getOrDefault(metric.baseName(), Map.of()).getOrDefault(Map.of(), 0.0));
+    }
+
+    private class Simulation {
+
+        private final SearchCluster cluster = new MockSearchCluster("test", 2, 2);
+        private final SimulatedInvokerFactory invokerFactory;
+        private final Dispatcher dispatcher;
+
+        Simulation(double hedgingMaxFraction, Duration slow, MockMetric metric) {
+            this(hedgingMaxFraction, slow, 100, metric);
+        }
+
+        Simulation(double hedgingMaxFraction, Duration slow, double minSearchCoverage, MockMetric metric) {
+            DispatchConfig config = MockSearchCluster.createDispatchConfigBuilder(minSearchCoverage)
+                                                     .hedgingPercentile(95)
+                                                     .hedgingMaxFraction(hedgingMaxFraction)
+                                                     .build();
+            invokerFactory = new SimulatedInvokerFactory(cluster.groupList(), config, slow);
+            dispatcher = new Dispatcher(new ClusterMonitor<>(cluster, false), cluster, config, metric, invokerFactory);
+        }
+
+        /** Runs queries in sequence with the given group, if any, being slow, and returns the group answering each */
+        List<Integer> run(int queries, Integer slowGroup) throws IOException {
+            invokerFactory.slowGroup = slowGroup;
+            Integer[] answeringGroups = new Integer[queries];
+            for (int i = 0; i < queries; i++)
+                answeringGroups[i] = ((FastHit)search().hits().get(0)).getPartId();
+            return List.of(answeringGroups);
+        }
+
+        Result search() throws IOException {
+            Query query = new Query();
+            query.setTimeout(10_000);
+            try (SearchInvoker invoker = dispatcher.getSearchInvoker(query, null)) {
+                return invoker.search(query);
+            }
+        }
+
+        void close() {
+            dispatcher.deconstruct();
+        }
+
+    }
+
+    /** Creates invokers for all nodes in a group, which answer after a delay */
+    private class SimulatedInvokerFactory extends InvokerFactory {
+
+        private final SearchGroups groups;
+        private final DispatchConfig config;
+        private final Duration slow;
+        private volatile Integer slowGroup = null;
+        private volatile Set<Integer> silentNodes = Set.of();
+
+        SimulatedInvokerFactory(SearchGroups groups, DispatchConfig config, Duration slow) {
+            super(groups, config);
+            this.groups = groups;
+            this.config = config;
+            this.slow = slow;
+        }
+
+        @Override
+        public Optional<SearchInvoker> createSearchInvoker(VespaBackend searcher, Query query, List<Node> nodes,
+                                                           boolean acceptIncompleteCoverage, int maxHitsPerNode) {
+            Group group = groups.get(nodes.get(0).group());
+            Duration latency = Integer.valueOf(group.id()).equals(slowGroup) ? slow : fast;
+            List<SearchInvoker> invokers = nodes.stream()
+                                                .map(node -> (SearchInvoker)new SimulatedInvoker(node, silentNodes.contains(node.key()) ? null : latency))
+                                                .toList();
+            return Optional.of(new InterleavedSearchInvoker(Timer.wrap(Clock.systemUTC()),
+                                                            invokers,
+                                                            new TopKEstimator(30, 0.9999, 0.05),
+                                                            config,
+                                                            group,
+                                                            null));
+        }
+
+        @Override
+        protected Optional<SearchInvoker> createNodeSearchInvoker(VespaBackend searcher, Query query, int maxHitsPerNode, Node node) {
+            fail("Unexpected call to createNodeSearchInvoker");
+            return Optional.empty();
+        }
+
+        @Override
+        public FillInvoker createFillInvoker(VespaBackend searcher, Result result) {
+            fail("Unexpected call to createFillInvoker");
+            return null;
+        }
+
+    }
+
+    /** An invoker which answers after a delay, or never if it is null, with a hit having its group as part id */
+    private class SimulatedInvoker extends MockInvoker {
+
+        private final Duration latency;
+
+        SimulatedInvoker(Node node, Duration latency) {
+            super(node.key());
+            this.latency = latency;
+            setHits(List.of(new FastHit(new GlobalId(IdString.createIdString("id:test:test::" + node.key())).getRawId(),
+                                        new Relevance(1), node.group(), node.key())));
+        }
+
+        @Override
+        protected Object sendSearchRequest(Query query, Object context) {
+            super.sendSearchRequest(query, context);
+            if (latency != null)
+                responder.schedule(this::responseAvailable, latency.toNanos(), TimeUnit.NANOSECONDS);
+            return context;
+        }
+
+    }
+
+}
@@ -1,9 +1,11 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.concurrent.Timer;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.idstring.IdString;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.GroupingListHit;
 import com.yahoo.search.Query;
@@ -32,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.StreamSupport;
@@ -370,6 +373,97 @@ public class InterleavedSearchInvokerTest {
         }
     }
 
+    @Test
+    void requireThatLargeGroupingsAreMergedInParallel() throws IOException {
+        MockMetric metric = new MockMetric();
+        GroupingMerging merging = new GroupingMerging(2, metric);
+        addLargeGroupingInvokers(4);
+
+        try (InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig,
+                                                                             new Group(0, List.of()), Set.of(), merging)) {
+            invokers.forEach(invoker::responseAvailable);
+            Result result = invoker.search(query);
+            assertNull(result.hits().getErrorHit());
+            List<Grouping> merged = ((GroupingListHit) result.hits().get(0)).getGroupingList();
+            assertEquals(2, merged.size());
+            for (Grouping grouping : merged) {
+                com.yahoo.searchlib.aggregation.Group root = grouping.getRoot();
+                assertEquals(new IntegerResultNode(0), ((MinAggregationResult) root.getAggregationResults().get(0)).getMin());
+                assertEquals(GroupingMerging.minGroupsForParallelMerge + 4 * 10, root.getNumChildren());
+                List<com.yahoo.searchlib.aggregation.Group> children = root.getChildren();
+                for (int i = 1; i < children.size(); i++)
+                    assertTrue(children.get(i - 1).getId().compareTo(children.get(i).getId()) < 0, "Groups are sorted by id");
+                for (com.yahoo.searchlib.aggregation.Group group : children) {
+                    String id = group.getId().getString();
+                    int node = id.startsWith("common") ? 3 : Integer.parseInt(id.substring(4, 5));
+                    assertEquals(new IntegerResultNode(node), ((MaxAggregationResult) group.getAggregationResults().get(0)).getMax());
+                }
+            }
+        }
+        assertTrue(metric.metrics().containsKey(ContainerMetrics.GROUPING_MERGE_LATENCY.baseName()));
+        for (SearchInvoker invoker : invokers) {
+            invoker.close();
+        }
+        merging.shutdown();
+    }
+
+    @Test
+    void requireThatGroupingsNotMergedBeforeTimeoutAreLeftOut() throws Exception {
+        GroupingMerging merging = new GroupingMerging(1, null);
+        CountDownLatch mergeThreadReleased = new CountDownLatch(1);
+        merging.executorFor(GroupingMerging.minGroupsForParallelMerge).get().execute(() -> {
+            try {
+                mergeThreadReleased.await();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        addLargeGroupingInvokers(2);
+
+        try (InterleavedSearchInvoker invoker = new InterleavedSearchInvoker(Timer.monotonic, invokers, hitEstimator, dispatchConfig,
+                                                                             new Group(0, List.of()), Set.of(), merging)) {
+            invokers.forEach(invoker::responseAvailable);
+            clock.advance(Duration.ofMillis(4900));
+            Result result = invoker.search(query);
+            assertEquals(ErrorMessage.timeoutCode, result.hits().getError().getCode());
+            assertTrue(result.hits().getError().getDetailedMessage().contains("Left out groupings [0, 1]"),
+                       result.hits().getError().getDetailedMessage());
+            for (Hit hit : result.hits())
+                if (hit instanceof GroupingListHit groupingHit)
+                    assertTrue(groupingHit.getGroupingList().isEmpty());
+        }
+        finally {
+            mergeThreadReleased.countDown();
+        }
+        for (SearchInvoker invoker : invokers) {
+            invoker.close();
+        }
+        merging.shutdown();
+    }
+
+    /** Adds invokers returning two large groupings, each having groups common to all nodes and unique to each */
+    private void addLargeGroupingInvokers(int nodes) {
+        for (int node = 0; node < nodes; node++) {
+            List<Grouping> groupings = new ArrayList<>();
+            for (int id = 0; id < 2; id++) {
+                Grouping grouping = new Grouping(id);
+                com.yahoo.searchlib.aggregation.Group root = new com.yahoo.searchlib.aggregation.Group();
+                root.addAggregationResult(new MinAggregationResult().setMin(new IntegerResultNode(node)));
+                for (int group = 0; group < GroupingMerging.minGroupsForParallelMerge; group++)
+                    root.addChild(new com.yahoo.searchlib.aggregation.Group().setId(new StringResultNode("common" + group))
+                                          .addAggregationResult(new MaxAggregationResult().setMax(new IntegerResultNode(node))));
+                for (int group = 0; group < 10; group++)
+                    root.addChild(new com.yahoo.searchlib.aggregation.Group().setId(new StringResultNode("node" + node + "-" + group))
+                                          .addAggregationResult(new MaxAggregationResult().setMax(new IntegerResultNode(node))));
+                root.sortChildrenById();
+                grouping.setRoot(root);
+                groupings.add(grouping);
+            }
+            invokers.add(new MockInvoker(0).setHits(List.of(new GroupingListHit(groupings))));
+        }
+    }
+
     private static InterleavedSearchInvoker createInterLeavedTestInvoker(List<Double> a, List<Double> b, Group group) {
         DispatchConfig dispatchConfig = new DispatchConfig.Builder().build();
         TopKEstimator hitEstimator = new TopKEstimator(30, dispatchConfig.topKProbability(), 0.05);
@@ -0,0 +1,58 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the cost of merging the lean hits returned from 8, 32 and 128 partitions.
+ *
+ * @author baldersheim
+ */
+public class LeanHitMergerBenchmark {
+
+    private static final int hitsPerPartition = 400;
+    private static final int wantedHits = 400;
+
+    public void benchmark(int partitions) {
+        List<List<LeanHit>> partials = createPartials(partitions, new Random(partitions));
+        int runs = 20000;
+        long checksum = 0;
+        for (int i = 0; i < runs; i++) // warmup
+            checksum += merge(partials);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            checksum += merge(partials);
+        long totalTime = System.nanoTime() - startTime;
+        System.out.println(partitions + " partitions: " + (totalTime / runs) + " nanoseconds per merge (checksum " + checksum + ")");
+    }
+
+    private static int merge(List<List<LeanHit>> partials) {
+        LeanHitMerger merger = new LeanHitMerger(wantedHits);
+        partials.forEach(merger::add);
+        return merger.merge().size();
+    }
+
+    private static List<List<LeanHit>> createPartials(int partitions, Random random) {
+        List<List<LeanHit>> partials = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            List<LeanHit> hits = new ArrayList<>(hitsPerPartition);
+            for (int i = 0; i < hitsPerPartition; i++) {
+                byte [] gid = new byte[12];
+                random.nextBytes(gid);
+                hits.add(new LeanHit(gid, 0, partition, random.nextDouble()));
+            }
+            hits.sort(LeanHit::compareTo);
+            partials.add(hits);
+        }
+        return partials;
+    }
+
+    public static void main(String[] args) {
+        LeanHitMergerBenchmark benchmark = new LeanHitMergerBenchmark();
+        for (int partitions : new int [] { 8, 32, 128 })
+            benchmark.benchmark(partitions);
+    }
+
+}
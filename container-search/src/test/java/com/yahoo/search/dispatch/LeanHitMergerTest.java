@@ -0,0 +1,63 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author baldersheim
+ */
+public class LeanHitMergerTest {
+
+    private static LeanHit hit(char gid, double relevance) {
+        return new LeanHit(new byte[] { (byte)gid }, 0, 0, relevance);
+    }
+
+    @Test
+    void requireThatEmptyMergeGivesNoHits() {
+        LeanHitMerger merger = new LeanHitMerger(10);
+        merger.add(List.of());
+        assertTrue(merger.merge().isEmpty());
+    }
+
+    @Test
+    void requireThatSinglePartialIsReturnedAsIs() {
+        List<LeanHit> hits = List.of(hit('a', 3), hit('b', 2));
+        LeanHitMerger merger = new LeanHitMerger(10);
+        merger.add(List.of());
+        merger.add(hits);
+        assertSame(hits, merger.merge());
+    }
+
+    @Test
+    void requireThatPartialsAreMergedInOrderAndTruncated() {
+        LeanHitMerger merger = new LeanHitMerger(5);
+        merger.add(List.of(hit('a', 9), hit('b', 5), hit('c', 1)));
+        merger.add(List.of(hit('d', 8), hit('e', 4)));
+        merger.add(List.of(hit('f', 7), hit('g', 6), hit('h', 3)));
+        List<LeanHit> merged = merger.merge();
+        assertEquals(5, merged.size());
+        double [] expected = { 9, 8, 7, 6, 5 };
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], merged.get(i).getRelevance());
+    }
+
+    @Test
+    void requireThatDuplicatesAreRemoved() {
+        LeanHitMerger merger = new LeanHitMerger(10);
+        merger.add(List.of(hit('a', 3), hit('b', 2)));
+        merger.add(List.of(hit('a', 3), hit('c', 1)));
+        merger.add(List.of(hit('b', 2)));
+        List<LeanHit> merged = merger.merge();
+        assertEquals(3, merged.size());
+        assertEquals('a', merged.get(0).getGid()[0]);
+        assertEquals('b', merged.get(1).getGid()[0]);
+        assertEquals('c', merged.get(2).getGid()[0]);
+    }
+
+}
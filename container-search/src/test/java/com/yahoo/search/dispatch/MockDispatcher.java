@@ -2,6 +2,7 @@
 package com.yahoo.search.dispatch;
 
 import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
 import com.yahoo.search.dispatch.rpc.RpcPingFactory;
@@ -39,7 +40,7 @@ public class MockDispatcher extends Dispatcher {
     }
 
     private MockDispatcher(ClusterMonitor clusterMonitor, SearchCluster searchCluster, DispatchConfig dispatchConfig, RpcInvokerFactory invokerFactory) {
-        super(clusterMonitor, searchCluster, dispatchConfig, invokerFactory);
+        super(clusterMonitor, searchCluster, dispatchConfig, new MockMetric(), invokerFactory);
         this.clusterMonitor = clusterMonitor;
     }
 
@@ -0,0 +1,112 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.document.GlobalId;
+import com.yahoo.document.idstring.IdString;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author bratseth
+ */
+public class DocsumCacheTest {
+
+    private final MockMetric metric = new MockMetric();
+    private long nanos = 0;
+
+    @Test
+    void summaries_are_cached_by_key() {
+        DocsumCache cache = new DocsumCache(10_000, Duration.ofSeconds(60), metric, () -> nanos);
+        cache.put(key(1, "doc1", "default"), docsum("Hello"));
+
+        Inspector cached = cache.get(key(1, "doc1", "default"));
+        assertNotNull(cached);
+        assertEquals("Hello", cached.field("title").asString());
+        assertEquals(7, cached.field("year").asLong());
+        assertNull(cache.get(key(1, "doc2", "default")));
+        assertNull(cache.get(key(1, "doc1", "other")));
+        assertNull(cache.get(new DocsumCache.Key(1, globalId("doc1"), "default", Set.of("title"))));
+        assertNull(cache.get(key(2, "doc1", "default")), "Summaries from previous generations are not used");
+    }
+
+    @Test
+    void summaries_expire() {
+        DocsumCache cache = new DocsumCache(10_000, Duration.ofSeconds(60), metric, () -> nanos);
+        cache.put(key(1, "doc1", "default"), docsum("Hello"));
+        nanos += Duration.ofSeconds(60).toNanos();
+        assertNotNull(cache.get(key(1, "doc1", "default")));
+        nanos += 1;
+        assertNull(cache.get(key(1, "doc1", "default")));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.bytes());
+    }
+
+    @Test
+    void least_recently_used_summaries_are_evicted_when_full() {
+        DocsumCache single = new DocsumCache(10_000, Duration.ofSeconds(60), metric, () -> nanos);
+        single.put(key(1, "doc1", "default"), docsum("Hello"));
+        long entrySize = single.bytes();
+        DocsumCache cache = new DocsumCache(3 * entrySize, Duration.ofSeconds(60), metric, () -> nanos);
+        cache.put(key(1, "doc1", "default"), docsum("Hello"));
+        cache.put(key(1, "doc2", "default"), docsum("Hello"));
+        cache.put(key(1, "doc3", "default"), docsum("Hello"));
+        assertEquals(3 * entrySize, cache.bytes());
+
+        assertNotNull(cache.get(key(1, "doc1", "default")));
+        cache.put(key(1, "doc4", "default"), docsum("Hello"));
+        assertEquals(3, cache.size());
+        assertEquals(3 * entrySize, cache.bytes());
+        assertNull(cache.get(key(1, "doc2", "default")));
+        assertNotNull(cache.get(key(1, "doc1", "default")));
+        assertNotNull(cache.get(key(1, "doc3", "default")));
+        assertNotNull(cache.get(key(1, "doc4", "default")));
+
+        cache.put(key(1, "doc4", "default"), docsum("Hello"));
+        assertEquals(3, cache.size());
+        assertEquals(3 * entrySize, cache.bytes());
+    }
+
+    @Test
+    void lookups_are_recorded_per_summary_class() {
+        DocsumCache cache = new DocsumCache(10_000, Duration.ofSeconds(60), metric, () -> nanos);
+        cache.recordLookups("default", 3, 1);
+        cache.recordLookups("default", 2, 0);
+        cache.recordLookups("short", 0, 4);
+        var hits = metric.metrics().get(ContainerMetrics.SUMMARY_CACHE_HITS.baseName());
+        var misses = metric.metrics().get(ContainerMetrics.SUMMARY_CACHE_MISSES.baseName());
+        assertEquals(5.0, hits.get(Map.of("summary", "default")));
+        assertEquals(1.0, misses.get(Map.of("summary", "default")));
+        assertFalse(hits.containsKey(Map.of("summary", "short")));
+        assertEquals(4.0, misses.get(Map.of("summary", "short")));
+    }
+
+    private static DocsumCache.Key key(long generation, String id, String summaryClass) {
+        return new DocsumCache.Key(generation, globalId(id), summaryClass, null);
+    }
+
+    private static GlobalId globalId(String id) {
+        return new GlobalId(IdString.createIdString("id:test:test::" + id));
+    }
+
+    private static Inspector docsum(String title) {
+        Slime slime = new Slime();
+        Cursor docsum = slime.setObject();
+        docsum.setString("title", title);
+        docsum.setLong("year", 7);
+        return slime.get();
+    }
+
+}
@@ -0,0 +1,69 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import ai.vespa.searchlib.searchprotocol.protobuf.SearchProtocol;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.yahoo.search.dispatch.rpc.RpcProtobufFillInvoker.DocsumReply;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author bratseth
+ */
+public class RpcProtobufFillInvokerTest {
+
+    @Test
+    void docsum_reply_summaries_are_located_in_the_payload() throws IOException {
+        Slime slime = new Slime();
+        Cursor docsum = slime.setObject().setArray("docsums").addObject().setObject("docsum");
+        docsum.setString("title", "Hello");
+        docsum.setLong("year", 2024);
+        byte[] summaries = BinaryFormat.encode(slime);
+        byte[] payload = SearchProtocol.DocsumReply.newBuilder()
+                                                   .setSlimeSummaries(ByteString.copyFrom(summaries))
+                                                   .addErrors(SearchProtocol.Error.newBuilder().setMessage("first"))
+                                                   .addErrors(SearchProtocol.Error.newBuilder().setMessage("second"))
+                                                   .build()
+                                                   .toByteArray();
+
+        DocsumReply reply = DocsumReply.parseFrom(payload);
+        assertEquals(summaries.length, reply.summariesLength());
+        assertEquals(ByteString.copyFrom(summaries),
+                     ByteString.copyFrom(Arrays.copyOfRange(payload, reply.summariesOffset(), reply.summariesOffset() + reply.summariesLength())));
+        assertEquals(List.of("first", "second"), reply.errors().stream().map(SearchProtocol.Error::getMessage).toList());
+
+        var root = BinaryView.inspect(payload, reply.summariesOffset(), reply.summariesLength());
+        var inspected = root.field("docsums").entry(0).field("docsum");
+        assertEquals("Hello", inspected.field("title").asString());
+        assertEquals(2024, inspected.field("year").asLong());
+    }
+
+    @Test
+    void empty_docsum_reply_has_no_summaries() throws IOException {
+        DocsumReply reply = DocsumReply.parseFrom(SearchProtocol.DocsumReply.getDefaultInstance().toByteArray());
+        assertEquals(0, reply.summariesLength());
+        assertEquals(List.of(), reply.errors());
+    }
+
+    @Test
+    void truncated_docsum_reply_is_rejected() {
+        byte[] payload = SearchProtocol.DocsumReply.newBuilder()
+                                                   .setSlimeSummaries(ByteString.copyFrom(new byte[100]))
+                                                   .build()
+                                                   .toByteArray();
+        assertThrows(InvalidProtocolBufferException.class,
+                     () -> DocsumReply.parseFrom(Arrays.copyOf(payload, payload.length - 1)));
+    }
+
+}
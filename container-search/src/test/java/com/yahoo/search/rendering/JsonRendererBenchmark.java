@@ -0,0 +1,119 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.rendering;
+
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
+import com.yahoo.tensor.Tensor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Measures the cost of rendering a result of 400 hits with structured (slime) fields and tensors as JSON.
+ *
+ * @author bratseth
+ */
+public class JsonRendererBenchmark {
+
+    private static final int hits = 400;
+
+    public void benchmark(String presentation, ExecutorService executor) throws ExecutionException, InterruptedException {
+        JsonRenderer blueprint = new JsonRenderer(executor);
+        int runs = 200;
+        long checksum = 0;
+        for (int i = 0; i < runs; i++) // warmup
+            checksum += render(blueprint, createResult(presentation, new Random(i)));
+        long totalTime = 0;
+        for (int i = 0; i < runs; i++) {
+            Result result = createResult(presentation, new Random(i)); // Rendering closes the hits
+            long startTime = System.nanoTime();
+            checksum += render(blueprint, result);
+            totalTime += System.nanoTime() - startTime;
+        }
+        System.out.println(presentation + ": " + (totalTime / runs / 1000) + " microseconds per result (checksum " + checksum + ")");
+        blueprint.deconstruct();
+    }
+
+    private static int render(JsonRenderer blueprint, Result result) throws ExecutionException, InterruptedException {
+        JsonRenderer renderer = (JsonRenderer) blueprint.clone();
+        renderer.init();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        renderer.renderResponse(out, result, new Execution(Execution.Context.createContextStub()), null).get();
+        renderer.deconstruct();
+        return out.size();
+    }
+
+    private static Result createResult(String presentation, Random random) {
+        Result result = new Result(new Query("/?" + presentation));
+        for (int i = 0; i < hits; i++) {
+            Hit hit = new Hit("id:ns:type::" + i, random.nextDouble());
+            hit.setField("title", "Title of document number " + i);
+            hit.setField("attributes", new SlimeAdapter(createStruct(random).get()));
+            hit.setField("tags", new SlimeAdapter(createMap(random).get()));
+            hit.setField("embedding", createTensor(random));
+            result.hits().add(hit);
+        }
+        result.setTotalHitCount(hits);
+        return result;
+    }
+
+    private static Slime createStruct(Random random) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setLong("year", 1900 + random.nextInt(125));
+        root.setDouble("price", random.nextDouble() * 100);
+        root.setBool("available", random.nextBoolean());
+        root.setString("description", "A \"structured\" field\twith some text which needs escaping\n");
+        byte[] raw = new byte[32];
+        random.nextBytes(raw);
+        root.setData("raw", raw);
+        Cursor scores = root.setArray("scores");
+        for (int i = 0; i < 16; i++)
+            scores.addDouble(random.nextDouble());
+        Cursor authors = root.setArray("authors");
+        for (int i = 0; i < 3; i++) {
+            Cursor author = authors.addObject();
+            author.setString("name", "Author " + random.nextInt(1000));
+            author.setLong("born", 1900 + random.nextInt(100));
+        }
+        return slime;
+    }
+
+    /** Returns a map in the key/value array form it has in document summaries. */
+    private static Slime createMap(Random random) {
+        Slime slime = new Slime();
+        Cursor root = slime.setArray();
+        for (int i = 0; i < 8; i++) {
+            Cursor entry = root.addObject();
+            entry.setString("key", "tag" + i);
+            entry.setLong("value", random.nextInt(100));
+        }
+        return slime;
+    }
+
+    private static Tensor createTensor(Random random) {
+        Tensor.Builder builder = Tensor.Builder.of("tensor<float>(x[64])");
+        for (int i = 0; i < 64; i++)
+            builder.cell(random.nextFloat(), i);
+        return builder.build();
+    }
+
+    public static void main(String[] args) throws ExecutionException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        JsonRendererBenchmark benchmark = new JsonRendererBenchmark();
+        for (String presentation : new String[] { "presentation.format.tensors=short-value",
+                                                  "presentation.format.tensors=long",
+                                                  "presentation.format.tensors=short&renderer.json.rawAsBase64=false" })
+            benchmark.benchmark(presentation, executor);
+        executor.shutdown();
+    }
+
+}
@@ -2,6 +2,7 @@
 package com.yahoo.search.rendering;
 
 import com.yahoo.json.Jackson;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.Chain;
@@ -69,6 +70,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
@@ -79,6 +81,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -129,6 +132,29 @@ public class JsonRendererTestCase {
         executor = null;
     }
 
+    @Test
+    void testRawUtf8ValueHasTheQuotedFormsOfItsString() throws IOException {
+        String json = "{\"text\":\"blåbær \\\"syltetøy\\\"\"}";
+        var raw = new JsonRenderer.RawUtf8Value(Utf8.toBytes(json));
+        var expected = new SerializedString(json);
+        assertEquals(json, raw.getValue());
+        assertArrayEquals(Utf8.toBytes(json), raw.asUnquotedUTF8());
+        assertArrayEquals(expected.asQuotedChars(), raw.asQuotedChars());
+        assertArrayEquals(expected.asQuotedUTF8(), raw.asQuotedUTF8());
+
+        byte[] bytes = new byte[100];
+        assertEquals(expected.asQuotedUTF8().length, raw.appendQuotedUTF8(bytes, 1));
+        assertEquals(-1, raw.appendQuotedUTF8(new byte[10], 0));
+        char[] chars = new char[100];
+        assertEquals(expected.asQuotedChars().length, raw.appendQuoted(chars, 1));
+        assertEquals(new String(expected.asQuotedChars()), new String(chars, 1, expected.asQuotedChars().length));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.asQuotedUTF8().length, raw.writeQuotedUTF8(out));
+        assertArrayEquals(expected.asQuotedUTF8(), out.toByteArray());
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        assertEquals(expected.asQuotedUTF8().length, raw.putQuotedUTF8(buffer));
+    }
+
     @Test
     @Timeout(300)
     void testDocumentId() throws IOException, InterruptedException, ExecutionException {
@@ -1734,6 +1760,36 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, result);
     }
 
+    @Test
+    void testDirectEncodingIsIdenticalToStringEncoding() throws IOException {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setNix("empty");
+        root.setBool("bool", true);
+        root.setLong("long", -7809531904L);
+        root.setDouble("double", 0.1);
+        root.setDouble("large", 1.0e23);
+        root.setDouble("nan", Double.NaN);
+        root.setDouble("infinity", Double.NEGATIVE_INFINITY);
+        root.setString("string", "quote\" backslash\\ tab\t newline\n bell\u0007 unicode\u00e6\u2603 \uD83D\uDE00");
+        root.setData("data", new byte[] { 0, 1, (byte)0x7f, (byte)0x80, (byte)0xff });
+        Cursor array = root.setArray("array");
+        array.addLong(1);
+        array.addString("two");
+        array.addObject().setString("key\n", "value");
+        array.addArray();
+        root.setObject("nested").setArray("deeper").addDouble(-0.0);
+
+        for (boolean rawAsBase64 : List.of(false, true)) {
+            var inspector = new SlimeAdapter(slime.get());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (var generator = Jackson.mapper().getFactory().createGenerator(out)) {
+                new JsonRenderer.DirectEncoder(generator, rawAsBase64).encode(inspector);
+            }
+            assertEquals(JsonRenderer.WithBase64.toJsonString(inspector, rawAsBase64), Utf8.toString(out.toByteArray()));
+        }
+    }
+
     private Result newEmptyResult(String[] args) {
         return new Result(new Query("/?" + String.join("&", args)));
     }
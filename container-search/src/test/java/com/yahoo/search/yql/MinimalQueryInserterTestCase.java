@@ -1,9 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.yql;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.google.common.base.Charsets;
 import com.yahoo.component.chain.Chain;
+import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.language.Language;
+import com.yahoo.language.simple.SimpleLinguistics;
 import com.yahoo.processing.IllegalInputException;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
@@ -26,6 +29,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -409,11 +413,38 @@ public class MinimalQueryInserterTestCase {
         }
     }
 
+    @Test
+    void parsedProgramsAreReusedWithNewParameterValues() {
+        MockMetric metric = new MockMetric();
+        Execution execution = new Execution(new Chain<>(new MinimalQueryInserter(new SimpleLinguistics(), metric)),
+                                            Execution.Context.createContextStub());
+        String template = "select * from sources * where title contains @word and year > @year";
+
+        Query query = new Query("search/?yql=" + encode(template) + "&word=madonna&year=1980");
+        execution.search(query);
+        assertEquals("AND title:madonna year:>1980", query.getModel().getQueryTree().toString());
+
+        query = new Query("search/?yql=" + encode(" " + template + " ") + "&word=prince&year=1990");
+        execution.search(query);
+        assertEquals("AND title:prince year:>1990", query.getModel().getQueryTree().toString());
+
+        query = new Query("search/?yql=" + encode("select * from sources * where title contains") + "&word=prince");
+        Result result = execution.search(query);
+        assertNotNull(result.hits().getError());
+
+        assertEquals(1, count(ContainerMetrics.YQL_PARSE_CACHE_HITS, metric));
+        assertEquals(2, count(ContainerMetrics.YQL_PARSE_CACHE_MISSES, metric));
+    }
+
     @Test
     void verifyThatWarmupIsSane() {
         assertTrue(MinimalQueryInserter.warmup());
     }
 
+    private static long count(ContainerMetrics metric, MockMetric metrics) {
+        return Math.round(metrics.metrics().getOrDefault(metric.baseName(), Map.of()).getOrDefault(Map.of(), 0.0));
+    }
+
     private static void assertGrouping(String expected, Query query) {
         List<String> actual = new ArrayList<>();
         for (GroupingRequest request : query.getSelect().getGrouping())
@@ -0,0 +1,61 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.yql;
+
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.search.Query;
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
+
+/**
+ * Compares the cost of parsing typical YQL templates with and without caching the parsed programs.
+ *
+ * @author bratseth
+ */
+public class YqlParsingMicroBenchmark {
+
+    private static final String[] templates = {
+            "select * from sources * where userInput(@query)",
+            "select * from sources * where title contains @word and year > @year order by year desc limit 10",
+            "select * from sources * where ({targetHits: 100}nearestNeighbor(embedding, q)) or userInput(@query) " +
+            "| all(group(artist) max(10) each(output(count())))",
+            "select title, artist from sources * where weightedSet(genre, {\"rock\": 1, \"pop\": 2}) and " +
+            "range(year, 1970, 1990) and !(title contains \"live\")"
+    };
+
+    private final ParserEnvironment environment = new ParserEnvironment();
+
+    public void benchmark() {
+        YqlProgramCache cache = new YqlProgramCache(1000, new MockMetric());
+        parse(100000, null); // warmup
+        parse(100000, cache);
+
+        int runs = 100000;
+        long uncachedTime = parse(runs, null);
+        long cachedTime = parse(runs, cache);
+        System.out.println("Time per uncached parse: " + (uncachedTime * 1000 * 1000 / runs) + " nanoseconds");
+        System.out.println("Time per cached parse:   " + (cachedTime * 1000 * 1000 / runs) + " nanoseconds");
+    }
+
+    /** Parses the templates with varying parameters the given number of times and returns the time spent in ms */
+    private long parse(int runs, YqlProgramCache cache) {
+        long startTime = System.currentTimeMillis();
+        int result = 0;
+        for (int i = 0; i < runs; i++) {
+            String yql = templates[i % templates.length];
+            Query query = new Query("?query=term" + i + "&word=word" + i + "&year=" + (i % 100));
+            YqlParser parser = new YqlParser(environment);
+            parser.setQueryParser(false);
+            parser.setUserQuery(query);
+            parser.setProgramCache(cache);
+            result += parser.parse(Parsable.fromQueryModel(query.getModel()).setQuery(yql)).getRoot().getTermCount();
+        }
+        long totalTime = System.currentTimeMillis() - startTime;
+        System.out.println("Ignore this: " + result); // Make sure we are not fooled by optimization
+        return totalTime;
+    }
+
+    public static void main(String[] args) {
+        new YqlParsingMicroBenchmark().benchmark();
+    }
+
+}
@@ -156,12 +156,17 @@ public class JsonReader {
         }
     }
 
-    /** Returns the next document operation, or null if we have reached the end */
+    /**
+     * Returns the next document operation, or null if we have reached the end.
+     * The operations are read either from a JSON array, or from a sequence of root level JSON objects,
+     * such as the lines of a JSON Lines stream.
+     */
     public DocumentOperation next() {
         switch (state) {
             case AT_START:
                 JsonToken t = nextToken(parser);
-                expectArrayStart(t);
+                if (t != JsonToken.START_OBJECT)
+                    expectArrayStart(t);
                 state = ReaderState.READING;
                 break;
             case END_OF_FEED:
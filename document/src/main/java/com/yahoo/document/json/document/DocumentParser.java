@@ -36,7 +36,8 @@ public class DocumentParser {
      * Returns empty if we have reached the end of the stream.
      */
     public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg) throws IOException {
-        indentLevel = 0;
+        // The start of a root level object may already have been read by the caller
+        indentLevel = parser.currentToken() == JsonToken.START_OBJECT && parser.getParsingContext().getParent().inRoot() ? 1 : 0;
         DocumentParseInfo documentParseInfo = new DocumentParseInfo();
         documentIdArg.ifPresent(documentId -> documentParseInfo.documentId = documentId);
         boolean foundItems = false;
@@ -59,7 +60,8 @@ public class DocumentParser {
      * @return whether an item was found
      */
     private boolean parseOneItem(DocumentParseInfo documentParseInfo, boolean docIdAndOperationIsSetExternally) throws IOException {
-        parser.nextValue();
+        if (parser.nextValue() == null && indentLevel == 0 && ! docIdAndOperationIsSetExternally)
+            return false; // End of a sequence of root level objects
         processIndent();
         if (parser.currentName() == null) return false;
         if (indentLevel == 1L) {
@@ -0,0 +1,110 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.select.rule.DocumentTypeNode;
+import com.yahoo.document.select.rule.EmbracedNode;
+import com.yahoo.document.select.rule.ExpressionNode;
+import com.yahoo.document.select.rule.LogicNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A document selector prepared for evaluating many documents: The document types the selection requires
+ * are checked up front, so documents of other types are rejected without evaluating the rest of the expression,
+ * and only the remaining conditions are evaluated for documents of the right type.
+ * Regular expressions, globs and field paths are compiled once by the expression nodes and reused as long as
+ * they evaluate documents of the same type.
+ *
+ * Compiled document selectors are multithread safe.
+ *
+ * @author bratseth
+ */
+public class CompiledDocumentSelector {
+
+    private final DocumentSelector source;
+
+    /** Document type conditions which must all be true for the selection to be true */
+    private final List<DocumentTypeNode> requiredTypes;
+
+    /** The conditions remaining when the required types are matched, or null if there are none */
+    private final ExpressionNode remaining;
+
+    CompiledDocumentSelector(DocumentSelector source, ExpressionNode expression) {
+        this.source = source;
+        List<DocumentTypeNode> requiredTypes = new ArrayList<>();
+        List<ExpressionNode> remaining = new ArrayList<>();
+        for (ExpressionNode conjunct : conjunctsOf(expression)) {
+            if (unwrap(conjunct) instanceof DocumentTypeNode type)
+                requiredTypes.add(type);
+            else
+                remaining.add(conjunct);
+        }
+        this.requiredTypes = List.copyOf(requiredTypes);
+        this.remaining = and(remaining);
+    }
+
+    /**
+     * Returns true if the document referenced by this document operation is accepted by this selector
+     *
+     * @param op a document operation
+     * @return true if the document is accepted
+     * @throws RuntimeException if the evaluation enters an illegal state
+     */
+    public Result accepts(DocumentOperation op) {
+        return accepts(new Context(op));
+    }
+
+    /**
+     * Returns true if the document referenced by this context is accepted by this selector
+     *
+     * @param context the context to match in
+     * @return true if the document is accepted
+     * @throws RuntimeException if the evaluation enters an illegal state
+     */
+    public Result accepts(Context context) {
+        for (DocumentTypeNode type : requiredTypes)
+            if ( ! type.matches(context.getDocumentOperation())) return Result.FALSE;
+        if (remaining == null) return Result.TRUE;
+        return Result.toResult(remaining.evaluate(context));
+    }
+
+    /** Returns the selector this is compiled from */
+    public DocumentSelector source() { return source; }
+
+    /** Returns this selector as a Document Selection Language string */
+    @Override
+    public String toString() { return source.toString(); }
+
+    /** Returns the expressions which must all be true for the given expression to be true */
+    private static List<ExpressionNode> conjunctsOf(ExpressionNode expression) {
+        if ( ! (unwrap(expression) instanceof LogicNode logic)) return List.of(expression);
+
+        List<ExpressionNode> conjuncts = new ArrayList<>();
+        for (LogicNode.NodeItem item : logic.getItems()) {
+            if (item.getOperator() != LogicNode.NOP && item.getOperator() != LogicNode.AND)
+                return List.of(expression); // Not a pure conjunction
+            conjuncts.add(item.getNode());
+        }
+        return conjuncts;
+    }
+
+    private static ExpressionNode unwrap(ExpressionNode expression) {
+        while (expression instanceof EmbracedNode embraced)
+            expression = embraced.getNode();
+        return expression;
+    }
+
+    private static ExpressionNode and(List<ExpressionNode> conjuncts) {
+        if (conjuncts.isEmpty()) return null;
+        if (conjuncts.size() == 1) return conjuncts.get(0);
+
+        LogicNode and = new LogicNode();
+        and.add(null, conjuncts.get(0));
+        for (int i = 1; i < conjuncts.size(); i++)
+            and.add("and", conjuncts.get(i));
+        return and;
+    }
+
+}
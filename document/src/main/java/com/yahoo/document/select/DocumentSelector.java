@@ -43,6 +43,14 @@ public class DocumentSelector {
         }
     }
 
+    /**
+     * Returns this compiled for evaluating many documents. This should be preferred when the same
+     * selector is used to evaluate many documents, such as when routing or visiting.
+     */
+    public CompiledDocumentSelector compile() {
+        return new CompiledDocumentSelector(this, expression);
+    }
+
     /**
      * Returns true if the document referenced by this document operation is accepted by this selector
      *
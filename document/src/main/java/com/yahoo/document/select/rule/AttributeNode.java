@@ -29,6 +29,9 @@ public class AttributeNode implements ExpressionNode {
     private ExpressionNode value;
     private final List<Item> items;
 
+    // The field path last resolved by this, as this is usually evaluated over documents of the same type.
+    private volatile ResolvedFieldPath resolvedFieldPath = null;
+
     public AttributeNode(ExpressionNode value, List<Item> items) {
         this.value = value;
         this.items = new ArrayList<>(items);
@@ -146,10 +149,11 @@ public class AttributeNode implements ExpressionNode {
         return documentType.hasImportedField(path);
     }
 
-    private static Object evaluateFieldPath(String fieldPathStr, Object value) {
+    private Object evaluateFieldPath(String fieldPathStr, Object value) {
         if (value instanceof DocumentPut) {
             Document doc = ((DocumentPut) value).getDocument();
-            if (isSimpleImportedField(fieldPathStr, doc.getDataType())) {
+            FieldPath fieldPath = resolveFieldPath(fieldPathStr, doc.getDataType());
+            if (fieldPath == null) {
                 // Imported fields can only be meaningfully evaluated in the backend, so we
                 // explicitly treat them as if they are valid fields with missing values. This
                 // will be treated the same as if it's a normal field by the selection operators.
@@ -157,7 +161,6 @@ public class AttributeNode implements ExpressionNode {
                 // augment the FieldPath code with knowledge of imported fields.
                 return null;
             }
-            FieldPath fieldPath = doc.getDataType().buildFieldPath(fieldPathStr);
             IteratorHandler handler = new IteratorHandler();
             doc.iterateNested(fieldPath, 0, handler);
             if (handler.values.isEmpty()) {
@@ -174,6 +177,22 @@ public class AttributeNode implements ExpressionNode {
         return Result.FALSE;
     }
 
+    /**
+     * Returns the field path of the given string in the given document type, or null if it is a simple imported field.
+     * The last resolved path is reused when the type and path string are the same.
+     */
+    private FieldPath resolveFieldPath(String fieldPathStr, DocumentType documentType) {
+        ResolvedFieldPath resolved = resolvedFieldPath;
+        if (resolved == null || resolved.documentType() != documentType || ! resolved.path().equals(fieldPathStr)) {
+            FieldPath fieldPath = isSimpleImportedField(fieldPathStr, documentType)
+                                  ? null
+                                  : documentType.buildFieldPath(fieldPathStr);
+            resolved = new ResolvedFieldPath(documentType, fieldPathStr, fieldPath);
+            resolvedFieldPath = resolved;
+        }
+        return resolved.fieldPath();
+    }
+
     private static Object evaluateFunction(String function, Object value) {
         if (value instanceof VariableValueList) {
             VariableValueList retVal = new VariableValueList();
@@ -205,6 +224,8 @@ public class AttributeNode implements ExpressionNode {
         return ret.toString();
     }
 
+    private record ResolvedFieldPath(DocumentType documentType, String path, FieldPath fieldPath) {}
+
     public static class Item {
 
         public static final int ATTRIBUTE = 0;
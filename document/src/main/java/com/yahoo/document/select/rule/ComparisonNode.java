@@ -17,6 +17,7 @@ import com.yahoo.document.select.Visitor;
 
 import java.util.EnumSet;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 /**
@@ -30,6 +31,9 @@ public class ComparisonNode implements ExpressionNode {
     // The operator string for this.
     private String operator;
 
+    // The matcher compiled from the last right-hand side of a =~ or = comparison, which is usually a literal.
+    private volatile CompiledPattern compiledPattern = null;
+
     /**
      * Constructs a new comparison node.
      *
@@ -69,6 +73,7 @@ public class ComparisonNode implements ExpressionNode {
      */
     public ComparisonNode setOperator(String operator) {
         this.operator = operator;
+        this.compiledPattern = null;
         return this;
     }
 
@@ -336,11 +341,67 @@ public class ComparisonNode implements ExpressionNode {
     private Result evaluateString(Object lhs, Object rhs) {
         String left = "" + lhs; // Allows null objects to evaluate to string.
         String right = "" + rhs;
-        if (operator.equals("=~")) {
-            return Result.toResult(Pattern.compile(right).matcher(left).find());
-        } else {
-            return Result.toResult(Pattern.compile(globToRegex(right)).matcher(left).find());
+        return Result.toResult(matcherOf(right).test(left));
+    }
+
+    /** Returns the matcher of the given right-hand side, compiling it only if it differs from the last one. */
+    private Predicate<String> matcherOf(String right) {
+        CompiledPattern compiled = compiledPattern;
+        if (compiled == null || ! compiled.source().equals(right)) {
+            compiled = new CompiledPattern(right, operator.equals("=~") ? regexMatcher(right) : globMatcher(right));
+            compiledPattern = compiled;
+        }
+        return compiled.matcher();
+    }
+
+    private static Predicate<String> regexMatcher(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return value -> pattern.matcher(value).find();
+    }
+
+    /**
+     * Returns a matcher of the given glob, which avoids regular expressions for the common cases of
+     * no wildcards, or a single '*'. Values containing line terminators are always matched by the regular expression,
+     * as that treats them specially.
+     */
+    private Predicate<String> globMatcher(String glob) {
+        Pattern pattern = Pattern.compile(globToRegex(glob));
+        Predicate<String> regexMatcher = value -> pattern.matcher(value).find();
+        Predicate<String> simpleMatcher = simpleGlobMatcher(glob);
+        if (simpleMatcher == null) return regexMatcher;
+        return value -> hasLineTerminator(value) ? regexMatcher.test(value) : simpleMatcher.test(value);
+    }
+
+    private static Predicate<String> simpleGlobMatcher(String glob) {
+        int firstWildcard = firstWildcardIndex(glob, 0);
+        if (firstWildcard < 0)
+            return glob::equals;
+        if (glob.charAt(firstWildcard) != '*' || firstWildcardIndex(glob, firstWildcard + 1) >= 0)
+            return null;
+
+        String prefix = glob.substring(0, firstWildcard);
+        String suffix = glob.substring(firstWildcard + 1);
+        if (suffix.isEmpty()) return value -> value.startsWith(prefix);
+        if (prefix.isEmpty()) return value -> value.endsWith(suffix);
+        int minLength = prefix.length() + suffix.length();
+        return value -> value.length() >= minLength && value.startsWith(prefix) && value.endsWith(suffix);
+    }
+
+    private static boolean hasLineTerminator(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            switch (value.charAt(i)) {
+                case '\n', '\r', '\u0085', '\u2028', '\u2029': return true;
+            }
         }
+        return false;
+    }
+
+    private static int firstWildcardIndex(String glob, int from) {
+        for (int i = from; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') return i;
+        }
+        return -1;
     }
 
     /**
@@ -399,4 +460,6 @@ public class ComparisonNode implements ExpressionNode {
     public String toString() {
         return lhs + " " + operator + " " + rhs;
     }
+
+    private record CompiledPattern(String source, Predicate<String> matcher) {}
 }
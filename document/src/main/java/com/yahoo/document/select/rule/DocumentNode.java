@@ -4,6 +4,7 @@ package com.yahoo.document.select.rule;
 import com.yahoo.document.BucketIdFactory;
 import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.select.BucketSet;
 import com.yahoo.document.select.Context;
@@ -21,6 +22,9 @@ public class DocumentNode implements ExpressionNode {
 
     private String type;
 
+    // Whether the last document type evaluated by this is of this type, as most documents evaluated are of the same type.
+    private volatile TypeMatch lastTypeMatch = null;
+
     public DocumentNode(String type) {
         this.type = type;
     }
@@ -31,6 +35,7 @@ public class DocumentNode implements ExpressionNode {
 
     public DocumentNode setType(String type) {
         this.type = type;
+        this.lastTypeMatch = null;
         return this;
     }
 
@@ -45,24 +50,26 @@ public class DocumentNode implements ExpressionNode {
     }
 
     private Object evaluate(DocumentOperation op) {
-        if (hasData(op))
-            return evaluateForDataLookup(op);
-        else // Simplify to just false since we can't progress here?
-            return op.getId().getDocType().equals(type) ? op : false;
+        return matches(op) ? op : false;
     }
 
-    private Object evaluateForDataLookup(DocumentOperation op) {
-        if (op instanceof DocumentPut)
-            return ((DocumentPut)op).getDocument().getDataType().isA(this.type) ? op : false;
-        else if (op instanceof DocumentUpdate)
-            return ((DocumentUpdate)op).getDocumentType().isA(this.type) ? op : false;
-        else
-            throw new IllegalStateException("Programming error");
+    /** Returns whether the given operation is of this document type, or (if it contains data) inherits it */
+    private boolean matches(DocumentOperation op) {
+        if (op instanceof DocumentPut put)
+            return isA(put.getDocument().getDataType());
+        else if (op instanceof DocumentUpdate update)
+            return isA(update.getDocumentType());
+        else // Simplify to just comparing the type name since we can't progress here?
+            return op.getId().getDocType().equals(type);
     }
 
-    /** Returns whether this operation is of a type that may contain data */
-    private boolean hasData(DocumentOperation op) {
-        return op instanceof DocumentPut || op instanceof DocumentUpdate;
+    private boolean isA(DocumentType documentType) {
+        TypeMatch match = lastTypeMatch;
+        if (match == null || match.documentType() != documentType) {
+            match = new TypeMatch(documentType, documentType.isA(type));
+            lastTypeMatch = match;
+        }
+        return match.matches();
     }
 
     public void accept(Visitor visitor) {
@@ -74,4 +81,6 @@ public class DocumentNode implements ExpressionNode {
         return type;
     }
 
+    private record TypeMatch(DocumentType documentType, boolean matches) {}
+
 }
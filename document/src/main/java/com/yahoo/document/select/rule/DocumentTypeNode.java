@@ -46,7 +46,12 @@ public class DocumentTypeNode implements ExpressionNode {
     }
 
     private Object evaluate(DocumentOperation op) {
-        return op.getId().getDocType().equals(type) ? op : false;
+        return matches(op) ? op : false;
+    }
+
+    /** Returns whether the given operation is exactly of this document type */
+    public boolean matches(DocumentOperation op) {
+        return op.getId().getDocType().equals(type);
     }
 
     public void accept(Visitor visitor) {
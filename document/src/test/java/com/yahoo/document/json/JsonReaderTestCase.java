@@ -1265,6 +1265,18 @@ public class JsonReaderTestCase {
         controlBasicFeed(r);
     }
 
+    @Test
+    public void testCompleteFeedAsJsonLines() {
+        JsonReader r = createReader("""
+                                    {"put": "id:unittest:smoke::whee", "fields": {"something": "smoketest", "flag": true, "nalle": "bamse"}}
+                                    {"update": "id:unittest:testarray::whee", "fields": {"actualarray": {"add": ["person", "another person"]}}}
+                                    {"remove": "id:unittest:smoke::whee"}
+                                    """);
+
+        controlBasicFeed(r);
+        assertNull(r.next());
+    }
+
     @Test
     public void testCompleteFeedWithCreateAndCondition() {
         JsonReader r = createReader("""
@@ -0,0 +1,98 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.select.parser.ParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compares evaluating route selectors by interpreting the parsed expression with evaluating the compiled selector,
+ * over a feed of documents of two types.
+ *
+ * @author bratseth
+ */
+public class DocumentSelectorBenchmark {
+
+    private static final List<String> selectors = List.of("music",
+                                                          "music and music.year > 2000",
+                                                          "music and music.title = \"*love*\"",
+                                                          "music and music.artist = \"The *\"",
+                                                          "music and music.artist =~ \"^The [A-Z]\"",
+                                                          "id.namespace == \"ns\" and music and music.year < 1990");
+
+    private final List<DocumentOperation> documents = createDocuments(10000);
+
+    public void benchmark(String selection) throws ParseException {
+        DocumentSelector selector = new DocumentSelector(selection);
+        CompiledDocumentSelector compiled = selector.compile();
+        long interpreted = run(selector::accepts);
+        long compiledTime = run(compiled::accepts);
+        System.out.println(selection + ": interpreted " + interpreted + " ns, compiled " + compiledTime + " ns per document");
+    }
+
+    private long run(Function<DocumentOperation, Result> selector) {
+        int runs = 100;
+        long checksum = 0;
+        for (int i = 0; i < runs; i++) // warmup
+            checksum += evaluate(selector);
+        long startTime = System.nanoTime();
+        for (int i = 0; i < runs; i++)
+            checksum += evaluate(selector);
+        long totalTime = System.nanoTime() - startTime;
+        if (checksum == 0) System.out.println("No documents accepted");
+        return totalTime / ((long)runs * documents.size());
+    }
+
+    private long evaluate(Function<DocumentOperation, Result> selector) {
+        long accepted = 0;
+        for (DocumentOperation document : documents)
+            if (selector.apply(document) == Result.TRUE)
+                accepted++;
+        return accepted;
+    }
+
+    private static List<DocumentOperation> createDocuments(int count) {
+        DocumentType music = new DocumentType("music");
+        music.addField("title", DataType.STRING);
+        music.addField("artist", DataType.STRING);
+        music.addField("year", DataType.INT);
+        DocumentType book = new DocumentType("book");
+        book.addField("title", DataType.STRING);
+
+        List<String> words = List.of("love", "night", "road", "song", "heart", "fire", "rain");
+        List<DocumentOperation> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = words.get(i % words.size()) + " " + words.get((i / 7) % words.size());
+            if (i % 2 == 0) {
+                Document document = new Document(music, new DocumentId("id:ns:music::" + i));
+                document.setFieldValue("title", new StringFieldValue(title));
+                document.setFieldValue("artist", new StringFieldValue((i % 3 == 0 ? "The " : "") + "Artist " + i));
+                document.setFieldValue("year", new IntegerFieldValue(1960 + i % 60));
+                documents.add(new DocumentPut(document));
+            }
+            else {
+                Document document = new Document(book, new DocumentId("id:ns:book::" + i));
+                document.setFieldValue("title", new StringFieldValue(title));
+                documents.add(new DocumentPut(document));
+            }
+        }
+        return documents;
+    }
+
+    public static void main(String[] args) throws ParseException {
+        DocumentSelectorBenchmark benchmark = new DocumentSelectorBenchmark();
+        for (String selector : selectors)
+            benchmark.benchmark(selector);
+    }
+
+}
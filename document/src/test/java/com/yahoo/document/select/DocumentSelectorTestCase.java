@@ -857,6 +857,40 @@ public class DocumentSelectorTestCase {
         }
     }
 
+    @Test
+    public void testCompiledSelector() throws ParseException {
+        var documents = createDocs();
+        var selector = new DocumentSelector("test and test.hint = 24 and test.content = \"b*\"").compile();
+        assertEquals(Result.TRUE, selector.accepts(documents.get(0)));
+        assertEquals(Result.FALSE, selector.accepts(documents.get(1)));
+        assertEquals(Result.FALSE, selector.accepts(createRemove("id:ns:null::1")));
+        assertEquals(Result.INVALID, selector.accepts(createRemove("id:ns:test::1")));
+
+        // Other types are rejected before evaluating fields which would fail for them
+        var user = new DocumentPut(new Document(manager.getDocumentType("user"), new DocumentId("id:ns:user::1")));
+        assertEquals(Result.FALSE, new DocumentSelector("test and test.nonexisting == 1").compile().accepts(user));
+        assertEquals(Result.FALSE, new DocumentSelector("(parent)").compile().accepts(documents.get(0)));
+        assertEquals(Result.TRUE, new DocumentSelector("user or test").compile().accepts(user));
+    }
+
+    @Test
+    public void testGlobs() throws ParseException {
+        var documents = createDocs();
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"ba*\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"*ar\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"b*r\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"b*ar\"", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("\"bar\" = \"ba*ar\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"*\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"bar\" = \"b?r\"", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("\"bar\" = \"b?\"", documents.get(0)));
+        assertEquals(Result.TRUE, evaluate("\"b.r\" = \"b.*\"", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("\"bar\" = \"b.*\"", documents.get(0)));
+        // Line terminators are treated as by regular expressions
+        assertEquals(Result.TRUE, evaluate("\"bar\\n\" = \"bar\"", documents.get(0)));
+        assertEquals(Result.FALSE, evaluate("\"bar\\nbar\" = \"bar*\"", documents.get(0)));
+    }
+
     @Test
     public void testTicket1769674() {
         assertParseError("music.uri=\"junk",
@@ -981,7 +1015,10 @@ public class DocumentSelectorTestCase {
     }
 
     private static Result evaluate(String expressionString, DocumentOperation op) throws ParseException {
-        return new DocumentSelector(expressionString).accepts(op);
+        DocumentSelector selector = new DocumentSelector(expressionString);
+        Result result = selector.accepts(op);
+        assertEquals("Compiled evaluation of '" + expressionString + "'", result, selector.compile().accepts(op));
+        return result;
     }
 
     private static void assertError(String expressionString, DocumentOperation op, String expectedError) {
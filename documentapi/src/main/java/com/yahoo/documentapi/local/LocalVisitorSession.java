@@ -6,6 +6,7 @@ import com.yahoo.document.DocumentId;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.fieldset.FieldSet;
 import com.yahoo.document.fieldset.FieldSetRepo;
+import com.yahoo.document.select.CompiledDocumentSelector;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.Result;
 import com.yahoo.document.select.parser.ParseException;
@@ -41,14 +42,14 @@ public final class LocalVisitorSession implements VisitorSession {
     private final VisitorDataHandler data;
     private final VisitorControlHandler control;
     private final Map<DocumentId, Document> outstanding;
-    private final DocumentSelector selector;
+    private final CompiledDocumentSelector selector;
     private final FieldSet fieldSet;
     private final AtomicReference<State> state;
     private final AtomicReference<Phaser> phaser;
     private final ProgressToken token;
 
     public LocalVisitorSession(LocalDocumentAccess access, VisitorParameters parameters) throws ParseException {
-        this.selector = new DocumentSelector(parameters.getDocumentSelection());
+        this.selector = new DocumentSelector(parameters.getDocumentSelection()).compile();
         this.fieldSet = new FieldSetRepo().parse(access.getDocumentTypeManager(), parameters.fieldSet());
         this.token = parameters.getResumeToken();
 
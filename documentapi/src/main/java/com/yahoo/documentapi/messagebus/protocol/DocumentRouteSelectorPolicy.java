@@ -3,6 +3,7 @@ package com.yahoo.documentapi.messagebus.protocol;
 
 import com.yahoo.config.subscription.ConfigSubscriber;
 import com.yahoo.document.DocumentGet;
+import com.yahoo.document.select.CompiledDocumentSelector;
 import com.yahoo.document.select.DocumentSelector;
 import com.yahoo.document.select.Result;
 import com.yahoo.document.select.parser.ParseException;
@@ -27,16 +28,16 @@ public class DocumentRouteSelectorPolicy
         implements DocumentProtocolRoutingPolicy, ConfigSubscriber.SingleSubscriber<DocumentrouteselectorpolicyConfig> {
 
     private static final Logger log = Logger.getLogger(DocumentRouteSelectorPolicy.class.getName());
-    private Map<String, DocumentSelector> config;
+    private Map<String, CompiledDocumentSelector> config;
     private String error = "Not configured.";
     private ConfigSubscriber subscriber;
 
     /** This policy is constructed with the proper config at its time of creation. */
     public DocumentRouteSelectorPolicy(DocumentProtocolPoliciesConfig config) {
-        Map<String, DocumentSelector> selectors = new HashMap<>();
+        Map<String, CompiledDocumentSelector> selectors = new HashMap<>();
         config.cluster().forEach((name, cluster) -> {
             try {
-                selectors.put(name, new DocumentSelector(cluster.selector()));
+                selectors.put(name, new DocumentSelector(cluster.selector()).compile());
             }
             catch (ParseException e) {
                 throw new IllegalArgumentException("Error parsing selector '" + cluster.selector() +
@@ -76,15 +77,15 @@ public class DocumentRouteSelectorPolicy
     @Override
     public void configure(DocumentrouteselectorpolicyConfig cfg) {
         String error = null;
-        Map<String, DocumentSelector> config = new HashMap<>();
+        Map<String, CompiledDocumentSelector> config = new HashMap<>();
         for (int i = 0; i < cfg.route().size(); i++) {
             DocumentrouteselectorpolicyConfig.Route route = cfg.route(i);
             if (route.selector().isEmpty()) {
                 continue;
             }
-            DocumentSelector selector;
+            CompiledDocumentSelector selector;
             try {
-                selector = new DocumentSelector(route.selector());
+                selector = new DocumentSelector(route.selector()).compile();
                 log.log(Level.CONFIG, "Selector for route '" + route.name() + "' is '" + selector + "'");
             } catch (com.yahoo.document.select.parser.ParseException e) {
                 error = "Error parsing selector '" + route.selector() + "' for route '" + route.name() + ": " +
@@ -144,7 +145,7 @@ public class DocumentRouteSelectorPolicy
         if (config == null) {
             return true;
         }
-        DocumentSelector selector = config.get(routeName);
+        CompiledDocumentSelector selector = config.get(routeName);
         if (selector == null) {
             return true;
         }
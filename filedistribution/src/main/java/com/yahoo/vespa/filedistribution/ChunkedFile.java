@@ -0,0 +1,199 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * The content of a file reference, as transferred between nodes: A single file, which is either the file itself
+ * or a compressed archive of it, divided into chunks of equal size (except the last) with an xxhash64 checksum each.
+ * A chunked file may be incomplete, in which case the chunks which are present can be read, and the rest written
+ * as they are received, in any order.
+ *
+ * @author bratseth
+ */
+class ChunkedFile {
+
+    static final int defaultChunkSize = 1 << 20;
+
+    private static final XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
+
+    private final FileReference reference;
+    private final String filename;
+    private final Type type;
+    private final CompressionType compressionType;
+    private final File file;
+    private final long size;
+    private final int chunkSize;
+    private final long[] hashes;
+    private final BitSet present;
+
+    private ChunkedFile(FileReference reference, String filename, Type type, CompressionType compressionType,
+                        File file, long size, int chunkSize, long[] hashes, BitSet present) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive, but was " + chunkSize);
+        if (hashes.length != chunkCount(size, chunkSize))
+            throw new IllegalArgumentException(reference + " of size " + size + " should have " + chunkCount(size, chunkSize) +
+                                               " chunks of size " + chunkSize + ", but got " + hashes.length + " checksums");
+        this.reference = reference;
+        this.filename = filename;
+        this.type = type;
+        this.compressionType = compressionType;
+        this.file = file;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.hashes = hashes;
+        this.present = present;
+    }
+
+    /** Returns a complete chunked file of the given existing file */
+    static ChunkedFile of(FileReference reference, String filename, Type type, CompressionType compressionType,
+                          File file, int chunkSize) throws IOException {
+        long size = file.length();
+        long[] hashes = new long[chunkCount(size, chunkSize)];
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            for (int i = 0; i < hashes.length; i++)
+                hashes[i] = hash(read(channel, buffer, (long) i * chunkSize, chunkLength(i, size, chunkSize)));
+        }
+        BitSet present = new BitSet(hashes.length);
+        present.set(0, hashes.length);
+        return new ChunkedFile(reference, filename, type, compressionType, file, size, chunkSize, hashes, present);
+    }
+
+    /**
+     * Returns an incomplete chunked file with the given content description, which is written to the given file.
+     * If the file already contains some of the content, e.g., from an earlier attempt, the chunks which are correct
+     * are kept, so that only the remaining ones need to be received.
+     */
+    static ChunkedFile resume(FileReference reference, String filename, Type type, CompressionType compressionType,
+                              File file, long size, int chunkSize, long[] hashes) throws IOException {
+        BitSet present = new BitSet(hashes.length);
+        if (file.exists()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+                for (int i = 0; i < hashes.length; i++) {
+                    long offset = (long) i * chunkSize;
+                    int length = chunkLength(i, size, chunkSize);
+                    if (offset + length > channel.size()) break;
+                    if (hash(read(channel, buffer, offset, length)) == hashes[i])
+                        present.set(i);
+                }
+            }
+            if (file.length() > size) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), WRITE)) {
+                    channel.truncate(size);
+                }
+            }
+        }
+        return new ChunkedFile(reference, filename, type, compressionType, file, size, chunkSize, hashes, present);
+    }
+
+    FileReference reference() { return reference; }
+    String filename() { return filename; }
+    Type type() { return type; }
+    CompressionType compressionType() { return compressionType; }
+    File file() { return file; }
+    long size() { return size; }
+    int chunkSize() { return chunkSize; }
+    int chunkCount() { return hashes.length; }
+
+    /** Returns the checksums of all the chunks of this, which must not be modified */
+    long[] hashes() { return hashes; }
+
+    synchronized boolean hasChunk(int index) { return present.get(index); }
+
+    synchronized boolean isComplete() { return present.cardinality() == hashes.length; }
+
+    /** Returns the fraction of the chunks of this which are present */
+    synchronized double completeness() {
+        return hashes.length == 0 ? 1.0 : (double) present.cardinality() / hashes.length;
+    }
+
+    /** Returns the indices of the chunks which are not yet present in this */
+    synchronized BitSet missingChunks() {
+        BitSet missing = new BitSet(hashes.length);
+        missing.set(0, hashes.length);
+        missing.andNot(present);
+        return missing;
+    }
+
+    /** Returns the content of the given chunk, or throws IllegalStateException if it is not present */
+    byte[] readChunk(int index) throws IOException {
+        if ( ! hasChunk(index))
+            throw new IllegalStateException("Chunk " + index + " of " + reference + " is not present");
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            return read(channel, ByteBuffer.allocate(chunkLength(index)), (long) index * chunkSize, chunkLength(index)).array();
+        }
+    }
+
+    /**
+     * Writes the given chunk to this, if it is not already present.
+     *
+     * @throws IllegalArgumentException if the content does not match the size and checksum of the chunk
+     */
+    void writeChunk(int index, byte[] content) throws IOException {
+        if (index < 0 || index >= hashes.length)
+            throw new IllegalArgumentException("Chunk " + index + " is outside " + reference + " with " + hashes.length + " chunks");
+        if (content.length != chunkLength(index))
+            throw new IllegalArgumentException("Chunk " + index + " of " + reference + " should have length " +
+                                               chunkLength(index) + ", but was " + content.length);
+        long hash = hash(ByteBuffer.wrap(content));
+        if (hash != hashes[index])
+            throw new IllegalArgumentException("xxhash of chunk " + index + " of " + reference + " (" + hash +
+                                               ") is not equal to the expected (" + hashes[index] + ")");
+        if (hasChunk(index)) return;
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), CREATE, WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            long offset = (long) index * chunkSize;
+            while (buffer.hasRemaining())
+                offset += channel.write(buffer, offset);
+        }
+        synchronized (this) {
+            present.set(index);
+        }
+    }
+
+    int chunkLength(int index) { return chunkLength(index, size, chunkSize); }
+
+    private static int chunkLength(int index, long size, int chunkSize) {
+        return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    private static int chunkCount(long size, int chunkSize) {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, long offset, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of file at " + (offset + buffer.position()));
+        }
+        return buffer.flip();
+    }
+
+    private static long hash(ByteBuffer content) {
+        return hasher.hash(content, content.position(), content.remaining(), 0);
+    }
+
+    @Override
+    public String toString() {
+        return "chunked " + reference + " (" + filename + "), " + type + ", " + size + " bytes in " + hashes.length + " chunks";
+    }
+
+}
@@ -0,0 +1,218 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.OK;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
+
+/**
+ * Downloads file references in chunks from a set of sources serving them with {@link FileChunkServer}:
+ * Other nodes holding all or parts of the file reference, as well as config servers.
+ * The chunks are fetched in parallel from the sources having them, and verified by their checksums.
+ * The chunks received are kept on disk, in a work directory next to the download directory, until the download
+ * completes, so that an interrupted download can be resumed, and offered to other nodes through the local chunk
+ * server while downloading, so that a file reference distributed to many nodes spreads from node to node rather
+ * than being served to each of them by config servers.
+ *
+ * @author bratseth
+ */
+class ChunkedFileDownloader {
+
+    private static final Logger log = Logger.getLogger(ChunkedFileDownloader.class.getName());
+
+    private static final Duration rpcTimeout = Duration.ofSeconds(30);
+    private static final int parallelChunks = 4;
+    private static final String partialSuffix = ".partial";
+
+    private final Supervisor supervisor;
+    private final File downloadDirectory;
+    private final File workDirectory;
+    private final Downloads downloads;
+    private final FileChunkServer chunkServer;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("chunked file downloader"));
+
+    ChunkedFileDownloader(Supervisor supervisor, File downloadDirectory, Downloads downloads, FileChunkServer chunkServer) {
+        this.supervisor = supervisor;
+        this.downloadDirectory = downloadDirectory;
+        this.workDirectory = FileChunkServer.workDirectoryOf(downloadDirectory);
+        this.downloads = downloads;
+        this.chunkServer = chunkServer;
+    }
+
+    /**
+     * Downloads the given file reference from the given sources, and returns the downloaded file,
+     * or empty if none of the sources have it, or the download did not complete within the timeout.
+     */
+    Optional<File> download(FileReference reference, List<Spec> sources, Duration timeout) {
+        Instant end = Instant.now().plus(timeout);
+        List<Target> targets = sources.stream().map(supervisor::connect).toList();
+        try {
+            List<Target> holders = new ArrayList<>();
+            ChunkedFile file = null;
+            for (Target target : targets) {
+                Optional<ChunkedFile> info = getChunkInfo(reference, target, file);
+                if (info.isEmpty()) continue;
+                if (file == null)
+                    file = info.get();
+                holders.add(target);
+            }
+            if (file == null) return Optional.empty();
+
+            log.log(Level.FINE, () -> "Downloading " + reference + " in chunks from " + holders.size() + " sources");
+            chunkServer.offer(file);
+            try {
+                if ( ! fetchChunks(file, holders, end)) return Optional.empty();
+                return Optional.of(complete(file));
+            }
+            finally {
+                chunkServer.withdraw(file);
+            }
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed downloading " + reference + " in chunks: " + e.getMessage());
+            return Optional.empty();
+        }
+        finally {
+            targets.forEach(Target::close);
+        }
+    }
+
+    void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the chunked file to download to if the given target has the given file reference, with the same content
+     * as the given file, if that is non-null, and empty otherwise.
+     */
+    private Optional<ChunkedFile> getChunkInfo(FileReference reference, Target target, ChunkedFile current) throws IOException {
+        Request request = new Request(FileChunkServer.GET_CHUNK_INFO_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        target.invokeSync(request, rpcTimeout);
+        if (request.isError() || ! request.checkReturnTypes("isssliL")) {
+            log.log(Level.FINE, () -> "Could not get chunk info for " + reference + " from " + target + ": " + request.errorMessage());
+            return Optional.empty();
+        }
+        if (request.returnValues().get(0).asInt32() != OK.code()) return Optional.empty();
+
+        String filename = request.returnValues().get(1).asString();
+        Type type = Type.valueOf(request.returnValues().get(2).asString());
+        CompressionType compressionType = CompressionType.valueOf(request.returnValues().get(3).asString());
+        long size = request.returnValues().get(4).asInt64();
+        int chunkSize = request.returnValues().get(5).asInt32();
+        long[] hashes = request.returnValues().get(6).asInt64Array();
+        if (current != null) { // Sources may only be used together if they have the exact same content
+            boolean same = current.filename().equals(filename) && current.type() == type &&
+                           current.compressionType() == compressionType && current.size() == size &&
+                           current.chunkSize() == chunkSize && Arrays.equals(current.hashes(), hashes);
+            return same ? Optional.of(current) : Optional.empty();
+        }
+        File partialDirectory = new File(workDirectory, reference.value() + partialSuffix);
+        Files.createDirectories(partialDirectory.toPath());
+        return Optional.of(ChunkedFile.resume(reference, filename, type, compressionType,
+                                              new File(partialDirectory, filename), size, chunkSize, hashes));
+    }
+
+    /** Fetches all missing chunks of the given file from the given holders, and returns whether this succeeded */
+    private boolean fetchChunks(ChunkedFile file, List<Target> holders, Instant end) throws IOException {
+        Queue<Integer> missing = new ConcurrentLinkedQueue<>();
+        file.missingChunks().stream().forEach(missing::add);
+        int offset = ThreadLocalRandom.current().nextInt(holders.size()); // spread load from different nodes
+        List<Future<?>> fetchers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelChunks, missing.size()); i++)
+            fetchers.add(executor.submit(() -> {
+                for (Integer index; (index = missing.poll()) != null && Instant.now().isBefore(end); )
+                    if ( ! fetchChunk(file, index, holders, offset)) return;
+            }));
+        try {
+            for (Future<?> fetcher : fetchers)
+                fetcher.get(Math.max(0, Duration.between(Instant.now(), end).toMillis()), TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            log.log(Level.INFO, "Timed out downloading " + file);
+        }
+        catch (Exception e) {
+            throw new IOException("Failed downloading " + file, e);
+        }
+        finally {
+            fetchers.forEach(fetcher -> fetcher.cancel(true));
+        }
+        return file.isComplete();
+    }
+
+    /** Fetches the given chunk from the first of the given holders which has it, and returns whether one did */
+    private boolean fetchChunk(ChunkedFile file, int index, List<Target> holders, int offset) {
+        for (int i = 0; i < holders.size(); i++) {
+            Target holder = holders.get((index + offset + i) % holders.size());
+            Request request = new Request(FileChunkServer.GET_CHUNK_METHOD);
+            request.parameters().add(new StringValue(file.reference().value()));
+            request.parameters().add(new Int32Value(index));
+            holder.invokeSync(request, rpcTimeout);
+            if (request.isError() || ! request.checkReturnTypes("ix") || request.returnValues().get(0).asInt32() != OK.code())
+                continue; // Try the next holder, which may have this chunk
+
+            try {
+                file.writeChunk(index, request.returnValues().get(1).asData());
+                downloads.setDownloadStatus(file.reference(), file.completeness());
+                return true;
+            }
+            catch (IllegalArgumentException | IOException e) {
+                log.log(Level.FINE, () -> "Failed receiving chunk " + index + " of " + file + " from " + holder + ": " + e.getMessage());
+            }
+        }
+        log.log(Level.FINE, () -> "No source could provide chunk " + index + " of " + file);
+        return false;
+    }
+
+    /** Moves a completely downloaded file to its place in the download directory, and returns it */
+    private File complete(ChunkedFile file) throws IOException {
+        File partialDirectory = file.file().getParentFile();
+        File fileReferenceDirectory = new File(downloadDirectory, file.reference().value());
+        if (file.type() == Type.file) {
+            FileReceiver.moveFileToDestination(partialDirectory, fileReferenceDirectory);
+        }
+        else {
+            File decompressedDirectory = Files.createTempDirectory(workDirectory.toPath(), "archive").toFile();
+            try {
+                new FileReferenceCompressor(file.type(), file.compressionType()).decompress(file.file(), decompressedDirectory);
+                FileReceiver.moveFileToDestination(decompressedDirectory, fileReferenceDirectory);
+            }
+            finally {
+                FileReceiver.deletePath(decompressedDirectory);
+                FileReceiver.deletePath(partialDirectory);
+            }
+        }
+        log.log(Level.FINE, () -> "Downloaded " + file);
+        return new File(fileReferenceDirectory, file.filename());
+    }
+
+}
@@ -0,0 +1,302 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.ErrorCode;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Array;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.security.tls.Capability;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.NOT_FOUND;
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.OK;
+import static com.yahoo.vespa.filedistribution.FileApiErrorCodes.TRANSFER_FAILED;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.none;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
+
+/**
+ * Serves the file references in a directory, and those being downloaded, as chunks, to nodes fetching them with
+ * {@link ChunkedFileDownloader}. Unlike the config server push protocol (see {@link FileReceiver}), the receiver
+ * pulls the chunks it is missing, in any order, and from any number of sources, which lets nodes which have
+ * all or parts of a file reference share the load of distributing it.
+ *
+ * @author bratseth
+ */
+public class FileChunkServer {
+
+    private static final Logger log = Logger.getLogger(FileChunkServer.class.getName());
+
+    public static final String GET_CHUNK_INFO_METHOD = "filedistribution.getFileChunkInfo";
+    public static final String GET_CHUNK_METHOD = "filedistribution.getFileChunk";
+
+    /** The max number of compressed directories to keep around for serving */
+    private static final int maxPreparedFiles = 16;
+
+    /** Prefix of the compressed directories written in the work directory of this */
+    private static final String archivePrefix = "chunked";
+
+    private final File directory;
+    private final File workDirectory;
+    private final ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors() / 2),
+                                                                          new DaemonThreadFactory("file chunk server"));
+    private final Map<FileReference, ChunkedFile> offered = new ConcurrentHashMap<>();
+    private final Map<FileReference, CompletableFuture<ChunkedFile>> preparing = new ConcurrentHashMap<>();
+    private final Map<FileReference, ChunkedFile> prepared = new LinkedHashMap<>(16, 0.75f, true); // LRU, guarded by itself
+
+    /**
+     * Creates a chunk server of the file references in the given directory, laid out as
+     * &lt;directory&gt;/&lt;file reference&gt;/&lt;file or directory&gt;, which adds its methods to the given supervisor.
+     */
+    public FileChunkServer(Supervisor supervisor, File directory, Capability capability) {
+        this.directory = directory;
+        this.workDirectory = workDirectoryOf(directory);
+        deleteArchivesOfPreviousRuns();
+        supervisor.addMethod(new Method(GET_CHUNK_INFO_METHOD, "s", "isssliL", request -> detached(request, this::getChunkInfo))
+                                     .requireCapabilities(capability)
+                                     .methodDesc("get the chunk layout of a file reference")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .returnDesc(0, "ret", "0 if success, 1 if not found, 3 on failure")
+                                     .returnDesc(1, "filename", "filename")
+                                     .returnDesc(2, "type", "'file' or 'compressed'")
+                                     .returnDesc(3, "compressionType", "compression type: lz4, none")
+                                     .returnDesc(4, "filelength", "length in bytes of the transferred file")
+                                     .returnDesc(5, "chunksize", "length in bytes of each chunk except the last")
+                                     .returnDesc(6, "checksums", "xxhash64 of each chunk"));
+        supervisor.addMethod(new Method(GET_CHUNK_METHOD, "si", "ix", request -> detached(request, this::getChunk))
+                                     .requireCapabilities(capability)
+                                     .methodDesc("get a chunk of a file reference")
+                                     .paramDesc(0, "filereference", "file reference")
+                                     .paramDesc(1, "chunk", "chunk number starting at zero")
+                                     .returnDesc(0, "ret", "0 if success, 1 if not present, 3 on failure")
+                                     .returnDesc(1, "data", "bytes in this chunk"));
+    }
+
+    /**
+     * Returns the directory where temporary files of chunked transfers of the file references in the given directory
+     * are kept: A sibling of that, so that these are not mistaken for file references by those listing it.
+     */
+    static File workDirectoryOf(File directory) {
+        File absolute = directory.getAbsoluteFile();
+        return new File(absolute.getParentFile(), absolute.getName() + ".chunked");
+    }
+
+    /** Serves the chunks present in the given file, which may be incomplete, until it is withdrawn */
+    void offer(ChunkedFile file) { offered.put(file.reference(), file); }
+
+    void withdraw(ChunkedFile file) { offered.remove(file.reference(), file); }
+
+    /** Stops serving chunks and deletes the temporary files of this */
+    public void close() {
+        executor.shutdownNow();
+        List<ChunkedFile> files;
+        synchronized (prepared) {
+            files = List.copyOf(prepared.values());
+            prepared.clear();
+        }
+        files.forEach(this::delete);
+    }
+
+    /** Handles the given request in a thread of this, as it may need to read or compress files */
+    private void detached(Request request, Consumer<Request> handler) {
+        request.detach();
+        try {
+            executor.execute(() -> {
+                handler.accept(request);
+                request.returnRequest();
+            });
+        }
+        catch (RejectedExecutionException e) {
+            request.setError(ErrorCode.ABORT, "File chunk server is shut down");
+            request.returnRequest();
+        }
+    }
+
+    private void getChunkInfo(Request request) {
+        FileReference reference = new FileReference(request.parameters().get(0).asString());
+        try {
+            Optional<ChunkedFile> file = get(reference);
+            if (file.isEmpty()) {
+                returnNoChunkInfo(request, NOT_FOUND);
+                return;
+            }
+            request.returnValues().add(new Int32Value(OK.code()));
+            request.returnValues().add(new StringValue(file.get().filename()));
+            request.returnValues().add(new StringValue(file.get().type().name()));
+            request.returnValues().add(new StringValue(file.get().compressionType().name()));
+            request.returnValues().add(new Int64Value(file.get().size()));
+            request.returnValues().add(new Int32Value(file.get().chunkSize()));
+            request.returnValues().add(new Int64Array(file.get().hashes()));
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.WARNING, "Failed preparing " + reference + " for chunked transfer", e);
+            returnNoChunkInfo(request, TRANSFER_FAILED);
+        }
+    }
+
+    private static void returnNoChunkInfo(Request request, FileApiErrorCodes error) {
+        request.returnValues().add(new Int32Value(error.code()));
+        request.returnValues().add(new StringValue(""));
+        request.returnValues().add(new StringValue(""));
+        request.returnValues().add(new StringValue(""));
+        request.returnValues().add(new Int64Value(0));
+        request.returnValues().add(new Int32Value(0));
+        request.returnValues().add(new Int64Array(new long[0]));
+    }
+
+    private void getChunk(Request request) {
+        FileReference reference = new FileReference(request.parameters().get(0).asString());
+        int index = request.parameters().get(1).asInt32();
+        try {
+            Optional<ChunkedFile> file = get(reference);
+            if (file.isEmpty() || index < 0 || index >= file.get().chunkCount() || ! file.get().hasChunk(index)) {
+                request.returnValues().add(new Int32Value(NOT_FOUND.code()));
+                request.returnValues().add(new DataValue(new byte[0]));
+                return;
+            }
+            request.returnValues().add(new Int32Value(OK.code()));
+            request.returnValues().add(new DataValue(file.get().readChunk(index)));
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.FINE, () -> "Failed reading chunk " + index + " of " + reference + ": " + e.getMessage());
+            request.returnValues().add(new Int32Value(TRANSFER_FAILED.code()));
+            request.returnValues().add(new DataValue(new byte[0]));
+        }
+    }
+
+    /** Returns the chunked file to serve for the given reference, or empty if it is not present here */
+    private Optional<ChunkedFile> get(FileReference reference) throws IOException {
+        ChunkedFile file = offered.get(reference);
+        if (file != null) return Optional.of(file);
+
+        File[] files = new File(directory, reference.value()).listFiles();
+        if (files == null || files.length != 1) return Optional.empty();
+        return Optional.of(prepare(reference, files[0]));
+    }
+
+    /**
+     * Returns the given file, or a compressed archive of it if it is a directory, as a chunked file.
+     * Each reference is prepared by the first thread asking for it, while others asking for the same wait for that,
+     * and no lock is held while compressing and hashing files.
+     */
+    private ChunkedFile prepare(FileReference reference, File file) throws IOException {
+        ChunkedFile chunked = preparedFile(reference);
+        if (chunked != null) return chunked;
+
+        CompletableFuture<ChunkedFile> preparation = new CompletableFuture<>();
+        CompletableFuture<ChunkedFile> ongoing = preparing.putIfAbsent(reference, preparation);
+        if (ongoing != null) return await(reference, ongoing);
+        try {
+            chunked = preparedFile(reference); // May have completed after we checked above
+            if (chunked == null) {
+                chunked = chunked(reference, file);
+                List<ChunkedFile> evicted = new ArrayList<>();
+                synchronized (prepared) {
+                    prepared.put(reference, chunked);
+                    for (Iterator<ChunkedFile> i = prepared.values().iterator(); prepared.size() > maxPreparedFiles; ) {
+                        evicted.add(i.next());
+                        i.remove();
+                    }
+                }
+                evicted.forEach(this::delete);
+            }
+            preparation.complete(chunked);
+            return chunked;
+        }
+        catch (IOException | RuntimeException e) {
+            preparation.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            preparing.remove(reference, preparation);
+        }
+    }
+
+    private ChunkedFile preparedFile(FileReference reference) {
+        synchronized (prepared) {
+            ChunkedFile chunked = prepared.get(reference);
+            return chunked != null && chunked.file().exists() ? chunked : null;
+        }
+    }
+
+    private ChunkedFile chunked(FileReference reference, File file) throws IOException {
+        if ( ! file.isDirectory())
+            return ChunkedFile.of(reference, file.getName(), Type.file, none, file, ChunkedFile.defaultChunkSize);
+
+        Files.createDirectories(workDirectory.toPath());
+        File archive = Files.createTempFile(workDirectory.toPath(), archivePrefix, reference.value()).toFile();
+        try {
+            new FileReferenceCompressor(Type.compressed, lz4).compress(file.getParentFile(), archive);
+            return ChunkedFile.of(reference, file.getName(), Type.compressed, lz4, archive, ChunkedFile.defaultChunkSize);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(archive.toPath());
+            throw e;
+        }
+    }
+
+    private static ChunkedFile await(FileReference reference, CompletableFuture<ChunkedFile> preparation) throws IOException {
+        try {
+            return preparation.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IOException("Failed preparing " + reference, e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + reference + " to be prepared", e);
+        }
+    }
+
+    /** Deletes compressed directories left behind if a previous process was killed */
+    private void deleteArchivesOfPreviousRuns() {
+        File[] archives = workDirectory.listFiles(file -> file.isFile() && file.getName().startsWith(archivePrefix));
+        if (archives == null) return;
+        for (File archive : archives) {
+            try {
+                Files.deleteIfExists(archive.toPath());
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Failed deleting " + archive, e);
+            }
+        }
+    }
+
+    private void delete(ChunkedFile file) {
+        if (file.type() != Type.compressed) return; // served in place
+        try {
+            Files.deleteIfExists(file.file().toPath());
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed deleting " + file.file(), e);
+        }
+    }
+
+}
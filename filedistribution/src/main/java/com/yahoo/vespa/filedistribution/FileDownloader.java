@@ -4,11 +4,13 @@ package com.yahoo.vespa.filedistribution;
 import com.yahoo.config.FileReference;
 import com.yahoo.jrt.Spec;
 import com.yahoo.jrt.Supervisor;
+import com.yahoo.security.tls.Capability;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.defaults.Defaults;
 import java.io.File;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,12 +35,15 @@ public class FileDownloader implements AutoCloseable {
             new File(Defaults.getDefaults().underVespaHome("var/db/vespa/filedistribution"));
     // Undocumented on purpose, might change or be removed at any time
     private static final boolean forceDownload = Boolean.parseBoolean(System.getenv("VESPA_FORCE_DOWNLOAD_OF_FILE_REFERENCES"));
+    // Undocumented on purpose, might change or be removed at any time. Chunked downloading and serving is off unless set
+    private static final List<Spec> peers = peersFromEnvironment(System.getenv("VESPA_FILE_DISTRIBUTION_PEERS"));
 
     private final ConnectionPool connectionPool;
     private final Supervisor supervisor;
     private final File downloadDirectory;
     private final Duration timeout;
     private final FileReferenceDownloader fileReferenceDownloader;
+    private final Optional<FileChunkServer> chunkServer;
     private final Downloads downloads = new Downloads();
 
     static {
@@ -56,17 +61,36 @@ public class FileDownloader implements AutoCloseable {
                           File downloadDirectory,
                           Duration timeout,
                           Duration backoffInitialTime) {
+        this(connectionPool, supervisor, downloadDirectory, timeout, backoffInitialTime, peers);
+    }
+
+    /**
+     * Creates a file downloader which downloads file references in chunks from the given peers and the config servers,
+     * if there are any peers, and otherwise gets them sent from a config server.
+     * If there are peers, files present in the download directory, and chunks of those being downloaded,
+     * are also served to other nodes through the given supervisor.
+     */
+    public FileDownloader(ConnectionPool connectionPool,
+                          Supervisor supervisor,
+                          File downloadDirectory,
+                          Duration timeout,
+                          Duration backoffInitialTime,
+                          List<Spec> peers) {
         this.connectionPool = connectionPool;
         this.supervisor = supervisor;
         this.downloadDirectory = downloadDirectory;
         this.timeout = timeout;
         // Needed to receive RPC receiveFile* calls from server after starting download of file reference
         new FileReceiver(supervisor, downloads, downloadDirectory);
+        this.chunkServer = peers.isEmpty() ? Optional.empty()
+                                           : Optional.of(new FileChunkServer(supervisor, downloadDirectory, Capability.CONFIGPROXY__FILEDISTRIBUTION_API));
         this.fileReferenceDownloader = new FileReferenceDownloader(connectionPool,
                                                                    downloads,
                                                                    timeout,
                                                                    backoffInitialTime,
-                                                                   downloadDirectory);
+                                                                   downloadDirectory,
+                                                                   chunkServer.map(server -> new ChunkedFileDownloader(supervisor, downloadDirectory, downloads, server)),
+                                                                   peers);
         if (forceDownload)
             log.log(Level.INFO, "Force download of file references (download even if file reference exists on disk)");
     }
@@ -160,9 +184,15 @@ public class FileDownloader implements AutoCloseable {
 
     public void close() {
         fileReferenceDownloader.close();
+        chunkServer.ifPresent(FileChunkServer::close);
         supervisor.transport().shutdown().join();
     }
 
+    private static List<Spec> peersFromEnvironment(String peers) {
+        if (peers == null || peers.isBlank()) return List.of();
+        return Arrays.stream(peers.split(",")).map(String::trim).filter(peer -> ! peer.isEmpty()).map(Spec::new).toList();
+    }
+
     public static ConnectionPool emptyConnectionPool() {
         return new EmptyConnectionPool();
     }
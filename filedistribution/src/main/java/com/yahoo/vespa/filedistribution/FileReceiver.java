@@ -195,7 +195,7 @@ public class FileReceiver {
         return methods;
     }
 
-    private static void moveFileToDestination(File tempFile, File destination) {
+    static void moveFileToDestination(File tempFile, File destination) {
         try {
             Files.move(tempFile.toPath(), destination.toPath());
             log.log(Level.FINEST, () -> "File moved from " + tempFile.getAbsolutePath()+ " to " + destination.getAbsolutePath());
@@ -213,7 +213,7 @@ public class FileReceiver {
         }
     }
 
-    private static void deletePath(File path) {
+    static void deletePath(File path) {
         if (path == null || ! path.exists()) return;
 
         try {
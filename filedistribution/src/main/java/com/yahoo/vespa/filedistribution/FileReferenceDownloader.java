@@ -14,6 +14,7 @@ import com.yahoo.vespa.config.ConnectionPool;
 import java.io.File;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
@@ -23,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
@@ -48,26 +50,37 @@ public class FileReferenceDownloader {
     private final Duration backoffInitialTime;
     private final Optional<Duration> rpcTimeout; // Only used when overridden with env variable
     private final File downloadDirectory;
+    private final Optional<ChunkedFileDownloader> chunkedFileDownloader; // present if there are peers
+    private final List<Spec> peers; // other nodes to download chunks from, if any
     private final AtomicBoolean shutDown = new AtomicBoolean(false);
 
     FileReferenceDownloader(ConnectionPool connectionPool,
                             Downloads downloads,
                             Duration timeout,
                             Duration backoffInitialTime,
-                            File downloadDirectory) {
+                            File downloadDirectory,
+                            Optional<ChunkedFileDownloader> chunkedFileDownloader,
+                            List<Spec> peers) {
         this.connectionPool = connectionPool;
         this.downloads = downloads;
         this.downloadTimeout = timeout;
         this.backoffInitialTime = backoffInitialTime;
         this.downloadDirectory = downloadDirectory;
+        this.chunkedFileDownloader = chunkedFileDownloader;
+        this.peers = List.copyOf(peers);
         // Undocumented on purpose, might change or be removed at any time
         var timeoutString = Optional.ofNullable(System.getenv("VESPA_FILE_DOWNLOAD_RPC_TIMEOUT"));
         this.rpcTimeout = timeoutString.map(t -> Duration.ofSeconds(Integer.parseInt(t)));
     }
 
     private void waitUntilDownloadStarted(FileReferenceDownload fileReferenceDownload) {
-        Instant end = Instant.now().plus(downloadTimeout);
         FileReference fileReference = fileReferenceDownload.fileReference();
+        if (downloadChunks(fileReferenceDownload))
+            return;
+
+        // Computed after the chunked attempt, so the fallback to config servers gets the rest of the timeout
+        Instant end = Instant.now().plus(downloadTimeout.minus(chunkedDownloadTimeout()));
+
         int retryCount = 0;
         Connection connection = connectionPool.getCurrent();
         do {
@@ -95,6 +108,31 @@ public class FileReferenceDownloader {
         downloads.remove(fileReference);
     }
 
+    /**
+     * Downloads the given file reference in chunks from peers and config servers, if there are any peers,
+     * and returns whether this succeeded. Otherwise, the config server sends the file reference to us.
+     */
+    private boolean downloadChunks(FileReferenceDownload fileReferenceDownload) {
+        if (peers.isEmpty() || chunkedFileDownloader.isEmpty()) return false;
+
+        FileReference fileReference = fileReferenceDownload.fileReference();
+        List<Spec> sources = Stream.concat(peers.stream(),
+                                           connectionPool.connections().stream().map(connection -> new Spec(connection.getAddress())))
+                                   .toList();
+        Optional<File> file = chunkedFileDownloader.get().download(fileReference, sources, chunkedDownloadTimeout());
+        if (file.isEmpty()) {
+            log.log(Level.FINE, () -> "Could not download " + fileReference + " in chunks, falling back to config server transfer");
+            return false;
+        }
+        downloads.completedDownloading(fileReference, file.get());
+        return true;
+    }
+
+    /** Returns the part of the download timeout given to downloading in chunks, before falling back to config servers */
+    private Duration chunkedDownloadTimeout() {
+        return peers.isEmpty() ? Duration.ZERO : downloadTimeout.dividedBy(2);
+    }
+
     private void backoff(int retryCount, Instant end) {
         try {
             long sleepTime = Math.min(120_000,
@@ -196,6 +234,7 @@ public class FileReferenceDownloader {
 
     public void close() {
         shutDown.set(true);
+        chunkedFileDownloader.ifPresent(ChunkedFileDownloader::close);
         downloadExecutor.shutdown();
         try {
             if (!downloadExecutor.awaitTermination(30, TimeUnit.SECONDS))
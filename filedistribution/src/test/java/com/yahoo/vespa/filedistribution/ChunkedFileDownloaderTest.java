@@ -0,0 +1,193 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Acceptor;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
+import com.yahoo.security.tls.Capability;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.none;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests chunked file distribution between several nodes in this process.
+ *
+ * @author bratseth
+ */
+public class ChunkedFileDownloaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    @After
+    public void shutdown() {
+        nodes.forEach(Node::close);
+    }
+
+    @Test
+    public void testDownloadingFromPeers() throws IOException, ListenFailedException {
+        Node source = new Node("source");
+        byte[] content = randomBytes(3 * ChunkedFile.defaultChunkSize + 1000);
+        writeFile(new File(source.directory, "file-ref/model.onnx"), content);
+        writeFile(new File(source.directory, "dir-ref/app/services.xml"), "<services/>".getBytes());
+        writeFile(new File(source.directory, "dir-ref/app/schemas/music.sd"), "schema music {}".getBytes());
+
+        // A node downloads from the source, another from that node only, and a third from both
+        Node first = new Node("first");
+        Node second = new Node("second");
+        Node third = new Node("third");
+        for (String reference : List.of("file-ref", "dir-ref")) {
+            assertTrue(first.download(reference, source).isPresent());
+            assertTrue(second.download(reference, first).isPresent());
+            assertTrue(third.download(reference, first, source).isPresent());
+        }
+        for (Node node : List.of(first, second, third)) {
+            assertArrayEquals(content, Files.readAllBytes(new File(node.directory, "file-ref/model.onnx").toPath()));
+            assertEquals("<services/>", IOUtils.readFile(new File(node.directory, "dir-ref/app/services.xml")));
+            assertEquals("schema music {}", IOUtils.readFile(new File(node.directory, "dir-ref/app/schemas/music.sd")));
+            assertFalse(new File(FileChunkServer.workDirectoryOf(node.directory), "file-ref.partial").exists());
+            assertEquals(1.0, node.downloads.downloadStatus(new FileReference("file-ref")), 0.0);
+        }
+
+        // Unknown file references are not found
+        assertEquals(Optional.empty(), second.download("unknown", source, first));
+    }
+
+    @Test
+    public void testResumingDownload() throws IOException, ListenFailedException {
+        Node source = new Node("source");
+        byte[] content = randomBytes(4 * ChunkedFile.defaultChunkSize);
+        File sourceFile = new File(source.directory, "file-ref/model.onnx");
+        writeFile(sourceFile, content);
+        ChunkedFile chunked = ChunkedFile.of(new FileReference("file-ref"), "model.onnx", Type.file, none, sourceFile, ChunkedFile.defaultChunkSize);
+
+        // An earlier attempt received the first and third chunk, but the last is corrupt
+        Node node = new Node("node");
+        byte[] partialContent = content.clone();
+        for (int i = ChunkedFile.defaultChunkSize; i < 2 * ChunkedFile.defaultChunkSize; i++)
+            partialContent[i] = 0;
+        partialContent[partialContent.length - 1]++;
+        File partialFile = new File(FileChunkServer.workDirectoryOf(node.directory), "file-ref.partial/model.onnx");
+        writeFile(partialFile, partialContent);
+        ChunkedFile partial = ChunkedFile.resume(chunked.reference(), "model.onnx", Type.file, none, partialFile,
+                                                 chunked.size(), chunked.chunkSize(), chunked.hashes());
+        assertEquals(List.of(1, 3), partial.missingChunks().stream().boxed().toList());
+        assertEquals(0.5, partial.completeness(), 0.0);
+
+        assertTrue(node.download("file-ref", source).isPresent());
+        assertArrayEquals(content, Files.readAllBytes(new File(node.directory, "file-ref/model.onnx").toPath()));
+    }
+
+    @Test
+    public void testTemporaryFilesAreKeptOutsideServedDirectory() throws IOException, ListenFailedException {
+        Node source = new Node("source");
+        writeFile(new File(source.directory, "dir-ref/app/services.xml"), "<services/>".getBytes());
+        Node node = new Node("node");
+        assertTrue(node.download("dir-ref", source).isPresent());
+        assertEquals(List.of("dir-ref"), List.of(source.directory.list()));
+        assertEquals(List.of("dir-ref"), List.of(node.directory.list()));
+        assertEquals(1, archivesIn(source.directory));
+        source.server.close();
+        assertEquals(0, archivesIn(source.directory));
+
+        // Archives left behind by a process which was killed are deleted when a server is created
+        writeFile(new File(FileChunkServer.workDirectoryOf(source.directory), "chunked-left-behind"), new byte[1]);
+        new FileChunkServer(source.supervisor, source.directory, Capability.CONFIGPROXY__FILEDISTRIBUTION_API).close();
+        assertEquals(0, archivesIn(source.directory));
+    }
+
+    @Test
+    public void testConcurrentDownloadsShareOneCompressedDirectory() throws Exception {
+        Node source = new Node("source");
+        writeFile(new File(source.directory, "dir-ref/app/services.xml"), "<services/>".getBytes());
+        List<Node> downloaders = List.of(new Node("first"), new Node("second"), new Node("third"), new Node("fourth"));
+        ExecutorService executor = Executors.newFixedThreadPool(downloaders.size());
+        try {
+            List<Future<Optional<File>>> downloads = new ArrayList<>();
+            for (Node node : downloaders)
+                downloads.add(executor.submit(() -> node.download("dir-ref", source)));
+            for (Future<Optional<File>> download : downloads)
+                assertTrue(download.get().isPresent());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, archivesIn(source.directory));
+    }
+
+    /** Returns the number of compressed directories kept for serving the file references in the given directory */
+    private static int archivesIn(File directory) {
+        return FileChunkServer.workDirectoryOf(directory).listFiles(file -> file.isFile() && file.getName().startsWith("chunked")).length;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void writeFile(File file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content);
+    }
+
+    private class Node {
+
+        private final File directory;
+        private final Supervisor supervisor = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        private final Acceptor acceptor;
+        private final Downloads downloads = new Downloads();
+        private final FileChunkServer server;
+        private final ChunkedFileDownloader downloader;
+
+        Node(String name) throws IOException, ListenFailedException {
+            directory = temporaryFolder.newFolder(name);
+            acceptor = supervisor.listen(new Spec(0));
+            server = new FileChunkServer(supervisor, directory, Capability.CONFIGPROXY__FILEDISTRIBUTION_API);
+            downloader = new ChunkedFileDownloader(supervisor, directory, downloads, server);
+            nodes.add(this);
+        }
+
+        Optional<File> download(String reference, Node ... sources) {
+            List<Spec> specs = new ArrayList<>();
+            for (Node source : sources)
+                specs.add(new Spec("localhost", source.acceptor.port()));
+            return downloader.download(new FileReference(reference), specs, Duration.ofSeconds(60));
+        }
+
+        void close() {
+            downloader.close();
+            server.close();
+            acceptor.shutdown().join();
+            supervisor.transport().shutdown().join();
+        }
+
+    }
+
+}
@@ -3,12 +3,15 @@ package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.config.FileReference;
 import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Acceptor;
 import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.RequestWaiter;
 import com.yahoo.jrt.Spec;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
 import com.yahoo.jrt.Transport;
 import com.yahoo.text.Utf8;
 import com.yahoo.vespa.config.Connection;
@@ -32,6 +35,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import static com.yahoo.jrt.ErrorCode.CONNECTION;
+import static com.yahoo.jrt.ErrorCode.NONE;
+import static com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
@@ -264,6 +269,33 @@ public class FileDownloaderTest {
         assertEquals("content", IOUtils.readFile(downloadedFile));
     }
 
+    @Test
+    public void chunkServerIsOnlyRegisteredWithPeers() throws ListenFailedException {
+        assertEquals(NO_SUCH_METHOD, chunkInfoErrorCode(List.of()));
+        assertEquals(NONE, chunkInfoErrorCode(List.of(new Spec("localhost", 19090))));
+    }
+
+    /** Returns the error code of a chunk info request to a file downloader with the given peers */
+    private int chunkInfoErrorCode(List<Spec> peers) throws ListenFailedException {
+        Supervisor server = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        Supervisor client = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        Acceptor acceptor = server.listen(new Spec(0));
+        FileDownloader downloader = new FileDownloader(connection, server, downloadDir, Duration.ofSeconds(1), sleepBetweenRetries, peers);
+        Target target = client.connect(new Spec("localhost", acceptor.port()));
+        try {
+            Request request = new Request(FileChunkServer.GET_CHUNK_INFO_METHOD);
+            request.parameters().add(new StringValue("foo"));
+            target.invokeSync(request, Duration.ofSeconds(10));
+            return request.isError() ? request.errorCode() : NONE;
+        }
+        finally {
+            target.close();
+            acceptor.shutdown().join();
+            downloader.close();
+            client.transport().shutdown().join();
+        }
+    }
+
     private void writeFileReference(File dir, String fileReferenceString, String fileName) throws IOException {
         File fileReferenceDir = new File(dir, fileReferenceString);
         fileReferenceDir.mkdir();
@@ -14,6 +14,7 @@ import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -158,8 +159,12 @@ public class EmbedExpression extends Expression  {
                                               ExecutionContext context) {
         String mappedDimension = builder.type().mappedSubtype().dimensions().get(0).name();
         String indexedDimension = builder.type().indexedSubtype().dimensions().get(0).name();
-        for (int i = 0; i < input.size(); i++) {
-            Tensor tensor = embed(input.get(i).getString(), builder.type().indexedSubtype(), context);
+        List<String> texts = new ArrayList<>(input.size());
+        for (int i = 0; i < input.size(); i++)
+            texts.add(input.get(i).getString());
+        List<Tensor> tensors = embed(texts, builder.type().indexedSubtype(), context);
+        for (int i = 0; i < tensors.size(); i++) {
+            Tensor tensor = tensors.get(i);
             for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); ) {
                 Tensor.Cell cell = cells.next();
                 builder.cell()
@@ -215,10 +220,16 @@ public class EmbedExpression extends Expression  {
     }
 
     private Tensor embed(String input, TensorType targetType, ExecutionContext context) {
-        return embedder.component().embed(input,
-                                          new Embedder.Context(destination, context.getCache()).setLanguage(context.resolveLanguage(linguistics))
-                                                                                               .setEmbedderId(embedder.id()),
-                                          targetType);
+        return embedder.component().embed(input, embedderContext(context), targetType);
+    }
+
+    private List<Tensor> embed(List<String> inputs, TensorType targetType, ExecutionContext context) {
+        return embedder.component().embed(inputs, embedderContext(context), targetType);
+    }
+
+    private Embedder.Context embedderContext(ExecutionContext context) {
+        return new Embedder.Context(destination, context.getCache()).setLanguage(context.resolveLanguage(linguistics))
+                                                                    .setEmbedderId(embedder.id());
     }
 
     private TensorType getOutputTensorType() {
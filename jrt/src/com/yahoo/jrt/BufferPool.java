@@ -0,0 +1,84 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of direct byte buffers, shared by all connections using pooled buffers.
+ * Buffers are handed out in power-of-two size classes, and kept for reuse when released,
+ * as long as the total size of the idle buffers in the pool stays below a limit.
+ * Requests for buffers larger than the largest size class are served with unpooled heap buffers.
+ *
+ * @author bratseth
+ */
+class BufferPool {
+
+    private static final int MIN_SIZE_BITS = 12; // 4 KiB
+    private static final int MAX_SIZE_BITS = 22; // 4 MiB
+    private static final long MAX_IDLE_BYTES = 64L << 20;
+
+    private static final BufferPool instance = new BufferPool(MAX_IDLE_BYTES, TransportMetrics.getInstance());
+
+    private final List<ArrayDeque<ByteBuffer>> idle = new ArrayList<>();
+    private final long maxIdleBytes;
+    private final TransportMetrics metrics;
+    private long idleBytes = 0;
+
+    BufferPool(long maxIdleBytes, TransportMetrics metrics) {
+        for (int bits = MIN_SIZE_BITS; bits <= MAX_SIZE_BITS; bits++)
+            idle.add(new ArrayDeque<>());
+        this.maxIdleBytes = maxIdleBytes;
+        this.metrics = metrics;
+    }
+
+    static BufferPool getInstance() { return instance; }
+
+    /** Returns a cleared, big-endian buffer with at least the given capacity. */
+    ByteBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClass(minCapacity);
+        if (sizeClass < 0)
+            return ByteBuffer.allocate(minCapacity);
+
+        ByteBuffer buffer;
+        synchronized (this) {
+            buffer = idle.get(sizeClass).pollLast();
+            if (buffer != null)
+                idleBytes -= buffer.capacity();
+        }
+        if (buffer != null) {
+            metrics.pooledBufferReused(buffer.capacity());
+            return buffer;
+        }
+        buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_BITS));
+        metrics.pooledBufferAllocated(buffer.capacity());
+        return buffer;
+    }
+
+    /** Returns the given buffer to this pool. The buffer must not be used by the caller after this. */
+    void release(ByteBuffer buffer) {
+        if ( ! buffer.isDirect()) return; // unpooled
+        buffer.clear().order(ByteOrder.BIG_ENDIAN);
+        int sizeClass = sizeClass(buffer.capacity());
+        boolean kept = false;
+        synchronized (this) {
+            if (idleBytes + buffer.capacity() <= maxIdleBytes) {
+                idle.get(sizeClass).addLast(buffer);
+                idleBytes += buffer.capacity();
+                kept = true;
+            }
+        }
+        metrics.pooledBufferReleased(buffer.capacity(), kept);
+    }
+
+    /** Returns the index of the smallest size class which holds the given size, or -1 if it is too large. */
+    private static int sizeClass(int size) {
+        if (size <= 1 << MIN_SIZE_BITS) return 0;
+        int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+        return bits > MAX_SIZE_BITS ? -1 : bits - MIN_SIZE_BITS;
+    }
+
+}
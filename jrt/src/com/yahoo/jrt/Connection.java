@@ -9,6 +9,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
@@ -25,6 +26,7 @@ class Connection extends Target {
     private static final int READ_REDO  = 10;
     private static final int WRITE_SIZE = 16*1024;
     private static final int WRITE_REDO = 10;
+    private static final int WRITE_GATHER = 64;
 
     private static final int INITIAL    = 0;
     private static final int CONNECTING = 1;
@@ -34,8 +36,12 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(0); // Start off with empty buffer.
-    private final Buffer output  = new Buffer(0); // Start off with empty buffer.
+    private final BufferPool bufferPool; // null unless using pooled buffers
+    private final Buffer input;
+    private final Buffer output;
+    private final ByteBuffer[] gather; // Encoded packets not yet written, when using pooled buffers
+    private int gatherCount = 0;
+    private long gatherBytes = 0;
     private final int maxInputSize;
     private final int maxOutputSize;
     private final boolean dropEmptyBuffers;
@@ -95,6 +101,10 @@ class Connection extends Target {
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        bufferPool = owner.getPooledBuffers() ? BufferPool.getInstance() : null;
+        gather = bufferPool != null ? new ByteBuffer[WRITE_GATHER] : null;
+        input = new Buffer(0, bufferPool); // Start off with empty buffer.
+        output = new Buffer(0, bufferPool); // Start off with empty buffer.
         server = true;
     }
 
@@ -107,6 +117,10 @@ class Connection extends Target {
         maxInputSize = owner.getMaxInputBufferSize();
         maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        bufferPool = owner.getPooledBuffers() ? BufferPool.getInstance() : null;
+        gather = bufferPool != null ? new ByteBuffer[WRITE_GATHER] : null;
+        input = new Buffer(0, bufferPool); // Start off with empty buffer.
+        output = new Buffer(0, bufferPool); // Start off with empty buffer.
         server = false;
     }
 
@@ -320,28 +334,13 @@ class Connection extends Target {
         synchronized (this) {
             queue.flush(myQueue);
         }
-        for (int i = 0; i < WRITE_REDO; i++) {
-            while (output.bytes() < WRITE_SIZE) {
-                Packet packet = (Packet) myQueue.dequeue();
-                if (packet == null) {
-                    break;
-                }
-                PacketInfo info = packet.getPacketInfo();
-                ByteBuffer wb = output.getWritable(info.packetLength());
-                owner.writePacket(info);
-                info.encodePacket(packet, wb);
-            }
-            ByteBuffer rb = output.getReadable();
-            if (rb.remaining() == 0) {
-                break;
-            }
-            socket.write(rb);
-            if (rb.remaining() > 0) {
-                break;
-            }
+        if (bufferPool != null) {
+            writeGathered();
+        } else {
+            writeBuffered();
         }
         int myWriteWork = 0;
-        if (output.bytes() > 0) {
+        if (output.bytes() > 0 || gatherBytes > 0) {
             myWriteWork++;
         }
         if (socket.flush() == CryptoSocket.FlushResult.NEED_WRITE) {
@@ -366,6 +365,61 @@ class Connection extends Target {
         }
     }
 
+    private void writeBuffered() throws IOException {
+        for (int i = 0; i < WRITE_REDO; i++) {
+            while (output.bytes() < WRITE_SIZE) {
+                Packet packet = (Packet) myQueue.dequeue();
+                if (packet == null) {
+                    break;
+                }
+                PacketInfo info = packet.getPacketInfo();
+                ByteBuffer wb = output.getWritable(info.packetLength());
+                owner.writePacket(info);
+                info.encodePacket(packet, wb);
+            }
+            ByteBuffer rb = output.getReadable();
+            if (rb.remaining() == 0) {
+                break;
+            }
+            socket.write(rb);
+            if (rb.remaining() > 0) {
+                break;
+            }
+        }
+    }
+
+    private void writeGathered() throws IOException {
+        for (int i = 0; i < WRITE_REDO; i++) {
+            while (gatherBytes < WRITE_SIZE && gatherCount < WRITE_GATHER) {
+                Packet packet = (Packet) myQueue.dequeue();
+                if (packet == null) {
+                    break;
+                }
+                PacketInfo info = packet.getPacketInfo();
+                ByteBuffer wb = bufferPool.acquire(info.packetLength());
+                owner.writePacket(info);
+                info.encodePacket(packet, wb);
+                wb.flip();
+                gather[gatherCount++] = wb;
+                gatherBytes += wb.remaining();
+            }
+            if (gatherCount == 0) {
+                break;
+            }
+            gatherBytes -= socket.write(gather, 0, gatherCount);
+            int written = 0;
+            while (written < gatherCount && ! gather[written].hasRemaining()) {
+                bufferPool.release(gather[written++]);
+            }
+            System.arraycopy(gather, written, gather, 0, gatherCount - written);
+            Arrays.fill(gather, gatherCount - written, gatherCount, null);
+            gatherCount -= written;
+            if (gatherCount > 0) {
+                break;
+            }
+        }
+    }
+
     public void handleWriteEvent() throws IOException {
         if (state == CONNECTED) {
             write();
@@ -381,6 +435,16 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        if (bufferPool != null) {
+            input.release();
+            output.release();
+            for (int i = 0; i < gatherCount; i++) {
+                bufferPool.release(gather[i]);
+                gather[i] = null;
+            }
+            gatherCount = 0;
+            gatherBytes = 0;
+        }
     }
 
     public boolean isClosed() {
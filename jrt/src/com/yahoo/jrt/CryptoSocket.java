@@ -83,6 +83,27 @@ public interface CryptoSocket {
      **/
     public int write(ByteBuffer src) throws IOException;
 
+    /**
+     * Called when the application has data in several buffers it
+     * wants to write, in order: the given number of buffers in the
+     * given array, starting at the given offset. Returns the number
+     * of bytes written, which may be less than what is available if
+     * the output pipeline is full. The default implementation writes
+     * one buffer at a time; sockets which pass data unchanged to the
+     * underlying channel should do a single gathering write instead.
+     **/
+    public default long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            ByteBuffer src = srcs[i];
+            written += write(src);
+            if (src.hasRemaining()) {
+                break;
+            }
+        }
+        return written;
+    }
+
     public enum FlushResult { DONE, NEED_WRITE }
 
     /**
@@ -21,6 +21,7 @@ public class Supervisor {
     private int                     maxInputBufferSize  = 64*1024;
     private int                     maxOutputBufferSize = 64*1024;
     private boolean                 dropEmptyBuffers = false;
+    private boolean                 pooledBuffers = System.getProperty("vespa.jrt.pooled_buffers", "false").equals("true");
 
     /**
      * Creates a new Supervisor based on the given {@link Transport}
@@ -46,6 +47,24 @@ public class Supervisor {
     }
     boolean getDropEmptyBuffers() { return dropEmptyBuffers; }
 
+    /**
+     * Uses pooled direct buffers for connections. Incoming data is
+     * read into buffers taken from a pool shared by all connections,
+     * and each outgoing packet is encoded into its own pooled buffer,
+     * and written to the socket together with other pending packets
+     * in a single gathering write. This avoids copying packets into a
+     * common output buffer, and reduces garbage when large packets
+     * are sent and received. Pool usage is reported in {@link TransportMetrics}.
+     * This is off unless the system property vespa.jrt.pooled_buffers is true.
+     *
+     * @param value true means use pooled direct buffers
+     */
+    public Supervisor setPooledBuffers(boolean value) {
+        pooledBuffers = value;
+        return this;
+    }
+    boolean getPooledBuffers() { return pooledBuffers; }
+
     /**
      * Sets maximum input buffer size. This value will only affect
      * connections that use a common input buffer when decoding
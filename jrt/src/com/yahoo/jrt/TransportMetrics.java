@@ -19,6 +19,10 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final AtomicLong pooledBuffersAllocated = new AtomicLong(0);
+    private final AtomicLong pooledBuffersReused = new AtomicLong(0);
+    private final AtomicLong pooledBufferBytesInUse = new AtomicLong(0);
+    private final AtomicLong pooledBufferBytesIdle = new AtomicLong(0);
 
     private TransportMetrics() {}
 
@@ -48,6 +52,26 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    /** Returns the number of direct buffers allocated by the buffer pool */
+    public long pooledBuffersAllocated() {
+        return pooledBuffersAllocated.get();
+    }
+
+    /** Returns the number of buffer requests which were served with an idle buffer from the buffer pool */
+    public long pooledBuffersReused() {
+        return pooledBuffersReused.get();
+    }
+
+    /** Returns the total capacity of the pooled buffers currently used by connections */
+    public long pooledBufferBytesInUse() {
+        return pooledBufferBytesInUse.get();
+    }
+
+    /** Returns the total capacity of the buffers currently idle in the buffer pool */
+    public long pooledBufferBytesIdle() {
+        return pooledBufferBytesIdle.get();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
@@ -74,6 +98,23 @@ public class TransportMetrics {
         clientUnencryptedConnectionsEstablished.incrementAndGet();
     }
 
+    void pooledBufferAllocated(int capacity) {
+        pooledBuffersAllocated.incrementAndGet();
+        pooledBufferBytesInUse.addAndGet(capacity);
+    }
+
+    void pooledBufferReused(int capacity) {
+        pooledBuffersReused.incrementAndGet();
+        pooledBufferBytesIdle.addAndGet(-capacity);
+        pooledBufferBytesInUse.addAndGet(capacity);
+    }
+
+    void pooledBufferReleased(int capacity, boolean keptIdle) {
+        pooledBufferBytesInUse.addAndGet(-capacity);
+        if (keptIdle)
+            pooledBufferBytesIdle.addAndGet(capacity);
+    }
+
     @Override
     public String toString() {
         return "TransportMetrics{" +
@@ -83,11 +124,15 @@ public class TransportMetrics {
                 ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                 ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                 ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", pooledBuffersAllocated=" + pooledBuffersAllocated +
+                ", pooledBuffersReused=" + pooledBuffersReused +
+                ", pooledBufferBytesInUse=" + pooledBufferBytesInUse +
+                ", pooledBufferBytesIdle=" + pooledBufferBytesIdle +
                 '}';
     }
 
     public static class Snapshot {
-        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
 
         private final long tlsCertificateVerificationFailures;
         private final long peerAuthorizationFailures;
@@ -95,6 +140,10 @@ public class TransportMetrics {
         private final long clientTlsConnectionsEstablished;
         private final long serverUnencryptedConnectionsEstablished;
         private final long clientUnencryptedConnectionsEstablished;
+        private final long pooledBuffersAllocated;
+        private final long pooledBuffersReused;
+        private final long pooledBufferBytesInUse;
+        private final long pooledBufferBytesIdle;
 
         private Snapshot(TransportMetrics metrics) {
             this(metrics.tlsCertificateVerificationFailures.get(),
@@ -102,7 +151,11 @@ public class TransportMetrics {
                  metrics.serverTlsConnectionsEstablished.get(),
                  metrics.clientTlsConnectionsEstablished.get(),
                  metrics.serverUnencryptedConnectionsEstablished.get(),
-                 metrics.clientUnencryptedConnectionsEstablished.get());
+                 metrics.clientUnencryptedConnectionsEstablished.get(),
+                 metrics.pooledBuffersAllocated.get(),
+                 metrics.pooledBuffersReused.get(),
+                 metrics.pooledBufferBytesInUse.get(),
+                 metrics.pooledBufferBytesIdle.get());
         }
 
         private Snapshot(long tlsCertificateVerificationFailures,
@@ -110,13 +163,21 @@ public class TransportMetrics {
                         long serverTlsConnectionsEstablished,
                         long clientTlsConnectionsEstablished,
                         long serverUnencryptedConnectionsEstablished,
-                        long clientUnencryptedConnectionsEstablished) {
+                        long clientUnencryptedConnectionsEstablished,
+                        long pooledBuffersAllocated,
+                        long pooledBuffersReused,
+                        long pooledBufferBytesInUse,
+                        long pooledBufferBytesIdle) {
             this.tlsCertificateVerificationFailures = tlsCertificateVerificationFailures;
             this.peerAuthorizationFailures = peerAuthorizationFailures;
             this.serverTlsConnectionsEstablished = serverTlsConnectionsEstablished;
             this.clientTlsConnectionsEstablished = clientTlsConnectionsEstablished;
             this.serverUnencryptedConnectionsEstablished = serverUnencryptedConnectionsEstablished;
             this.clientUnencryptedConnectionsEstablished = clientUnencryptedConnectionsEstablished;
+            this.pooledBuffersAllocated = pooledBuffersAllocated;
+            this.pooledBuffersReused = pooledBuffersReused;
+            this.pooledBufferBytesInUse = pooledBufferBytesInUse;
+            this.pooledBufferBytesIdle = pooledBufferBytesIdle;
         }
 
         public long tlsCertificateVerificationFailures() { return tlsCertificateVerificationFailures; }
@@ -125,7 +186,12 @@ public class TransportMetrics {
         public long clientTlsConnectionsEstablished() { return clientTlsConnectionsEstablished; }
         public long serverUnencryptedConnectionsEstablished() { return serverUnencryptedConnectionsEstablished; }
         public long clientUnencryptedConnectionsEstablished() { return clientUnencryptedConnectionsEstablished; }
+        public long pooledBuffersAllocated() { return pooledBuffersAllocated; }
+        public long pooledBuffersReused() { return pooledBuffersReused; }
+        public long pooledBufferBytesInUse() { return pooledBufferBytesInUse; }
+        public long pooledBufferBytesIdle() { return pooledBufferBytesIdle; }
 
+        /** Returns the changes in the counters since the given snapshot, and the byte gauges of this */
         public Snapshot changesSince(Snapshot base) {
             return new Snapshot(
                 changesSince(base, Snapshot::tlsCertificateVerificationFailures),
@@ -133,7 +199,11 @@ public class TransportMetrics {
                 changesSince(base, Snapshot::serverTlsConnectionsEstablished),
                 changesSince(base, Snapshot::clientTlsConnectionsEstablished),
                 changesSince(base, Snapshot::serverUnencryptedConnectionsEstablished),
-                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished));
+                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished),
+                changesSince(base, Snapshot::pooledBuffersAllocated),
+                changesSince(base, Snapshot::pooledBuffersReused),
+                pooledBufferBytesInUse,
+                pooledBufferBytesIdle);
         }
 
         private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
@@ -149,6 +219,10 @@ public class TransportMetrics {
                     ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                     ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                     ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                    ", pooledBuffersAllocated=" + pooledBuffersAllocated +
+                    ", pooledBuffersReused=" + pooledBuffersReused +
+                    ", pooledBufferBytesInUse=" + pooledBufferBytesInUse +
+                    ", pooledBufferBytesIdle=" + pooledBufferBytesIdle +
                     '}';
         }
     }
@@ -222,4 +222,38 @@ public class BufferTest {
         }
     }
 
+    @org.junit.Test
+    public void testPooledBuffer() {
+        TransportMetrics metrics = TransportMetrics.getInstance();
+        BufferPool pool = new BufferPool(1 << 20, metrics);
+        long allocated = metrics.pooledBuffersAllocated();
+        long reused = metrics.pooledBuffersReused();
+
+        Buffer buf = new Buffer(0, pool);
+        ByteBuffer b = buf.getWritable(100);
+        assertTrue(b.isDirect());
+        assertEquals(4096, b.capacity());
+        b.put((byte)42);
+
+        b = buf.getWritable(5000); // grows to the next size class, and releases the old buffer to the pool
+        assertTrue(b.isDirect());
+        assertEquals(8192, b.capacity());
+        assertEquals(1, buf.bytes());
+        assertEquals(2, metrics.pooledBuffersAllocated() - allocated);
+
+        b = buf.getReadable();
+        assertEquals(42, b.get());
+        assertFalse(buf.shrink(5000)); // no smaller size class holds this
+        assertTrue(buf.shrink(4096)); // reuses the first buffer
+        assertEquals(4096, buf.getWritable(1).capacity());
+        assertEquals(1, metrics.pooledBuffersReused() - reused);
+
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(4096, pool.acquire(1).capacity());
+        assertEquals(2, metrics.pooledBuffersReused() - reused);
+
+        assertFalse(pool.acquire(8 << 20).isDirect()); // larger than the largest size class
+    }
+
 }
@@ -12,6 +12,8 @@ import org.junit.runners.Parameterized.Parameters;
 
 import java.security.cert.X509Certificate;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
@@ -166,4 +168,45 @@ public class EchoTest {
             connAuthCtxAssertion.assertConnectionAuthContext(connAuthCtx);
         }
     }
+
+    @org.junit.Test
+    public void testEchoWithPooledBuffers() throws ListenFailedException {
+        Supervisor pooledServer = new Supervisor(new Transport("pooled-server", crypto, 1)).setPooledBuffers(true);
+        Supervisor pooledClient = new Supervisor(new Transport("pooled-client", crypto, 1)).setPooledBuffers(true);
+        Acceptor pooledAcceptor = pooledServer.listen(new Spec(0));
+        Target pooledTarget = pooledClient.connect(new Spec("localhost", pooledAcceptor.port()));
+        pooledServer.addMethod(new Method("echo", "*", "*", req -> req.returnValues().add(req.parameters().get(0))));
+        try {
+            TransportMetrics.Snapshot before = metrics.snapshot();
+            List<Request> requests = new ArrayList<>();
+            List<SingleRequestWaiter> waiters = new ArrayList<>();
+            for (int size : new int[] { 1, 100, 10_000, 100_000, 1_000_000, 10_000_000 }) {
+                for (int i = 0; i < 4; i++) { // Several pending requests are written together
+                    byte[] data = new byte[size];
+                    Arrays.fill(data, (byte) (size + i));
+                    Request req = new Request("echo");
+                    req.parameters().add(new DataValue(data));
+                    SingleRequestWaiter waiter = new SingleRequestWaiter();
+                    pooledTarget.invokeAsync(req, Duration.ofSeconds(60), waiter);
+                    requests.add(req);
+                    waiters.add(waiter);
+                }
+            }
+            for (int i = 0; i < requests.size(); i++) {
+                waiters.get(i).waitDone();
+                Request req = requests.get(i);
+                assertTrue(req.toString(), req.checkReturnTypes("x"));
+                assertTrue(Arrays.equals(req.parameters().get(0).asData(), req.returnValues().get(0).asData()));
+            }
+            TransportMetrics.Snapshot changes = metrics.snapshot().changesSince(before);
+            assertTrue(changes.toString(), changes.pooledBuffersAllocated() + changes.pooledBuffersReused() > 0);
+            assertTrue(changes.toString(), changes.pooledBufferBytesInUse() + changes.pooledBufferBytesIdle() > 0);
+        }
+        finally {
+            pooledTarget.close();
+            pooledAcceptor.shutdown().join();
+            pooledClient.transport().shutdown().join();
+            pooledServer.transport().shutdown().join();
+        }
+    }
 }
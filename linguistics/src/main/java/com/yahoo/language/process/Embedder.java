@@ -5,6 +5,7 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -65,6 +66,23 @@ public interface Embedder {
      */
     Tensor embed(String text, Context context, TensorType tensorType);
 
+    /**
+     * Converts a batch of texts into tokens in tensors.
+     * Embedders which can evaluate several texts more efficiently together than one by one should override this.
+     *
+     * @param texts the texts to embed
+     * @param context the context which may influence an embedder's behavior
+     * @param tensorType the type of the tensors to be returned
+     * @return the tensor embeddings of the texts, in the same order as the texts, as the specified tensor type
+     * @throws IllegalArgumentException if the language or tensor type is not supported by this embedder
+     */
+    default List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        List<Tensor> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts)
+            embeddings.add(embed(text, context, tensorType));
+        return embeddings;
+    }
+
     class Context extends InvocationContext<Context> {
 
         public Context(String destination) {
@@ -103,6 +121,12 @@ public interface Embedder {
         void sampleEmbeddingLatency(double millis, Context ctx);
         /** Add a sample embedding length to this */
         void sampleSequenceLength(long length, Context ctx);
+        /** Records that an embedding was found in a cross-request embedding cache */
+        default void sampleCacheHit(Context ctx) { }
+        /** Records that an embedding was not found in a cross-request embedding cache */
+        default void sampleCacheMiss(Context ctx) { }
+        /** Records that the given number of embeddings were evicted from a cross-request embedding cache */
+        default void sampleCacheEvictions(long count, Context ctx) { }
 
         static Runtime testInstance() {
             return new Runtime() {
@@ -0,0 +1,104 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.significance.impl;
+
+import com.yahoo.language.significance.DocumentFrequency;
+import com.yahoo.language.significance.SignificanceModel;
+import com.yahoo.text.Utf8;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A significance model for one set of languages read from a {@link BinarySignificanceModelFile}.
+ * Terms are kept as sorted UTF-8 bytes with their frequencies in a parallel primitive array,
+ * all accessed in place in the memory-mapped file, so a model takes no heap per term.
+ *
+ * @author bratseth
+ */
+public class BinarySignificanceModel implements SignificanceModel {
+
+    private final String id;
+    private final String description;
+    private final long corpusSize;
+
+    /** termCount + 1 offsets into terms, where term i is the bytes from offsets[i] to offsets[i + 1] */
+    private final IntBuffer offsets;
+    private final LongBuffer frequencies;
+    private final ByteBuffer terms;
+
+    BinarySignificanceModel(String id, String description, long corpusSize,
+                            IntBuffer offsets, LongBuffer frequencies, ByteBuffer terms) {
+        if (offsets.limit() != frequencies.limit() + 1)
+            throw new IllegalArgumentException("Expected " + (frequencies.limit() + 1) + " term offsets, got " + offsets.limit());
+        this.id = id;
+        this.description = description;
+        this.corpusSize = corpusSize;
+        this.offsets = offsets;
+        this.frequencies = frequencies;
+        this.terms = terms;
+    }
+
+    @Override
+    public DocumentFrequency documentFrequency(String word) {
+        int index = indexOf(Utf8.toBytes(word));
+        return new DocumentFrequency(index < 0 ? 1 : frequencies.get(index), corpusSize);
+    }
+
+    @Override
+    public String getId() { return id; }
+
+    public String description() { return description; }
+
+    /** Returns the number of documents the frequencies of this model were collected from */
+    public long documentCount() { return corpusSize; }
+
+    /** Returns the number of terms in this model */
+    public int size() { return frequencies.limit(); }
+
+    /** Returns all the terms of this model with their frequencies, copied to the heap */
+    public Map<String, Long> frequencies() {
+        Map<String, Long> frequencies = new TreeMap<>();
+        for (int i = 0; i < size(); i++)
+            frequencies.put(term(i), this.frequencies.get(i));
+        return frequencies;
+    }
+
+    private String term(int index) {
+        byte[] term = new byte[offsets.get(index + 1) - offsets.get(index)];
+        terms.get(offsets.get(index), term);
+        return Utf8.toString(term);
+    }
+
+    /** Returns the index of the given term, or a negative number if it is not present */
+    private int indexOf(byte[] term) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareTermAt(middle, term);
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    /** Compares the term at the given index to the given term, in the order of {@link java.util.Arrays#compareUnsigned} */
+    private int compareTermAt(int index, byte[] term) {
+        int start = offsets.get(index);
+        int length = offsets.get(index + 1) - start;
+        int commonLength = Math.min(length, term.length);
+        for (int i = 0; i < commonLength; i++) {
+            int comparison = Byte.compareUnsigned(terms.get(start + i), term[i]);
+            if (comparison != 0) return comparison;
+        }
+        return Integer.compare(length, term.length);
+    }
+
+}
@@ -0,0 +1,208 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.language.significance.impl;
+
+import com.yahoo.text.Utf8;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A significance model file in a binary format which is memory-mapped rather than parsed when loaded.
+ * This holds the same information as a {@link SignificanceModelFile}, and is written from one.
+ *
+ * The file is big-endian and consists of
+ * <ul>
+ *     <li>The int {@link #MAGIC} and the int format version</li>
+ *     <li>The version, id and description strings, and the number of language sections</li>
+ *     <li>For each language section: The comma-separated language tags and description strings,
+ *     the long document count, the int term count <i>n</i>, the int total term byte length,
+ *     <i>n + 1</i> int term offsets, <i>n</i> long frequencies, and the UTF-8 bytes of all terms,
+ *     sorted in unsigned byte order</li>
+ * </ul>
+ * Strings are written as an int byte length followed by UTF-8 bytes.
+ *
+ * @author bratseth
+ */
+public class BinarySignificanceModelFile {
+
+    /** The first bytes of a binary significance model file: "VSMB" */
+    static final int MAGIC = 0x56534d42;
+    private static final int FORMAT_VERSION = 1;
+
+    private final String version;
+    private final String id;
+    private final String description;
+    private final Map<String, BinarySignificanceModel> languages;
+
+    private BinarySignificanceModelFile(String version, String id, String description,
+                                        Map<String, BinarySignificanceModel> languages) {
+        this.version = version;
+        this.id = id;
+        this.description = description;
+        this.languages = Collections.unmodifiableMap(languages);
+    }
+
+    public String version() { return version; }
+
+    public String id() { return id; }
+
+    public String description() { return description; }
+
+    /** Returns the models of this by comma-separated language tags */
+    public Map<String, BinarySignificanceModel> languages() { return languages; }
+
+    /** Returns this as a significance model file with all frequencies copied to the heap */
+    public SignificanceModelFile toSignificanceModelFile() {
+        HashMap<String, DocumentFrequencyFile> frequencies = new HashMap<>();
+        languages.forEach((tags, model) -> frequencies.put(tags, new DocumentFrequencyFile(model.description(),
+                                                                                           model.documentCount(),
+                                                                                           model.frequencies())));
+        return new SignificanceModelFile(version, id, description, frequencies);
+    }
+
+    /** Returns whether the given file starts with the magic number of this format */
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0) return false;
+            return buffer.flip().getInt() == MAGIC;
+        }
+    }
+
+    /** Writes the given model in this format */
+    public static void write(SignificanceModelFile model, OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        writeString(model.version(), out);
+        writeString(model.id(), out);
+        writeString(model.description(), out);
+        out.writeInt(model.languages().size());
+        for (var language : model.languages().entrySet()) {
+            writeString(language.getKey(), out);
+            writeLanguage(language.getValue(), out);
+        }
+        out.flush();
+    }
+
+    private static void writeLanguage(DocumentFrequencyFile language, DataOutputStream out) throws IOException {
+        List<Map.Entry<byte[], Long>> terms = new ArrayList<>(language.frequencies().size());
+        long termBytes = 0;
+        for (var entry : language.frequencies().entrySet()) {
+            byte[] term = Utf8.toBytes(entry.getKey());
+            terms.add(Map.entry(term, entry.getValue()));
+            termBytes += term.length;
+        }
+        if (termBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Terms of a single language cannot be larger than 2Gb, but got " + termBytes + " bytes");
+        terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+        writeString(language.description(), out);
+        out.writeLong(language.documentCount());
+        out.writeInt(terms.size());
+        out.writeInt((int)termBytes);
+        int offset = 0;
+        out.writeInt(offset);
+        for (var term : terms)
+            out.writeInt(offset += term.getKey().length);
+        for (var term : terms)
+            out.writeLong(term.getValue());
+        for (var term : terms)
+            out.write(term.getKey());
+    }
+
+    private static void writeString(String s, DataOutputStream out) throws IOException {
+        byte[] bytes = Utf8.toBytes(s == null ? "" : s);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Maps the given file into memory. The returned models read from the mapped file,
+     * and remain valid until they are garbage collected.
+     */
+    public static BinarySignificanceModelFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Reader reader = new Reader(channel);
+            if (reader.readInt() != MAGIC)
+                throw new IllegalArgumentException(path + " is not a binary significance model file");
+            int formatVersion = reader.readInt();
+            if (formatVersion != FORMAT_VERSION)
+                throw new IllegalArgumentException("Unsupported binary significance model format version " + formatVersion +
+                                                   " in " + path + ", expected " + FORMAT_VERSION);
+            String version = reader.readString();
+            String id = reader.readString();
+            String description = reader.readString();
+            int languageCount = reader.readInt();
+            Map<String, BinarySignificanceModel> languages = new LinkedHashMap<>();
+            for (int i = 0; i < languageCount; i++) {
+                String languageTags = reader.readString();
+                String languageDescription = reader.readString();
+                long documentCount = reader.readLong();
+                int termCount = reader.readInt();
+                int termBytes = reader.readInt();
+                languages.put(languageTags,
+                              new BinarySignificanceModel(id,
+                                                          languageDescription,
+                                                          documentCount,
+                                                          reader.map((termCount + 1L) * Integer.BYTES).asIntBuffer(),
+                                                          reader.map((long)termCount * Long.BYTES).asLongBuffer(),
+                                                          reader.map(termBytes)));
+            }
+            return new BinarySignificanceModelFile(version, id, description, languages);
+        }
+    }
+
+    /** Reads a file sequentially from a channel, mapping large sections rather than reading them */
+    private static class Reader {
+
+        private final FileChannel channel;
+        private long position = 0;
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        int readInt() throws IOException { return read(Integer.BYTES).getInt(); }
+
+        long readLong() throws IOException { return read(Long.BYTES).getLong(); }
+
+        String readString() throws IOException {
+            return Utf8.toString(read(readInt()));
+        }
+
+        ByteBuffer map(long size) throws IOException {
+            if (position + size > channel.size())
+                throw new EOFException("Expected " + size + " bytes at position " + position + ", but file size is " + channel.size());
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += size;
+            return buffer;
+        }
+
+        private ByteBuffer read(int size) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new EOFException("Expected " + size + " bytes at position " + position);
+            }
+            position += size;
+            return buffer.flip();
+        }
+
+    }
+
+}
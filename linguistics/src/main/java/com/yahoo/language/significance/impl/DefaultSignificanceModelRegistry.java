@@ -25,6 +25,8 @@ import java.util.logging.Logger;
 /**
  * Default implementation of {@link SignificanceModelRegistry}.
  * This implementation loads models lazily and caches them.
+ * Models may be in the JSON format of {@link SignificanceModelFile}, optionally zstd compressed,
+ * or in the binary format of {@link BinarySignificanceModelFile}, which is memory-mapped.
  *
  * @author MariusArhaug
  */
@@ -51,30 +53,38 @@ public final class DefaultSignificanceModelRegistry implements SignificanceModel
 
     public void addModel(Path path) {
         log.fine(() -> "Loading model from " + path);
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
+            if (BinarySignificanceModelFile.isBinary(path)) {
+                BinarySignificanceModelFile file = BinarySignificanceModelFile.open(path);
+                for (var pair : file.languages().entrySet())
+                    addModel(pair.getKey(), pair.getValue());
+                return;
+            }
+
+            ObjectMapper objectMapper = new ObjectMapper();
             InputStream in = path.toString().endsWith(".zst") ?
                     new ZstdInputStream(new FileInputStream(path.toFile())) :
                     new FileInputStream(path.toFile());
 
             SignificanceModelFile file = objectMapper.readValue(in, SignificanceModelFile.class);
-            for (var pair : file.languages().entrySet()) {
-
-                var languagesStr = pair.getKey();
-                log.fine(() -> "Found model for languages '%s'".formatted(languagesStr));
-                String[] languageTags = languagesStr.split(",");
-
-                for (var languageTag : languageTags) {
-                    var language = Language.fromLanguageTag(languageTag);
-                    log.fine(() -> "Adding model for language %s with id %s".formatted(language, file.id()));
-                    this.models.put(language, new DefaultSignificanceModel(pair.getValue(), file.id()));
-                }
-            }
+            for (var pair : file.languages().entrySet())
+                addModel(pair.getKey(), new DefaultSignificanceModel(pair.getValue(), file.id()));
         } catch (IOException e) {
             throw new UncheckedIOException("Failed to load model from " + path, e);
         }
     }
 
+    private void addModel(String languagesStr, SignificanceModel model) {
+        log.fine(() -> "Found model for languages '%s'".formatted(languagesStr));
+        String[] languageTags = languagesStr.split(",");
+
+        for (var languageTag : languageTags) {
+            var language = Language.fromLanguageTag(languageTag);
+            log.fine(() -> "Adding model for language %s with id %s".formatted(language, model.getId()));
+            this.models.put(language, model);
+        }
+    }
+
     @Override
     public Optional<SignificanceModel> getModel(Language language) {
         if (!models.containsKey(language))
@@ -2,9 +2,17 @@
 package com.yahoo.language.significance;
 
 import com.yahoo.language.Language;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.language.significance.impl.BinarySignificanceModelFile;
 import com.yahoo.language.significance.impl.DefaultSignificanceModelRegistry;
+import com.yahoo.language.significance.impl.SignificanceModelFile;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +25,9 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class DefaultSignificanceModelRegistryTest {
 
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+
     @Test
     public void testDefaultSignificanceModelRegistry() {
         List<Path> models = new ArrayList<>();
@@ -140,4 +151,67 @@ public class DefaultSignificanceModelRegistryTest {
         assertEquals(1, norwegianModel.documentFrequency("non-existent-word").frequency());
         assertEquals(20, norwegianModel.documentFrequency("non-existent-word").corpusSize());
     }
+
+    @Test
+    public void testDefaultSignificanceModelRegistryWithBinaryModels() throws IOException {
+        List<Path> models = new ArrayList<>();
+
+        models.add(toBinary(Path.of("src/test/models/docv1.json")));
+        models.add(toBinary(Path.of("src/test/models/docv2.json")));
+
+        DefaultSignificanceModelRegistry defaultSignificanceModelRegistry = new DefaultSignificanceModelRegistry(models);
+
+        var englishModel = defaultSignificanceModelRegistry.getModel(Language.ENGLISH).get();
+        var norwegianModel = defaultSignificanceModelRegistry.getModel(Language.NORWEGIAN_BOKMAL).get();
+        var frenchModel = defaultSignificanceModelRegistry.getModel(Language.FRENCH).get();
+        assertTrue(defaultSignificanceModelRegistry.getModel(Language.GERMAN).isEmpty());
+
+        assertEquals("test::2", englishModel.getId());
+        assertEquals("test::2", norwegianModel.getId());
+
+        assertEquals(4, englishModel.documentFrequency("test").frequency());
+        assertEquals(14, englishModel.documentFrequency("test").corpusSize());
+        assertEquals(2, englishModel.documentFrequency("additional").frequency());
+        assertEquals(5, englishModel.documentFrequency("world").frequency());
+
+        assertEquals(3, norwegianModel.documentFrequency("nei").frequency());
+        assertEquals(12, norwegianModel.documentFrequency("ja").frequency());
+        assertEquals(20, norwegianModel.documentFrequency("nei").corpusSize());
+        assertEquals(1, norwegianModel.documentFrequency("non-existent-word").frequency());
+        assertEquals(1, norwegianModel.documentFrequency("").frequency());
+        assertEquals(1, norwegianModel.documentFrequency("neii").frequency());
+        assertEquals(1, norwegianModel.documentFrequency("ne").frequency());
+        assertEquals(20, norwegianModel.documentFrequency("non-existent-word").corpusSize());
+
+        assertEquals(6, frenchModel.documentFrequency("bonjour").frequency());
+    }
+
+    @Test
+    public void testBinaryModelRoundTrip() throws IOException {
+        Path binary = toBinary(Path.of("src/test/models/docv2.json"));
+        SignificanceModelFile json = new ObjectMapper().readValue(Path.of("src/test/models/docv2.json").toFile(), SignificanceModelFile.class);
+        SignificanceModelFile roundTripped = BinarySignificanceModelFile.open(binary).toSignificanceModelFile();
+
+        assertEquals(json.id(), roundTripped.id());
+        assertEquals(json.version(), roundTripped.version());
+        assertEquals(json.languages().keySet(), roundTripped.languages().keySet());
+        for (var language : json.languages().entrySet()) {
+            var other = roundTripped.languages().get(language.getKey());
+            assertEquals(language.getValue().documentCount(), other.documentCount());
+            assertEquals(language.getValue().description(), other.description());
+            assertEquals(language.getValue().frequencies(), other.frequencies());
+        }
+        assertFalse(BinarySignificanceModelFile.isBinary(Path.of("src/test/models/docv2.json")));
+        assertTrue(BinarySignificanceModelFile.isBinary(binary));
+    }
+
+    private Path toBinary(Path jsonModel) throws IOException {
+        SignificanceModelFile model = new ObjectMapper().readValue(jsonModel.toFile(), SignificanceModelFile.class);
+        Path binary = tmpDir.newFile(jsonModel.getFileName() + ".bin").toPath();
+        try (OutputStream out = Files.newOutputStream(binary)) {
+            BinarySignificanceModelFile.write(model, out);
+        }
+        return binary;
+    }
+
 }
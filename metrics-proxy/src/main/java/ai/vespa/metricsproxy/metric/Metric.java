@@ -5,6 +5,7 @@ import ai.vespa.metricsproxy.metric.model.ConsumerId;
 import ai.vespa.metricsproxy.metric.model.DimensionId;
 import ai.vespa.metricsproxy.metric.model.MetricId;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Objects;
@@ -16,7 +17,9 @@ import java.util.Set;
 public class Metric {
 
     private final Instant time;
-    private final Number value;
+    /** The value, which is the raw bits of a double if isDouble is set */
+    private final long value;
+    private final boolean isDouble;
     private final String description;
     private MetricId name;
     private Map<DimensionId, String> dimensions;
@@ -30,8 +33,24 @@ public class Metric {
      * @param time  The timestamp of this metric in seconds
      */
     public Metric(MetricId name, Number value, Instant time, Map<DimensionId, String> dimensions, String description) {
+        this(name, isFloatingPoint(value) ? Double.doubleToLongBits(value.doubleValue()) : value.longValue(),
+             isFloatingPoint(value), time, dimensions, description);
+    }
+
+    /** Creates a new metric instance with an integer value, without boxing it */
+    public Metric(MetricId name, long value, Instant time, Map<DimensionId, String> dimensions, String description) {
+        this(name, value, false, time, dimensions, description);
+    }
+
+    /** Creates a new metric instance with a floating point value, without boxing it */
+    public Metric(MetricId name, double value, Instant time, Map<DimensionId, String> dimensions, String description) {
+        this(name, Double.doubleToLongBits(value), true, time, dimensions, description);
+    }
+
+    private Metric(MetricId name, long value, boolean isDouble, Instant time, Map<DimensionId, String> dimensions, String description) {
         this.time = time;
         this.value = value;
+        this.isDouble = isDouble;
         this.name = name;
         this.dimensions = Map.copyOf(dimensions);
         this.description = description;
@@ -66,12 +85,20 @@ public class Metric {
     public Set<ConsumerId> getConsumers() { return consumers; }
 
     /**
-     * @return The number that this metric name represent
+     * @return The number that this metric name represent, which is a Double for floating point values, and a Long otherwise
      */
     public Number getValue() {
+        if (isDouble) return doubleValue();
         return value;
     }
 
+    /**
+     * @return The value of this metric as a double
+     */
+    public double doubleValue() {
+        return isDouble ? Double.longBitsToDouble(value) : value;
+    }
+
     /**
      * Set the name of this metric
      *
@@ -100,14 +127,14 @@ public class Metric {
         return "Metric{" +
                 "time=" + time +
                 ", name=" + name.id +
-                ", value='" + value + '\'' +
+                ", value='" + getValue() + '\'' +
                 ", dimensions=" + dimensions +
                 '}';
     }
 
     @Override
     public Metric clone() {
-        return new Metric(name, value, time, dimensions, getDescription());
+        return new Metric(name, value, isDouble, time, dimensions, getDescription());
     }
 
     @Override
@@ -116,7 +143,8 @@ public class Metric {
         Metric rhs = (Metric) obj;
         return name.equals(rhs.name)
                 && description.equals(rhs.description)
-                && value.equals(rhs.value)
+                && value == rhs.value
+                && isDouble == rhs.isDouble
                 && time.equals(rhs.time)
                 && Objects.equals(dimensions, rhs.dimensions)
                 && Objects.equals(consumers, rhs.consumers);
@@ -124,7 +152,7 @@ public class Metric {
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, description, value, dimensions, consumers, time);
+        return Objects.hash(name, description, value, isDouble, dimensions, consumers, time);
     }
 
     /**
@@ -134,6 +162,10 @@ public class Metric {
         return this.description;
     }
 
+    private static boolean isFloatingPoint(Number value) {
+        return value instanceof Double || value instanceof Float || value instanceof BigDecimal;
+    }
+
     /** Return an adjusted (rounded up) time if necessary */
     public static long adjustTime(long timestamp, long now) {
         if ((now == (timestamp+1)) && ((now % 60) == 0)) {
@@ -52,7 +52,7 @@ public class YamasJsonModel {
     // NOTE: do not rename to 'setMetrics', as jackson will try to use it.
     public void resetMetrics(List<Metric> newMetrics) {
         metrics = new LinkedHashMap<>();
-        newMetrics.forEach(metric -> metrics.put(metric.getName().id, metric.getValue().doubleValue()));
+        newMetrics.forEach(metric -> metrics.put(metric.getName().id, metric.doubleValue()));
     }
 
     /**
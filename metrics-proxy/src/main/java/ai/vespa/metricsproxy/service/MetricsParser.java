@@ -13,186 +13,258 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
 
 /**
- * Fetch metrics for a given vespa service
+ * Parses the metrics of a vespa service, streaming from the json response.
+ *
+ * Dimension maps and metric ids are interned, and those seen in one parse are reused by the next parse
+ * with the same instance, so that repeated polls of a service do not allocate them again.
+ * Instances are thread safe.
  *
  * @author Jo Kristian Bergum
  */
 public class MetricsParser {
-    private static final Double ZERO_DOUBLE = 0d;
     public interface Collector {
         void accept(Metric metric);
     }
 
     private static final ObjectMapper jsonMapper = Jackson.mapper();
 
-    public static void parse(String data, Collector consumer) throws IOException {
+    /** The values interned by the last parse */
+    private volatile Interned interned = new Interned(Map.of(), Map.of());
+
+    public void parse(String data, Collector consumer) throws IOException {
         try (JsonParser parser = jsonMapper.createParser(data)) {
             parse(parser, consumer);
         }
     }
 
-    static void parse(InputStream data, Collector consumer) throws IOException {
+    public void parse(InputStream data, Collector consumer) throws IOException {
         try (JsonParser parser = jsonMapper.createParser(data)) {
             parse(parser, consumer);
         }
     }
 
-    // Top level 'metrics' object, with e.g. 'time', 'status' and 'metrics'.
-    private static void parse(JsonParser parser, Collector consumer) throws IOException {
-        if (parser.nextToken() != JsonToken.START_OBJECT) {
-            throw new IOException("Expected start of object, got " + parser.currentToken());
+    private void parse(JsonParser parser, Collector consumer) throws IOException {
+        Parse parse = new Parse(parser, consumer, interned);
+        parse.parse();
+        interned = parse.interned();
+    }
+
+    /** Dimension maps by their ids and values in json order, and metric ids by name and aggregator */
+    private record Interned(Map<List<String>, InternedDimensions> dimensions, Map<MetricKey, MetricId> metricIds) { }
+
+    private record InternedDimensions(List<String> key, Map<DimensionId, String> dimensions) { }
+
+    private record MetricKey(String name, String aggregator) { }
+
+    /** A single parse of a response, which is not thread safe */
+    private static class Parse {
+
+        private final JsonParser parser;
+        private final Collector consumer;
+        private final Interned previous;
+        private final Map<List<String>, InternedDimensions> dimensions = new HashMap<>();
+        private final Map<MetricKey, MetricId> metricIds = new HashMap<>();
+
+        /** Ids and values of the dimensions of the current entry, reused across entries */
+        private final List<String> dimensionKey = new ArrayList<>();
+
+        /** Aggregators and values of the current entry, reused across entries */
+        private String[] aggregators = new String[8];
+        private long[] longValues = new long[8];
+        private double[] doubleValues = new double[8];
+        private boolean[] isDouble = new boolean[8];
+        private int valueCount = 0;
+
+        Parse(JsonParser parser, Collector consumer, Interned previous) {
+            this.parser = parser;
+            this.consumer = consumer;
+            this.previous = previous;
         }
 
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String fieldName = parser.currentName();
-            JsonToken token = parser.nextToken();
-            if (fieldName.equals("metrics")) {
-                parseMetrics(parser, consumer);
-            } else {
-                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
-                    parser.skipChildren();
-                }
+        Interned interned() { return new Interned(dimensions, metricIds); }
+
+        // Top level 'metrics' object, with e.g. 'time', 'status' and 'metrics'.
+        void parse() throws IOException {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected start of object, got " + parser.currentToken());
             }
-        }
-    }
 
-    static private Instant parseSnapshot(JsonParser parser) throws IOException {
-        if (parser.currentToken() != JsonToken.START_OBJECT) {
-            throw new IOException("Expected start of 'snapshot' object, got " + parser.currentToken());
-        }
-        Instant timestamp = Instant.now();
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String fieldName = parser.currentName();
-            JsonToken token = parser.nextToken();
-            if (fieldName.equals("to")) {
-                timestamp = Instant.ofEpochSecond(parser.getLongValue());
-                timestamp = Instant.ofEpochSecond(Metric.adjustTime(timestamp.getEpochSecond(), Instant.now().getEpochSecond()));
-            } else {
-                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
-                    parser.skipChildren();
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (fieldName.equals("metrics")) {
+                    parseMetrics();
+                } else {
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
                 }
             }
         }
-        return timestamp;
-    }
 
-    // 'metrics' object with 'snapshot' and 'values' arrays
-    static private void parseMetrics(JsonParser parser, Collector consumer) throws IOException {
-        if (parser.currentToken() != JsonToken.START_OBJECT) {
-            throw new IOException("Expected start of 'metrics' object, got " + parser.currentToken());
-        }
-        Instant timestamp = Instant.now();
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String fieldName = parser.currentName();
-            JsonToken token = parser.nextToken();
-            if (fieldName.equals("snapshot")) {
-                timestamp = parseSnapshot(parser);
-            } else if (fieldName.equals("values")) {
-                parseMetricValues(parser, timestamp, consumer);
-            } else {
-                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
-                    parser.skipChildren();
+        private Instant parseSnapshot() throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected start of 'snapshot' object, got " + parser.currentToken());
+            }
+            Instant timestamp = Instant.now();
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (fieldName.equals("to")) {
+                    timestamp = Instant.ofEpochSecond(parser.getLongValue());
+                    timestamp = Instant.ofEpochSecond(Metric.adjustTime(timestamp.getEpochSecond(), Instant.now().getEpochSecond()));
+                } else {
+                    if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                    }
                 }
             }
+            return timestamp;
         }
-    }
 
-    // 'values' array
-    static private void parseMetricValues(JsonParser parser, Instant timestamp, Collector consumer) throws IOException {
-        if (parser.currentToken() != JsonToken.START_ARRAY) {
-            throw new IOException("Expected start of 'metrics:values' array, got " + parser.currentToken());
-        }
-
-        Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions = new HashMap<>();
-        while (parser.nextToken() == JsonToken.START_OBJECT) {
-            handleValue(parser, timestamp, consumer, uniqueDimensions);
-        }
-    }
-
-    // One item in the 'values' array, where each item has 'name', 'values' and 'dimensions'
-    static private void handleValue(JsonParser parser, Instant timestamp, Collector consumer,
-                                    Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions) throws IOException {
-        String name = "";
-        String description = "";
-        Map<DimensionId, String> dim = Map.of();
-        List<Map.Entry<String, Number>> values = List.of();
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String fieldName = parser.currentName();
-            JsonToken token = parser.nextToken();
-            switch (fieldName) {
-                case "name" -> name = parser.getText();
-                case "description" -> description = parser.getText();
-                case "dimensions" -> dim = parseDimensions(parser, uniqueDimensions);
-                case "values" -> values = parseValues(parser);
-                default -> {
+        // 'metrics' object with 'snapshot' and 'values' arrays
+        private void parseMetrics() throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected start of 'metrics' object, got " + parser.currentToken());
+            }
+            Instant timestamp = Instant.now();
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (fieldName.equals("snapshot")) {
+                    timestamp = parseSnapshot();
+                } else if (fieldName.equals("values")) {
+                    parseMetricValues(timestamp);
+                } else {
                     if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
                         parser.skipChildren();
                     }
                 }
             }
         }
-        if (name.isEmpty()) {
-            throw new IOException("missing name for entry in 'values' array");
+
+        // 'values' array
+        private void parseMetricValues(Instant timestamp) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected start of 'metrics:values' array, got " + parser.currentToken());
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                handleValue(timestamp);
+            }
         }
-        for (Map.Entry<String, Number> value : values) {
-            consumer.accept(new Metric(MetricId.toMetricId(name+"."+value.getKey()), value.getValue(), timestamp, dim, description));
+
+        // One item in the 'values' array, where each item has 'name', 'values' and 'dimensions'
+        private void handleValue(Instant timestamp) throws IOException {
+            String name = "";
+            String description = "";
+            Map<DimensionId, String> dim = Map.of();
+            valueCount = 0;
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (fieldName) {
+                    case "name" -> name = parser.getText();
+                    case "description" -> description = parser.getText();
+                    case "dimensions" -> dim = parseDimensions();
+                    case "values" -> parseValues();
+                    default -> {
+                        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+            }
+            if (name.isEmpty()) {
+                throw new IOException("missing name for entry in 'values' array");
+            }
+            for (int i = 0; i < valueCount; i++) {
+                MetricId id = metricId(name, aggregators[i]);
+                consumer.accept(isDouble[i] ? new Metric(id, doubleValues[i], timestamp, dim, description)
+                                            : new Metric(id, longValues[i], timestamp, dim, description));
+            }
         }
-    }
 
-    private static Map<DimensionId, String> parseDimensions(JsonParser parser,
-                                                            Map<Set<Dimension>, Map<DimensionId, String>> uniqueDimensions) throws IOException {
+        private Map<DimensionId, String> parseDimensions() throws IOException {
+            dimensionKey.clear();
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
 
-        Set<Dimension> dimensions = new HashSet<>();
+                if (token == JsonToken.VALUE_STRING){
+                    dimensionKey.add(fieldName);
+                    dimensionKey.add(parser.getValueAsString());
+                } else if (token == JsonToken.VALUE_NULL) {
+                    // TODO Should log a warning if this happens
+                } else {
+                    throw new IllegalArgumentException("Dimension '" + fieldName + "' must be a string");
+                }
+            }
+            InternedDimensions interned = dimensions.get(dimensionKey);
+            if (interned == null) {
+                interned = previous.dimensions().get(dimensionKey);
+                if (interned == null)
+                    interned = internDimensions(List.copyOf(dimensionKey));
+                dimensions.put(interned.key(), interned);
+            }
+            return interned.dimensions();
+        }
 
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String fieldName = parser.currentName();
-            JsonToken token = parser.nextToken();
+        private static InternedDimensions internDimensions(List<String> key) {
+            Map<DimensionId, String> dimensions = new LinkedHashMap<>();
+            for (int i = 0; i < key.size(); i += 2)
+                dimensions.put(toDimensionId(key.get(i)), key.get(i + 1));
+            return new InternedDimensions(key, Map.copyOf(dimensions));
+        }
 
-            if (token == JsonToken.VALUE_STRING){
-                String value = parser.getValueAsString();
-                dimensions.add(Dimension.of(fieldName, value));
-            } else if (token == JsonToken.VALUE_NULL) {
-                // TODO Should log a warning if this happens
-            } else {
-                throw new IllegalArgumentException("Dimension '" + fieldName + "' must be a string");
+        private MetricId metricId(String name, String aggregator) {
+            MetricKey key = new MetricKey(name, aggregator);
+            MetricId id = metricIds.get(key);
+            if (id == null) {
+                id = previous.metricIds().get(key);
+                if (id == null)
+                    id = MetricId.toMetricId(name + "." + aggregator);
+                metricIds.put(key, id);
             }
+            return id;
         }
-        return uniqueDimensions.computeIfAbsent(dimensions,
-                                                key -> dimensions.stream().collect(Collectors.toUnmodifiableMap(
-                                                        dim -> toDimensionId(dim.id), dim -> dim.value)));
-    }
 
-    record Dimension(String id, String value) {
-        static Dimension of(String id, String value) {
-            return new Dimension(id, value);
+        private void parseValues() throws IOException {
+            valueCount = 0;
+            for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
+                String metricName = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (valueCount == aggregators.length)
+                    growValues();
+                if (token == JsonToken.VALUE_NUMBER_INT) {
+                    longValues[valueCount] = parser.getLongValue();
+                    isDouble[valueCount] = false;
+                } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    doubleValues[valueCount] = parser.getValueAsDouble();
+                    isDouble[valueCount] = true;
+                } else {
+                    throw new IllegalArgumentException("Value for aggregator '" + metricName + "' is not a number");
+                }
+                aggregators[valueCount++] = metricName;
+            }
         }
-    }
 
-    private static List<Map.Entry<String, Number>> parseValues(JsonParser parser) throws IOException {
-        List<Map.Entry<String, Number>> metrics = new ArrayList<>();
-        for (parser.nextToken(); parser.currentToken() != JsonToken.END_OBJECT; parser.nextToken()) {
-            String metricName = parser.currentName();
-            JsonToken token = parser.nextToken();
-            if (token == JsonToken.VALUE_NUMBER_INT) {
-                metrics.add(Map.entry(metricName, parser.getLongValue()));
-            } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
-                double value = parser.getValueAsDouble();
-                metrics.add(Map.entry(metricName, value == ZERO_DOUBLE ? ZERO_DOUBLE : value));
-            } else {
-                throw new IllegalArgumentException("Value for aggregator '" + metricName + "' is not a number");
-            }
+        private void growValues() {
+            int length = aggregators.length * 2;
+            aggregators = Arrays.copyOf(aggregators, length);
+            longValues = Arrays.copyOf(longValues, length);
+            doubleValues = Arrays.copyOf(doubleValues, length);
+            isDouble = Arrays.copyOf(isDouble, length);
         }
-        return metrics;
+
     }
 
 }
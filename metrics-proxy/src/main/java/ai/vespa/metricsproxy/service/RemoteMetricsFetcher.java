@@ -17,6 +17,9 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
 
     final static String METRICS_PATH = STATE_PATH + "metrics";
 
+    /** Reused across fetches, to reuse the dimensions and metric ids of the previous fetch */
+    private final MetricsParser parser = new MetricsParser();
+
     RemoteMetricsFetcher(VespaService service, int port) {
         super(service, port, METRICS_PATH);
     }
@@ -28,7 +31,7 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
         try (CloseableHttpResponse response = getResponse()) {
             HttpEntity entity = response.getEntity();
             try {
-                MetricsParser.parse(new BufferedInputStream(entity.getContent(), HttpMetricFetcher.BUFFER_SIZE), consumer);
+                parser.parse(new BufferedInputStream(entity.getContent(), HttpMetricFetcher.BUFFER_SIZE), consumer);
             } catch (Exception e) {
                 handleException(e, entity.getContentType(), fetchCount);
             } finally {
@@ -38,6 +41,6 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
     }
 
     void createMetrics(String data, MetricsParser.Collector consumer, int fetchCount) throws IOException {
-        MetricsParser.parse(data, consumer);
+        parser.parse(data, consumer);
     }
 }
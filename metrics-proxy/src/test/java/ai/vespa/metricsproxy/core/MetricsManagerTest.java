@@ -79,11 +79,11 @@ public class MetricsManagerTest {
         assertEquals(2, packets.size());
 
         assertEquals("dummy0", packets.get(0).dimensions().get(toDimensionId("instance")));
-        assertEquals(1, packets.get(0).metrics().get(toMetricId("c.test")));
+        assertEquals(1L, packets.get(0).metrics().get(toMetricId("c.test")));
         assertEquals(1.05, packets.get(0).metrics().get(toMetricId("val")));
 
         assertEquals("dummy1", packets.get(1).dimensions().get(toDimensionId("instance")));
-        assertEquals(6, packets.get(1).metrics().get(toMetricId("c.test")));
+        assertEquals(6L, packets.get(1).metrics().get(toMetricId("c.test")));
         assertEquals(2.35, packets.get(1).metrics().get(toMetricId("val")));
     }
 
@@ -128,7 +128,7 @@ public class MetricsManagerTest {
         assertEquals(3, packets.size());
 
         MetricsPacket systemPacket = packets.get(0); // system metrics are added before other metrics
-        assertEquals(1, systemPacket.metrics().get(toMetricId("cpu")));
+        assertEquals(1L, systemPacket.metrics().get(toMetricId("cpu")));
         assertEquals("system", systemPacket.dimensions().get(toDimensionId("metrictype")));
 
         service0.setSystemMetrics(oldSystemMetrics);
@@ -0,0 +1,78 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.metricsproxy.service;
+
+import ai.vespa.metricsproxy.TestUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.json.Jackson;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures the time and memory allocated to parse a large /state/v1/metrics response,
+ * either one captured from a service and given as an argument, or one made by repeating the
+ * entries of a captured container response with many distinct dimension values.
+ *
+ * @author bratseth
+ */
+public class MetricsParserBenchmark {
+
+    private static final int repetitions = 200;
+
+    public void benchmark(byte[] payload, boolean reuseParser) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MetricsParser parser = new MetricsParser();
+        long checksum = 0;
+        for (int i = 0; i < repetitions; i++) // warmup
+            checksum += parse(reuseParser ? parser : new MetricsParser(), payload);
+
+        long startAllocated = threads.getCurrentThreadAllocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < repetitions; i++)
+            checksum += parse(reuseParser ? parser : new MetricsParser(), payload);
+        long time = System.nanoTime() - startTime;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - startAllocated;
+        System.out.println((reuseParser ? "Reused parser: " : "New parser:    ") +
+                           (time / repetitions / 1000) + " microseconds and " +
+                           (allocated / repetitions / 1024) + " kb allocated per parse of " + payload.length +
+                           " bytes (checksum " + checksum + ")");
+    }
+
+    private static long parse(MetricsParser parser, byte[] payload) throws IOException {
+        long[] count = new long[1];
+        parser.parse(new ByteArrayInputStream(payload), metric -> count[0] += metric.getDimensions().size() + 1);
+        return count[0];
+    }
+
+    /** Returns the captured container response with its entries repeated for the given number of chains */
+    private static byte[] syntheticPayload(int chains) throws IOException {
+        var mapper = Jackson.mapper();
+        JsonNode captured = mapper.readTree(TestUtil.getFileContents("metrics-container-state-multi-chain.json"));
+        ObjectNode response = captured.deepCopy();
+        ArrayNode values = ((ObjectNode)response.get("metrics")).putArray("values");
+        for (int chain = 0; chain < chains; chain++) {
+            for (JsonNode value : captured.get("metrics").get("values")) {
+                ObjectNode copy = value.deepCopy();
+                ObjectNode dimensions = copy.has("dimensions") ? (ObjectNode)copy.get("dimensions") : copy.putObject("dimensions");
+                dimensions.put("chain", "chain-" + chain);
+                dimensions.put("documenttype", "type-" + (chain % 7));
+                values.add(copy);
+            }
+        }
+        return mapper.writeValueAsBytes(response);
+    }
+
+    /** Optionally takes the path to a captured metrics response as argument */
+    public static void main(String[] args) throws IOException {
+        byte[] payload = args.length > 0 ? Files.readAllBytes(Path.of(args[0])) : syntheticPayload(200);
+        MetricsParserBenchmark benchmark = new MetricsParserBenchmark();
+        benchmark.benchmark(payload, false);
+        benchmark.benchmark(payload, true);
+    }
+
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author gjoranv
@@ -27,7 +28,7 @@ public class MetricsParserTest {
     @Test
     public void different_dimension_values_are_not_treated_as_equal() throws Exception {
         var collector = new MetricsCollector();
-        MetricsParser.parse(metricsJsonDistinctButDuplicateDimensionDalues(), collector);
+        new MetricsParser().parse(metricsJsonDistinctButDuplicateDimensionDalues(), collector);
         assertEquals(2, collector.metrics.size());
         assertNotEquals("Dimensions should not be equal",
                         collector.metrics.get(0).getDimensions(),
@@ -37,13 +38,30 @@ public class MetricsParserTest {
     @Test
     public void different_swapped_dimension_values_are_not_treated_as_equal() throws Exception {
         var collector = new MetricsCollector();
-        MetricsParser.parse(metricsJsonDistinctButDuplicateSwappedDimensionDalues(), collector);
+        new MetricsParser().parse(metricsJsonDistinctButDuplicateSwappedDimensionDalues(), collector);
         assertEquals(2, collector.metrics.size());
         assertNotEquals("Dimensions should not be equal",
                 collector.metrics.get(0).getDimensions(),
                 collector.metrics.get(1).getDimensions());
     }
 
+    @Test
+    public void dimensions_are_reused_across_parses() throws Exception {
+        var parser = new MetricsParser();
+        var first = new MetricsCollector();
+        parser.parse(metricsJsonDistinctButDuplicateDimensionDalues(), first);
+        var second = new MetricsCollector();
+        parser.parse(metricsJsonDistinctButDuplicateDimensionDalues(), second);
+        assertEquals(2, second.metrics.size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(first.metrics.get(i), second.metrics.get(i));
+            assertSame(first.metrics.get(i).getDimensions(), second.metrics.get(i).getDimensions());
+            assertSame(first.metrics.get(i).getName(), second.metrics.get(i).getName());
+        }
+        assertEquals(1.0, first.metrics.get(0).getValue());
+        assertEquals(2.0, first.metrics.get(1).getValue());
+    }
+
     // The duplicate dimension values for 'cluster' and 'clusterid' exposed a bug in a previously used hashing algo for dimensions.
     private String metricsJsonDistinctButDuplicateDimensionDalues() {
         return """
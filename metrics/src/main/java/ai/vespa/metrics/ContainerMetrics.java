@@ -135,6 +135,13 @@ public enum ContainerMetrics implements VespaMetrics {
     QUERY_TIMEOUT("query_timeout", Unit.MILLISECOND, "The amount of time allowed for query execution, from the client"),
     FAILED_QUERIES("failed_queries", Unit.OPERATION, "The number of failed queries"),
     DEGRADED_QUERIES("degraded_queries", Unit.OPERATION, "The number of degraded queries, e.g. due to some content nodes not responding in time"),
+    HEDGED_QUERIES("hedged_queries", Unit.OPERATION, "The number of queries also dispatched to a second group since the first group did not answer in time"),
+    HEDGED_QUERY_WINS("hedged_query_wins", Unit.OPERATION, "The number of hedged queries where the second group answered first"),
+    SUMMARY_CACHE_HITS("summary_cache_hits", Unit.HIT, "The number of document summaries filled from the summary cache in the container"),
+    SUMMARY_CACHE_MISSES("summary_cache_misses", Unit.HIT, "The number of cacheable document summaries not found in the summary cache in the container"),
+    YQL_PARSE_CACHE_HITS("yql_parse_cache_hits", Unit.QUERY, "The number of queries where the parsed YQL program was found in the cache"),
+    YQL_PARSE_CACHE_MISSES("yql_parse_cache_misses", Unit.QUERY, "The number of queries where the YQL program was parsed and added to the cache"),
+    GROUPING_MERGE_LATENCY("grouping_merge_latency", Unit.MILLISECOND, "The time spent merging grouping results from content nodes in a query"),
     HITS_PER_QUERY("hits_per_query", Unit.HIT_PER_QUERY, "The number of hits returned"),
     QUERY_HIT_OFFSET("query_hit_offset", Unit.HIT, "The offset for hits returned"),
     DOCUMENTS_COVERED("documents_covered", Unit.DOCUMENT, "The combined number of documents considered during query evaluation"),
@@ -212,7 +219,10 @@ public enum ContainerMetrics implements VespaMetrics {
     SERVER_STARTED_MILLIS("serverStartedMillis", Unit.MILLISECOND, "Time since the service was started"),
 
     EMBEDDER_LATENCY("embedder.latency", Unit.MILLISECOND, "Time spent creating an embedding"),
-    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer");
+    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer"),
+    EMBEDDER_CACHE_HITS("embedder.cache.hits", Unit.OPERATION, "Number of embeddings found in the cross-request embedding cache"),
+    EMBEDDER_CACHE_MISSES("embedder.cache.misses", Unit.OPERATION, "Number of embeddings not found in the cross-request embedding cache"),
+    EMBEDDER_CACHE_EVICTIONS("embedder.cache.evictions", Unit.OPERATION, "Number of embeddings evicted from the cross-request embedding cache");
 
     private final String name;
     private final Unit unit;
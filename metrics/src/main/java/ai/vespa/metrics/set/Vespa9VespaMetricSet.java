@@ -219,6 +219,9 @@ public class Vespa9VespaMetricSet {
         // Embedders
         addMetric(metrics, ContainerMetrics.EMBEDDER_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH, EnumSet.of(max, sum, count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_HITS.count());
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_MISSES.count());
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_EVICTIONS.count());
 
         return metrics;
     }
@@ -279,6 +282,13 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.QUERY_TIMEOUT, EnumSet.of(sum, count, max, min, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.FAILED_QUERIES.rate());
         addMetric(metrics, ContainerMetrics.DEGRADED_QUERIES.rate());
+        addMetric(metrics, ContainerMetrics.HEDGED_QUERIES.rate());
+        addMetric(metrics, ContainerMetrics.HEDGED_QUERY_WINS.rate());
+        addMetric(metrics, ContainerMetrics.SUMMARY_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.SUMMARY_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.YQL_PARSE_CACHE_HITS.rate());
+        addMetric(metrics, ContainerMetrics.YQL_PARSE_CACHE_MISSES.rate());
+        addMetric(metrics, ContainerMetrics.GROUPING_MERGE_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.HITS_PER_QUERY, EnumSet.of(sum, count, max, ninety_five_percentile, ninety_nine_percentile));
         addMetric(metrics, ContainerMetrics.SEARCH_CONNECTIONS, EnumSet.of(sum, count, max));
         addMetric(metrics, ContainerMetrics.QUERY_HIT_OFFSET, EnumSet.of(sum, count, max));
@@ -0,0 +1,73 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.SerializationContext;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A scalar expression compiled by {@link ScalarCompiler}, which is evaluated in a context created for the
+ * function containing it.
+ *
+ * @author bratseth
+ */
+final class CompiledScalarNode extends ExpressionNode {
+
+    /** The expression compiled into this */
+    private final ExpressionNode expression;
+
+    private final ScalarCompiler.Scalar compiled;
+
+    /** The context indexes whose values must be looked up before evaluating */
+    private final int[] reads;
+
+    /** The context indexes and compiled bodies of the functions which must be computed before evaluating, in order */
+    private final int[] functionIndexes;
+    private final ScalarCompiler.Scalar[] functions;
+
+    /** The size of the context this is evaluated in */
+    private final int contextSize;
+
+    CompiledScalarNode(ExpressionNode expression, ScalarCompiler.Scalar compiled,
+                       int[] reads, List<ScalarCompiler.CompiledFunction> functions, int contextSize) {
+        this.expression = expression;
+        this.compiled = compiled;
+        this.reads = reads;
+        this.functionIndexes = functions.stream().mapToInt(ScalarCompiler.CompiledFunction::index).toArray();
+        this.functions = functions.stream().map(ScalarCompiler.CompiledFunction::body).toArray(ScalarCompiler.Scalar[]::new);
+        this.contextSize = contextSize;
+    }
+
+    @Override
+    public TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
+
+    @Override
+    public Value evaluate(Context context) {
+        double[] bindings = new double[contextSize];
+        for (int index : reads)
+            bindings[index] = context.getDouble(index);
+        for (int i = 0; i < functions.length; i++)
+            bindings[functionIndexes[i]] = functions[i].evaluate(bindings);
+        return new DoubleValue(compiled.evaluate(bindings));
+    }
+
+    /** Returns the expression compiled into this */
+    @Override
+    public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
+        return expression.toString(string, context, path, parent);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash("compiledScalar", expression); }
+
+}
@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -52,6 +53,9 @@ public class Model implements AutoCloseable {
 
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
+    /** Free functions with scalar subexpressions compiled, by name, created on first use */
+    private final Map<String, ExpressionFunction> compiledFunctions = new ConcurrentHashMap<>();
+
     private final List<Runnable> closeActions;
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -245,21 +249,40 @@ public class Model implements AutoCloseable {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        return evaluatorOf(requireFunction(names));
+    }
+
+    /**
+     * Returns an evaluator of a function where the scalar subexpressions, such as decision tree forests,
+     * are compiled to operate on primitive values rather than interpreted. This makes evaluation of functions
+     * which are mostly scalar faster, at the cost of compiling each function the first time it is requested.
+     * Evaluators returned from this are otherwise equivalent to those returned by {@link #evaluatorOf}.
+     *
+     * @param names the names identifying the function, as in {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public FunctionEvaluator compiledEvaluatorOf(String ... names) {
+        ExpressionFunction function = requireFunction(names);
+        return evaluatorOf(compiledFunctions.computeIfAbsent(function.getName(), key -> compile(function)));
+    }
+
+    /** Returns the function identified by the given names, see {@link #evaluatorOf} */
+    private ExpressionFunction requireFunction(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             // Check if the name is a signature
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).toList();
             if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             if (functionsStartingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -267,24 +290,24 @@ public class Model implements AutoCloseable {
             List<ExpressionFunction> functionsEndingByName =
                     functions.stream().filter(f -> f.getName().endsWith("." + name)).toList();
             if (functionsEndingByName.size() == 1)
-                return evaluatorOf(functionsEndingByName.get(0));
+                return functionsEndingByName.get(0);
             if (functionsEndingByName.size() > 1)
                 throwUndeterminedFunction("Multiple functions called '" + name + "' in " + this);
 
             // To handle TensorFlow conversion to ONNX
             if (name.startsWith("serving_default")) {
-                return evaluatorOf("default" + name.substring("serving_default".length()));
+                return requireFunction("default" + name.substring("serving_default".length()));
             }
 
             // To handle backward compatibility with ONNX conversion to native Vespa ranking expressions
             if (name.startsWith("default.")) {
-                return evaluatorOf(name.substring("default.".length()));
+                return requireFunction(name.substring("default.".length()));
             }
 
             throwUndeterminedFunction("No function '" + name + "' in " + this);
         }
         else if (names.length == 2) {
-            return evaluatorOf(names[0] + "." + names[1]);
+            return requireFunction(names[0] + "." + names[1]);
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -295,6 +318,12 @@ public class Model implements AutoCloseable {
         return new FunctionEvaluator(function, requireContextPrototype(function.getName()).copy());
     }
 
+    private ExpressionFunction compile(ExpressionFunction function) {
+        var compiler = new ScalarCompiler(function, requireContextPrototype(function.getName()), referencedFunctions);
+        var body = function.getBody();
+        return function.withBody(new RankingExpression(body.getName(), compiler.compile(body.getRoot())));
+    }
+
     private void throwUndeterminedFunction(String message) {
         throw new IllegalArgumentException(message + ". Available functions: " +
                                            functions.stream().map(ExpressionFunction::getName).collect(Collectors.joining(", ")));
@@ -0,0 +1,766 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.OperationNode;
+import com.yahoo.searchlib.rankingexpression.rule.Operator;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Compiles the scalar subexpressions of a function - arithmetic, conditions, scalar functions,
+ * GBDT forests and references to other scalar functions - into trees of primitive operations over an array of
+ * doubles indexed by the index of each value in the context of the function.
+ * This avoids creating a Value for each node on evaluation.
+ * Subexpressions which are not known to be scalar, such as tensor functions, are left to be interpreted.
+ *
+ * This is not multithread safe, but the compiled expressions are.
+ *
+ * @author bratseth
+ */
+class ScalarCompiler {
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext context;
+    private final Map<FunctionReference, ExpressionFunction> referencedFunctions;
+
+    /** The names in the context, by index */
+    private final String[] names;
+
+    /** The referenced functions compiled so far, by context index, or empty if the function could not be compiled */
+    private final Map<Integer, Optional<CompiledFunction>> compiledFunctions = new HashMap<>();
+
+    /**
+     * Creates a compiler of the given function
+     *
+     * @param function the function to compile, which must have types of all arguments
+     * @param context a context prototype of the function
+     * @param referencedFunctions the functions which may be referenced from the function
+     */
+    ScalarCompiler(ExpressionFunction function,
+                   LazyArrayContext context,
+                   Map<FunctionReference, ExpressionFunction> referencedFunctions) {
+        this.function = function;
+        this.context = context;
+        this.referencedFunctions = referencedFunctions;
+        this.names = new String[context.size()];
+        for (String name : context.names())
+            names[context.getIndex(name)] = name;
+    }
+
+    /** Returns the given expression where all non-trivial scalar subexpressions are replaced by compiled nodes */
+    ExpressionNode compile(ExpressionNode node) {
+        if ( ! (node instanceof ConstantNode) && ! (node instanceof ReferenceNode && ! isFunctionReference(node))) {
+            Dependencies dependencies = new Dependencies();
+            Scalar compiled = compile(node, dependencies);
+            if (compiled != null)
+                return new CompiledScalarNode(node, compiled, dependencies.reads(), dependencies.functions(), names.length);
+        }
+
+        // Arguments of references are part of the name, and tensor functions may contain lambdas over other contexts
+        if (node instanceof ReferenceNode || node instanceof TensorFunctionNode) return node;
+        if ( ! (node instanceof CompositeNode composite)) return node;
+        List<ExpressionNode> children = new ArrayList<>();
+        for (ExpressionNode child : composite.children())
+            children.add(compile(child));
+        return composite.setChildren(children);
+    }
+
+    /** Returns the given node as a compiled scalar, or null if it cannot be compiled */
+    private Scalar compile(ExpressionNode node, Dependencies dependencies) {
+        if (node instanceof ConstantNode constant) {
+            Value value = constant.getValue();
+            return value.type().rank() == 0 && value.hasDouble() ? new Constant(value.asDouble()) : null;
+        }
+        else if (node instanceof ReferenceNode reference) {
+            return compileReference(reference, dependencies);
+        }
+        else if (node instanceof EmbracedNode embraced) {
+            return compile(embraced.getValue(), dependencies);
+        }
+        else if (node instanceof NegativeNode negative) {
+            Scalar value = compile(negative.getValue(), dependencies);
+            return value == null ? null : new Negate(value);
+        }
+        else if (node instanceof NotNode || node instanceof SetMembershipNode) {
+            Condition condition = compileCondition(node, dependencies);
+            return condition == null ? null : new ConditionValue(condition);
+        }
+        else if (node instanceof OperationNode operation) {
+            return compileOperation(operation, dependencies);
+        }
+        else if (node instanceof IfNode ifNode) {
+            Condition condition = compileCondition(ifNode.getCondition(), dependencies);
+            Scalar trueValue = compile(ifNode.getTrueExpression(), dependencies);
+            Scalar falseValue = compile(ifNode.getFalseExpression(), dependencies);
+            if (condition == null || trueValue == null || falseValue == null) return null;
+            return new IfElse(condition, trueValue, falseValue);
+        }
+        else if (node instanceof FunctionNode functionNode) {
+            List<ExpressionNode> arguments = functionNode.children();
+            Scalar x = compile(arguments.get(0), dependencies);
+            Scalar y = arguments.size() > 1 ? compile(arguments.get(1), dependencies) : new Constant(0);
+            if (x == null || y == null) return null;
+            return new Call(functionNode.getFunction(), x, y);
+        }
+        else if (node instanceof GBDTNode tree) {
+            return sum(List.of(compileTree(tree.values(), 0, dependencies)));
+        }
+        else if (node instanceof GBDTForestNode forest) {
+            double[] values = forest.values();
+            List<Scalar> trees = new ArrayList<>();
+            for (int pc = 0; pc < values.length; ) {
+                int treeLength = (int)values[pc++];
+                trees.add(compileTree(values, pc, dependencies));
+                pc += treeLength;
+            }
+            return sum(trees);
+        }
+        return null;
+    }
+
+    private Scalar compileReference(ReferenceNode reference, Dependencies dependencies) {
+        String name = reference.toString();
+        int index = indexOf(name);
+        if (index < 0) return null;
+
+        if (isFunctionReference(reference)) {
+            Optional<CompiledFunction> compiled = compiledFunction(name, index);
+            if (compiled.isPresent()) {
+                dependencies.add(compiled.get());
+                return new Binding(index);
+            }
+            ExpressionFunction referenced = referencedFunction(name);
+            if (referenced == null || ! isScalar(referenced.returnType().orElse(null))) return null;
+        }
+        else if ( ! isScalar(typeOf(name, index))) {
+            return null;
+        }
+        dependencies.read(index);
+        return new Binding(index);
+    }
+
+    /** Returns the given node as a compiled condition, or null if it cannot be compiled */
+    private Condition compileCondition(ExpressionNode node, Dependencies dependencies) {
+        if (node instanceof EmbracedNode embraced) {
+            return compileCondition(embraced.getValue(), dependencies);
+        }
+        else if (node instanceof NotNode not) {
+            Condition condition = compileCondition(not.getValue(), dependencies);
+            return condition == null ? null : new NotCondition(condition);
+        }
+        else if (node instanceof SetMembershipNode membership) {
+            Scalar value = compile(membership.getTestValue(), dependencies);
+            if (value == null) return null;
+            List<Scalar> set = new ArrayList<>();
+            for (ExpressionNode setValue : membership.getSetValues())
+                set.add(compile(setValue, dependencies));
+            if (set.contains(null)) return null;
+            return new InSet(value, set.toArray(new Scalar[0]));
+        }
+        else if (node instanceof OperationNode operation && operation.operators().size() == 1) {
+            Comparison comparison = comparison(operation.operators().get(0));
+            if (comparison != null) {
+                Scalar left = compile(operation.children().get(0), dependencies);
+                Scalar right = compile(operation.children().get(1), dependencies);
+                if (left == null || right == null) return null;
+                if (left instanceof Binding binding && right instanceof Constant constant) {
+                    if (operation.operators().get(0) == Operator.smaller)
+                        return new BindingSmaller(binding.index, constant.value);
+                    return new BindingComparison(binding.index, constant.value, comparison);
+                }
+                return new Compare(left, right, comparison);
+            }
+        }
+        Scalar value = compile(node, dependencies);
+        return value == null ? null : new IsTrue(value);
+    }
+
+    /** Compiles a sequence of operations, applying them in precedence order as the interpreter does */
+    private Scalar compileOperation(OperationNode operation, Dependencies dependencies) {
+        List<Scalar> operands = new ArrayList<>();
+        for (ExpressionNode child : operation.children()) {
+            Scalar operand = compile(child, dependencies);
+            if (operand == null) return null;
+            operands.add(operand);
+        }
+
+        if (operation.operators().stream().allMatch(operator -> operator == Operator.plus))
+            return sum(operands);
+
+        Iterator<Scalar> operand = operands.iterator();
+        Deque<Scalar> values = new ArrayDeque<>();
+        Deque<Operator> operators = new ArrayDeque<>();
+        values.push(operand.next());
+        for (Operator operator : operation.operators()) {
+            while ( ! operators.isEmpty() && ! operator.hasPrecedenceOver(operators.peek()))
+                reduce(values, operators);
+            operators.push(operator);
+            values.push(operand.next());
+        }
+        while ( ! operators.isEmpty())
+            reduce(values, operators);
+        return values.pop();
+    }
+
+    private void reduce(Deque<Scalar> values, Deque<Operator> operators) {
+        Scalar right = values.pop();
+        Scalar left = values.pop();
+        values.push(new Binary(left, right, operation(operators.pop())));
+    }
+
+    /** Returns a sum of the given values, where consecutive decision trees are laid out as forests */
+    private static Scalar sum(List<Scalar> values) {
+        List<Scalar> terms = new ArrayList<>();
+        List<Scalar> trees = new ArrayList<>();
+        for (Scalar value : values) {
+            if (Forest.canContain(value)) {
+                trees.add(value);
+                continue;
+            }
+            if ( ! trees.isEmpty()) {
+                terms.add(new Forest(trees));
+                trees.clear();
+            }
+            terms.add(value);
+        }
+        if ( ! trees.isEmpty())
+            terms.add(new Forest(trees));
+        return terms.size() == 1 ? terms.get(0) : new Sum(terms.toArray(new Scalar[0]));
+    }
+
+    /**
+     * Compiles a tree encoded as specified in GBDTNode into nested conditions.
+     * The variables of the encoding are indexes in the context of this function, which are also the indexes
+     * of the values in the bindings of the compiled expression.
+     */
+    private Scalar compileTree(double[] values, int pc, Dependencies dependencies) {
+        double value = values[pc++];
+        if (value < GBDTNode.MAX_LEAF_VALUE) return new Constant(value);
+
+        int offset = (int)value - GBDTNode.MAX_LEAF_VALUE;
+        int variable = offset % GBDTNode.MAX_VARIABLES;
+        bindVariable(variable, dependencies);
+        Condition condition = switch (offset / GBDTNode.MAX_VARIABLES) {
+            case 0 -> new BindingSmaller(variable, values[pc++]);
+            case 1 -> new BindingComparison(variable, values[pc++], (x, y) -> x == y);
+            case 2 -> {
+                int setSize = (int)values[pc++];
+                Scalar[] set = new Scalar[setSize];
+                for (int i = 0; i < setSize; i++)
+                    set[i] = new Constant(values[pc++]);
+                yield new InSet(new Binding(variable), set);
+            }
+            default -> new BindingNotLargerOrEqual(variable, values[pc++]);
+        };
+        return new IfElse(condition,
+                          compileTree(values, pc + 1, dependencies),
+                          compileTree(values, pc + (int)values[pc], dependencies));
+    }
+
+    /** Makes the value of a variable looked up by index, which may be a function, available in the bindings */
+    private void bindVariable(int index, Dependencies dependencies) {
+        if (isFunctionReference(names[index])) {
+            Optional<CompiledFunction> compiled = compiledFunction(names[index], index);
+            if (compiled.isPresent()) {
+                dependencies.add(compiled.get());
+                return;
+            }
+        }
+        dependencies.read(index);
+    }
+
+    private Optional<CompiledFunction> compiledFunction(String name, int index) {
+        Optional<CompiledFunction> compiled = compiledFunctions.get(index);
+        if (compiled != null) return compiled;
+
+        ExpressionFunction referenced = referencedFunction(name);
+        Dependencies dependencies = new Dependencies();
+        Scalar body = referenced == null ? null : compile(referenced.getBody().getRoot(), dependencies);
+        compiled = body == null ? Optional.empty() : Optional.of(new CompiledFunction(index, body, dependencies));
+        compiledFunctions.put(index, compiled);
+        return compiled;
+    }
+
+    private ExpressionFunction referencedFunction(String name) {
+        return FunctionReference.fromSerial(name).map(referencedFunctions::get).orElse(null);
+    }
+
+    /** Returns the type of the given argument or constant, or null if it is not known */
+    private TensorType typeOf(String name, int index) {
+        TensorType type = function.getArgumentType(name);
+        if (type != null) return type;
+        Value value = context.get(index);
+        return value instanceof TensorValue ? value.type() : null;
+    }
+
+    private int indexOf(String name) {
+        return context.names().contains(name) ? context.getIndex(name) : -1;
+    }
+
+    private static boolean isScalar(TensorType type) {
+        return type != null && type.rank() == 0;
+    }
+
+    private static boolean isFunctionReference(ExpressionNode node) {
+        return node instanceof ReferenceNode && isFunctionReference(node.toString());
+    }
+
+    private static boolean isFunctionReference(String name) {
+        return FunctionReference.fromSerial(name).isPresent();
+    }
+
+    private static Comparison comparison(Operator operator) {
+        return switch (operator) {
+            case largerOrEqual -> (x, y) -> x >= y;
+            case larger -> (x, y) -> x > y;
+            case smallerOrEqual -> (x, y) -> x <= y;
+            case smaller -> (x, y) -> x < y;
+            case approxEqual -> ScalarCompiler::approxEqual;
+            case notEqual -> (x, y) -> x != y;
+            case equal -> (x, y) -> x == y;
+            default -> null;
+        };
+    }
+
+    private static DoubleBinaryOperator operation(Operator operator) {
+        Comparison comparison = comparison(operator);
+        if (comparison != null)
+            return (x, y) -> comparison.test(x, y) ? 1 : 0;
+        return switch (operator) {
+            case or -> (x, y) -> x != 0 || y != 0 ? 1 : 0;
+            case and -> (x, y) -> x != 0 && y != 0 ? 1 : 0;
+            case plus -> (x, y) -> x + y;
+            case minus -> (x, y) -> x - y;
+            case multiply -> (x, y) -> x * y;
+            case divide -> (x, y) -> x / y;
+            case modulo -> (x, y) -> x % y;
+            case power -> Function.pow::evaluate;
+            default -> throw new IllegalArgumentException("Unknown operator " + operator);
+        };
+    }
+
+    /** Same as DoubleCompatibleValue.approxEqual */
+    private static boolean approxEqual(double x, double y) {
+        if (y < -1.0 || y > 1.0) {
+            x = Math.nextAfter(x / y, 1.0);
+            y = 1.0;
+        } else {
+            x = Math.nextAfter(x, y);
+        }
+        return x == y;
+    }
+
+    /** The context indexes a compiled expression needs to read and the functions it needs to compute first */
+    static class Dependencies {
+
+        private final Set<Integer> reads = new LinkedHashSet<>();
+
+        /** Functions by context index, in the order they must be computed */
+        private final Map<Integer, CompiledFunction> functions = new LinkedHashMap<>();
+
+        void read(int index) { reads.add(index); }
+
+        void add(CompiledFunction function) {
+            if (functions.containsKey(function.index)) return;
+            reads.addAll(function.dependencies.reads);
+            for (CompiledFunction dependency : function.dependencies.functions.values())
+                functions.putIfAbsent(dependency.index, dependency);
+            functions.put(function.index, function);
+        }
+
+        int[] reads() { return reads.stream().mapToInt(Integer::intValue).toArray(); }
+
+        List<CompiledFunction> functions() { return List.copyOf(functions.values()); }
+
+    }
+
+    /** A referenced function compiled to compute the value at the given index in the bindings */
+    record CompiledFunction(int index, Scalar body, Dependencies dependencies) {}
+
+    /** A compiled scalar expression */
+    abstract static class Scalar {
+
+        /** Returns the value of this given the values at each context index */
+        abstract double evaluate(double[] bindings);
+
+    }
+
+    /** A compiled condition */
+    abstract static class Condition {
+
+        abstract boolean test(double[] bindings);
+
+    }
+
+    @FunctionalInterface
+    private interface Comparison {
+
+        boolean test(double x, double y);
+
+    }
+
+    private static final class Constant extends Scalar {
+
+        private final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        double evaluate(double[] bindings) { return value; }
+
+    }
+
+    private static final class Binding extends Scalar {
+
+        private final int index;
+
+        Binding(int index) { this.index = index; }
+
+        @Override
+        double evaluate(double[] bindings) { return bindings[index]; }
+
+    }
+
+    private static final class Negate extends Scalar {
+
+        private final Scalar value;
+
+        Negate(Scalar value) { this.value = value; }
+
+        @Override
+        double evaluate(double[] bindings) { return -value.evaluate(bindings); }
+
+    }
+
+    private static final class Binary extends Scalar {
+
+        private final Scalar left, right;
+        private final DoubleBinaryOperator operator;
+
+        Binary(Scalar left, Scalar right, DoubleBinaryOperator operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            return operator.applyAsDouble(left.evaluate(bindings), right.evaluate(bindings));
+        }
+
+    }
+
+    private static final class Call extends Scalar {
+
+        private final Function function;
+        private final Scalar x, y;
+
+        Call(Function function, Scalar x, Scalar y) {
+            this.function = function;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        double evaluate(double[] bindings) { return function.evaluate(x.evaluate(bindings), y.evaluate(bindings)); }
+
+    }
+
+    private static final class Sum extends Scalar {
+
+        private final Scalar[] values;
+
+        Sum(Scalar[] values) { this.values = values; }
+
+        @Override
+        double evaluate(double[] bindings) {
+            double sum = 0;
+            for (Scalar value : values)
+                sum += value.evaluate(bindings);
+            return sum;
+        }
+
+    }
+
+    /**
+     * A sum of decision trees where each condition compares a single value to a constant and each leaf is a constant.
+     * The trees are laid out in arrays such that a child can be chosen without branching on the value tested,
+     * which is faster than evaluating nested conditions as there is no good way to predict them.
+     */
+    private static final class Forest extends Scalar {
+
+        /** The index of the root node of each tree */
+        private final int[] roots;
+
+        /** The context index of the value tested in each node */
+        private final int[] variables;
+
+        /** The constant the value is compared to in each node: The condition is true if the value is smaller */
+        private final double[] constants;
+
+        /** Whether a NaN value should make the condition of each node true */
+        private final boolean[] nanIsTrue;
+
+        /** The true and false child of each node: The index of a node or the ones' complement of the index of a leaf */
+        private final int[] children;
+
+        private final double[] leaves;
+
+        private int nodeCount = 0, leafCount = 0;
+
+        Forest(List<Scalar> trees) {
+            int nodes = 0;
+            for (Scalar tree : trees)
+                nodes += conditionsIn(tree);
+            roots = new int[trees.size()];
+            variables = new int[nodes];
+            constants = new double[nodes];
+            nanIsTrue = new boolean[nodes];
+            children = new int[nodes * 2];
+            leaves = new double[nodes + trees.size()];
+            for (int i = 0; i < roots.length; i++)
+                roots[i] = add(trees.get(i));
+        }
+
+        /** Adds a subtree in depth first order and returns the index of its root */
+        private int add(Scalar tree) {
+            if (tree instanceof Constant leaf) {
+                leaves[leafCount] = leaf.value;
+                return ~leafCount++;
+            }
+            IfElse node = (IfElse)tree;
+            int index = nodeCount++;
+            if (node.condition instanceof BindingSmaller smaller) {
+                variables[index] = smaller.index;
+                constants[index] = smaller.value;
+            }
+            else {
+                BindingNotLargerOrEqual notLargerOrEqual = (BindingNotLargerOrEqual)node.condition;
+                variables[index] = notLargerOrEqual.index;
+                constants[index] = notLargerOrEqual.value;
+                nanIsTrue[index] = true;
+            }
+            children[index * 2] = add(node.trueValue);
+            children[index * 2 + 1] = add(node.falseValue);
+            return index;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            double sum = 0;
+            int tree = 0;
+            // Descend 4 trees at the time, as each step in a tree must wait for the previous lookup
+            for (; tree + 4 <= roots.length; tree += 4) {
+                int node0 = roots[tree], node1 = roots[tree + 1], node2 = roots[tree + 2], node3 = roots[tree + 3];
+                while ((node0 & node1 & node2 & node3) >= 0) { // until all have reached a leaf
+                    if (node0 >= 0) node0 = child(node0, bindings);
+                    if (node1 >= 0) node1 = child(node1, bindings);
+                    if (node2 >= 0) node2 = child(node2, bindings);
+                    if (node3 >= 0) node3 = child(node3, bindings);
+                }
+                sum += leaves[~node0];
+                sum += leaves[~node1];
+                sum += leaves[~node2];
+                sum += leaves[~node3];
+            }
+            for (; tree < roots.length; tree++) {
+                int node = roots[tree];
+                while (node >= 0)
+                    node = child(node, bindings);
+                sum += leaves[~node];
+            }
+            return sum;
+        }
+
+        private int child(int node, double[] bindings) {
+            double value = bindings[variables[node]];
+            boolean isTrue = value < constants[node] || (nanIsTrue[node] && Double.isNaN(value));
+            return children[node * 2 + (isTrue ? 0 : 1)];
+        }
+
+        /** Returns whether the given value is a tree which can be part of a forest */
+        static boolean canContain(Scalar value) {
+            if ( ! (value instanceof IfElse node)) return false;
+            return canBeNode(node);
+        }
+
+        private static boolean canBeNode(Scalar value) {
+            if (value instanceof Constant) return true;
+            if ( ! (value instanceof IfElse node)) return false;
+            if ( ! (node.condition instanceof BindingSmaller) && ! (node.condition instanceof BindingNotLargerOrEqual)) return false;
+            return canBeNode(node.trueValue) && canBeNode(node.falseValue);
+        }
+
+        private static int conditionsIn(Scalar tree) {
+            if ( ! (tree instanceof IfElse node)) return 0;
+            return 1 + conditionsIn(node.trueValue) + conditionsIn(node.falseValue);
+        }
+
+    }
+
+    private static final class IfElse extends Scalar {
+
+        private final Condition condition;
+        private final Scalar trueValue, falseValue;
+
+        IfElse(Condition condition, Scalar trueValue, Scalar falseValue) {
+            this.condition = condition;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        @Override
+        double evaluate(double[] bindings) {
+            return condition.test(bindings) ? trueValue.evaluate(bindings) : falseValue.evaluate(bindings);
+        }
+
+    }
+
+    private static final class ConditionValue extends Scalar {
+
+        private final Condition condition;
+
+        ConditionValue(Condition condition) { this.condition = condition; }
+
+        @Override
+        double evaluate(double[] bindings) { return condition.test(bindings) ? 1 : 0; }
+
+    }
+
+    private static final class IsTrue extends Condition {
+
+        private final Scalar value;
+
+        IsTrue(Scalar value) { this.value = value; }
+
+        @Override
+        boolean test(double[] bindings) { return value.evaluate(bindings) != 0; }
+
+    }
+
+    private static final class NotCondition extends Condition {
+
+        private final Condition condition;
+
+        NotCondition(Condition condition) { this.condition = condition; }
+
+        @Override
+        boolean test(double[] bindings) { return ! condition.test(bindings); }
+
+    }
+
+    private static final class Compare extends Condition {
+
+        private final Scalar left, right;
+        private final Comparison comparison;
+
+        Compare(Scalar left, Scalar right, Comparison comparison) {
+            this.left = left;
+            this.right = right;
+            this.comparison = comparison;
+        }
+
+        @Override
+        boolean test(double[] bindings) { return comparison.test(left.evaluate(bindings), right.evaluate(bindings)); }
+
+    }
+
+    private static final class BindingComparison extends Condition {
+
+        private final int index;
+        private final double value;
+        private final Comparison comparison;
+
+        BindingComparison(int index, double value, Comparison comparison) {
+            this.index = index;
+            this.value = value;
+            this.comparison = comparison;
+        }
+
+        @Override
+        boolean test(double[] bindings) { return comparison.test(bindings[index], value); }
+
+    }
+
+    /** The most common condition in decision trees */
+    private static final class BindingSmaller extends Condition {
+
+        private final int index;
+        private final double value;
+
+        BindingSmaller(int index, double value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(double[] bindings) { return bindings[index] < value; }
+
+    }
+
+    /** The inverted condition of decision trees where NaN goes to the true branch */
+    private static final class BindingNotLargerOrEqual extends Condition {
+
+        private final int index;
+        private final double value;
+
+        BindingNotLargerOrEqual(int index, double value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(double[] bindings) { return ! (bindings[index] >= value); }
+
+    }
+
+    private static final class InSet extends Condition {
+
+        private final Scalar value;
+        private final Scalar[] set;
+
+        InSet(Scalar value, Scalar[] set) {
+            this.value = value;
+            this.set = set;
+        }
+
+        @Override
+        boolean test(double[] bindings) {
+            double testValue = value.evaluate(bindings);
+            for (Scalar setValue : set)
+                if (testValue == setValue.evaluate(bindings)) return true;
+            return false;
+        }
+
+    }
+
+}
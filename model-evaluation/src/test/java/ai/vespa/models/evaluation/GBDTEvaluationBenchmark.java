@@ -0,0 +1,75 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of evaluating a generated 1000 tree GBDT model by interpretation and with scalar expressions compiled.
+ *
+ * @author bratseth
+ */
+public class GBDTEvaluationBenchmark {
+
+    private static final int trees = 1000;
+    private static final int depth = 6;
+    private static final int features = 50;
+
+    private final Random random = new Random(42);
+    private final Model model;
+    private final double[][] featureValues = new double[100][features];
+
+    public GBDTEvaluationBenchmark() {
+        StringBuilder forest = new StringBuilder();
+        for (int i = 0; i < trees; i++) {
+            if (i > 0) forest.append(" + ");
+            appendTree(depth, forest);
+        }
+        model = new Model("gbdt", List.of(new ExpressionFunction("forest", RankingExpression.from(forest.toString()))));
+        for (double[] values : featureValues)
+            for (int i = 0; i < features; i++)
+                values[i] = random.nextDouble();
+    }
+
+    private void appendTree(int depth, StringBuilder b) {
+        if (depth == 0) {
+            b.append(random.nextDouble() - 0.5);
+            return;
+        }
+        b.append("if (f").append(random.nextInt(features)).append(" < ").append(random.nextDouble()).append(", ");
+        appendTree(depth - 1, b);
+        b.append(", ");
+        appendTree(depth - 1, b);
+        b.append(")");
+    }
+
+    /** Returns the microseconds per evaluation of the model, excluding binding the feature values */
+    private double microsPerEvaluation(boolean compiled, int evaluations) {
+        double sum = 0;
+        long elapsed = 0;
+        for (int i = 0; i < evaluations; i++) {
+            FunctionEvaluator evaluator = compiled ? model.compiledEvaluatorOf("forest") : model.evaluatorOf("forest");
+            double[] values = featureValues[i % featureValues.length];
+            for (int f = 0; f < features; f++)
+                evaluator.bind("f" + f, values[f]);
+            long start = System.nanoTime();
+            sum += evaluator.evaluate().asDouble();
+            elapsed += System.nanoTime() - start;
+        }
+        if (sum == Double.MAX_VALUE) throw new IllegalStateException(); // use the result
+        return elapsed / 1000.0 / evaluations;
+    }
+
+    public static void main(String[] args) {
+        GBDTEvaluationBenchmark benchmark = new GBDTEvaluationBenchmark();
+        for (boolean compiled : new boolean[] { false, true }) {
+            benchmark.microsPerEvaluation(compiled, 20000); // warmup
+            System.out.printf("%-11s: %7.2f us/evaluation%n",
+                              compiled ? "Compiled" : "Interpreted", benchmark.microsPerEvaluation(compiled, 20000));
+        }
+    }
+
+}
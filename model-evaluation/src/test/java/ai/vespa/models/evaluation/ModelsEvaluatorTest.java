@@ -37,6 +37,15 @@ public class ModelsEvaluatorTest {
         assertEquals(32.0, function.evaluate().asDouble(), delta);
     }
 
+    @Test
+    public void testCompiledEvaluationDependingFunctionTakingArguments() {
+        ModelsEvaluator models = createModels();
+        FunctionEvaluator function = models.compiledEvaluatorOf("macros", "secondphase");
+        function.bind("match", 3);
+        function.bind("rankBoost", 5);
+        assertEquals(32.0, function.evaluate().asDouble(), delta);
+    }
+
     /** Tests a function defined as 4 * (var1 + var2) */
     @Test
     public void testSettingMissingValue() {
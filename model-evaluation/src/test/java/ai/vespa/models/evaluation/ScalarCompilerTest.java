@@ -0,0 +1,93 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that compiled functions produce the same results as interpreted functions.
+ *
+ * @author bratseth
+ */
+public class ScalarCompilerTest {
+
+    private static final double[][] bindings = {
+            { 0, 0, 0 }, { 1, 2, 3 }, { 0.25, 0.75, 1 }, { -3.5, 0.1, 2 }, { 2, 2, 0.5 }, { Double.NaN, 0.3, 1 }
+    };
+
+    @Test
+    public void testScalarExpressions() {
+        assertCompiled("x + y * 2 - z / 4");
+        assertCompiled("(x + y) * (2 - z) / 4 % 3");
+        assertCompiled("x ^ 2 ^ 0.5 + y ^ z");
+        assertCompiled("-x + -(y - z)");
+        assertCompiled("if (x < 0.5, y, z)");
+        assertCompiled("if (x >= y, 1, 2) + if (x ~= y, 3, 4) + if (x != y, 5, 6)");
+        assertCompiled("if (x > y && z <= 1 || x == 0, x + y, z)");
+        assertCompiled("if (!(x > y), 1, 0) + !(z < 1)");
+        assertCompiled("if (x in [0, 1, 2], 1, 0) + if (y in [2, 0.75], 1, 0)");
+        assertCompiled("sigmoid(x) * exp(y) - max(x, z) + min(y, 0.5) + pow(z, 2) + fmod(x, 3) + log10(z + 1)");
+        assertCompiled("x > y");
+    }
+
+    @Test
+    public void testDecisionTrees() {
+        assertCompiled("if (x < 0.3, if (y < 0.5, 1.5, 2.5), if (z in [1, 2], 3.5, 4.5)) + " +
+                       "if (!(y >= 0.2), -5, if (z == 0.5, 6, 7)) + " +
+                       "if (y < 1, 8, 9)");
+
+        // Sums of trees are optimized into forests when the model is created, which are then compiled from that form
+        Model model = new Model("test", List.of(new ExpressionFunction("test", RankingExpression.from("if (x < 0.3, 1, 2) + if (y < 0.5, 3, 4)"))));
+        assertTrue(model.evaluatorOf("test").function().getBody().getRoot() instanceof GBDTForestNode);
+        assertEquals(5.0, model.compiledEvaluatorOf("test").bind("x", 0.1).bind("y", 0.7).evaluate().asDouble(), 0);
+    }
+
+    @Test
+    public void testTensorExpressionsAreInterpreted() {
+        String expression = "reduce(t * x, sum) + if (x < 1, y * 2, z)";
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from(expression))
+                                              .withArgument("t", TensorType.fromSpec("tensor(d0[2])"));
+        Model model = new Model("test", List.of(function));
+        for (double[] values : bindings) {
+            Tensor t = Tensor.from("tensor(d0[2]):[1, 2]");
+            FunctionEvaluator interpreted = bind(model.evaluatorOf("test"), values).bind("t", t);
+            FunctionEvaluator compiled = bind(model.compiledEvaluatorOf("test"), values).bind("t", t);
+            ExpressionNode root = compiled.function().getBody().getRoot();
+            assertFalse(root instanceof CompiledScalarNode);
+            assertTrue(root.toString().equals(expression));
+            assertEquals(interpreted.evaluate(), compiled.evaluate());
+        }
+    }
+
+    private static void assertCompiled(String expression) {
+        Model model = new Model("test", List.of(new ExpressionFunction("test", RankingExpression.from(expression))));
+        for (double[] values : bindings) {
+            FunctionEvaluator interpreted = bind(model.evaluatorOf("test"), values);
+            FunctionEvaluator compiled = bind(model.compiledEvaluatorOf("test"), values);
+            assertTrue(compiled.function().getBody().getRoot() instanceof CompiledScalarNode);
+            assertEquals(expression + " with x=" + values[0] + ", y=" + values[1] + ", z=" + values[2],
+                         interpreted.evaluate().asDouble(), compiled.evaluate().asDouble(), 0);
+        }
+    }
+
+    private static FunctionEvaluator bind(FunctionEvaluator evaluator, double[] values) {
+        String[] names = { "x", "y", "z" };
+        for (int i = 0; i < names.length; i++) {
+            if (evaluator.context().arguments().contains(names[i]))
+                evaluator.bind(names[i], values[i]);
+        }
+        return evaluator;
+    }
+
+}
@@ -0,0 +1,59 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.List;
+
+/**
+ * Conversions between per-text token sequences and the padded batch tensors evaluated by transformer models.
+ *
+ * @author bratseth
+ */
+class BatchTensors {
+
+    private BatchTensors() {}
+
+    /**
+     * Returns a tensor of type tensor&lt;float&gt;(d0[sequences.size()],d1[length]) containing the given sequences,
+     * each padded with zeroes to the given length.
+     */
+    static IndexedTensor padded(List<? extends List<? extends Number>> sequences, int length) {
+        TensorType type = new TensorType.Builder(TensorType.Value.FLOAT).indexed("d0", sequences.size())
+                                                                       .indexed("d1", length).build();
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
+        for (int i = 0; i < sequences.size(); ++i) {
+            List<? extends Number> sequence = sequences.get(i);
+            for (int j = 0; j < sequence.size(); ++j)
+                builder.cell(sequence.get(j).floatValue(), i, j);
+            for (int j = sequence.size(); j < length; ++j)
+                builder.cell(0f, i, j);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the model output of the given batch entry as a batch of one, without the padded tokens.
+     * The output must have the shape [batch, sequence, embedding] or [batch, embedding].
+     */
+    static IndexedTensor unpad(IndexedTensor batchOutput, int batchIndex, int sequenceLength) {
+        long[] shape = batchOutput.shape();
+        var dimensions = batchOutput.type().dimensions();
+        var typeBuilder = new TensorType.Builder(batchOutput.type().valueType()).indexed(dimensions.get(0).name(), 1);
+        if (shape.length == 2) {
+            typeBuilder.indexed(dimensions.get(1).name(), shape[1]);
+            IndexedTensor.Builder builder = IndexedTensor.Builder.of(typeBuilder.build());
+            for (long d = 0; d < shape[1]; d++)
+                builder.cell(batchOutput.get(batchIndex, d), 0, d);
+            return builder.build();
+        }
+        typeBuilder.indexed(dimensions.get(1).name(), sequenceLength).indexed(dimensions.get(2).name(), shape[2]);
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(typeBuilder.build());
+        for (long token = 0; token < sequenceLength; token++)
+            for (long d = 0; d < shape[2]; d++)
+                builder.cell(batchOutput.get(batchIndex, token, d), 0, token, d);
+        return builder.build();
+    }
+
+}
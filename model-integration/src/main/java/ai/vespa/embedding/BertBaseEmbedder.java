@@ -14,7 +14,9 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -41,10 +43,12 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
     private final String tokenTypeIdsName;
     private final String outputName;
     private final PoolingStrategy poolingStrategy;
+    private final int    batchingMaxSize;
 
     private final Embedder.Runtime runtime;
     private final WordPieceEmbedder tokenizer;
     private final OnnxEvaluator evaluator;
+    private final EmbeddingCache<EmbedderCacheKey, EmbeddingResult> cache;
 
     @Inject
     public BertBaseEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, BertBaseEmbedderConfig config) {
@@ -57,6 +61,7 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         tokenTypeIdsName = config.transformerTokenTypeIds();
         outputName = config.transformerOutput();
         poolingStrategy = PoolingStrategy.fromString(config.poolingStrategy().toString());
+        batchingMaxSize = config.batchingMaxSize();
 
         OnnxEvaluatorOptions.Builder optionsBuilder = new OnnxEvaluatorOptions.Builder()
                 .setExecutionMode(config.onnxExecutionMode().toString())
@@ -67,6 +72,8 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         tokenizer = new WordPieceEmbedder.Builder(config.tokenizerVocab().toString()).build();
         var resolver = new OnnxExternalDataResolver();
         this.evaluator = onnx.evaluatorOf(resolver.resolveOnnxModel(config.transformerModelReference()).toString(), options);
+        cache = new EmbeddingCache<>(config.cacheMaxBytes(), Duration.ofMillis((long)(config.cacheTtlSeconds() * 1000)),
+                                     EmbeddingResult::sizeInBytes, runtime);
 
         validateModel();
     }
@@ -102,18 +109,65 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public Tensor embed(String text, Context context, TensorType type) {
-        var start = System.nanoTime();
+        validateTargetType(type);
+        var key = new EmbedderCacheKey(context.getEmbedderId(), text);
+        var result = cache.computeIfAbsent(key, context, () -> evaluate(List.of(text), context).get(0));
+        return poolingStrategy.toSentenceEmbedding(type, result.tokenEmbeddings(), result.attentionMask());
+    }
+
+    /**
+     * Embeds the given texts, evaluating those not already cached in batches of at most batchingMaxSize,
+     * or one by one if batching is not enabled.
+     */
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType type) {
+        if (batchingMaxSize <= 1) return Embedder.super.embed(texts, context, type);
+
+        validateTargetType(type);
+        var results = new EmbeddingResult[texts.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>(); // each distinct text is evaluated once
+        for (int i = 0; i < texts.size(); i++) {
+            results[i] = cache.getIfPresent(new EmbedderCacheKey(context.getEmbedderId(), texts.get(i)), context);
+            if (results[i] == null)
+                missing.computeIfAbsent(texts.get(i), __ -> new ArrayList<>()).add(i);
+        }
+        List<String> missingTexts = List.copyOf(missing.keySet());
+        for (int start = 0; start < missingTexts.size(); start += batchingMaxSize) {
+            var batch = missingTexts.subList(start, Math.min(start + batchingMaxSize, missingTexts.size()));
+            var evaluated = evaluate(batch, context);
+            for (int i = 0; i < batch.size(); i++) {
+                cache.put(new EmbedderCacheKey(context.getEmbedderId(), batch.get(i)), evaluated.get(i), context);
+                for (int index : missing.get(batch.get(i)))
+                    results[index] = evaluated.get(i);
+            }
+        }
+        List<Tensor> embeddings = new ArrayList<>(results.length);
+        for (var result : results)
+            embeddings.add(poolingStrategy.toSentenceEmbedding(type, result.tokenEmbeddings(), result.attentionMask()));
+        return embeddings;
+    }
+
+    private static void validateTargetType(TensorType type) {
         if (type.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': should only have one dimension.");
         }
         if (!type.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': dimension should be indexed.");
         }
-        List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
-        runtime.sampleSequenceLength(tokens.size(), context);
-        var embedding = embedTokens(tokens, type);
-        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
-        return embedding;
+    }
+
+    private List<EmbeddingResult> evaluate(List<String> texts, Context context) {
+        var start = System.nanoTime();
+        List<List<Integer>> tokens = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            tokens.add(embedWithSeparatorTokens(text, context, maxTokens));
+            runtime.sampleSequenceLength(tokens.get(tokens.size() - 1).size(), context);
+        }
+        var results = evaluateTokens(tokens);
+        double latency = (System.nanoTime() - start)/1_000_000d;
+        for (int i = 0; i < texts.size(); i++)
+            runtime.sampleEmbeddingLatency(latency, context);
+        return results;
     }
 
     @Override public void deconstruct() { evaluator.close(); }
@@ -121,25 +175,37 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
     private List<Integer> tokenize(String text, Context ctx) { return tokenizer.embed(text, ctx); }
 
     Tensor embedTokens(List<Integer> tokens, TensorType type) {
-        Tensor inputSequence = createTensorRepresentation(tokens, "d1");
+        var result = evaluateTokens(List.of(tokens)).get(0);
+        return poolingStrategy.toSentenceEmbedding(type, result.tokenEmbeddings(), result.attentionMask());
+    }
+
+    /** Evaluates the model once for all the given token sequences, padding all to the longest sequence */
+    private List<EmbeddingResult> evaluateTokens(List<List<Integer>> tokens) {
+        int maxLength = tokens.stream().mapToInt(List::size).max().orElse(0);
+        Tensor inputSequence = BatchTensors.padded(tokens, maxLength);
         Tensor attentionMask = createAttentionMask(inputSequence);
         Tensor tokenTypeIds = createTokenTypeIds(inputSequence);
 
 
         Map<String, Tensor> inputs;
         if (!"".equals(tokenTypeIdsName)) {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                                            attentionMaskName, attentionMask.expand("d0"),
-                                            tokenTypeIdsName, tokenTypeIds.expand("d0"));
+            inputs = Map.of(inputIdsName, inputSequence,
+                                            attentionMaskName, attentionMask,
+                                            tokenTypeIdsName, tokenTypeIds);
         } else {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                                 attentionMaskName, attentionMask.expand("d0"));
+            inputs = Map.of(inputIdsName, inputSequence,
+                                 attentionMaskName, attentionMask);
         }
         Map<String, Tensor> outputs = evaluator.evaluate(inputs);
 
-        Tensor tokenEmbeddings = outputs.get(outputName);
+        IndexedTensor tokenEmbeddings = (IndexedTensor) outputs.get(outputName);
 
-        return poolingStrategy.toSentenceEmbedding(type, tokenEmbeddings, attentionMask);
+        List<EmbeddingResult> results = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            Tensor output = tokens.size() == 1 ? tokenEmbeddings : BatchTensors.unpad(tokenEmbeddings, i, tokens.get(i).size());
+            results.add(new EmbeddingResult(output, createAttentionMask(createTensorRepresentation(tokens.get(i), "d1"))));
+        }
+        return results;
     }
 
     private List<Integer> embedWithSeparatorTokens(String text, Context context, int maxLength) {
@@ -172,4 +238,12 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         return d.map((x) -> 0);  // Assume only one token type
     }
 
+    record EmbedderCacheKey(String embedderId, Object embeddedValue) { }
+
+    record EmbeddingResult(Tensor tokenEmbeddings, Tensor attentionMask) {
+
+        long sizeInBytes() { return EmbeddingCache.sizeOf(tokenEmbeddings) + EmbeddingCache.sizeOf(attentionMask); }
+
+    }
+
 }
@@ -21,6 +21,7 @@ import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -63,6 +64,7 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
 
     private final long documentSequenceToken;
     private final Set<Long> skipTokens;
+    private final EmbeddingCache<EmbedderCacheKey, EmbeddingResult> cache;
 
     public record TransformerInput(List<Long> inputIds, List<Long> attentionMask) {}
 
@@ -110,6 +112,8 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
         var onnxOpts = optionsBuilder.build();
         var resolver = new OnnxExternalDataResolver();
         evaluator = onnx.evaluatorOf(resolver.resolveOnnxModel(config.transformerModelReference()).toString(), onnxOpts);
+        cache = new EmbeddingCache<>(config.cacheMaxBytes(), Duration.ofMillis((long)(config.cacheTtlSeconds() * 1000)),
+                                     EmbeddingResult::sizeInBytes, runtime);
 
         validateModel();
     }
@@ -199,15 +203,15 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
     }
 
     /**
-     * Evaluate the embedding model if the result is not present in the context cache.
+     * Evaluate the embedding model if the result is not present in the context cache or the cross-request cache.
      *
      * @param context the context accompanying the request
      * @param text the text that is embedded
      * @return the model output
      */
     protected EmbeddingResult lookupOrEvaluate(Context context, String text, boolean isQuery) {
-        var key = new EmbedderCacheKey(context.getEmbedderId(), text);
-        return context.computeCachedValueIfAbsent(key, () -> evaluate(context, text, isQuery));
+        var key = new EmbedderCacheKey(context.getEmbedderId(), text, isQuery);
+        return context.computeCachedValueIfAbsent(key, () -> cache.computeIfAbsent(key, context, () -> evaluate(context, text, isQuery)));
     }
 
     private EmbeddingResult evaluate(Context context, String text, boolean isQuery) {
@@ -313,8 +317,12 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
         return builder.build();
     }
 
-    record EmbedderCacheKey(String embedderId, Object embeddedValue) { }
+    record EmbedderCacheKey(String embedderId, Object embeddedValue, boolean isQuery) { }
 
-    record EmbeddingResult(int inputIdSize, Map<String, Tensor> outputs) { }
+    record EmbeddingResult(int inputIdSize, Map<String, Tensor> outputs) {
+
+        long sizeInBytes() { return outputs.values().stream().mapToLong(EmbeddingCache::sizeOf).sum(); }
+
+    }
 
 }
@@ -0,0 +1,126 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects embedding requests made concurrently by different threads into batches, which are evaluated
+ * together by a single call to the given batch evaluator.
+ * A batch is evaluated when it has reached the max batch size, or when the first request in it
+ * has waited for the max delay, whichever comes first.
+ *
+ * @author bratseth
+ */
+class EmbeddingBatcher<REQUEST, RESULT> implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(EmbeddingBatcher.class.getName());
+
+    private final int maxSize;
+    private final long maxDelayNanos;
+    private final Function<List<REQUEST>, List<RESULT>> batchEvaluator;
+    private final LinkedBlockingQueue<Pending<REQUEST, RESULT>> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a batcher
+     *
+     * @param name the name of the embedder using this, used to name the worker thread
+     * @param maxSize the max number of requests to evaluate in one batch
+     * @param maxDelay the max time to wait for more requests after the first request in a batch is received
+     * @param batchEvaluator evaluates a batch of requests, returning the results in the same order as the requests
+     */
+    EmbeddingBatcher(String name, int maxSize, Duration maxDelay, Function<List<REQUEST>, List<RESULT>> batchEvaluator) {
+        if (maxSize < 1) throw new IllegalArgumentException("Max batch size must be at least 1, got " + maxSize);
+        this.maxSize = maxSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.batchEvaluator = batchEvaluator;
+        this.worker = new DaemonThreadFactory("embedding-batcher-" + name + "-").newThread(this::run);
+        this.worker.start();
+    }
+
+    /** Evaluates the given request as part of a batch, blocking until the result is available */
+    RESULT evaluate(REQUEST request) {
+        if (closed) return batchEvaluator.apply(List.of(request)).get(0);
+
+        var pending = new Pending<REQUEST, RESULT>(request, new CompletableFuture<>());
+        queue.add(pending);
+        if (closed && queue.remove(pending)) // closed concurrently: the worker may be gone
+            return batchEvaluator.apply(List.of(request)).get(0);
+        try {
+            return pending.result().join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Pending<REQUEST, RESULT>> batch = new ArrayList<>(maxSize);
+        try {
+            while ( ! closed || ! queue.isEmpty()) {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxSize) {
+                    queue.drainTo(batch, maxSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxSize || remaining <= 0) break;
+                    var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                evaluate(batch);
+                batch.clear();
+            }
+        }
+        catch (InterruptedException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            queue.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    private void evaluate(List<Pending<REQUEST, RESULT>> batch) {
+        try {
+            List<RESULT> results = batchEvaluator.apply(batch.stream().map(Pending::request).toList());
+            if (results.size() != batch.size())
+                throw new IllegalStateException("Expected " + batch.size() + " results from batch evaluation, got " +
+                                                results.size());
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).result().complete(results.get(i));
+        }
+        catch (RuntimeException | Error e) {
+            log.log(Level.FINE, "Batch evaluation of " + batch.size() + " requests failed", e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+    }
+
+    /** Stops accepting requests into batches, after completing the requests already received */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Pending<REQUEST, RESULT>(REQUEST request, CompletableFuture<RESULT> result) { }
+
+}
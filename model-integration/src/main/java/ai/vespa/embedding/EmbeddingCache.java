@@ -0,0 +1,137 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache of embedding results which lives across requests, bounded by the estimated total size in bytes
+ * of the cached values, and by the time since each value was computed.
+ * Lookups, misses and evictions are reported through the given {@link Embedder.Runtime}.
+ *
+ * This is meant to be used in addition to the per-request cache of {@link Embedder.Context}:
+ * The key must include everything which influences the cached value, such as the embedder id and the text.
+ *
+ * @author bratseth
+ */
+class EmbeddingCache<KEY, VALUE> {
+
+    private final Cache<KEY, VALUE> cache;
+    private final Embedder.Runtime runtime;
+    private final AtomicLong pendingEvictions = new AtomicLong();
+
+    /**
+     * Creates a new cache
+     *
+     * @param maxBytes the max total estimated size of the cached values, or 0 to disable caching
+     * @param ttl the max time to keep each value after it is computed
+     * @param sizeOf returns the estimated size in bytes of a value
+     * @param runtime the runtime receiving cache metrics
+     */
+    EmbeddingCache(long maxBytes, Duration ttl, ToLongFunction<VALUE> sizeOf, Embedder.Runtime runtime) {
+        this.runtime = runtime;
+        if (maxBytes <= 0 || ttl.isZero() || ttl.isNegative()) {
+            this.cache = null;
+            return;
+        }
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(1) // Each segment has its own share of the max weight, so more would lower the max value size
+                .maximumWeight(maxBytes)
+                .weigher((KEY key, VALUE value) -> (int) Math.min(Integer.MAX_VALUE, sizeOf.applyAsLong(value)))
+                .expireAfterWrite(ttl)
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE || notification.getCause() == RemovalCause.EXPIRED)
+                        pendingEvictions.incrementAndGet();
+                })
+                .build();
+    }
+
+    /**
+     * Returns the value cached for the given key, computing and caching it if absent.
+     * If this cache is disabled, the value is always computed.
+     */
+    VALUE computeIfAbsent(KEY key, Embedder.Context context, Supplier<VALUE> computer) {
+        if (cache == null) return computer.get();
+
+        VALUE value = cache.getIfPresent(key);
+        if (value != null) {
+            runtime.sampleCacheHit(context);
+            return value;
+        }
+        runtime.sampleCacheMiss(context);
+        try {
+            return cache.get(key, computer::get);
+        }
+        catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            reportEvictions(context);
+        }
+    }
+
+    /** Returns the value cached for the given key, or null if it is absent or this cache is disabled */
+    VALUE getIfPresent(KEY key, Embedder.Context context) {
+        if (cache == null) return null;
+
+        VALUE value = cache.getIfPresent(key);
+        if (value != null)
+            runtime.sampleCacheHit(context);
+        else
+            runtime.sampleCacheMiss(context);
+        return value;
+    }
+
+    /** Adds a value to this cache, if enabled */
+    void put(KEY key, VALUE value, Embedder.Context context) {
+        if (cache == null) return;
+
+        cache.put(key, value);
+        reportEvictions(context);
+    }
+
+    private void reportEvictions(Embedder.Context context) {
+        long evictions = pendingEvictions.getAndSet(0);
+        if (evictions > 0)
+            runtime.sampleCacheEvictions(evictions, context);
+    }
+
+    /** Returns whether this cache is enabled */
+    boolean isEnabled() { return cache != null; }
+
+    /** Returns the number of entries currently in this cache */
+    long size() { return cache == null ? 0 : cache.size(); }
+
+    /** Removes all entries from this cache */
+    void invalidateAll() {
+        if (cache != null)
+            cache.invalidateAll();
+    }
+
+    /** Returns an estimate of the number of bytes used to hold the cell values of the given tensor */
+    static long sizeOf(Tensor tensor) {
+        if (tensor == null) return 0;
+        long bytesPerCell = switch (tensor.type().valueType()) {
+            case DOUBLE -> 8;
+            case FLOAT -> 4;
+            case BFLOAT16 -> 2;
+            case INT8 -> 1;
+        };
+        // Mapped cells also hold an address
+        long bytesPerAddress = tensor.type().hasMappedDimensions() ? 64 : 0;
+        return tensor.size() * (bytesPerCell + bytesPerAddress);
+    }
+
+}
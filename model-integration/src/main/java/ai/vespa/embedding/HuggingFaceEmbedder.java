@@ -10,6 +10,7 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.huggingface.HuggingFaceEmbedderConfig;
+import com.yahoo.language.huggingface.Encoding;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.IndexedTensor;
@@ -17,6 +18,11 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.Tensors;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -37,6 +43,9 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
     private final PoolingStrategy poolingStrategy;
+    private final EmbeddingCache<HFEmbedderCacheKey, HFEmbeddingResult> cache;
+    private final int batchingMaxSize;
+    private final EmbeddingBatcher<EvaluationRequest, HFEmbeddingResult> batcher;
 
     private final String prependQuery;
 
@@ -77,7 +86,14 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         var resolver = new OnnxExternalDataResolver(modelHelper);
         evaluator = onnx.evaluatorOf(resolver.resolveOnnxModel(config.transformerModelReference()).toString(), onnxOpts);
         tokenTypeIdsName = detectTokenTypeIds(config, evaluator);
+        cache = new EmbeddingCache<>(config.cacheMaxBytes(), Duration.ofMillis((long)(config.cacheTtlSeconds() * 1000)),
+                                     HFEmbeddingResult::sizeInBytes, runtime);
         validateModel();
+        batchingMaxSize = config.batchingMaxSize();
+        batcher = batchingMaxSize > 1
+                  ? new EmbeddingBatcher<>("hugging-face", batchingMaxSize,
+                                           Duration.ofMillis(config.batchingMaxDelayMillis()), this::evaluate)
+                  : null;
     }
 
     private static String detectTokenTypeIds(HuggingFaceEmbedderConfig config, OnnxEvaluator evaluator) {
@@ -121,19 +137,37 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public void deconstruct() {
+        if (batcher != null)
+            batcher.close();
         evaluator.close();
         tokenizer.close();
     }
 
     @Override
     public Tensor embed(String text, Context context, TensorType targetType) {
+        validateTargetType(targetType);
+        return toTensor(lookupOrEvaluate(context, prependInstruction(text, context)), targetType);
+    }
+
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType targetType) {
+        if (batchingMaxSize <= 1) return Embedder.super.embed(texts, context, targetType);
+
+        validateTargetType(targetType);
+        List<String> inputs = texts.stream().map(text -> prependInstruction(text, context)).toList();
+        return lookupOrEvaluate(context, inputs).stream().map(result -> toTensor(result, targetType)).toList();
+    }
+
+    private static void validateTargetType(TensorType targetType) {
         if (targetType.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + targetType + "': should only have one dimension.");
         }
         if (!targetType.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + targetType + "': dimension should be indexed.");
         }
-        var embeddingResult = lookupOrEvaluate(context, prependInstruction(text, context));
+    }
+
+    private Tensor toTensor(HFEmbeddingResult embeddingResult, TensorType targetType) {
         IndexedTensor tokenEmbeddings = embeddingResult.output;
         if (targetType.valueType() == TensorType.Value.INT8) {
             return binaryQuantization(embeddingResult, targetType);
@@ -156,26 +190,67 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
 
     private HuggingFaceEmbedder.HFEmbeddingResult lookupOrEvaluate(Context context, String text) {
         var key = new HFEmbedderCacheKey(context.getEmbedderId(), text);
-        return context.computeCachedValueIfAbsent(key, () -> evaluate(context, text));
+        return context.computeCachedValueIfAbsent(key, () -> cache.computeIfAbsent(key, context, () -> evaluate(context, text)));
+    }
+
+    /** Returns the results of the given texts, evaluating those not already cached in batches of at most the max batch size */
+    private List<HFEmbeddingResult> lookupOrEvaluate(Context context, List<String> texts) {
+        var results = new HFEmbeddingResult[texts.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            var key = new HFEmbedderCacheKey(context.getEmbedderId(), texts.get(i));
+            var result = (HFEmbeddingResult) context.getCachedValue(key);
+            if (result == null) {
+                result = cache.getIfPresent(key, context);
+                if (result != null)
+                    context.putCachedValue(key, result);
+            }
+            if (result != null)
+                results[i] = result;
+            else
+                missing.computeIfAbsent(texts.get(i), __ -> new ArrayList<>()).add(i);
+        }
+        if ( ! missing.isEmpty()) {
+            var requests = missing.keySet().stream().map(text -> new EvaluationRequest(context, text)).toList();
+            List<HFEmbeddingResult> evaluated = new ArrayList<>(requests.size());
+            for (int start = 0; start < requests.size(); start += batchingMaxSize)
+                evaluated.addAll(evaluate(requests.subList(start, Math.min(start + batchingMaxSize, requests.size()))));
+            int i = 0;
+            for (var entry : missing.entrySet()) {
+                var result = evaluated.get(i++);
+                var key = new HFEmbedderCacheKey(context.getEmbedderId(), entry.getKey());
+                context.putCachedValue(key, result);
+                cache.put(key, result, context);
+                for (int index : entry.getValue())
+                    results[index] = result;
+            }
+        }
+        return Arrays.asList(results);
     }
 
     private HuggingFaceEmbedder.HFEmbeddingResult evaluate(Context context, String text) {
+        var request = new EvaluationRequest(context, text);
+        return batcher != null ? batcher.evaluate(request) : evaluate(List.of(request)).get(0);
+    }
+
+    /** Evaluates the model once for all the given requests, padding all inputs to the longest token sequence */
+    private List<HFEmbeddingResult> evaluate(List<EvaluationRequest> requests) {
         var start = System.nanoTime();
-        var encoding = tokenizer.encode(text, context.getLanguage());
-        runtime.sampleSequenceLength(encoding.ids().size(), context);
-        Tensor inputSequence = createTensorRepresentation(encoding.ids(), "d1");
-        Tensor attentionMask = createTensorRepresentation(encoding.attentionMask(), "d1");
-        Tensor tokenTypeIds = tokenTypeIdsName.isEmpty() ? null : createTensorRepresentation(encoding.typeIds(), "d1");
-
-        Map<String, Tensor> inputs;
-        if (tokenTypeIdsName.isEmpty() || tokenTypeIds.isEmpty()) {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                    attentionMaskName, attentionMask.expand("d0"));
-        } else {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                    attentionMaskName, attentionMask.expand("d0"),
-                    tokenTypeIdsName, tokenTypeIds.expand("d0"));
+        List<Encoding> encodings = new ArrayList<>(requests.size());
+        int maxLength = 0;
+        for (var request : requests) {
+            var encoding = tokenizer.encode(request.text(), request.context().getLanguage());
+            runtime.sampleSequenceLength(encoding.ids().size(), request.context());
+            encodings.add(encoding);
+            maxLength = Math.max(maxLength, encoding.ids().size());
         }
+
+        Map<String, Tensor> inputs = new HashMap<>();
+        inputs.put(inputIdsName, BatchTensors.padded(encodings.stream().map(Encoding::ids).toList(), maxLength));
+        inputs.put(attentionMaskName, BatchTensors.padded(encodings.stream().map(Encoding::attentionMask).toList(), maxLength));
+        if ( ! tokenTypeIdsName.isEmpty() && encodings.stream().anyMatch(encoding -> ! encoding.typeIds().isEmpty()))
+            inputs.put(tokenTypeIdsName, BatchTensors.padded(encodings.stream().map(Encoding::typeIds).toList(), maxLength));
+
         IndexedTensor tokenEmbeddings = (IndexedTensor) evaluator.evaluate(inputs).get(outputName);
         long[] resultShape = tokenEmbeddings.shape();
         //shape batch, sequence, embedding dimensionality
@@ -187,8 +262,19 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
             throw new IllegalArgumentException("Expected 3 output dimensions for output name '" +
                                                outputName + "': [batch, sequence, embedding], got " + resultShape.length);
         }
-        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
-        return new HFEmbeddingResult(tokenEmbeddings, attentionMask, context.getEmbedderId());
+
+        List<HFEmbeddingResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            var encoding = encodings.get(i);
+            IndexedTensor output = requests.size() == 1 ? tokenEmbeddings
+                                                        : BatchTensors.unpad(tokenEmbeddings, i, encoding.ids().size());
+            Tensor attentionMask = createTensorRepresentation(encoding.attentionMask(), "d1");
+            results.add(new HFEmbeddingResult(output, attentionMask, requests.get(i).context().getEmbedderId()));
+        }
+        double latency = (System.nanoTime() - start)/1_000_000d;
+        for (var request : requests)
+            runtime.sampleEmbeddingLatency(latency, request.context());
+        return results;
     }
 
     private Tensor binaryQuantization(HuggingFaceEmbedder.HFEmbeddingResult embeddingResult, TensorType targetType) {
@@ -221,7 +307,13 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         return builder.build();
     }
 
-    protected record HFEmbeddingResult(IndexedTensor output, Tensor attentionMask, String embedderId) {}
+    private record EvaluationRequest(Context context, String text) {}
+
+    protected record HFEmbeddingResult(IndexedTensor output, Tensor attentionMask, String embedderId) {
+
+        long sizeInBytes() { return EmbeddingCache.sizeOf(output) + EmbeddingCache.sizeOf(attentionMask); }
+
+    }
     protected record HFEmbedderCacheKey(String embedderId, Object embeddedValue) { }
 
 }
@@ -18,6 +18,7 @@ import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.functions.Reduce;
 
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +42,7 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
     private final boolean useCustomReduce;
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
+    private final EmbeddingCache<EmbedderCacheKey, Tensor> cache;
 
     @Inject
     public SpladeEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, SpladeEmbedderConfig config) {
@@ -78,6 +80,8 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
         var onnxOpts = optionsBuilder.build();
         var resolver = new OnnxExternalDataResolver();
         evaluator = onnx.evaluatorOf(resolver.resolveOnnxModel(config.transformerModelReference()).toString(), onnxOpts);
+        cache = new EmbeddingCache<>(config.cacheMaxBytes(), Duration.ofMillis((long)(config.cacheTtlSeconds() * 1000)),
+                                     EmbeddingCache::sizeOf, runtime);
         validateModel();
     }
 
@@ -117,6 +121,11 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
             throw new IllegalArgumentException("Invalid splade embedder tensor destination. " +
                                                "Wanted a mapped 1-d tensor, got " + tensorType);
         }
+        var key = new EmbedderCacheKey(context.getEmbedderId(), text, tensorType);
+        return cache.computeIfAbsent(key, context, () -> evaluate(text, context, tensorType));
+    }
+
+    private Tensor evaluate(String text, Context context, TensorType tensorType) {
         var start = System.nanoTime();
 
         var encoding = tokenizer.encode(text, context.getLanguage());
@@ -237,4 +246,6 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
         tokenizer.close();
     }
 
+    record EmbedderCacheKey(String embedderId, Object embeddedValue, TensorType tensorType) { }
+
 }
@@ -6,17 +6,28 @@ import com.yahoo.config.ModelReference;
 import com.yahoo.embedding.BertBaseEmbedderConfig;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
+import onnx.Onnx;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assume.assumeTrue;
 
 public class BertBaseEmbedderTest {
 
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testEmbedder() {
         String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
@@ -36,6 +47,57 @@ public class BertBaseEmbedderTest {
         assertEquals(embedding, expected);
     }
 
+    @Test
+    public void testBatchEmbedding() throws IOException {
+        String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
+        String modelPath = writeTokenEmbeddingModel(tmp.newFile("token_embedding.onnx").toPath());
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+
+        BertBaseEmbedderConfig.Builder builder = new BertBaseEmbedderConfig.Builder();
+        builder.tokenizerVocab(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        builder.transformerStartSequenceToken(1); // the model has a vocabulary of 20 tokens
+        builder.transformerEndSequenceToken(2);
+        builder.batchingMaxSize(2);
+        BertBaseEmbedder embedder = newBertBaseEmbedder(builder.build());
+
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        Embedder.Context context = new Embedder.Context("schema.indexing");
+        List<String> texts = List.of("a b", "a b c d e f", "a", "a b");
+        List<Tensor> embeddings = embedder.embed(texts, context, destType);
+        assertEquals(texts.size(), embeddings.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Tensor expected = embedder.embed(texts.get(i), context, destType);
+            assertEquals(destType, embeddings.get(i).type());
+            for (int j = 0; j < 7; j++)
+                assertEquals("Cell " + j + " of '" + texts.get(i) + "'",
+                             expected.get(TensorAddress.of(j)), embeddings.get(i).get(TensorAddress.of(j)), 1e-5);
+        }
+        assertNotEquals(embeddings.get(0), embeddings.get(1));
+    }
+
+    @Test
+    public void testArraysAreEmbeddedOneByOneWithoutBatching() {
+        String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
+        String modelPath = "src/test/models/onnx/transformer/dummy_transformer.onnx";
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+
+        BertBaseEmbedderConfig.Builder builder = new BertBaseEmbedderConfig.Builder();
+        builder.tokenizerVocab(ModelReference.valueOf(vocabPath));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        builder.transformerStartSequenceToken(1); // the model has a vocabulary of 20 tokens
+        builder.transformerEndSequenceToken(2);
+        BertBaseEmbedder embedder = newBertBaseEmbedder(builder.build());
+
+        // The dummy transformer attends to padding, so these would differ from single embeddings if padded in a batch
+        TensorType destType = TensorType.fromSpec("tensor<float>(x[7])");
+        Embedder.Context context = new Embedder.Context("schema.indexing");
+        List<String> texts = List.of("a b", "a b c d e f", "a");
+        List<Tensor> embeddings = embedder.embed(texts, context, destType);
+        for (int i = 0; i < texts.size(); i++)
+            assertEquals(embedder.embed(texts.get(i), context, destType), embeddings.get(i));
+    }
+
     @Test
     public void testEmbedderWithoutTokenTypeIdsName() {
         String vocabPath = "src/test/models/onnx/transformer/dummy_vocab.txt";
@@ -70,6 +132,54 @@ public class BertBaseEmbedderTest {
         assertThrows(IllegalArgumentException.class, () -> { newBertBaseEmbedder(builder.build()); });
     }
 
+    /**
+     * Writes a model which looks up an embedding for each token, such that, unlike the dummy transformer,
+     * the output of each token is independent of the padding added to the other inputs in a batch.
+     */
+    private static String writeTokenEmbeddingModel(Path path) throws IOException {
+        int vocabularySize = 20;
+        int embeddingSize = 16;
+        Onnx.TensorProto.Builder embeddings = Onnx.TensorProto.newBuilder().setName("embeddings")
+                                                  .setDataType(Onnx.TensorProto.DataType.FLOAT_VALUE)
+                                                  .addDims(vocabularySize).addDims(embeddingSize);
+        for (int i = 0; i < vocabularySize * embeddingSize; i++)
+            embeddings.addFloatData((float)Math.sin(i));
+        Onnx.GraphProto graph = Onnx.GraphProto.newBuilder()
+                .setName("token_embedding")
+                .addInput(valueInfo("input_ids", Onnx.TensorProto.DataType.INT64_VALUE, "batch", "tokens"))
+                .addInput(valueInfo("attention_mask", Onnx.TensorProto.DataType.INT64_VALUE, "batch", "tokens"))
+                .addInput(valueInfo("token_type_ids", Onnx.TensorProto.DataType.INT64_VALUE, "batch", "tokens"))
+                .addInitializer(embeddings)
+                .addNode(node("Mul", "masked_ids", "input_ids", "attention_mask"))
+                .addNode(node("Add", "ids", "masked_ids", "token_type_ids"))
+                .addNode(node("Gather", "output_0", "embeddings", "ids"))
+                .addOutput(valueInfo("output_0", Onnx.TensorProto.DataType.FLOAT_VALUE, "batch", "tokens", "embedding"))
+                .build();
+        Onnx.ModelProto model = Onnx.ModelProto.newBuilder()
+                .setIrVersion(7)
+                .addOpsetImport(Onnx.OperatorSetIdProto.newBuilder().setVersion(13))
+                .setGraph(graph)
+                .build();
+        Files.write(path, model.toByteArray());
+        return path.toString();
+    }
+
+    private static Onnx.NodeProto node(String operation, String output, String ... inputs) {
+        return Onnx.NodeProto.newBuilder().setOpType(operation).addOutput(output).addAllInput(List.of(inputs)).build();
+    }
+
+    private static Onnx.ValueInfoProto valueInfo(String name, int dataType, String ... dimensions) {
+        Onnx.TensorShapeProto.Builder shape = Onnx.TensorShapeProto.newBuilder();
+        for (String dimension : dimensions)
+            shape.addDim(Onnx.TensorShapeProto.Dimension.newBuilder().setDimParam(dimension));
+        return Onnx.ValueInfoProto.newBuilder()
+                .setName(name)
+                .setType(Onnx.TypeProto.newBuilder().setTensorType(Onnx.TypeProto.Tensor.newBuilder()
+                                                                         .setElemType(dataType)
+                                                                         .setShape(shape)))
+                .build();
+    }
+
     private static BertBaseEmbedder newBertBaseEmbedder(BertBaseEmbedderConfig cfg) {
         return new BertBaseEmbedder(OnnxRuntime.testInstance(), Embedder.Runtime.testInstance(), cfg);
     }
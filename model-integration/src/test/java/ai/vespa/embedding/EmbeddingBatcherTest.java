@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class EmbeddingBatcherTest {
+
+    @Test
+    public void testConcurrentRequestsAreBatched() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        var batcher = new EmbeddingBatcher<Integer, Integer>("test", 4, Duration.ofSeconds(10), requests -> {
+            batchSizes.add(requests.size());
+            return requests.stream().map(request -> request * 2).toList();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int request = i;
+                results.add(executor.submit(() -> batcher.evaluate(request)));
+            }
+            for (int i = 0; i < 8; i++)
+                assertEquals(i * 2, (int) results.get(i).get());
+            assertEquals(8, batchSizes.stream().mapToInt(Integer::intValue).sum());
+            assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+            assertEquals(2, batchSizes.size()); // Max delay is long, so batches are only evaluated when full
+        }
+        finally {
+            executor.shutdown();
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testBatchIsEvaluatedAfterMaxDelay() {
+        var batcher = new EmbeddingBatcher<String, String>("test", 100, Duration.ofMillis(1),
+                                                           requests -> requests.stream().map(String::toUpperCase).toList());
+        try {
+            assertEquals("FOO", batcher.evaluate("foo"));
+        }
+        finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testFailuresArePropagated() {
+        var batcher = new EmbeddingBatcher<String, String>("test", 2, Duration.ofMillis(1), requests -> {
+            throw new IllegalArgumentException("Bad input");
+        });
+        try {
+            var e = assertThrows(IllegalArgumentException.class, () -> batcher.evaluate("foo"));
+            assertEquals("Bad input", e.getMessage());
+        }
+        finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testEvaluationAfterClose() {
+        var batcher = new EmbeddingBatcher<String, String>("test", 2, Duration.ofMillis(1),
+                                                           requests -> requests.stream().map(String::toUpperCase).toList());
+        batcher.close();
+        assertEquals("FOO", batcher.evaluate("foo"));
+    }
+
+}
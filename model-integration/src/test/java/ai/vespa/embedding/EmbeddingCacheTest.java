@@ -0,0 +1,99 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class EmbeddingCacheTest {
+
+    @Test
+    public void testCachingAcrossContexts() {
+        var runtime = new CountingRuntime();
+        var cache = new EmbeddingCache<String, Tensor>(1000, Duration.ofMinutes(1), EmbeddingCache::sizeOf, runtime);
+        assertTrue(cache.isEnabled());
+
+        Tensor first = cache.computeIfAbsent("a", new Embedder.Context("query"), () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        Tensor second = cache.computeIfAbsent("a", new Embedder.Context("query"), () -> Tensor.from("tensor<float>(x[2]):[3, 4]"));
+        assertSame(first, second);
+        assertEquals(1, runtime.hits);
+        assertEquals(1, runtime.misses);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testEvictionBySize() {
+        var runtime = new CountingRuntime();
+        // Room for two tensors of 8 bytes each
+        var cache = new EmbeddingCache<String, Tensor>(16, Duration.ofMinutes(1), EmbeddingCache::sizeOf, runtime);
+        var context = new Embedder.Context("query");
+        cache.computeIfAbsent("a", context, () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        cache.computeIfAbsent("b", context, () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        assertNotNull(cache.getIfPresent("a", context)); // a is now more recently used than b
+        cache.computeIfAbsent("c", context, () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        assertEquals(3, runtime.misses);
+        assertEquals(1, runtime.evictions);
+        assertEquals(2, cache.size());
+        assertNull(cache.getIfPresent("b", context));
+        assertNotNull(cache.getIfPresent("a", context));
+        assertNotNull(cache.getIfPresent("c", context));
+    }
+
+    @Test
+    public void testValuesLargerThanAQuarterOfMaxSizeAreCached() {
+        var runtime = new CountingRuntime();
+        var cache = new EmbeddingCache<String, Tensor>(16, Duration.ofMinutes(1), EmbeddingCache::sizeOf, runtime);
+        var context = new Embedder.Context("query");
+        cache.computeIfAbsent("a", context, () -> Tensor.from("tensor<float>(x[4]):[1, 2, 3, 4]"));
+        assertNotNull(cache.getIfPresent("a", context));
+        assertEquals(0, runtime.evictions);
+    }
+
+    @Test
+    public void testDisabledCache() {
+        var runtime = new CountingRuntime();
+        var cache = new EmbeddingCache<String, Tensor>(0, Duration.ofMinutes(1), EmbeddingCache::sizeOf, runtime);
+        assertFalse(cache.isEnabled());
+        var context = new Embedder.Context("query");
+        Tensor first = cache.computeIfAbsent("a", context, () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        Tensor second = cache.computeIfAbsent("a", context, () -> Tensor.from("tensor<float>(x[2]):[1, 2]"));
+        assertEquals(first, second);
+        assertEquals(0, runtime.hits);
+        assertEquals(0, runtime.misses);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testSizeOf() {
+        assertEquals(8, EmbeddingCache.sizeOf(Tensor.from("tensor<float>(x[2]):[1, 2]")));
+        assertEquals(16, EmbeddingCache.sizeOf(Tensor.from("tensor(x[2]):[1, 2]")));
+        assertEquals(2 * (8 + 64), EmbeddingCache.sizeOf(Tensor.from("tensor(x{}):{a:1, b:2}")));
+    }
+
+    private static class CountingRuntime implements Embedder.Runtime {
+
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+
+        @Override public void sampleEmbeddingLatency(double millis, Embedder.Context ctx) { }
+        @Override public void sampleSequenceLength(long length, Embedder.Context ctx) { }
+        @Override public void sampleCacheHit(Embedder.Context ctx) { hits++; }
+        @Override public void sampleCacheMiss(Embedder.Context ctx) { misses++; }
+        @Override public void sampleCacheEvictions(long count, Embedder.Context ctx) { evictions += count; }
+
+    }
+
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.assertNotEquals;
@@ -118,6 +119,26 @@ public class HuggingFaceEmbedderTest {
         assertEquals(-0.666, float16Result.sum().asDouble(),1e-3);
     }
 
+    @Test
+    public void testBatchEmbedding() {
+        var inputs = List.of("This is a test", "This is a longer test which needs padding in a batch", "This is a test");
+        var type = TensorType.fromSpec("tensor<float>(x[8])");
+        var batchingEmbedder = getEmbedder(2);
+        List<Tensor> batchResults = batchingEmbedder.embed(inputs, new Embedder.Context("schema.indexing"), type);
+        assertEquals(inputs.size(), batchResults.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            Tensor expected = embedder.embed(inputs.get(i), new Embedder.Context("schema.indexing"), type);
+            for (int j = 0; j < 8; j++)
+                assertEquals(expected.get(TensorAddress.of(j)), batchResults.get(i).get(TensorAddress.of(j)), 1e-5);
+        }
+        batchingEmbedder.deconstruct();
+
+        // Without batching, texts in an array are embedded exactly as when embedded one by one
+        List<Tensor> results = embedder.embed(inputs, new Embedder.Context("schema.indexing"), type);
+        for (int i = 0; i < inputs.size(); i++)
+            assertEquals(embedder.embed(inputs.get(i), new Embedder.Context("schema.indexing"), type), results.get(i));
+    }
+
     @Test
     public void testEmbedderWithNormalization() {
         String input = "This is a test";
@@ -209,6 +230,10 @@ public class HuggingFaceEmbedderTest {
     }
 
     private static HuggingFaceEmbedder getEmbedder() {
+        return getEmbedder(1);
+    }
+
+    private static HuggingFaceEmbedder getEmbedder(int batchingMaxSize) {
         String vocabPath = "src/test/models/onnx/transformer/real_tokenizer.json";
         String modelPath = "src/test/models/onnx/transformer/embedding_model.onnx";
         assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
@@ -216,6 +241,7 @@ public class HuggingFaceEmbedderTest {
         builder.tokenizerPath(ModelReference.valueOf(vocabPath));
         builder.transformerModel(ModelReference.valueOf(modelPath));
         builder.transformerGpuDevice(-1);
+        builder.batchingMaxSize(batchingMaxSize);
         var mockModelPathHelper = new MockModelPathHelper();
         HuggingFaceEmbedder huggingFaceEmbedder = new HuggingFaceEmbedder(OnnxRuntime.testInstance(), Embedder.Runtime.testInstance(), builder.build(), mockModelPathHelper);
 
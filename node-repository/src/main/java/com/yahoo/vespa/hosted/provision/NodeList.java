@@ -11,6 +11,7 @@ import com.yahoo.config.provision.NodeType;
 import com.yahoo.vespa.hosted.provision.node.ClusterId;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -42,6 +43,12 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     private final AtomicReference<Map<String, NodeFamily>> nodeCache = new AtomicReference<>(null);
     private final AtomicReference<Set<String>> ipCache = new AtomicReference<>(null);
 
+    /** Lazily built indexes of the nodes in this by the keys most frequently filtered on */
+    private final Index<Node.State> stateIndex = new Index<>(Node::state);
+    private final Index<NodeType> nodeTypeIndex = new Index<>(Node::type);
+    private final Index<ApplicationId> ownerIndex = new Index<>(node -> node.allocation().map(a -> a.owner()).orElse(null));
+    private final Index<ClusterSpec.Id> clusterIndex = new Index<>(node -> node.allocation().map(a -> a.membership().cluster().id()).orElse(null));
+
     protected NodeList(List<Node> nodes, boolean negate) {
         super(nodes, negate, NodeList::new);
     }
@@ -175,12 +182,12 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
 
     /** Returns the subset of nodes assigned to the given cluster */
     public NodeList cluster(ClusterSpec.Id cluster) {
-        return matching(node -> node.allocation().isPresent() && node.allocation().get().membership().cluster().id().equals(cluster));
+        return clusterIndex.matching(cluster);
     }
 
     /** Returns the subset of nodes owned by the given application */
     public NodeList owner(ApplicationId application) {
-        return matching(node -> node.allocation().map(a -> a.owner().equals(application)).orElse(false));
+        return ownerIndex.matching(application);
     }
 
     /** Returns the subset of nodes allocated to a tester instance */
@@ -191,10 +198,9 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     /** Returns the subset of nodes matching any of the given node type(s) */
     public NodeList nodeType(NodeType first, NodeType... rest) {
         if (rest.length == 0) {
-            return matching(node -> node.type() == first);
+            return nodeTypeIndex.matching(first);
         }
-        EnumSet<NodeType> nodeTypes = EnumSet.of(first, rest);
-        return matching(node -> nodeTypes.contains(node.type()));
+        return nodeTypeIndex.matching(EnumSet.of(first, rest));
     }
 
     /** Returns the subset of nodes of the host type */
@@ -221,14 +227,14 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     /** Returns the subset of nodes that are in any of the given state(s) */
     public NodeList state(Node.State first, Node.State... rest) {
         if (rest.length == 0) {
-            return matching(node -> node.state() == first);
+            return stateIndex.matching(first);
         }
         return state(EnumSet.of(first, rest));
     }
 
     /** Returns the subset of nodes that are in any of the given state(s) */
     public NodeList state(Set<Node.State> nodeStates) {
-        return matching(node -> nodeStates.contains(node.state()));
+        return stateIndex.matching(nodeStates);
     }
 
     /** Returns the subset of nodes which have a record of being down */
@@ -421,4 +427,84 @@ public class NodeList extends AbstractFilteringList<Node, NodeList> {
     /** A node and its children, if any */
     private record NodeFamily(Node node, List<Node> children) {}
 
+    /**
+     * The nodes of this grouped by some key. This is built the second time this list is filtered by the key,
+     * such that lists which are filtered repeatedly, like snapshots of all nodes, are not scanned for each filter,
+     * while the many lists which are only filtered once do not pay for building indexes.
+     * Filtered lists are reused, so chained filters on them can use their own indexes.
+     */
+    private class Index<KEY> {
+
+        /** Returns the key of a node, or null if it has none */
+        private final Function<Node, KEY> key;
+        private volatile int lookups = 0;
+        private volatile Map<KEY, Bucket> buckets = null;
+
+        Index(Function<Node, KEY> key) {
+            this.key = key;
+        }
+
+        /** Returns the subset of nodes having the given key */
+        NodeList matching(KEY value) {
+            Map<KEY, Bucket> buckets = buckets();
+            if (buckets == null) return NodeList.this.matching(node -> value != null && value.equals(key.apply(node)));
+            Bucket bucket = buckets.get(value);
+            return bucket == null ? EMPTY : bucket.nodes();
+        }
+
+        /** Returns the subset of nodes having any of the given keys */
+        NodeList matching(Set<KEY> values) {
+            Map<KEY, Bucket> buckets = buckets();
+            if (buckets == null) return NodeList.this.matching(node -> {
+                KEY nodeKey = key.apply(node);
+                return nodeKey != null && values.contains(nodeKey);
+            });
+
+            List<Bucket> matched = new ArrayList<>(values.size());
+            for (KEY value : values) {
+                Bucket bucket = buckets.get(value);
+                if (bucket != null)
+                    matched.add(bucket);
+            }
+            if (matched.isEmpty()) return EMPTY;
+            if (matched.size() == 1) return matched.get(0).nodes();
+
+            // Merge by position to keep the order of this
+            int[] positions = matched.stream().flatMapToInt(bucket -> Arrays.stream(bucket.positions())).sorted().toArray();
+            List<Node> nodes = new ArrayList<>(positions.length);
+            for (int position : positions)
+                nodes.add(asList().get(position));
+            return NodeList.copyOf(nodes);
+        }
+
+        /** Returns the buckets of this, or null if it should not be used (yet) */
+        private Map<KEY, Bucket> buckets() {
+            if (isNegated()) return null;
+            Map<KEY, Bucket> buckets = this.buckets;
+            if (buckets != null) return buckets;
+            if (lookups++ < 1) return null; // a racing increment at worst builds the index one lookup late
+
+            Map<KEY, List<Integer>> positions = new HashMap<>();
+            List<Node> nodes = asList();
+            for (int i = 0; i < nodes.size(); i++) {
+                KEY nodeKey = key.apply(nodes.get(i));
+                if (nodeKey != null)
+                    positions.computeIfAbsent(nodeKey, __ -> new ArrayList<>()).add(i);
+            }
+            buckets = new HashMap<>(positions.size() * 2);
+            for (var entry : positions.entrySet()) {
+                int[] bucketPositions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                List<Node> bucketNodes = new ArrayList<>(bucketPositions.length);
+                for (int position : bucketPositions)
+                    bucketNodes.add(nodes.get(position));
+                buckets.put(entry.getKey(), new Bucket(NodeList.copyOf(bucketNodes), bucketPositions));
+            }
+            return this.buckets = buckets;
+        }
+
+    }
+
+    /** The nodes of an index having a given key, and their positions in the indexed list */
+    private record Bucket(NodeList nodes, int[] positions) {}
+
 }
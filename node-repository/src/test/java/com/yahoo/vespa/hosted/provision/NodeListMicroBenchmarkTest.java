@@ -1,6 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.hosted.provision;
 
+import com.yahoo.component.Vtag;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.ClusterSpec;
 import com.yahoo.config.provision.Flavor;
 import com.yahoo.config.provision.NodeFlavors;
 import com.yahoo.config.provision.NodeResources;
@@ -58,6 +62,54 @@ public class NodeListMicroBenchmarkTest {
         System.out.println("Calling NodeList.childrenOf took " + duration + " (" + duration.toNanos() / iterations / 1000 + " microseconds per invocation)");
     }
 
+    @Ignore
+    @Test
+    public void testChainedFilters() {
+        // A synthetic repository of 50k nodes: 5k hosts with 9 children each, allocated to 1000 applications
+        int hosts = 5000;
+        int applications = 1000;
+        List<ApplicationId> applicationIds = new ArrayList<>();
+        for (int i = 0; i < applications; i++)
+            applicationIds.add(ApplicationId.from("tenant" + i, "application" + i, "default"));
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < hosts; i++) {
+            String hostname = "host" + i;
+            nodes.add(Node.create(hostname, IP.Config.of(List.of("::1"), createIps(), List.of()),
+                                  hostname, getFlavor("host"), NodeType.host).build());
+            for (int j = 0; j < 9; j++) {
+                int n = i * 9 + j;
+                Node node = Node.reserve(List.of("::2"), "node" + n, hostname, resources0, NodeType.tenant).build();
+                ClusterMembership membership = ClusterMembership.from("container/c" + (n % 3) + "/0/" + n,
+                                                                      Vtag.currentVersion, Optional.empty());
+                nodes.add(node.allocate(applicationIds.get(n % applications), membership, resources0, Instant.EPOCH));
+            }
+        }
+        NodeList all = NodeList.copyOf(nodes);
+
+        // Like a maintainer run: Filter the snapshot for each application and cluster
+        int runs = 10;
+        for (int run = 0; run < runs; run++) { // warmup
+            filterPerApplication(all, applicationIds);
+        }
+        Instant start = Instant.now();
+        long checksum = 0;
+        for (int run = 0; run < runs; run++)
+            checksum += filterPerApplication(NodeList.copyOf(nodes), applicationIds);
+        Duration duration = Duration.between(start, Instant.now());
+        System.out.println("Filtering " + nodes.size() + " nodes per application took " + duration.toMillis() / runs +
+                           " ms per run (checksum " + checksum + ")");
+    }
+
+    private static long filterPerApplication(NodeList all, List<ApplicationId> applications) {
+        long count = 0;
+        for (ApplicationId application : applications) {
+            NodeList owned = all.nodeType(NodeType.tenant).owner(application).state(Node.State.reserved);
+            count += owned.cluster(ClusterSpec.Id.from("c0")).size();
+            count += all.state(Node.State.reserved).owner(application).size();
+        }
+        return count;
+    }
+
     private List<Node> createHosts() {
         List<Node> hosts = new ArrayList<>();
         for (int i = 0; i < hostCount; i++) {
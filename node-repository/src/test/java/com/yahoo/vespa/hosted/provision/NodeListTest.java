@@ -0,0 +1,105 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision;
+
+import com.yahoo.component.Vtag;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.ClusterSpec;
+import com.yahoo.config.provision.Flavor;
+import com.yahoo.config.provision.NodeResources;
+import com.yahoo.config.provision.NodeType;
+import com.yahoo.vespa.hosted.provision.node.IP;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class NodeListTest {
+
+    private static final NodeResources resources = new NodeResources(1, 4, 10, 1);
+    private static final List<ApplicationId> applications = List.of(ApplicationId.from("t1", "a1", "default"),
+                                                                    ApplicationId.from("t2", "a2", "default"));
+
+    @Test
+    public void indexed_filters_are_equal_to_scanning() {
+        NodeList nodes = createNodes(200);
+        for (int i = 0; i < 3; i++) { // The first lookup scans, the next ones use the index
+            for (Node.State state : Node.State.values()) {
+                assertFiltered(nodes, list -> list.state(state), node -> node.state() == state);
+                assertFiltered(nodes, list -> list.not().state(state), node -> node.state() != state);
+            }
+            assertFiltered(nodes,
+                           list -> list.state(Node.State.active, Node.State.failed, Node.State.ready),
+                           node -> EnumSet.of(Node.State.active, Node.State.failed, Node.State.ready).contains(node.state()));
+            assertFiltered(nodes,
+                           list -> list.not().state(Node.State.active, Node.State.failed),
+                           node -> ! EnumSet.of(Node.State.active, Node.State.failed).contains(node.state()));
+            assertFiltered(nodes, list -> list.nodeType(NodeType.host), node -> node.type() == NodeType.host);
+            assertFiltered(nodes, NodeList::hosts, node -> node.type() == NodeType.host);
+            assertFiltered(nodes,
+                           list -> list.nodeType(NodeType.host, NodeType.tenant),
+                           node -> node.type() == NodeType.host || node.type() == NodeType.tenant);
+            assertFiltered(nodes, list -> list.nodeType(NodeType.proxy), node -> false);
+            for (ApplicationId application : applications) {
+                assertFiltered(nodes, list -> list.owner(application), node -> isOwnedBy(application, node));
+                assertFiltered(nodes, list -> list.not().owner(application), node -> ! isOwnedBy(application, node));
+                assertFiltered(nodes,
+                               list -> list.owner(application).state(Node.State.active),
+                               node -> isOwnedBy(application, node) && node.state() == Node.State.active);
+            }
+            assertFiltered(nodes,
+                           list -> list.cluster(ClusterSpec.Id.from("c1")),
+                           node -> node.allocation().isPresent() &&
+                                   node.allocation().get().membership().cluster().id().equals(ClusterSpec.Id.from("c1")));
+        }
+    }
+
+    @Test
+    public void indexed_filter_results_are_reused() {
+        NodeList nodes = createNodes(50);
+        NodeList scanned = nodes.owner(applications.get(0));
+        NodeList indexed = nodes.owner(applications.get(0));
+        assertEquals(scanned, indexed);
+        assertSame(indexed, nodes.owner(applications.get(0)));
+        assertTrue(nodes.owner(ApplicationId.from("t3", "a3", "default")).isEmpty());
+    }
+
+    private static void assertFiltered(NodeList nodes, Function<NodeList, NodeList> filter, Predicate<Node> expected) {
+        assertEquals(nodes.stream().filter(expected).toList(), filter.apply(nodes).asList());
+    }
+
+    private static boolean isOwnedBy(ApplicationId application, Node node) {
+        return node.allocation().isPresent() && node.allocation().get().owner().equals(application);
+    }
+
+    private static NodeList createNodes(int count) {
+        List<Node> nodes = new ArrayList<>(count);
+        Node.State[] states = Node.State.values();
+        for (int i = 0; i < count; i++) {
+            NodeType type = i % 5 == 0 ? NodeType.host : NodeType.tenant;
+            Node node = Node.create("id" + i, "node" + i, new Flavor(resources), states[i % states.length], type)
+                            .ipConfig(IP.Config.of(List.of("::1"), List.of("::2"), List.of()))
+                            .build();
+            if (type == NodeType.tenant && i % 3 != 0) {
+                ClusterMembership membership = ClusterMembership.from("content/c" + (i % 2) + "/0/" + i + "/stateful",
+                                                                      Vtag.currentVersion, Optional.empty());
+                node = node.allocate(applications.get(i % applications.size()), membership, resources, Instant.EPOCH);
+            }
+            nodes.add(node);
+        }
+        return NodeList.copyOf(nodes);
+    }
+
+}
@@ -3,17 +3,27 @@ package com.yahoo.search.predicate;
 
 import com.yahoo.api.annotations.Beta;
 import com.yahoo.document.predicate.Predicate;
-import com.yahoo.search.predicate.index.*;
-import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
-import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
+import com.yahoo.search.predicate.index.PredicateRangeTermExpander;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
 
 /**
@@ -31,6 +41,13 @@ import java.util.stream.Stream;
  * </p><p>
  * Note that the {@link PredicateIndex} is thread-safe, but a {@link Searcher} is not.
  * Each thread <strong>must</strong> use its own searcher.
+ * </p><p>
+ * Documents can be added to and removed from a live index using {@link #indexDocument(int, Predicate)} and
+ * {@link #removeDocument(int)}. The index consists of immutable segments: Each added document becomes a new segment,
+ * and removals are marked in the segment holding the document. Each change publishes a new snapshot of the segments,
+ * and each search uses the snapshot current when it starts, without locking.
+ * Segments are merged in the background, such that their number stays logarithmic in the number of documents,
+ * and segments where many of the documents are removed are rewritten without them.
  * </p>
  * @author Magnar Nedland
  * @author bjorncs
@@ -41,55 +58,36 @@ import java.util.stream.Stream;
 @Deprecated(forRemoval = true, since = "8")
 public class PredicateIndex {
 
+    private static final Logger log = Logger.getLogger(PredicateIndex.class.getName());
+
     private static final int SERIALIZATION_FORMAT_VERSION = 3;
+    private static final int MAPPABLE_SERIALIZATION_FORMAT_VERSION = 4;
+
+    /** Segments where more than this fraction of the documents are removed are rewritten */
+    private static final double MAX_REMOVED_FRACTION = 0.25;
 
     private final PredicateRangeTermExpander expander;
-    private final int[] internalToExternalIdMapping;
-    private final byte[] minFeatureIndex;
-    private final short[] intervalEnds;
-    private final int highestIntervalEnd;
-    private final SimpleIndex intervalIndex;
-    private final SimpleIndex boundsIndex;
-    private final SimpleIndex conjunctionIntervalIndex;
-    private final PredicateIntervalStore intervalStore;
-    private final ConjunctionIndex conjunctionIndex;
-    private final int[] zeroConstraintDocuments;
     private final Config config;
-    private final AtomicReference<CachedPostingListCounter> postingListCounter;
 
+    /** The current segments, read by searchers and replaced by the writer */
+    private volatile Snapshot snapshot;
+
+    // Writer state, guarded by writeLock
+    private final Object writeLock = new Object();
+    private boolean merging = false;
+    private ExecutorService mergeExecutor = null;
 
     /**
      * Package private as the index should be constructed using {@link PredicateIndexBuilder}.
      */
-    PredicateIndex(
-            Config config,
-            int[] internalToExternalIdMapping,
-            byte[] minFeatureIndex,
-            short[] intervalEnds,
-            int highestIntervalEnd,
-            SimpleIndex intervalIndex,
-            SimpleIndex boundsIndex,
-            SimpleIndex conjunctionIntervalIndex,
-            PredicateIntervalStore intervalStore,
-            ConjunctionIndex conjunctionIndex,
-            int[] zeroConstraintDocuments) {
-        this.internalToExternalIdMapping = internalToExternalIdMapping;
-        this.minFeatureIndex = minFeatureIndex;
-        this.intervalEnds = intervalEnds;
-        this.highestIntervalEnd = highestIntervalEnd;
-        this.intervalIndex = intervalIndex;
-        this.boundsIndex = boundsIndex;
-        this.conjunctionIntervalIndex = conjunctionIntervalIndex;
-        this.intervalStore = intervalStore;
-        this.conjunctionIndex = conjunctionIndex;
-        this.zeroConstraintDocuments = zeroConstraintDocuments;
+    PredicateIndex(Config config, PredicateIndexSegment segment) {
         this.expander = new PredicateRangeTermExpander(config.arity, config.lowerBound, config.upperBound);
         this.config = config;
-        this.postingListCounter = new AtomicReference<>(new CachedPostingListCounter(internalToExternalIdMapping.length));
+        this.snapshot = new Snapshot(segment.size() == 0 ? List.of() : List.of(segment), 0);
     }
 
     public void rebuildPostingListCache() {
-        postingListCounter.getAndUpdate(CachedPostingListCounter::rebuildCache);
+        snapshot.segments().forEach(PredicateIndexSegment::rebuildPostingListCache);
     }
 
     /**
@@ -99,19 +97,172 @@ public class PredicateIndex {
         return new Searcher();
     }
 
+    /**
+     * Indexes a predicate with the given id in this live index.
+     * The document is visible to searches started after this returns.
+     *
+     * @param docId     a 32-bit document id, returned in the Hit objects when the predicate matches
+     * @param predicate the predicate to index
+     * @throws IllegalArgumentException if a document with this id is already present in this
+     */
+    public void indexDocument(int docId, Predicate predicate) {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+        builder.indexDocument(docId, predicate);
+        PredicateIndexSegment segment = builder.buildSegment();
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (find(docId, current) != null)
+                throw new IllegalArgumentException("Document id is already in use: " + docId);
+            if (segment.size() == 0) return; // Never matches
+            List<PredicateIndexSegment> segments = new ArrayList<>(current.segments().size() + 1);
+            segments.addAll(current.segments());
+            segments.add(segment);
+            snapshot = new Snapshot(segments, current.generation() + 1);
+            scheduleMerge();
+        }
+    }
+
+    /**
+     * Removes the document with the given id from this live index.
+     * The document is not visible to searches started after this returns.
+     *
+     * @param docId the id of the document to remove
+     * @return true if the document was present, false if not
+     */
+    public boolean removeDocument(int docId) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            PredicateIndexSegment segment = find(docId, current);
+            if (segment == null) return false;
+            int generation = current.generation() + 1;
+            segment.remove(segment.internalIdOf(docId), generation);
+            snapshot = new Snapshot(current.segments(), generation);
+            scheduleMerge();
+            return true;
+        }
+    }
+
+    /**
+     * Merges all the segments of this into one without removed documents, which makes searches as fast
+     * as in an index created by the builder. This blocks changes to this while it is running,
+     * but not searches.
+     */
+    public void compact() {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current.segments().isEmpty()) return;
+            if (current.segments().size() == 1 && current.segments().get(0).removedCount() == 0) return;
+            replace(current.segments(), PredicateIndexSegment.merge(current.segments(), current.generation()));
+        }
+    }
+
+    /** Returns the number of segments in this */
+    int segmentCount() { return snapshot.segments().size(); }
+
+    /** Returns the segment where the given document is present, or null if none. Must hold the write lock. */
+    private PredicateIndexSegment find(int docId, Snapshot snapshot) {
+        for (PredicateIndexSegment segment : snapshot.segments()) {
+            if (segment.internalIdOf(docId) >= 0)
+                return segment;
+        }
+        return null;
+    }
+
+    /** Starts a merge in the background if one is needed and none is running. Must hold the write lock. */
+    private void scheduleMerge() {
+        if (merging) return;
+        Snapshot current = snapshot;
+        List<PredicateIndexSegment> toMerge = selectMerge(current.segments());
+        if (toMerge.isEmpty()) return;
+        merging = true;
+        if (mergeExecutor == null)
+            mergeExecutor = createMergeExecutor();
+        int generation = current.generation();
+        mergeExecutor.execute(() -> {
+            PredicateIndexSegment.Merge merge = null;
+            try {
+                merge = PredicateIndexSegment.merge(toMerge, generation);
+            }
+            catch (RuntimeException e) {
+                log.log(Level.WARNING, "Failed merging predicate index segments", e);
+            }
+            synchronized (writeLock) {
+                merging = false;
+                if (merge != null) {
+                    replace(toMerge, merge);
+                    scheduleMerge();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns consecutive segments to merge, or an empty list if none should be merged:
+     * The newest segments are merged when together they have at least as many documents as the segment preceding them,
+     * which keeps the number of segments logarithmic in the number of documents and the times each
+     * document is copied logarithmic as well. Segments with many removed documents are rewritten.
+     */
+    private static List<PredicateIndexSegment> selectMerge(List<PredicateIndexSegment> segments) {
+        if (segments.size() > 1) {
+            int start = segments.size() - 1;
+            long tailSize = segments.get(start).liveCount();
+            while (start > 0 && segments.get(start - 1).liveCount() <= tailSize) {
+                start--;
+                tailSize += segments.get(start).liveCount();
+            }
+            if (start < segments.size() - 1)
+                return segments.subList(start, segments.size());
+        }
+        for (PredicateIndexSegment segment : segments) {
+            if (segment.removedCount() > segment.size() * MAX_REMOVED_FRACTION)
+                return List.of(segment);
+        }
+        return List.of();
+    }
+
+    /**
+     * Publishes a snapshot where the given consecutive segments are replaced by the segment merged from them,
+     * and marks documents removed from them after the merge started as removed in the merged segment as well.
+     * Does nothing if the segments have been replaced by another merge in the meantime.
+     * Must hold the write lock.
+     */
+    private void replace(List<PredicateIndexSegment> merged, PredicateIndexSegment.Merge merge) {
+        Snapshot current = snapshot;
+        int start = current.segments().indexOf(merged.get(0));
+        if (start < 0 || start + merged.size() > current.segments().size()) return;
+        if ( ! current.segments().subList(start, start + merged.size()).equals(merged)) return;
+
+        for (int i = 0; i < merged.size(); i++) {
+            PredicateIndexSegment segment = merged.get(i);
+            int[] internalIdMapping = merge.internalIdMappings()[i];
+            for (int internalId = 0; internalId < internalIdMapping.length; internalId++) {
+                if (internalIdMapping[internalId] >= 0 && segment.isRemoved(internalId, current.generation()))
+                    merge.segment().remove(internalIdMapping[internalId], current.generation());
+            }
+        }
+        List<PredicateIndexSegment> segments = new ArrayList<>(current.segments().size());
+        segments.addAll(current.segments().subList(0, start));
+        if (merge.segment().size() > 0)
+            segments.add(merge.segment());
+        segments.addAll(current.segments().subList(start + merged.size(), current.segments().size()));
+        snapshot = new Snapshot(segments, current.generation() + 1);
+    }
+
+    private static ExecutorService createMergeExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                             runnable -> {
+                                                                 Thread thread = new Thread(runnable, "predicate-index-merger");
+                                                                 thread.setDaemon(true);
+                                                                 return thread;
+                                                             });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     public void writeToOutputStream(DataOutputStream out) throws IOException {
         out.writeInt(SERIALIZATION_FORMAT_VERSION);
         config.writeToOutputStream(out);
-        SerializationHelper.writeIntArray(internalToExternalIdMapping, out);
-        SerializationHelper.writeByteArray(minFeatureIndex, out);
-        SerializationHelper.writeShortArray(intervalEnds, out);
-        out.writeInt(highestIntervalEnd);
-        SerializationHelper.writeIntArray(zeroConstraintDocuments, out);
-        intervalIndex.writeToOutputStream(out);
-        boundsIndex.writeToOutputStream(out);
-        conjunctionIntervalIndex.writeToOutputStream(out);
-        intervalStore.writeToOutputStream(out);
-        conjunctionIndex.writeToOutputStream(out);
+        compacted(snapshot).writeToOutputStream(out);
     }
 
     public static PredicateIndex fromInputStream(DataInputStream in) throws IOException {
@@ -121,40 +272,62 @@ public class PredicateIndex {
                     "Invalid serialization format version. Expected %d, was %d.", SERIALIZATION_FORMAT_VERSION, version));
         }
         Config config = Config.fromInputStream(in);
-        int[] internalToExternalIdMapping = SerializationHelper.readIntArray(in);
-        byte[] minFeatureIndex = SerializationHelper.readByteArray(in);
-        short[] intervalEnds = SerializationHelper.readShortArray(in);
-        int highestIntervalEnd = in.readInt();
-        int[] zeroConstraintDocuments = SerializationHelper.readIntArray(in);
-        SimpleIndex intervalIndex = SimpleIndex.fromInputStream(in);
-        SimpleIndex boundsIndex = SimpleIndex.fromInputStream(in);
-        SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromInputStream(in);
-        PredicateIntervalStore intervalStore = PredicateIntervalStore.fromInputStream(in);
-        ConjunctionIndex conjunctionIndex = ConjunctionIndex.fromInputStream(in);
-        return new PredicateIndex(
-                config,
-                internalToExternalIdMapping,
-                minFeatureIndex,
-                intervalEnds,
-                highestIntervalEnd,
-                intervalIndex,
-                boundsIndex,
-                conjunctionIntervalIndex,
-                intervalStore,
-                conjunctionIndex,
-                zeroConstraintDocuments
-        );
+        return new PredicateIndex(config, PredicateIndexSegment.fromInputStream(in));
+    }
+
+    /**
+     * Writes this to a file which can be memory-mapped by {@link #fromFile(Path)}.
+     */
+    public void writeToFile(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAPPABLE_SERIALIZATION_FORMAT_VERSION);
+            ByteArrayOutputStream configBytes = new ByteArrayOutputStream();
+            config.writeToOutputStream(new DataOutputStream(configBytes));
+            SerializationHelper.writeByteArray(configBytes.toByteArray(), out);
+            compacted(snapshot).writeMappableToOutputStream(out);
+        }
+    }
+
+    /**
+     * Returns an index memory-mapping a file written by {@link #writeToFile(Path)}.
+     * Posting lists and intervals are read from the mapped file when searching, such that the file
+     * is not read onto the heap up front, and its pages are shared between processes mapping it.
+     * The file must not be changed while it is used by the index.
+     */
+    public static PredicateIndex fromFile(Path file) throws IOException {
+        try (MappedFileReader in = new MappedFileReader(file)) {
+            int version = in.readInt();
+            if (version != MAPPABLE_SERIALIZATION_FORMAT_VERSION) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid serialization format version. Expected %d, was %d.", MAPPABLE_SERIALIZATION_FORMAT_VERSION, version));
+            }
+            Config config = Config.fromInputStream(in.readByteArrayAsStream());
+            return new PredicateIndex(config, PredicateIndexSegment.fromMappedFile(in));
+        }
+    }
+
+    /** Returns the given snapshot as a single segment */
+    private static PredicateIndexSegment compacted(Snapshot snapshot) {
+        if (snapshot.segments().size() == 1 && snapshot.segments().get(0).removedCount() == 0)
+            return snapshot.segments().get(0);
+        return PredicateIndexSegment.merge(snapshot.segments(), snapshot.generation()).segment();
+    }
+
+    /** An immutable view of the segments of this index in a generation */
+    private record Snapshot(List<PredicateIndexSegment> segments, int generation) {
+
+        Snapshot {
+            segments = List.copyOf(segments);
+        }
+
     }
 
     @Beta
     public class Searcher {
-        private final byte[] nPostingListsForDocument;
-        private final ConjunctionIndex.Searcher conjunctionIndexSearcher;
 
-        private Searcher() {
-            this.nPostingListsForDocument = new byte[internalToExternalIdMapping.length];
-            this.conjunctionIndexSearcher = conjunctionIndex.searcher();
-        }
+        private Map<PredicateIndexSegment, PredicateIndexSegment.Searcher> segmentSearchers = new IdentityHashMap<>();
+
+        private Searcher() {}
 
         /**
          * Retrieves a stream of hits for the given query.
@@ -163,66 +336,22 @@ public class PredicateIndex {
          * @return A stream of hits.
          */
         public Stream<Hit> search(PredicateQuery query) {
-            ArrayList<PostingList> postingLists = new ArrayList<>();
-            for (PredicateQuery.Feature feature : query.getFeatures()) {
-                addIntervalPostingList(feature.featureHash, feature.subqueryBitmap, postingLists);
-            }
-            for (PredicateQuery.RangeFeature feature : query.getRangeFeatures()) {
-                expander.expand(
-                        feature.key,
-                        feature.value,
-                        featureHash -> addIntervalPostingList(featureHash, feature.subqueryBitmap, postingLists),
-                        (featureHash, value) -> addBoundsPostingList(featureHash, value, feature.subqueryBitmap, postingLists));
-            }
-            addCompressedZStarPostingList(postingLists);
-            addConjunctionPostingLists(query, postingLists);
-            addZeroConstraintPostingList(postingLists);
-
-            CachedPostingListCounter counter = postingListCounter.get();
-            counter.registerUsage(postingLists);
-            counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
-            return new PredicateSearch(
-                    postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
-                    // Map to external id. Note that internal id for first document is 1.
-                    .map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
-        }
-
-        private void addCompressedZStarPostingList(List<PostingList> postingLists) {
-            SimpleIndex.Entry e = intervalIndex.getPostingList(Feature.Z_STAR_COMPRESSED_ATTRIBUTE_HASH);
-            if (e != null) {
-                postingLists.add(new ZstarCompressedPostingList(intervalStore, e.docIds, e.dataRefs));
-            }
-        }
-
-        private void addBoundsPostingList(
-                long featureHash, int value, long subqueryBitMap, List<PostingList> postingLists) {
-            SimpleIndex.Entry e = boundsIndex.getPostingList(featureHash);
-            if (e != null) {
-                postingLists.add(new BoundsPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap, value));
-            }
-        }
-
-        private void addIntervalPostingList(long featureHash, long subqueryBitMap, List<PostingList> postingLists) {
-            SimpleIndex.Entry e = intervalIndex.getPostingList(featureHash);
-            if (e != null) {
-                postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap));
-            }
-        }
-
-        private void addConjunctionPostingLists(PredicateQuery query, List<PostingList> postingLists) {
-            List<ConjunctionHit> hits = conjunctionIndexSearcher.search(query);
-            for (ConjunctionHit hit : hits) {
-                SimpleIndex.Entry e = conjunctionIntervalIndex.getPostingList(hit.conjunctionId);
-                if (e != null) {
-                    postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, hit.subqueryBitmap));
-                }
-            }
-        }
-
-        private void addZeroConstraintPostingList(ArrayList<PostingList> postingLists) {
-            if (zeroConstraintDocuments.length > 0) {
-                postingLists.add(new ZeroConstraintPostingList(zeroConstraintDocuments));
+            Snapshot current = snapshot;
+            Map<PredicateIndexSegment, PredicateIndexSegment.Searcher> searchers = new IdentityHashMap<>();
+            List<Stream<Hit>> hits = new ArrayList<>(current.segments().size());
+            for (PredicateIndexSegment segment : current.segments()) {
+                PredicateIndexSegment.Searcher searcher = segmentSearchers.get(segment);
+                if (searcher == null)
+                    searcher = segment.new Searcher(expander);
+                searchers.put(segment, searcher);
+                hits.add(searcher.search(query, current.generation()));
             }
+            segmentSearchers = searchers;
+            return switch (hits.size()) {
+                case 0 -> Stream.empty();
+                case 1 -> hits.get(0);
+                default -> hits.stream().flatMap(segmentHits -> segmentHits);
+            };
         }
 
     }
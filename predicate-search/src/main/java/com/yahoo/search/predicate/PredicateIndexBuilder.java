@@ -192,8 +192,11 @@ public class PredicateIndexBuilder {
     }
 
     public PredicateIndex build() {
-        return new PredicateIndex(
-                config,
+        return new PredicateIndex(config, buildSegment());
+    }
+
+    PredicateIndexSegment buildSegment() {
+        return new PredicateIndexSegment(
                 Ints.toArray(seenIds),
                 Bytes.toArray(minFeatureIndexBuilder),
                 Shorts.toArray(intervalEndsBuilder),
@@ -0,0 +1,379 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.search.predicate.index.BoundsPostingList;
+import com.yahoo.search.predicate.index.CachedPostingListCounter;
+import com.yahoo.search.predicate.index.Feature;
+import com.yahoo.search.predicate.index.IntervalPostingList;
+import com.yahoo.search.predicate.index.PostingList;
+import com.yahoo.search.predicate.index.PredicateIntervalStore;
+import com.yahoo.search.predicate.index.PredicateRangeTermExpander;
+import com.yahoo.search.predicate.index.PredicateSearch;
+import com.yahoo.search.predicate.index.SimpleIndex;
+import com.yahoo.search.predicate.index.ZeroConstraintPostingList;
+import com.yahoo.search.predicate.index.ZstarCompressedPostingList;
+import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
+import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.SerializationHelper;
+import org.eclipse.collections.impl.map.mutable.primitive.IntIntHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * An immutable part of a {@link PredicateIndex}, covering a range of its documents with internal ids
+ * local to the segment.
+ * <p>
+ * The only mutable state is which documents are removed: Each document has the generation of the index
+ * in which it was removed, or 0 if it is present. Only the writer of the index changes this, and a removal
+ * is made visible to searchers by publishing a new generation after it is written.
+ * </p>
+ *
+ * @author bratseth
+ */
+final class PredicateIndexSegment {
+
+    private final int[] internalToExternalIdMapping;
+    private final byte[] minFeatureIndex;
+    private final short[] intervalEnds;
+    private final int highestIntervalEnd;
+    private final SimpleIndex intervalIndex;
+    private final SimpleIndex boundsIndex;
+    private final SimpleIndex conjunctionIntervalIndex;
+    private final PredicateIntervalStore intervalStore;
+    private final ConjunctionIndex conjunctionIndex;
+    private final int[] zeroConstraintDocuments;
+    private final AtomicReference<CachedPostingListCounter> postingListCounter;
+
+    /** The generation in which each document was removed, or 0 if it is present */
+    private final int[] removedInGeneration;
+
+    /** Written by the writer only, and like removals made visible to searchers by publishing a generation */
+    private int removedCount = 0;
+
+    // Writer state, only accessed while holding the index write lock
+    private IntIntHashMap externalToInternalIdMapping = null;
+
+    PredicateIndexSegment(int[] internalToExternalIdMapping,
+                          byte[] minFeatureIndex,
+                          short[] intervalEnds,
+                          int highestIntervalEnd,
+                          SimpleIndex intervalIndex,
+                          SimpleIndex boundsIndex,
+                          SimpleIndex conjunctionIntervalIndex,
+                          PredicateIntervalStore intervalStore,
+                          ConjunctionIndex conjunctionIndex,
+                          int[] zeroConstraintDocuments) {
+        this.internalToExternalIdMapping = internalToExternalIdMapping;
+        this.minFeatureIndex = minFeatureIndex;
+        this.intervalEnds = intervalEnds;
+        this.highestIntervalEnd = highestIntervalEnd;
+        this.intervalIndex = intervalIndex;
+        this.boundsIndex = boundsIndex;
+        this.conjunctionIntervalIndex = conjunctionIntervalIndex;
+        this.intervalStore = intervalStore;
+        this.conjunctionIndex = conjunctionIndex;
+        this.zeroConstraintDocuments = zeroConstraintDocuments;
+        this.postingListCounter = new AtomicReference<>(new CachedPostingListCounter(internalToExternalIdMapping.length));
+        this.removedInGeneration = new int[internalToExternalIdMapping.length];
+    }
+
+    /** Returns the number of documents in this, including removed ones */
+    int size() { return internalToExternalIdMapping.length; }
+
+    /** Returns the number of documents removed from this in the latest generation. */
+    int removedCount() { return removedCount; }
+
+    /** Returns the number of documents present in this. Must only be called by the writer. */
+    int liveCount() { return size() - removedCount; }
+
+    boolean isRemoved(int internalId, int generation) {
+        int removed = removedInGeneration[internalId];
+        return removed != 0 && removed <= generation;
+    }
+
+    /**
+     * Returns the internal id of the given external id if it is present in this, or -1 otherwise.
+     * Must only be called by the writer.
+     */
+    int internalIdOf(int externalId) {
+        if (externalToInternalIdMapping == null) {
+            externalToInternalIdMapping = new IntIntHashMap(size());
+            for (int internalId = 0; internalId < size(); internalId++)
+                externalToInternalIdMapping.put(internalToExternalIdMapping[internalId], internalId);
+        }
+        int internalId = externalToInternalIdMapping.getIfAbsent(externalId, -1);
+        return internalId < 0 || removedInGeneration[internalId] != 0 ? -1 : internalId;
+    }
+
+    /**
+     * Marks the given document as removed in the given generation. Must only be called by the writer,
+     * before publishing the generation.
+     */
+    void remove(int internalId, int generation) {
+        if (removedInGeneration[internalId] != 0) return;
+        removedInGeneration[internalId] = generation;
+        ++removedCount;
+    }
+
+    void rebuildPostingListCache() {
+        postingListCounter.getAndUpdate(CachedPostingListCounter::rebuildCache);
+    }
+
+    void writeToOutputStream(DataOutputStream out) throws IOException {
+        SerializationHelper.writeIntArray(internalToExternalIdMapping, out);
+        SerializationHelper.writeByteArray(minFeatureIndex, out);
+        SerializationHelper.writeShortArray(intervalEnds, out);
+        out.writeInt(highestIntervalEnd);
+        SerializationHelper.writeIntArray(zeroConstraintDocuments, out);
+        intervalIndex.writeToOutputStream(out);
+        boundsIndex.writeToOutputStream(out);
+        conjunctionIntervalIndex.writeToOutputStream(out);
+        intervalStore.writeToOutputStream(out);
+        conjunctionIndex.writeToOutputStream(out);
+    }
+
+    static PredicateIndexSegment fromInputStream(DataInputStream in) throws IOException {
+        int[] internalToExternalIdMapping = SerializationHelper.readIntArray(in);
+        byte[] minFeatureIndex = SerializationHelper.readByteArray(in);
+        short[] intervalEnds = SerializationHelper.readShortArray(in);
+        int highestIntervalEnd = in.readInt();
+        int[] zeroConstraintDocuments = SerializationHelper.readIntArray(in);
+        SimpleIndex intervalIndex = SimpleIndex.fromInputStream(in);
+        SimpleIndex boundsIndex = SimpleIndex.fromInputStream(in);
+        SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromInputStream(in);
+        PredicateIntervalStore intervalStore = PredicateIntervalStore.fromInputStream(in);
+        ConjunctionIndex conjunctionIndex = ConjunctionIndex.fromInputStream(in);
+        return new PredicateIndexSegment(internalToExternalIdMapping,
+                                         minFeatureIndex,
+                                         intervalEnds,
+                                         highestIntervalEnd,
+                                         intervalIndex,
+                                         boundsIndex,
+                                         conjunctionIntervalIndex,
+                                         intervalStore,
+                                         conjunctionIndex,
+                                         zeroConstraintDocuments);
+    }
+
+    /**
+     * Writes this in a format where the posting lists and intervals can be accessed in place by {@link #fromMappedFile}.
+     * The per-document arrays and the conjunction index are read onto the heap.
+     */
+    void writeMappableToOutputStream(DataOutputStream out) throws IOException {
+        SerializationHelper.writeIntArray(internalToExternalIdMapping, out);
+        SerializationHelper.writeByteArray(minFeatureIndex, out);
+        SerializationHelper.writeShortArray(intervalEnds, out);
+        out.writeInt(highestIntervalEnd);
+        SerializationHelper.writeIntArray(zeroConstraintDocuments, out);
+        intervalIndex.writeMappableToOutputStream(out);
+        boundsIndex.writeMappableToOutputStream(out);
+        conjunctionIntervalIndex.writeMappableToOutputStream(out);
+        intervalStore.writeMappableToOutputStream(out);
+        ByteArrayOutputStream conjunctionIndexBytes = new ByteArrayOutputStream();
+        conjunctionIndex.writeToOutputStream(new DataOutputStream(conjunctionIndexBytes));
+        SerializationHelper.writeByteArray(conjunctionIndexBytes.toByteArray(), out);
+    }
+
+    static PredicateIndexSegment fromMappedFile(MappedFileReader in) throws IOException {
+        int[] internalToExternalIdMapping = in.readIntArray();
+        byte[] minFeatureIndex = in.readByteArray();
+        short[] intervalEnds = in.readShortArray();
+        int highestIntervalEnd = in.readInt();
+        int[] zeroConstraintDocuments = in.readIntArray();
+        SimpleIndex intervalIndex = SimpleIndex.fromMappedFile(in);
+        SimpleIndex boundsIndex = SimpleIndex.fromMappedFile(in);
+        SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromMappedFile(in);
+        PredicateIntervalStore intervalStore = PredicateIntervalStore.fromMappedFile(in);
+        ConjunctionIndex conjunctionIndex = ConjunctionIndex.fromInputStream(in.readByteArrayAsStream());
+        return new PredicateIndexSegment(internalToExternalIdMapping,
+                                         minFeatureIndex,
+                                         intervalEnds,
+                                         highestIntervalEnd,
+                                         intervalIndex,
+                                         boundsIndex,
+                                         conjunctionIntervalIndex,
+                                         intervalStore,
+                                         conjunctionIndex,
+                                         zeroConstraintDocuments);
+    }
+
+    /**
+     * Merges consecutive segments into one, leaving out the documents removed in the given generation or earlier.
+     * The merged segment holds only interval lists and conjunctions still referenced by its documents.
+     * This does not change the given segments, and may be called by any thread.
+     *
+     * @return the merged segment, and the mapping from the internal ids of each given segment to
+     *         internal ids in the merged segment, or -1 for documents left out
+     */
+    static Merge merge(List<PredicateIndexSegment> segments, int generation) {
+        int size = 0;
+        int highestIntervalEnd = 1;
+        int[][] internalIdMappings = new int[segments.size()][];
+        for (int i = 0; i < segments.size(); i++) {
+            PredicateIndexSegment segment = segments.get(i);
+            internalIdMappings[i] = new int[segment.size()];
+            for (int internalId = 0; internalId < segment.size(); internalId++)
+                internalIdMappings[i][internalId] = segment.isRemoved(internalId, generation) ? -1 : size++;
+            highestIntervalEnd = Math.max(highestIntervalEnd, segment.highestIntervalEnd);
+        }
+
+        int[] internalToExternalIdMapping = new int[size];
+        byte[] minFeatureIndex = new byte[size];
+        short[] intervalEnds = new short[size];
+        int zeroConstraintDocumentCount = 0;
+        int[] zeroConstraintDocuments = new int[size];
+        List<IntUnaryOperator> docIdMappings = new ArrayList<>(segments.size());
+        List<IntUnaryOperator> dataRefMappings = new ArrayList<>(segments.size());
+        List<int[]> intervals = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            PredicateIndexSegment segment = segments.get(i);
+            int[] internalIdMapping = internalIdMappings[i];
+            for (int internalId = 0; internalId < segment.size(); internalId++) {
+                int mergedId = internalIdMapping[internalId];
+                if (mergedId < 0) continue;
+                internalToExternalIdMapping[mergedId] = segment.internalToExternalIdMapping[internalId];
+                minFeatureIndex[mergedId] = segment.minFeatureIndex[internalId];
+                intervalEnds[mergedId] = segment.intervalEnds[internalId];
+            }
+            for (int internalId : segment.zeroConstraintDocuments) {
+                if (internalIdMapping[internalId] >= 0)
+                    zeroConstraintDocuments[zeroConstraintDocumentCount++] = internalIdMapping[internalId];
+            }
+            docIdMappings.add(internalId -> internalIdMapping[internalId]);
+            dataRefMappings.add(new DataRefMapping(segment.intervalStore, intervals));
+        }
+
+        SimpleIndex conjunctionIntervalIndex = SimpleIndex.merge(segments.stream().map(s -> s.conjunctionIntervalIndex).toList(),
+                                                                 docIdMappings, dataRefMappings);
+        PredicateIndexSegment merged =
+                new PredicateIndexSegment(internalToExternalIdMapping,
+                                          minFeatureIndex,
+                                          intervalEnds,
+                                          highestIntervalEnd,
+                                          SimpleIndex.merge(segments.stream().map(s -> s.intervalIndex).toList(),
+                                                            docIdMappings, dataRefMappings),
+                                          SimpleIndex.merge(segments.stream().map(s -> s.boundsIndex).toList(),
+                                                            docIdMappings, dataRefMappings),
+                                          conjunctionIntervalIndex,
+                                          new PredicateIntervalStore(intervals.toArray(new int[0][])),
+                                          ConjunctionIndex.merge(segments.stream().map(s -> s.conjunctionIndex).toList(),
+                                                                 id -> conjunctionIntervalIndex.getPostingList(id) != null),
+                                          Arrays.copyOf(zeroConstraintDocuments, zeroConstraintDocumentCount));
+        return new Merge(merged, internalIdMappings);
+    }
+
+    record Merge(PredicateIndexSegment segment, int[][] internalIdMappings) {}
+
+    /** Maps the data references of a segment to a merged interval store, copying each referenced interval list once */
+    private static class DataRefMapping implements IntUnaryOperator {
+
+        private final PredicateIntervalStore intervalStore;
+        private final List<int[]> mergedIntervals;
+        private final IntIntHashMap mapping = new IntIntHashMap();
+
+        DataRefMapping(PredicateIntervalStore intervalStore, List<int[]> mergedIntervals) {
+            this.intervalStore = intervalStore;
+            this.mergedIntervals = mergedIntervals;
+        }
+
+        @Override
+        public int applyAsInt(int dataRef) {
+            return mapping.getIfAbsentPut(dataRef, () -> {
+                mergedIntervals.add(intervalStore.get(dataRef));
+                return mergedIntervals.size() - 1;
+            });
+        }
+
+    }
+
+    /** Searches a segment in a given generation. This is not thread-safe. */
+    class Searcher {
+
+        private final PredicateRangeTermExpander expander;
+        private final byte[] nPostingListsForDocument;
+        private final ConjunctionIndex.Searcher conjunctionIndexSearcher;
+
+        Searcher(PredicateRangeTermExpander expander) {
+            this.expander = expander;
+            this.nPostingListsForDocument = new byte[internalToExternalIdMapping.length];
+            this.conjunctionIndexSearcher = conjunctionIndex.searcher();
+        }
+
+        Stream<Hit> search(PredicateQuery query, int generation) {
+            ArrayList<PostingList> postingLists = new ArrayList<>();
+            for (PredicateQuery.Feature feature : query.getFeatures()) {
+                addIntervalPostingList(feature.featureHash, feature.subqueryBitmap, postingLists);
+            }
+            for (PredicateQuery.RangeFeature feature : query.getRangeFeatures()) {
+                expander.expand(
+                        feature.key,
+                        feature.value,
+                        featureHash -> addIntervalPostingList(featureHash, feature.subqueryBitmap, postingLists),
+                        (featureHash, value) -> addBoundsPostingList(featureHash, value, feature.subqueryBitmap, postingLists));
+            }
+            addCompressedZStarPostingList(postingLists);
+            addConjunctionPostingLists(query, postingLists);
+            addZeroConstraintPostingList(postingLists);
+
+            CachedPostingListCounter counter = postingListCounter.get();
+            counter.registerUsage(postingLists);
+            counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
+            Stream<Hit> hits = new PredicateSearch(
+                    postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream();
+            if (removedCount > 0)
+                hits = hits.filter(hit -> ! isRemoved(hit.getDocId(), generation));
+            // Map to external id. Note that internal id for first document is 1.
+            return hits.map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
+        }
+
+        private void addCompressedZStarPostingList(List<PostingList> postingLists) {
+            SimpleIndex.Entry e = intervalIndex.getPostingList(Feature.Z_STAR_COMPRESSED_ATTRIBUTE_HASH);
+            if (e != null) {
+                postingLists.add(new ZstarCompressedPostingList(intervalStore, e.docIds, e.dataRefs));
+            }
+        }
+
+        private void addBoundsPostingList(
+                long featureHash, int value, long subqueryBitMap, List<PostingList> postingLists) {
+            SimpleIndex.Entry e = boundsIndex.getPostingList(featureHash);
+            if (e != null) {
+                postingLists.add(new BoundsPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap, value));
+            }
+        }
+
+        private void addIntervalPostingList(long featureHash, long subqueryBitMap, List<PostingList> postingLists) {
+            SimpleIndex.Entry e = intervalIndex.getPostingList(featureHash);
+            if (e != null) {
+                postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, subqueryBitMap));
+            }
+        }
+
+        private void addConjunctionPostingLists(PredicateQuery query, List<PostingList> postingLists) {
+            List<ConjunctionHit> hits = conjunctionIndexSearcher.search(query);
+            for (ConjunctionHit hit : hits) {
+                SimpleIndex.Entry e = conjunctionIntervalIndex.getPostingList(hit.conjunctionId);
+                if (e != null) {
+                    postingLists.add(new IntervalPostingList(intervalStore, e.docIds, e.dataRefs, hit.subqueryBitmap));
+                }
+            }
+        }
+
+        private void addZeroConstraintPostingList(ArrayList<PostingList> postingLists) {
+            if (zeroConstraintDocuments.length > 0) {
+                postingLists.add(new ZeroConstraintPostingList(zeroConstraintDocuments));
+            }
+        }
+
+    }
+
+}
@@ -10,8 +10,12 @@ package com.yahoo.search.predicate.index;
  */
 public final class BoundsPostingList extends MultiIntervalPostingList {
     private final int valueDiff;
+    private final int[] intervalAndBounds = new int[2];
     private final IntervalWithBounds intervalWithBounds = new IntervalWithBounds();
     private final PredicateIntervalStore store;
+    private int currentDataRef;
+    private int currentArrayLength;
+    private int currentArrayIndex;
     private int currentInterval;
 
     /**
@@ -21,23 +25,28 @@ public final class BoundsPostingList extends MultiIntervalPostingList {
         super(docIds, dataRefs, subquery);
         this.valueDiff = valueDiff;
         this.store = store;
+        intervalWithBounds.setIntervalArray(intervalAndBounds, 0);
     }
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        intervalWithBounds.setIntervalArray(store.get(dataRef), 0);
+        currentDataRef = dataRef;
+        currentArrayLength = store.length(dataRef);
+        currentArrayIndex = 0;
         return nextInterval();
     }
 
     @Override
     public boolean nextInterval() {
-        while (intervalWithBounds.hasValue()) {
+        // Each interval and its bounds are read into the pair viewed by intervalWithBounds, as the store may be mapped
+        while (currentArrayIndex < currentArrayLength - 1) {
+            intervalAndBounds[0] = store.get(currentDataRef, currentArrayIndex);
+            intervalAndBounds[1] = store.get(currentDataRef, currentArrayIndex + 1);
+            currentArrayIndex += 2;
             if (intervalWithBounds.contains(valueDiff)) {
                 this.currentInterval = intervalWithBounds.getInterval();
-                intervalWithBounds.nextValue();
                 return true;
             }
-            intervalWithBounds.nextValue();
         }
         return false;
     }
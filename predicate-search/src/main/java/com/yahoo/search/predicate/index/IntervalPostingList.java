@@ -11,7 +11,8 @@ package com.yahoo.search.predicate.index;
 public class IntervalPostingList extends MultiIntervalPostingList {
 
     private final PredicateIntervalStore store;
-    private int[] currentIntervals;
+    private int currentDataRef;
+    private int currentIntervalCount;
     private int currentIntervalIndex;
     private int currentInterval;
 
@@ -22,16 +23,17 @@ public class IntervalPostingList extends MultiIntervalPostingList {
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        currentIntervals = store.get(dataRef);
+        currentDataRef = dataRef;
+        currentIntervalCount = store.length(dataRef);
         currentIntervalIndex = 1;
-        currentInterval = currentIntervals[0];
+        currentInterval = store.get(dataRef, 0);
         return true;
     }
 
     @Override
     public boolean nextInterval() {
-        if (currentIntervalIndex < currentIntervals.length) {
-            this.currentInterval = currentIntervals[currentIntervalIndex++];
+        if (currentIntervalIndex < currentIntervalCount) {
+            this.currentInterval = store.get(currentDataRef, currentIntervalIndex++);
             return true;
         }
         return false;
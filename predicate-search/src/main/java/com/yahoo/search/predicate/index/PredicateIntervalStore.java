@@ -2,6 +2,8 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedIntArray;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
 import java.io.DataInputStream;
@@ -14,28 +16,89 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * Stores the interval lists referenced from postings. The lists are either held on the heap,
+ * or memory-mapped from a file written by {@link #writeMappableToOutputStream}.
+ *
  * @author bjorncs
  */
 public class PredicateIntervalStore {
 
+    /** The interval lists on the heap, or null if this is mapped */
     private final int[][] intervalsList;
 
+    /** The start of each mapped interval list in intervals, followed by the end of the last, or null if this is on the heap */
+    private final MappedIntArray offsets;
+    private final MappedIntArray intervals;
+
     public PredicateIntervalStore(int[][] intervalsList) {
+        this(intervalsList, null, null);
+    }
+
+    private PredicateIntervalStore(int[][] intervalsList, MappedIntArray offsets, MappedIntArray intervals) {
         this.intervalsList = intervalsList;
+        this.offsets = offsets;
+        this.intervals = intervals;
     }
 
+    /** Returns the interval list with the given reference, which is copied from the file if this is mapped */
     public int[] get(int intervalRef) {
-        assert intervalRef < intervalsList.length;
-        return intervalsList[intervalRef];
+        if (intervalsList != null) {
+            assert intervalRef < intervalsList.length;
+            return intervalsList[intervalRef];
+        }
+        int offset = offsets.get(intervalRef);
+        int[] array = new int[offsets.get(intervalRef + 1) - offset];
+        intervals.get(offset, array);
+        return array;
+    }
+
+    /** Returns the number of intervals in the interval list with the given reference */
+    public int length(int intervalRef) {
+        if (intervalsList != null) return intervalsList[intervalRef].length;
+        return offsets.get(intervalRef + 1) - offsets.get(intervalRef);
+    }
+
+    /** Returns the interval at the given index in the interval list with the given reference, without copying the list */
+    public int get(int intervalRef, int index) {
+        if (intervalsList != null) return intervalsList[intervalRef][index];
+        return intervals.get(offsets.get(intervalRef) + index);
+    }
+
+    /** Returns the number of interval lists in this */
+    public int size() {
+        return intervalsList != null ? intervalsList.length : offsets.length() - 1;
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(intervalsList.length);
-        for (int[] intervals : intervalsList) {
-            SerializationHelper.writeIntArray(intervals, out);
+        out.writeInt(size());
+        for (int i = 0; i < size(); i++) {
+            SerializationHelper.writeIntArray(get(i), out);
         }
     }
 
+    /**
+     * Writes this in a format where the intervals can be accessed in place by {@link #fromMappedFile}:
+     * The offset of each interval list, followed by all the intervals.
+     */
+    public void writeMappableToOutputStream(DataOutputStream out) throws IOException {
+        int[] offsets = new int[size() + 1];
+        for (int i = 0; i < size(); i++)
+            offsets[i + 1] = offsets[i] + get(i).length;
+        SerializationHelper.writeIntArray(offsets, out);
+        out.writeInt(offsets[size()]);
+        for (int i = 0; i < size(); i++)
+            for (int interval : get(i))
+                out.writeInt(interval);
+    }
+
+    /**
+     * Returns a store reading the intervals written by {@link #writeMappableToOutputStream} from a memory-mapped file.
+     * Posting lists read the intervals in place, through {@link #get(int, int)}.
+     */
+    public static PredicateIntervalStore fromMappedFile(MappedFileReader in) throws IOException {
+        return new PredicateIntervalStore(null, in.mapIntArray(), in.mapIntArray());
+    }
+
     public static PredicateIntervalStore fromInputStream(DataInputStream in) throws IOException {
         int length = in.readInt();
         int[][] intervalsList = new int[length][];
@@ -1,32 +1,53 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedIntArray;
+import com.yahoo.search.predicate.serialization.MappedLongArray;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 import org.eclipse.collections.api.map.primitive.LongObjectMap;
-import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.LongHashSet;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
 
 /**
  * An index mapping keys of type Long to lists of postings of generic data.
+ * The index is either held on the heap, or memory-mapped from a file written by
+ * {@link #writeMappableToOutputStream}.
  *
  * @author Magnar Nedland
  * @author bjorncs
  */
 public class SimpleIndex {
 
+    /** The default max number of postings of a mapped index to keep on the heap, which take 8 bytes each */
+    public static final long defaultMaxCachedPostings = 1 << 24;
+
+    /** The postings on the heap, or null if this is mapped */
     private final LongObjectMap<Entry> dictionary;
 
+    /** The mapped postings, or null if this is on the heap */
+    private final MappedDictionary mappedDictionary;
+
     public SimpleIndex(LongObjectMap<Entry> dictionary) {
+        this(dictionary, null);
+    }
+
+    private SimpleIndex(LongObjectMap<Entry> dictionary, MappedDictionary mappedDictionary) {
         this.dictionary = dictionary;
+        this.mappedDictionary = mappedDictionary;
     }
 
     /**
@@ -36,19 +57,121 @@ public class SimpleIndex {
      * @return list of postings
      */
     public Entry getPostingList(long key) {
-        return dictionary.get(key);
+        return dictionary != null ? dictionary.get(key) : mappedDictionary.get(key);
+    }
+
+    private long[] keys() {
+        return dictionary != null ? dictionary.keysView().toArray() : mappedDictionary.keys();
+    }
+
+    /** Returns the posting list of a key in this, without caching it if this is mapped */
+    private Entry readPostingList(long key) {
+        return dictionary != null ? dictionary.get(key) : mappedDictionary.read(key);
+    }
+
+    /**
+     * Merges indexes over consecutive document id ranges into one.
+     *
+     * @param indexes the indexes to merge, in document id order
+     * @param docIdMappings for each index, the mapping from its document ids to ids in the merged index,
+     *                      which must be increasing, and -1 for documents to leave out
+     * @param dataRefMappings for each index, the mapping from its data references to those of the merged index
+     * @return the merged index, containing no empty posting lists
+     */
+    public static SimpleIndex merge(List<SimpleIndex> indexes,
+                                    List<IntUnaryOperator> docIdMappings,
+                                    List<IntUnaryOperator> dataRefMappings) {
+        LongHashSet keys = new LongHashSet();
+        for (SimpleIndex index : indexes)
+            keys.addAll(index.keys());
+        LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(keys.size());
+        keys.each(key -> {
+            int size = 0;
+            for (SimpleIndex index : indexes) {
+                Entry entry = index.readPostingList(key);
+                if (entry != null)
+                    size += entry.docIds.length;
+            }
+            int[] docIds = new int[size];
+            int[] dataRefs = new int[size];
+            int length = 0;
+            for (int i = 0; i < indexes.size(); i++) {
+                Entry entry = indexes.get(i).readPostingList(key);
+                if (entry == null) continue;
+                IntUnaryOperator docIdMapping = docIdMappings.get(i);
+                IntUnaryOperator dataRefMapping = dataRefMappings.get(i);
+                for (int j = 0; j < entry.docIds.length; j++) {
+                    int docId = docIdMapping.applyAsInt(entry.docIds[j]);
+                    if (docId < 0) continue;
+                    docIds[length] = docId;
+                    dataRefs[length] = dataRefMapping.applyAsInt(entry.dataRefs[j]);
+                    ++length;
+                }
+            }
+            if (length > 0)
+                dictionary.put(key, new Entry(Arrays.copyOf(docIds, length), Arrays.copyOf(dataRefs, length)));
+        });
+        dictionary.compact();
+        return new SimpleIndex(dictionary);
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(dictionary.size());
-        for (LongObjectPair<Entry> pair : dictionary.keyValuesView()) {
-            out.writeLong(pair.getOne());
-            Entry entry = pair.getTwo();
+        long[] keys = keys();
+        out.writeInt(keys.length);
+        for (long key : keys) {
+            out.writeLong(key);
+            Entry entry = readPostingList(key);
             SerializationHelper.writeIntArray(entry.docIds, out);
             SerializationHelper.writeIntArray(entry.dataRefs, out);
         }
     }
 
+    /**
+     * Writes this in a format where the postings can be accessed in place by
+     * {@link #fromMappedFile}: The sorted keys, followed by the offset of each key's postings,
+     * followed by the document ids and data references of all postings.
+     */
+    public void writeMappableToOutputStream(DataOutputStream out) throws IOException {
+        long[] keys = keys();
+        Arrays.sort(keys);
+        int[] offsets = new int[keys.length + 1];
+        for (int i = 0; i < keys.length; i++)
+            offsets[i + 1] = offsets[i] + readPostingList(keys[i]).docIds.length;
+        SerializationHelper.writeLongArray(keys, out);
+        SerializationHelper.writeIntArray(offsets, out);
+        out.writeInt(offsets[keys.length]);
+        for (long key : keys)
+            for (int docId : readPostingList(key).docIds)
+                out.writeInt(docId);
+        out.writeInt(offsets[keys.length]);
+        for (long key : keys)
+            for (int dataRef : readPostingList(key).dataRefs)
+                out.writeInt(dataRef);
+    }
+
+    /**
+     * Returns an index reading the postings written by {@link #writeMappableToOutputStream} from a memory-mapped file.
+     * Posting lists are copied to the heap when looked up, and the most recently used are kept there,
+     * up to {@link #defaultMaxCachedPostings} postings in total.
+     */
+    public static SimpleIndex fromMappedFile(MappedFileReader in) throws IOException {
+        return fromMappedFile(in, defaultMaxCachedPostings);
+    }
+
+    /**
+     * Returns an index reading the postings written by {@link #writeMappableToOutputStream} from a memory-mapped file,
+     * which keeps the most recently used posting lists on the heap, up to the given number of postings in total.
+     */
+    public static SimpleIndex fromMappedFile(MappedFileReader in, long maxCachedPostings) throws IOException {
+        return new SimpleIndex(null, new MappedDictionary(in.mapLongArray(), in.mapIntArray(),
+                                                          in.mapIntArray(), in.mapIntArray(), maxCachedPostings));
+    }
+
+    /** Returns the number of posting lists currently kept on the heap if this is mapped, or all if not */
+    long cachedPostingLists() {
+        return dictionary != null ? dictionary.size() : mappedDictionary.cachedPostingLists();
+    }
+
     public static SimpleIndex fromInputStream(DataInputStream in) throws IOException {
         int nEntries = in.readInt();
         LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(nEntries);
@@ -62,6 +185,78 @@ public class SimpleIndex {
         return new SimpleIndex(dictionary);
     }
 
+    private static class MappedDictionary {
+
+        private final MappedLongArray keys;
+        private final MappedIntArray offsets;
+        private final MappedIntArray docIds;
+        private final MappedIntArray dataRefs;
+
+        /**
+         * The posting lists most recently looked up, by key. These are kept so the same instances are returned
+         * on each lookup, which lets CachedPostingListCounter recognize them, but a posting list which is evicted
+         * is read as a new instance the next time it is looked up.
+         */
+        private final Cache<Long, Entry> postingLists;
+
+        MappedDictionary(MappedLongArray keys, MappedIntArray offsets, MappedIntArray docIds, MappedIntArray dataRefs,
+                         long maxCachedPostings) {
+            this.keys = keys;
+            this.offsets = offsets;
+            this.docIds = docIds;
+            this.dataRefs = dataRefs;
+            this.postingLists = CacheBuilder.newBuilder()
+                                            .concurrencyLevel(1) // Each segment has its own share of the max weight
+                                            .maximumWeight(maxCachedPostings)
+                                            .weigher((Long key, Entry entry) -> entry.docIds.length)
+                                            .build();
+        }
+
+        Entry get(long key) {
+            Entry entry = postingLists.getIfPresent(key);
+            if (entry != null) return entry;
+            int index = indexOf(key);
+            if (index < 0) return null;
+            return postingLists.asMap().computeIfAbsent(key, __ -> read(index));
+        }
+
+        Entry read(long key) {
+            Entry entry = postingLists.getIfPresent(key);
+            return entry != null ? entry : read(indexOf(key));
+        }
+
+        long cachedPostingLists() { return postingLists.size(); }
+
+        long[] keys() { return keys.toArray(); }
+
+        private int indexOf(long key) {
+            int low = 0;
+            int high = keys.length() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midKey = keys.get(mid);
+                if (midKey < key)
+                    low = mid + 1;
+                else if (midKey > key)
+                    high = mid - 1;
+                else
+                    return mid;
+            }
+            return -1;
+        }
+
+        private Entry read(int index) {
+            int offset = offsets.get(index);
+            int length = offsets.get(index + 1) - offset;
+            int[] entryDocIds = new int[length];
+            int[] entryDataRefs = new int[length];
+            docIds.get(offset, entryDocIds);
+            dataRefs.get(offset, entryDataRefs);
+            return new Entry(entryDocIds, entryDataRefs);
+        }
+
+    }
+
     public static class Entry {
         public final int[] docIds;
         public final int[] dataRefs;
@@ -11,6 +11,8 @@ import org.eclipse.collections.api.map.primitive.LongObjectMap;
 import org.eclipse.collections.api.tuple.primitive.IntObjectPair;
 import org.eclipse.collections.api.tuple.primitive.LongObjectPair;
 import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.LongIntHashMap;
+import org.eclipse.collections.impl.set.mutable.primitive.IntHashSet;
 import org.eclipse.collections.impl.map.mutable.primitive.LongObjectHashMap;
 
 import java.io.DataInputStream;
@@ -20,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongPredicate;
 
 /**
  * A searchable index of conjunctions (see {@link FeatureConjunction} / {@link IndexableFeatureConjunction}).
@@ -46,6 +49,73 @@ public class ConjunctionIndex {
         return new Searcher();
     }
 
+    /**
+     * Merges conjunction indexes into one, where each unique conjunction is indexed once.
+     *
+     * @param indexes the indexes to merge
+     * @param retain whether the conjunction having the given external id should be kept in the merged index
+     * @return the merged index
+     */
+    public static ConjunctionIndex merge(List<ConjunctionIndex> indexes, LongPredicate retain) {
+        // Assign new internal ids, in the order the conjunctions are found
+        LongIntHashMap externalToInternal = new LongIntHashMap();
+        List<int[]> internalIdMappings = new ArrayList<>(indexes.size());
+        for (ConjunctionIndex index : indexes) {
+            int[] internalIdMapping = new int[index.idMapping.length];
+            for (int i = 0; i < index.idMapping.length; i++) {
+                long externalId = index.idMapping[i];
+                internalIdMapping[i] = retain.test(externalId)
+                                       ? externalToInternal.getIfAbsentPut(externalId, externalToInternal.size())
+                                       : -1;
+            }
+            internalIdMappings.add(internalIdMapping);
+        }
+        long[] idMapping = new long[externalToInternal.size()];
+        externalToInternal.forEachKeyValue((externalId, internalId) -> idMapping[internalId] = externalId);
+
+        IntHashSet zList = new IntHashSet();
+        IntObjectHashMap<LongObjectHashMap<IntHashSet>> kIndex = new IntObjectHashMap<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            ConjunctionIndex index = indexes.get(i);
+            int[] internalIdMapping = internalIdMappings.get(i);
+            for (int id : index.zList) {
+                int newId = remapConjunctionId(id, internalIdMapping);
+                if (newId >= 0)
+                    zList.add(newId);
+            }
+            for (IntObjectPair<FeatureIndex> k : index.kIndex.keyValuesView()) {
+                LongObjectHashMap<IntHashSet> features = kIndex.getIfAbsentPut(k.getOne(), LongObjectHashMap::new);
+                for (LongObjectPair<int[]> feature : k.getTwo().map.keyValuesView()) {
+                    for (int id : feature.getTwo()) {
+                        int newId = remapConjunctionId(id, internalIdMapping);
+                        if (newId >= 0)
+                            features.getIfAbsentPut(feature.getOne(), IntHashSet::new).add(newId);
+                    }
+                }
+            }
+        }
+
+        IntObjectHashMap<FeatureIndex> mergedKIndex = new IntObjectHashMap<>(kIndex.size());
+        kIndex.forEachKeyValue((k, features) -> {
+            if (features.isEmpty()) return;
+            LongObjectHashMap<int[]> map = new LongObjectHashMap<>(features.size());
+            features.forEachKeyValue((feature, ids) -> map.put(feature, sorted(ids)));
+            mergedKIndex.put(k, new FeatureIndex(map));
+        });
+        return new ConjunctionIndex(mergedKIndex, sorted(zList), idMapping);
+    }
+
+    private static int remapConjunctionId(int id, int[] internalIdMapping) {
+        int internalId = internalIdMapping[id >>> 1];
+        return internalId < 0 ? -1 : (internalId << 1) | (id & 1);
+    }
+
+    private static int[] sorted(IntHashSet ids) {
+        int[] array = ids.toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
     public void writeToOutputStream(DataOutputStream out) throws IOException {
         SerializationHelper.writeIntArray(zList, out);
         SerializationHelper.writeLongArray(idMapping, out);
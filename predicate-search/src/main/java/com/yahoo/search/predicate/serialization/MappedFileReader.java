@@ -0,0 +1,136 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file written with {@link SerializationHelper} sequentially, where arrays can either be
+ * copied to the heap or memory-mapped and accessed in place.
+ * Arrays are mapped in chunks of at most 1 GB, so they may be larger than a single mapping allows.
+ * Mapped arrays stay valid after this is closed.
+ *
+ * @author bratseth
+ */
+public class MappedFileReader implements Closeable {
+
+    private static final int defaultMaxMappingBytes = 1 << 30;
+
+    private final FileChannel channel;
+    private final int maxMappingBytes;
+    private long position = 0;
+
+    public MappedFileReader(Path file) throws IOException {
+        this(file, defaultMaxMappingBytes);
+    }
+
+    /** Creates a reader which maps at most the given number of bytes at once, which must be a power of two of at least 8 */
+    MappedFileReader(Path file, int maxMappingBytes) throws IOException {
+        if (Integer.bitCount(maxMappingBytes) != 1 || maxMappingBytes < Long.BYTES)
+            throw new IllegalArgumentException("Max mapping size must be a power of two of at least 8 bytes, but was " + maxMappingBytes);
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.maxMappingBytes = maxMappingBytes;
+    }
+
+    public int readInt() throws IOException {
+        return read(Integer.BYTES).getInt();
+    }
+
+    public long readLong() throws IOException {
+        return read(Long.BYTES).getLong();
+    }
+
+    public byte[] readByteArray() throws IOException {
+        byte[] array = new byte[readInt()];
+        int copied = 0;
+        for (ByteBuffer chunk : map(array.length, Byte.BYTES)) {
+            chunk.get(array, copied, chunk.limit());
+            copied += chunk.limit();
+        }
+        return array;
+    }
+
+    public short[] readShortArray() throws IOException {
+        short[] array = new short[readInt()];
+        int copied = 0;
+        for (ByteBuffer chunk : map(array.length, Short.BYTES)) {
+            int count = chunk.limit() / Short.BYTES;
+            chunk.asShortBuffer().get(array, copied, count);
+            copied += count;
+        }
+        return array;
+    }
+
+    public int[] readIntArray() throws IOException {
+        int[] array = new int[readInt()];
+        mapInts(array.length).get(0, array);
+        return array;
+    }
+
+    /** Returns a stream reading a byte array written by {@link SerializationHelper#writeByteArray} */
+    public DataInputStream readByteArrayAsStream() throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(readByteArray()));
+    }
+
+    /** Returns a read-only view of an int array written by {@link SerializationHelper#writeIntArray} */
+    public MappedIntArray mapIntArray() throws IOException {
+        return mapInts(readInt());
+    }
+
+    /** Returns a read-only view of a long array written by {@link SerializationHelper#writeLongArray} */
+    public MappedLongArray mapLongArray() throws IOException {
+        int length = readInt();
+        ByteBuffer[] chunks = map(length, Long.BYTES);
+        LongBuffer[] longChunks = new LongBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++)
+            longChunks[i] = chunks[i].asLongBuffer();
+        return new MappedLongArray(longChunks, maxMappingBytes / Long.BYTES, length);
+    }
+
+    private MappedIntArray mapInts(int length) throws IOException {
+        ByteBuffer[] chunks = map(length, Integer.BYTES);
+        IntBuffer[] intChunks = new IntBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++)
+            intChunks[i] = chunks[i].asIntBuffer();
+        return new MappedIntArray(intChunks, maxMappingBytes / Integer.BYTES, length);
+    }
+
+    /** Maps the given number of elements of the given size in chunks of max mapping size, which hold whole elements */
+    private ByteBuffer[] map(int length, int elementBytes) throws IOException {
+        long size = (long) length * elementBytes;
+        if (position + size > channel.size())
+            throw new EOFException("Expected " + size + " bytes at position " + position + ", but file size is " + channel.size());
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((size + maxMappingBytes - 1) / maxMappingBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            long chunkSize = Math.min(maxMappingBytes, size - (long) i * maxMappingBytes);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+            position += chunkSize;
+        }
+        return chunks;
+    }
+
+    private ByteBuffer read(int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("Expected " + size + " bytes at position " + position);
+        }
+        position += size;
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,43 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import java.nio.IntBuffer;
+
+/**
+ * A read-only view of an int array in a memory-mapped file. The array is mapped in chunks,
+ * as a single mapping is limited to 2 GB.
+ *
+ * @author bratseth
+ */
+public class MappedIntArray {
+
+    private final IntBuffer[] chunks;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final int length;
+
+    MappedIntArray(IntBuffer[] chunks, int intsPerChunk, int length) {
+        this.chunks = chunks;
+        this.chunkShift = Integer.numberOfTrailingZeros(intsPerChunk);
+        this.chunkMask = intsPerChunk - 1;
+        this.length = length;
+    }
+
+    public int length() { return length; }
+
+    public int get(int index) {
+        return chunks[index >>> chunkShift].get(index & chunkMask);
+    }
+
+    /** Copies the ints from the given index into the whole of the given array */
+    public void get(int index, int[] destination) {
+        for (int copied = 0; copied < destination.length; ) {
+            IntBuffer chunk = chunks[(index + copied) >>> chunkShift];
+            int offset = (index + copied) & chunkMask;
+            int count = Math.min(destination.length - copied, chunk.limit() - offset);
+            chunk.get(offset, destination, copied, count);
+            copied += count;
+        }
+    }
+
+}
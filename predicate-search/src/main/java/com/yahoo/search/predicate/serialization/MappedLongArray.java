@@ -0,0 +1,40 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import java.nio.LongBuffer;
+
+/**
+ * A read-only view of a long array in a memory-mapped file. The array is mapped in chunks,
+ * as a single mapping is limited to 2 GB.
+ *
+ * @author bratseth
+ */
+public class MappedLongArray {
+
+    private final LongBuffer[] chunks;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final int length;
+
+    MappedLongArray(LongBuffer[] chunks, int longsPerChunk, int length) {
+        this.chunks = chunks;
+        this.chunkShift = Integer.numberOfTrailingZeros(longsPerChunk);
+        this.chunkMask = longsPerChunk - 1;
+        this.length = length;
+    }
+
+    public int length() { return length; }
+
+    public long get(int index) {
+        return chunks[index >>> chunkShift].get(index & chunkMask);
+    }
+
+    /** Copies the whole array to the heap */
+    public long[] toArray() {
+        long[] array = new long[length];
+        for (int i = 0, copied = 0; copied < length; copied += chunks[i++].limit())
+            chunks[i].get(0, array, copied, chunks[i].limit());
+        return array;
+    }
+
+}
@@ -3,11 +3,22 @@ package com.yahoo.search.predicate;
 
 import com.yahoo.document.predicate.Predicate;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -137,4 +148,151 @@ public class PredicateIndexTest {
         assertSerializationDeserializationMatches(
                 index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
     }
+
+    @Test
+    void require_that_index_can_be_mapped_from_file(@TempDir Path tempDir) throws IOException {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(new Config.Builder().setArity(10).setUseConjunctionAlgorithm(true).build());
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        builder.indexDocument(2, Predicate.fromString("country not in ['no'] and age in [20..40]"));
+        builder.indexDocument(3, Predicate.fromString("(country in ['no'] and gender in ['female']) or age in [0..10]"));
+        builder.indexDocument(4, Predicate.fromString("true"));
+        PredicateIndex index = builder.build();
+        Path file = tempDir.resolve("index");
+        index.writeToFile(file);
+        PredicateIndex mapped = PredicateIndex.fromFile(file);
+
+        PredicateQuery query = new PredicateQuery();
+        query.addRangeFeature("age", 30);
+        assertEquals("[2, 4]", mapped.searcher().search(query).toList().toString());
+        query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "female");
+        assertEquals("[3, 4]", mapped.searcher().search(query).toList().toString());
+        query.addFeature("gender", "male");
+        query.addRangeFeature("age", 5);
+        assertEquals("[1, 3, 4]", mapped.searcher().search(query).toList().toString());
+        assertEquals(index.searcher().search(query).toList(), mapped.searcher().search(query).toList());
+
+        mapped.removeDocument(3);
+        mapped.indexDocument(5, Predicate.fromString("gender in ['male']"));
+        mapped.compact();
+        assertEquals("[1, 4, 5]", mapped.searcher().search(query).toList().toString());
+        assertSerializationDeserializationMatches(
+                mapped, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
+    }
+
+    @Test
+    void requireThatDocumentsCanBeAddedToAndRemovedFromLiveIndex() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        PredicateIndex index = builder.build();
+        PredicateIndex.Searcher searcher = index.searcher();
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "male");
+        query.addRangeFeature("age", 36);
+
+        index.indexDocument(2, Predicate.fromString("country in ['no'] and age in [20..40]"));
+        index.indexDocument(3, Predicate.fromString("country in ['se']"));
+        index.indexDocument(4, Predicate.fromString("true"));
+        index.indexDocument(5, Predicate.fromString("false"));
+        assertEquals("[1, 2, 4]", searcher.search(query).toList().toString());
+        assertThrows(IllegalArgumentException.class, () -> index.indexDocument(2, Predicate.fromString("true")));
+
+        assertTrue(index.removeDocument(1));
+        assertFalse(index.removeDocument(1));
+        assertFalse(index.removeDocument(5));
+        assertEquals("[2, 4]", searcher.search(query).toList().toString());
+
+        index.indexDocument(1, Predicate.fromString("gender in ['male']"));
+        assertEquals("[2, 4, 1]", searcher.search(query).toList().toString());
+
+        index.compact();
+        assertEquals(1, index.segmentCount());
+        assertEquals("[2, 4, 1]", searcher.search(query).toList().toString());
+        assertEquals("[2, 4, 1]", index.searcher().search(query).toList().toString());
+    }
+
+    @Test
+    void requireThatSearchesUseTheSnapshotCurrentWhenTheyStart() {
+        PredicateIndex index = new PredicateIndexBuilder(10).build();
+        index.indexDocument(1, Predicate.fromString("country in ['no']"));
+        index.indexDocument(2, Predicate.fromString("country in ['no']"));
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+
+        Stream<Hit> hits = index.searcher().search(query);
+        index.removeDocument(1);
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        index.compact();
+        assertEquals("[1, 2]", hits.toList().toString());
+        assertEquals("[2, 3]", index.searcher().search(query).toList().toString());
+    }
+
+    @Test
+    void requireThatLiveIndexMatchesBuiltIndex() throws IOException {
+        for (boolean useConjunctionAlgorithm : new boolean[] { false, true }) {
+            Config config = new Config.Builder().setArity(8).setUseConjunctionAlgorithm(useConjunctionAlgorithm).build();
+            Random random = new Random(7);
+            PredicateIndex index = new PredicateIndexBuilder(config).build();
+            Map<Integer, Predicate> documents = new LinkedHashMap<>();
+            for (int i = 0; i < 2000; i++) {
+                int docId = random.nextInt(300);
+                if (documents.containsKey(docId)) {
+                    assertTrue(index.removeDocument(docId));
+                    documents.remove(docId);
+                }
+                else {
+                    Predicate predicate = randomPredicate(random);
+                    index.indexDocument(docId, predicate);
+                    documents.put(docId, predicate);
+                }
+                if (i % 100 == 0)
+                    assertSameHits(documents, config, index, random);
+            }
+            index.compact();
+            assertEquals(1, index.segmentCount());
+            assertSameHits(documents, config, index, random);
+            assertSerializationDeserializationMatches(
+                    index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
+        }
+    }
+
+    private static void assertSameHits(Map<Integer, Predicate> documents, Config config, PredicateIndex index, Random random) {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+        documents.forEach(builder::indexDocument);
+        PredicateIndex.Searcher expected = builder.build().searcher();
+        PredicateIndex.Searcher actual = index.searcher();
+        for (int i = 0; i < 20; i++) {
+            PredicateQuery query = new PredicateQuery();
+            for (String key : List.of("a", "b", "c")) {
+                if (random.nextBoolean())
+                    query.addFeature(key, String.valueOf(random.nextInt(4)), 1 + random.nextInt(3));
+            }
+            query.addRangeFeature("r", random.nextInt(100));
+            assertEquals(sorted(expected.search(query)), sorted(actual.search(query)));
+        }
+    }
+
+    private static Predicate randomPredicate(Random random) {
+        List<String> terms = new ArrayList<>();
+        for (String key : List.of("a", "b", "c")) {
+            switch (random.nextInt(4)) {
+                case 0 -> terms.add(key + " in ['" + random.nextInt(4) + "', '" + random.nextInt(4) + "']");
+                case 1 -> terms.add(key + " not in ['" + random.nextInt(4) + "']");
+                default -> { }
+            }
+        }
+        if (random.nextBoolean())
+            terms.add("r in [" + random.nextInt(50) + ".." + (50 + random.nextInt(50)) + "]");
+        if (terms.isEmpty()) return Predicate.fromString("true");
+        if (terms.size() > 2 && random.nextBoolean())
+            return Predicate.fromString("(" + terms.get(0) + " and " + terms.get(1) + ") or " + terms.get(2));
+        return Predicate.fromString(String.join(" and ", terms));
+    }
+
+    private static List<String> sorted(Stream<Hit> hits) {
+        return hits.map(Hit::toString).sorted().toList();
+    }
+
 }
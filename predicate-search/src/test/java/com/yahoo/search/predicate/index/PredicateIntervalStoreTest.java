@@ -2,9 +2,14 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -56,6 +61,25 @@ public class PredicateIntervalStoreTest {
                 store, PredicateIntervalStore::writeToOutputStream, PredicateIntervalStore::fromInputStream);
     }
 
+    @Test
+    void requireThatMappedStoreRetainsIntervals(@TempDir Path tempDir) throws IOException {
+        PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
+        int ref1 = builder.insert(List.of(0x00010001, 0x00020002));
+        int ref2 = builder.insert(List.of(0x0fffffff));
+        PredicateIntervalStore store = builder.build();
+
+        Path file = tempDir.resolve("intervals");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            store.writeMappableToOutputStream(out);
+        }
+        try (MappedFileReader in = new MappedFileReader(file)) {
+            PredicateIntervalStore mapped = PredicateIntervalStore.fromMappedFile(in);
+            assertEquals(2, mapped.size());
+            assertArrayEquals(store.get(ref1), mapped.get(ref1));
+            assertArrayEquals(store.get(ref2), mapped.get(ref2));
+        }
+    }
+
     @Test
     void requireThatEqualIntervalListsReturnsSameReference() {
         PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
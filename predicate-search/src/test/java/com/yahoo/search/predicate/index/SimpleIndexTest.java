@@ -1,13 +1,22 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.yahoo.search.predicate.serialization.MappedFileReader;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -62,4 +71,53 @@ public class SimpleIndexTest {
         SimpleIndex index = builder.build();
         assertSerializationDeserializationMatches(index, SimpleIndex::writeToOutputStream, SimpleIndex::fromInputStream);
     }
+
+    @Test
+    void requireThatMappedIndexRetainsPostings(@TempDir Path tempDir) throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        builder.insert(KEY, new Posting(DOC_ID, 10));
+        builder.insert(KEY, new Posting(DOC_ID + 1, 20));
+        builder.insert(KEY + 0xFFFFFF, new Posting(DOC_ID, 100));
+        builder.insert(-KEY, new Posting(DOC_ID + 2, 200));
+        SimpleIndex index = builder.build();
+
+        Path file = tempDir.resolve("index");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            index.writeMappableToOutputStream(out);
+        }
+        try (MappedFileReader in = new MappedFileReader(file)) {
+            SimpleIndex mapped = SimpleIndex.fromMappedFile(in);
+            for (long key : new long[] { KEY, KEY + 0xFFFFFF, -KEY }) {
+                assertArrayEquals(index.getPostingList(key).docIds, mapped.getPostingList(key).docIds);
+                assertArrayEquals(index.getPostingList(key).dataRefs, mapped.getPostingList(key).dataRefs);
+                assertSame(mapped.getPostingList(key), mapped.getPostingList(key));
+            }
+            assertNull(mapped.getPostingList(KEY + 1));
+        }
+    }
+
+    @Test
+    void requireThatMappedIndexKeepsBoundedNumberOfPostingsOnHeap(@TempDir Path tempDir) throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        for (int i = 0; i < 100; i++) {
+            builder.insert(KEY + i, new Posting(DOC_ID + i, i));
+            builder.insert(KEY + i, new Posting(DOC_ID + i + 1, i + 1));
+        }
+        SimpleIndex index = builder.build();
+
+        Path file = tempDir.resolve("index");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            index.writeMappableToOutputStream(out);
+        }
+        try (MappedFileReader in = new MappedFileReader(file)) {
+            SimpleIndex mapped = SimpleIndex.fromMappedFile(in, 20);
+            for (int i = 0; i < 100; i++) {
+                assertArrayEquals(index.getPostingList(KEY + i).docIds, mapped.getPostingList(KEY + i).docIds);
+                assertArrayEquals(index.getPostingList(KEY + i).dataRefs, mapped.getPostingList(KEY + i).dataRefs);
+                assertTrue(mapped.cachedPostingLists() <= 10);
+            }
+            assertSame(mapped.getPostingList(KEY + 99), mapped.getPostingList(KEY + 99));
+        }
+    }
+
 }
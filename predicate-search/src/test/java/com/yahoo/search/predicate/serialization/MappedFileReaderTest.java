@@ -0,0 +1,77 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests reading arrays which span several mappings, as arrays over 2 GB do.
+ *
+ * @author bratseth
+ */
+public class MappedFileReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void requireThatArraysAreMappedInChunks() throws IOException {
+        int[] ints = new int[1000];
+        long[] longs = new long[100];
+        short[] shorts = new short[99];
+        byte[] bytes = new byte[101];
+        for (int i = 0; i < ints.length; i++) ints[i] = i * 31;
+        for (int i = 0; i < longs.length; i++) longs[i] = (long) i << 40;
+        for (int i = 0; i < shorts.length; i++) shorts[i] = (short) -i;
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+        Path file = tempDir.resolve("arrays");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0); // Unaligned arrays
+            SerializationHelper.writeIntArray(ints, out);
+            SerializationHelper.writeLongArray(longs, out);
+            SerializationHelper.writeIntArray(ints, out);
+            SerializationHelper.writeShortArray(shorts, out);
+            SerializationHelper.writeByteArray(bytes, out);
+            SerializationHelper.writeIntArray(new int[0], out);
+        }
+
+        try (MappedFileReader in = new MappedFileReader(file, 64)) {
+            assertEquals(0, in.readInt());
+            MappedIntArray mappedInts = in.mapIntArray();
+            assertEquals(ints.length, mappedInts.length());
+            for (int i = 0; i < ints.length; i++)
+                assertEquals(ints[i], mappedInts.get(i));
+            int[] copy = new int[100];
+            mappedInts.get(10, copy);
+            for (int i = 0; i < copy.length; i++)
+                assertEquals(ints[10 + i], copy[i]);
+
+            MappedLongArray mappedLongs = in.mapLongArray();
+            assertEquals(longs.length, mappedLongs.length());
+            for (int i = 0; i < longs.length; i++)
+                assertEquals(longs[i], mappedLongs.get(i));
+            assertArrayEquals(longs, mappedLongs.toArray());
+
+            assertArrayEquals(ints, in.readIntArray());
+            assertArrayEquals(shorts, in.readShortArray());
+            assertArrayEquals(bytes, in.readByteArray());
+            assertEquals(0, in.mapIntArray().length());
+        }
+    }
+
+    @Test
+    void requireThatMaxMappingSizeHoldsWholeElements() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileReader(tempDir.resolve("arrays"), 12));
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileReader(tempDir.resolve("arrays"), 4));
+    }
+
+}
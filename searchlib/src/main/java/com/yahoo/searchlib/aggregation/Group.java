@@ -235,6 +235,14 @@ public class Group extends Identifiable {
         return List.copyOf(children);
     }
 
+    /** Removes the child groups of this, and returns them. */
+    public List<Group> removeChildren() {
+        List<Group> removed = children;
+        children = List.of();
+        sortType = SortType.UNSORTED;
+        return removed;
+    }
+
     /** Returns number of children groups */
     public int getNumChildren() {
         return children.size();
@@ -28,6 +28,9 @@ public class GBDTForestNode extends ExpressionNode {
         this.values=values;
     }
 
+    /** Returns a direct reference to the values of this. The returned array must not be modified. */
+    public final double[] values() { return values; }
+
     @Override
     public final TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
 
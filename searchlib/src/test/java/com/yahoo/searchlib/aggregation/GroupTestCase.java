@@ -42,6 +42,21 @@ public class GroupTestCase {
         }
     }
 
+    @Test
+    public void requireThatChildrenCanBeRemoved() {
+        Group group = new Group();
+        Group foo = new Group().setId(new IntegerResultNode(2));
+        Group bar = new Group().setId(new IntegerResultNode(1));
+        group.addChild(foo).addChild(bar);
+        group.sortChildrenById();
+        assertEquals(List.of(bar, foo), group.removeChildren());
+        assertEquals(0, group.getNumChildren());
+
+        group.addChild(foo).addChild(bar);
+        group.sortChildrenById();
+        assertEquals(List.of(bar, foo), group.getChildren());
+    }
+
     @Test
     public void requireThatOrderByExpressionsCanBeAdded() {
         Group group = new Group();
@@ -160,6 +160,13 @@ public interface FeedClientBuilder {
      */
     FeedClientBuilder setInitialInflightFactor(int factor);
 
+    /**
+     * Sets the max number of operations this client packs into each HTTP request, as a stream of JSON lines
+     * sent to {@code /document/v1/feed}, which responds with a line per operation as each completes.
+     * The default is 1, which sends each operation as a separate request.
+     */
+    FeedClientBuilder setOperationsPerStream(int max);
+
     /** Constructs instance of {@link FeedClient} from builder configuration */
     FeedClient build();
 
@@ -60,6 +60,7 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
     Duration connectionTtl = Duration.ZERO;
     LongSupplier nanoClock = System::nanoTime;
     int initialInflightFactor = 1;
+    int operationsPerStream = 1;
 
     public FeedClientBuilderImpl() { }
 
@@ -265,6 +266,13 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
         return this;
     }
 
+    @Override
+    public FeedClientBuilderImpl setOperationsPerStream(int max) {
+        if (max < 1) throw new IllegalArgumentException("Operations per stream must be at least 1, but was " + max);
+        this.operationsPerStream = max;
+        return this;
+    }
+
     /** Constructs instance of {@link ai.vespa.feed.client.FeedClient} from builder configuration */
     @Override
     public FeedClient build() {
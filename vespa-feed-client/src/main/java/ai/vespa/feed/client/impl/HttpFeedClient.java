@@ -15,6 +15,7 @@ import com.fasterxml.jackson.core.JsonFactoryBuilder;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -58,11 +59,14 @@ class HttpFeedClient implements FeedClient {
     private final RequestStrategy requestStrategy;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final boolean speedTest;
+    private final boolean streaming;
     private final LongSupplier nanoClock;
 
     HttpFeedClient(FeedClientBuilderImpl builder) throws IOException {
         this(builder,
-             builder.dryrun ? () -> new DryrunCluster() : () -> new JettyCluster(builder));
+             builder.dryrun ? () -> new DryrunCluster()
+                            : builder.operationsPerStream > 1 ? () -> new StreamingCluster(new JettyCluster(builder), builder)
+                                                              : () -> new JettyCluster(builder));
     }
 
     HttpFeedClient(FeedClientBuilderImpl builder, ClusterFactory clusterFactory) throws IOException {
@@ -73,6 +77,7 @@ class HttpFeedClient implements FeedClient {
         this.requestHeaders = new HashMap<>(builder.requestHeaders);
         this.requestStrategy = requestStrategy;
         this.speedTest = builder.speedTest;
+        this.streaming = builder.operationsPerStream > 1;
         this.nanoClock = builder.nanoClock;
         verifyConnection(builder, clusterFactory);
     }
@@ -126,7 +131,8 @@ class HttpFeedClient implements FeedClient {
                                               requestHeaders,
                                               operationJson == null ? null : operationJson.getBytes(UTF_8), // TODO: make it bytes all the way?
                                               params.timeout().orElse(maxTimeout),
-                                              nanoClock);
+                                              nanoClock,
+                                              streaming ? getStreamOperation(method, documentId, operationJson, params, speedTest) : null);
 
         CompletableFuture<Result> promise = new CompletableFuture<>();
         requestStrategy.enqueue(documentId, request)
@@ -332,6 +338,46 @@ class HttpFeedClient implements FeedClient {
         return query.toString();
     }
 
+    static String getStreamQuery(OperationParameters params, boolean speedTest) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        params.route().ifPresent(route -> query.add("route=" + encode(route)));
+        params.tracelevel().ifPresent(tracelevel -> query.add("tracelevel=" + tracelevel));
+        if (speedTest) query.add("dryRun=true");
+        return query.toString();
+    }
+
+    /**
+     * Returns the given operation as a line in a feed stream, with the parameters which may vary between the
+     * operations in a stream written in the line, or null if the operation JSON is not an object.
+     */
+    static HttpRequest.StreamOperation getStreamOperation(String method, DocumentId documentId, String operationJson,
+                                              OperationParameters params, boolean speedTest) {
+        String fields = "";
+        if (operationJson != null) {
+            fields = operationJson.strip();
+            if ( ! fields.startsWith("{") || ! fields.endsWith("}")) return null;
+            fields = fields.substring(1, fields.length() - 1).strip();
+        }
+        String operation;
+        switch (method) {
+            case "POST": operation = "put"; break;
+            case "PUT": operation = "update"; break;
+            case "DELETE": operation = "remove"; break;
+            default: throw new IllegalArgumentException("Unexpected HTTP method: " + method);
+        }
+        StringBuilder line = new StringBuilder();
+        line.append("{\"").append(operation).append("\":\"").append(JsonStringEncoder.getInstance().quoteAsString(documentId.toString())).append('"');
+        if (params.createIfNonExistent()) line.append(",\"create\":true");
+        params.testAndSetCondition().ifPresent(condition -> line.append(",\"condition\":\"")
+                                                               .append(JsonStringEncoder.getInstance().quoteAsString(condition))
+                                                               .append('"'));
+        if ( ! fields.isEmpty()) line.append(',').append(fields);
+        line.append('}');
+        // Line breaks can only be whitespace in valid JSON, so they are replaced to keep the operation on one line.
+        String singleLine = line.toString().replace('\n', ' ').replace('\r', ' ');
+        return new HttpRequest.StreamOperation(getStreamQuery(params, speedTest), singleLine.getBytes(UTF_8));
+    }
+
     /** Factory for creating a new {@link Cluster} to dispatch operations to. Used for resetting the active cluster. */
     interface ClusterFactory {
 
@@ -19,8 +19,14 @@ class HttpRequest {
     private final long deadlineNanos;
     private final LongSupplier nanoClock;
     private final AtomicLong firstDispatchNanos = new AtomicLong(-1);
+    private final StreamOperation streamOperation;
 
     public HttpRequest(String method, String path, String query, Map<String, Supplier<String>> headers, byte[] body, Duration timeout, LongSupplier nanoClock) {
+        this(method, path, query, headers, body, timeout, nanoClock, null);
+    }
+
+    public HttpRequest(String method, String path, String query, Map<String, Supplier<String>> headers, byte[] body, Duration timeout, LongSupplier nanoClock,
+                       StreamOperation streamOperation) {
         this.method = method;
         this.path = path;
         this.query = query;
@@ -29,6 +35,7 @@ class HttpRequest {
         this.deadlineNanos = nanoClock.getAsLong() + timeout.toNanos();
         this.timeout = timeout;
         this.nanoClock = nanoClock;
+        this.streamOperation = streamOperation;
     }
 
     public String method() {
@@ -55,6 +62,9 @@ class HttpRequest {
         return timeout;
     }
 
+    /** Returns this as an operation which may be sent as part of a feed stream, if it may */
+    Optional<StreamOperation> streamOperation() { return Optional.ofNullable(streamOperation); }
+
     void onDispatch(long timeNs) { firstDispatchNanos.compareAndSet(-1, timeNs); }
 
     Optional<Long> firstDispatchNanos() { return Optional.of(firstDispatchNanos.get()).filter(ns -> ns >= 0); }
@@ -64,4 +74,24 @@ class HttpRequest {
         return method + " " + path;
     }
 
+    /**
+     * An operation as a line in a feed stream, and the query of the streams it may be sent in.
+     * The query holds the parameters which apply to the whole stream, while the line holds the rest.
+     */
+    static class StreamOperation {
+
+        private final String query;
+        private final byte[] line;
+
+        StreamOperation(String query, byte[] line) {
+            this.query = query;
+            this.line = line;
+        }
+
+        String query() { return query; }
+
+        byte[] line() { return line; }
+
+    }
+
 }
@@ -0,0 +1,237 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationStats;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * A cluster which packs operations into streams of JSON lines, which are sent as single requests to
+ * {@code /document/v1/feed}, and completes each operation with its line in the streamed response.
+ *
+ * A stream is sent when it holds the max number of operations, or bytes, or when its first operation has waited
+ * for the max delay, whichever comes first. Operations with different stream parameters are sent in different streams,
+ * and operations which can not be streamed, or are alone in their stream, are sent as separate requests.
+ * Each operation in a stream still has its own slot in the throttling and retry logic of the {@link RequestStrategy},
+ * so operations which are rejected by the server (429) or not completed are retried individually.
+ *
+ * @author bratseth
+ */
+class StreamingCluster implements Cluster {
+
+    private static final Logger log = Logger.getLogger(StreamingCluster.class.getName());
+
+    private static final String path = "/document/v1/feed";
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final int maxBytes = 1 << 20;
+
+    private final Cluster delegate;
+    private final int maxOperations;
+    private final Duration maxDelay;
+    private final LongSupplier nanoClock;
+    private final Map<String, Stream> open = new HashMap<>(); // Streams being filled, by query
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-client-stream-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    StreamingCluster(Cluster delegate, FeedClientBuilderImpl builder) {
+        this(delegate, builder.operationsPerStream, Duration.ofMillis(2), builder.nanoClock);
+    }
+
+    StreamingCluster(Cluster delegate, int maxOperations, Duration maxDelay, LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.maxOperations = maxOperations;
+        this.maxDelay = maxDelay;
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public void dispatch(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+        if (request.streamOperation().isEmpty()) {
+            delegate.dispatch(request, vessel);
+            return;
+        }
+
+        String query = request.streamOperation().get().query();
+        Stream full = null;
+        synchronized (open) {
+            Stream stream = open.get(query);
+            if (stream == null) {
+                open.put(query, stream = new Stream(query));
+                Stream created = stream;
+                flusher.schedule(() -> flush(created), maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            stream.add(request, vessel);
+            if (stream.operations.size() >= maxOperations || stream.body.size() >= maxBytes) {
+                open.remove(query);
+                full = stream;
+            }
+        }
+        if (full != null) send(full);
+    }
+
+    /** Sends the given stream, unless it was already sent because it became full. */
+    private void flush(Stream stream) {
+        synchronized (open) {
+            if ( ! open.remove(stream.query, stream)) return;
+        }
+        send(stream);
+    }
+
+    private void send(Stream stream) {
+        try {
+            if (stream.operations.size() == 1) {
+                Operation operation = stream.operations.get(0);
+                delegate.dispatch(operation.request, operation.vessel);
+                return;
+            }
+
+            Duration timeout = Duration.ZERO;
+            for (Operation operation : stream.operations)
+                if (operation.request.timeLeft().compareTo(timeout) > 0)
+                    timeout = operation.request.timeLeft();
+
+            HttpRequest request = new HttpRequest("POST",
+                                                  path,
+                                                  stream.query,
+                                                  stream.operations.get(0).request.headers(),
+                                                  stream.body.toByteArray(),
+                                                  timeout,
+                                                  nanoClock);
+            CompletableFuture<HttpResponse> response = new CompletableFuture<>();
+            response.whenComplete((result, thrown) -> complete(stream, result, thrown));
+            delegate.dispatch(request, response);
+        }
+        catch (Throwable t) {
+            for (Operation operation : stream.operations)
+                operation.vessel.completeExceptionally(t);
+        }
+    }
+
+    /** Completes each operation in the given stream with its line in the given response, or the response itself. */
+    private static void complete(Stream stream, HttpResponse response, Throwable thrown) {
+        if (thrown != null) {
+            for (Operation operation : stream.operations)
+                operation.vessel.completeExceptionally(thrown);
+            return;
+        }
+        if (response.code() != 200 || response.contentType() == null || ! response.contentType().startsWith("application/jsonl")) {
+            for (Operation operation : stream.operations)
+                operation.vessel.complete(response);
+            return;
+        }
+
+        byte[] body = response.body();
+        for (int start = 0, end; start < body.length; start = end + 1) {
+            end = start;
+            while (end < body.length && body[end] != '\n') end++;
+            if (end > start) complete(stream, Arrays.copyOfRange(body, start, end));
+        }
+        for (Operation operation : stream.operations)
+            operation.vessel.completeExceptionally(new IOException("No result for " + operation.request + " in response to feed stream"));
+    }
+
+    private static void complete(Stream stream, byte[] line) {
+        int index = -1;
+        int status = -1;
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return;
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                switch (name) {
+                    case "index":
+                        index = parser.nextIntValue(-1);
+                        break;
+                    case "status":
+                        status = parser.nextIntValue(-1);
+                        break;
+                    default:
+                        parser.nextToken();
+                        parser.skipChildren();
+                        break;
+                }
+            }
+        }
+        catch (IOException e) {
+            log.log(FINE, "Failed parsing line in response to feed stream", e);
+            return;
+        }
+        if (index < 0 || index >= stream.operations.size() || status < 0) return;
+
+        stream.operations.get(index).vessel.complete(HttpResponse.of(status, line));
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        List<Stream> unsent;
+        synchronized (open) {
+            unsent = new ArrayList<>(open.values());
+            open.clear();
+        }
+        for (Stream stream : unsent)
+            for (Operation operation : stream.operations)
+                operation.vessel.completeExceptionally(new IOException("Client closed before feed stream was sent"));
+        delegate.close();
+    }
+
+    @Override
+    public OperationStats stats() { return delegate.stats(); }
+
+    @Override
+    public void resetStats() { delegate.resetStats(); }
+
+    private static class Operation {
+
+        private final HttpRequest request;
+        private final CompletableFuture<HttpResponse> vessel;
+
+        private Operation(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            this.request = request;
+            this.vessel = vessel;
+        }
+
+    }
+
+    /** Operations with the same stream query, in the order of their lines in the stream body. */
+    private static class Stream {
+
+        private final String query;
+        private final List<Operation> operations = new ArrayList<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 12);
+
+        private Stream(String query) {
+            this.query = query;
+        }
+
+        private void add(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            byte[] line = request.streamOperation().get().line();
+            body.write(line, 0, line.length);
+            body.write('\n');
+            operations.add(new Operation(request, vessel));
+        }
+
+    }
+
+}
@@ -262,4 +262,23 @@ class HttpFeedClientTest {
                            null);
     }
 
+    @Test
+    void testStreamOperations() {
+        DocumentId id = DocumentId.of("ns", "type", "0");
+        HttpRequest.StreamOperation put = HttpFeedClient.getStreamOperation("POST", id, " {\n  \"fields\": { \"title\": \"\\\"0\\\"\" }\n}\n",
+                                                                            OperationParameters.empty().createIfNonExistent(true).route("default"),
+                                                                            false);
+        assertEquals("?route=default", put.query());
+        assertEquals("{\"put\":\"id:ns:type::0\",\"create\":true,\"fields\": { \"title\": \"\\\"0\\\"\" }}",
+                     new String(put.line(), UTF_8));
+
+        HttpRequest.StreamOperation remove = HttpFeedClient.getStreamOperation("DELETE", id, null,
+                                                                               OperationParameters.empty().testAndSetCondition("type.title==\"0\""),
+                                                                               true);
+        assertEquals("?dryRun=true", remove.query());
+        assertEquals("{\"remove\":\"id:ns:type::0\",\"condition\":\"type.title==\\\"0\\\"\"}", new String(remove.line(), UTF_8));
+
+        assertNull(HttpFeedClient.getStreamOperation("PUT", id, "[]", OperationParameters.empty(), false));
+    }
+
 }
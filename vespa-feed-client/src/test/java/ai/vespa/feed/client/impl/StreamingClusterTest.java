@@ -0,0 +1,113 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.DocumentId;
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationParameters;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+class StreamingClusterTest {
+
+    @Test
+    void testStreaming() throws ExecutionException, InterruptedException, TimeoutException {
+        List<HttpRequest> requests = new ArrayList<>();
+        List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+        Cluster delegate = (request, vessel) -> {
+            requests.add(request);
+            responses.add(vessel);
+        };
+        StreamingCluster cluster = new StreamingCluster(delegate, 3, Duration.ofHours(1), () -> 0);
+
+        // Operations which may not be streamed are sent directly
+        HttpRequest single = new HttpRequest("POST", "/document/v1/ns/type/docid/0", "", Map.of(), null, Duration.ofSeconds(10), () -> 0);
+        CompletableFuture<HttpResponse> singleVessel = new CompletableFuture<>();
+        cluster.dispatch(single, singleVessel);
+        assertEquals(List.of(single), requests);
+
+        // A stream is sent as soon as it is full
+        List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            vessels.add(new CompletableFuture<>());
+            cluster.dispatch(request(i), vessels.get(i));
+        }
+        assertEquals(2, requests.size());
+        HttpRequest stream = requests.get(1);
+        assertEquals("POST", stream.method());
+        assertEquals("/document/v1/feed?timeout=10000ms", stream.pathAndQuery());
+        assertEquals("""
+                     {"remove":"id:ns:type::0"}
+                     {"remove":"id:ns:type::1"}
+                     {"remove":"id:ns:type::2"}
+                     """,
+                     new String(stream.body(), UTF_8));
+
+        // Each operation is completed with its line in the response, or a failure if it is missing
+        byte[] body = """
+                      {"index":2,"id":"id:ns:type::2","status":200,"pathId":"/document/v1/feed"}
+                      {"index":0,"id":"id:ns:type::0","status":429,"pathId":"/document/v1/feed","message":"overload"}
+                      """.getBytes(UTF_8);
+        responses.get(1).complete(new HttpResponse() {
+            @Override public int code() { return 200; }
+            @Override public byte[] body() { return body; }
+            @Override public String contentType() { return "application/jsonl; charset=UTF-8"; }
+        });
+        assertEquals(429, vessels.get(0).get().code());
+        assertTrue(new String(vessels.get(0).get().body(), UTF_8).contains("\"message\":\"overload\""));
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> vessels.get(1).get()).getCause());
+        assertEquals("{\"index\":2,\"id\":\"id:ns:type::2\",\"status\":200,\"pathId\":\"/document/v1/feed\"}",
+                     new String(vessels.get(2).get().body(), UTF_8));
+
+        // Operations in streams which are not sent are failed on close
+        CompletableFuture<HttpResponse> unsent = new CompletableFuture<>();
+        cluster.dispatch(request(3), unsent);
+        cluster.close();
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> unsent.get()).getCause());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void testFlushing() throws ExecutionException, InterruptedException, TimeoutException {
+        List<HttpRequest> requests = new CopyOnWriteArrayList<>();
+        HttpResponse ok = HttpResponse.of(200, null);
+        Cluster delegate = (request, vessel) -> {
+            requests.add(request);
+            vessel.complete(ok);
+        };
+        StreamingCluster cluster = new StreamingCluster(delegate, 3, Duration.ofMillis(1), () -> 0);
+
+        // An operation alone in a stream is sent as a single request when the stream is flushed
+        CompletableFuture<HttpResponse> alone = new CompletableFuture<>();
+        cluster.dispatch(request(0), alone);
+        assertEquals(ok, alone.get(10, TimeUnit.SECONDS));
+        assertEquals(1, requests.size());
+        assertEquals("/document/v1/ns/type/docid/0?timeout=10000ms", requests.get(0).pathAndQuery());
+        cluster.close();
+    }
+
+    private static HttpRequest request(int index) {
+        DocumentId id = DocumentId.of("ns", "type", Integer.toString(index));
+        return new HttpRequest("DELETE", HttpFeedClient.getPath(id), "", Map.of(), null, Duration.ofSeconds(10), () -> 0,
+                               HttpFeedClient.getStreamOperation("DELETE", id, null, OperationParameters.empty(), false));
+    }
+
+}
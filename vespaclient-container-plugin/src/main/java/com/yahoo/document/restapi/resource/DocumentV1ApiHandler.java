@@ -13,6 +13,7 @@ import com.yahoo.container.core.HandlerMetricContextUtil;
 import com.yahoo.container.core.documentapi.VespaDocumentAccess;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentTypeManager;
@@ -72,8 +73,11 @@ import com.yahoo.vespa.http.server.MetricNames;
 import com.yahoo.yolean.Exceptions;
 import com.yahoo.yolean.Exceptions.RunnableThrowingIOException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
@@ -92,6 +96,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -99,6 +104,7 @@ import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
 import java.util.stream.Stream;
@@ -183,16 +189,17 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final long maxThrottled;
     private final long maxThrottledAgeNS;
     private final long maxThrottledTotalBytes;
+    private final long maxDispatchWaitMillis;
     private final DocumentAccess access;
     private final AsyncSession asyncSession;
     private final Map<String, StorageCluster> clusters;
-    private final Deque<Operation> operations = new ConcurrentLinkedDeque<>();
+    private final DispatchShard[] shards;
     private final Deque<BooleanSupplier> visitOperations = new ConcurrentLinkedDeque<>();
     private final AtomicLong enqueued = new AtomicLong();
     private final AtomicLong outstanding = new AtomicLong();
     private final AtomicLong operationBytesQueued = new AtomicLong();
     private final Map<VisitorControlHandler, VisitorSession> visits = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-"));
+    private final ScheduledExecutorService dispatcher;
     private final ScheduledExecutorService visitDispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-visit-"));
     private final Map<String, Map<Method, Handler>> handlers = defineApi();
     private final HandlerMetricContextUtil metricUtil;
@@ -229,9 +236,18 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         this.asyncSession = access.createAsyncSession(asyncParameters);
         this.clusters = parseClusters(clusterListConfig, bucketSpacesConfig);
         long resendDelayMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(executorConfig.resendDelayMillis())).toMillis();
+        this.maxDispatchWaitMillis = resendDelayMS;
 
+        int dispatcherThreads = executorConfig.dispatcherThreads() > 0 ? executorConfig.dispatcherThreads()
+                                                                       : Runtime.getRuntime().availableProcessors();
+        this.shards = new DispatchShard[dispatcherThreads];
+        this.dispatcher = Executors.newScheduledThreadPool(dispatcherThreads, new DaemonThreadFactory("document-api-handler-"));
         // TODO: Here it would be better to have dedicated threads with different wait depending on blocked or empty.
-        this.dispatcher.scheduleWithFixedDelay(this::dispatchEnqueued, resendDelayMS, resendDelayMS, MILLISECONDS);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new DispatchShard();
+            DispatchShard shard = shards[i];
+            this.dispatcher.scheduleWithFixedDelay(() -> shard.dispatchEnqueued(0), resendDelayMS, resendDelayMS, MILLISECONDS);
+        }
         this.visitDispatcher.scheduleWithFixedDelay(this::dispatchVisitEnqueued, resendDelayMS, resendDelayMS, MILLISECONDS);
         this.metricUtil = new HandlerMetricContextUtil(this.metric, this.getClass().getName());
     }
@@ -306,13 +322,13 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         // Shut down both dispatchers, so only we empty the queues of outstanding operations, and can be sure they're empty.
         dispatcher.shutdown();
         visitDispatcher.shutdown();
-        while ( ! (operations.isEmpty() && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
+        while ( ! (queuedOperations() == 0 && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
             dispatchEnqueued();
             dispatchVisitEnqueued();
         }
 
-        if ( ! operations.isEmpty())
-            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + operations.size() + " requests left");
+        if (queuedOperations() != 0)
+            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + queuedOperations() + " requests left");
 
         if ( ! visitOperations.isEmpty())
             log.log(WARNING, "Failed to empty visitor operations queue before shutdown timeout — " + visitOperations.size() + " operations left");
@@ -356,6 +372,9 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
                             POST, this::postDocuments,
                             DELETE, this::deleteDocuments));
 
+        handlers.put("/document/v1/feed",
+                     Map.of(POST, this::feedDocuments));
+
         handlers.put("/document/v1/{namespace}/{documentType}/docid/",
                      Map.of(GET, this::getDocuments,
                             POST, this::postDocuments,
@@ -460,7 +479,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     private ContentChannel getDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(request, rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.GET, clock.instant());
         disallow(request, DRY_RUN);
-        enqueueAndDispatch(request, handler, 0, () -> {
+        enqueueAndDispatch(path.id(), request, handler, 0, () -> {
             DocumentOperationParameters rawParameters = parametersFromRequest(request, CLUSTER, FIELD_SET);
             if (rawParameters.fieldSet().isEmpty())
                 rawParameters = rawParameters.withFieldSet(path.documentType().orElseThrow() + ":[document]");
@@ -489,7 +508,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         return new ForwardingContentChannel((bytesRead, in) -> {
-            enqueueAndDispatch(request, handler, bytesRead, () -> {
+            enqueueAndDispatch(path.id(), request, handler, bytesRead, () -> {
                 ParsedDocumentOperation parsed = parser.parsePut(in, path.id().toString());
                 DocumentPut put = (DocumentPut)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(put::setCondition);
@@ -514,7 +533,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         return new ForwardingContentChannel((bytesRead, in) -> {
-            enqueueAndDispatch(request, handler, bytesRead, () -> {
+            enqueueAndDispatch(path.id(), request, handler, bytesRead, () -> {
                 ParsedDocumentOperation parsed = parser.parseUpdate(in, path.id().toString());
                 DocumentUpdate update = (DocumentUpdate)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(update::setCondition);
@@ -538,7 +557,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return ignoredContent;
         }
 
-        enqueueAndDispatch(request, handler, 0, () -> {
+        enqueueAndDispatch(path.id(), request, handler, 0, () -> {
             DocumentRemove remove = new DocumentRemove(path.id());
             getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(remove::setCondition);
             DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
@@ -552,10 +571,95 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         return ignoredContent;
     }
 
+    /**
+     * Feeds a stream of document operations in the JSON Lines format, responding with a line for each operation
+     * as soon as it completes. Each operation is enqueued and dispatched as soon as its line is read, in the same
+     * way as when it is sent as a single request, and the per-operation condition and create options in the lines
+     * replace the corresponding request parameters. The queue age, latency and timeout of each operation are counted
+     * from when its line is read, and not from when the stream was opened.
+     */
+    private ContentChannel feedDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
+        disallow(request, CONDITION, CREATE);
+        boolean dryRun = getProperty(request, DRY_RUN, booleanParser).orElse(false);
+        FeedStreamResponse stream = new FeedStreamResponse(new BufferedContentChannelResponseWriter(handler));
+        try {
+            stream.commit(path.rawPath());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JsonLinesContentChannel((index, line) -> feedStreamedOperation(request, index, line, dryRun, stream),
+                                           stream::endOfOperations);
+    }
+
+    private void feedStreamedOperation(HttpRequest request, int index, byte[] line, boolean dryRun, FeedStreamResponse stream) {
+        DocumentOperation operation;
+        try {
+            operation = parser.parseOperation(line);
+        }
+        catch (IllegalArgumentException e) {
+            stream.writeError(index, Exceptions.toMessageString(e));
+            return;
+        }
+        if (operation == null) {
+            stream.writeError(index, "No document operation in line");
+            return;
+        }
+
+        long createdAtNanos = System.nanoTime();
+        long doomMillis = clock.millis() + timeoutMillis(request);
+        Function<DocumentOperationParameters, Result> send;
+        com.yahoo.documentapi.metrics.DocumentOperationType type;
+        Consumer<com.yahoo.documentapi.Response> metrics;
+        if (operation instanceof DocumentPut put) {
+            type = com.yahoo.documentapi.metrics.DocumentOperationType.PUT;
+            metrics = response -> updatePutMetrics(response.outcome(), latencyOf(createdAtNanos), put.getCreateIfNonExistent());
+            send = parameters -> asyncSession.put(put, parameters);
+        }
+        else if (operation instanceof DocumentUpdate update) {
+            type = com.yahoo.documentapi.metrics.DocumentOperationType.UPDATE;
+            metrics = response -> updateUpdateMetrics(response.outcome(), latencyOf(createdAtNanos), update.getCreateIfNonExistent());
+            send = parameters -> asyncSession.update(update, parameters);
+        }
+        else {
+            DocumentRemove remove = (DocumentRemove) operation;
+            type = com.yahoo.documentapi.metrics.DocumentOperationType.REMOVE;
+            metrics = response -> updateRemoveMetrics(response.outcome(), latencyOf(createdAtNanos));
+            send = parameters -> asyncSession.remove(remove, parameters);
+        }
+
+        ResponseHandler handler = new MeasuringResponseHandler(
+                request, stream.operationHandler(index, operation.getId()), type, clock.instant());
+        if (dryRun) {
+            handleStreamedFeedOperation(request, handler, new com.yahoo.documentapi.Response(-1));
+            return;
+        }
+
+        // Each operation in the stream is queued, timed and timed out by itself, as if it were a single request
+        BooleanSupplier timedOut = () -> {
+            if (clock.millis() < doomMillis) return false;
+            timeout(request, "Timed out waiting to dispatch the operation", handler);
+            return true;
+        };
+        enqueueAndDispatch(shardOf(operation.getId()), new Operation(request, handler, line.length, () -> {
+            DocumentOperationParameters parameters = parametersFromRequest(request, doomMillis, ROUTE)
+                    .withResponseHandler(response -> {
+                        outstanding.decrementAndGet();
+                        metrics.accept(response);
+                        handleStreamedFeedOperation(request, handler, response);
+                    });
+            return () -> dispatchOperation(() -> send.apply(parameters));
+        }, createdAtNanos, timedOut));
+    }
+
     private DocumentOperationParameters parametersFromRequest(HttpRequest request, String... names) {
+        return parametersFromRequest(request, doomMillis(request), names);
+    }
+
+    private DocumentOperationParameters parametersFromRequest(HttpRequest request, long doomMillis, String... names) {
         DocumentOperationParameters parameters = getProperty(request, TRACELEVEL, integerParser).map(parameters()::withTraceLevel)
                                                                                                 .orElse(parameters());
-        parameters = parameters.withDeadline(Instant.ofEpochMilli(doomMillis(request)).minus(handlerTimeout));
+        parameters = parameters.withDeadline(Instant.ofEpochMilli(doomMillis).minus(handlerTimeout));
         for (String name : names)
             parameters = switch (name) {
                 case CLUSTER ->
@@ -571,31 +675,23 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         return parameters;
     }
 
-    /** Dispatches enqueued requests until one is blocked. */
+    /** Dispatches enqueued requests in each shard until one is blocked. */
     void dispatchEnqueued() {
-        try {
-            while (dispatchFirst());
-        }
-        catch (Exception e) {
-            log.log(WARNING, "Uncaught exception in /document/v1 dispatch thread", e);
-        }
+        for (DispatchShard shard : shards)
+            shard.dispatchEnqueued(0);
     }
 
-    /** Attempts to dispatch the first enqueued operations, and returns whether this was successful. */
-    private boolean dispatchFirst() {
-        Operation operation = operations.poll();
-        if (operation == null)
-            return false;
+    /** Returns the total number of operations in all shards of the queue. */
+    private int queuedOperations() {
+        int size = 0;
+        for (DispatchShard shard : shards)
+            size += shard.operations.size();
+        return size;
+    }
 
-        if (operation.dispatch()) {
-            var count = enqueued.decrementAndGet();
-            sampleQueuedOperations(count);
-            var bytes = operationBytesQueued.addAndGet(-operation.operationSize);
-            sampleQueuedBytes(bytes);
-            return true;
-        }
-        operations.push(operation);
-        return false;
+    /** Returns the shard which owns the operations on the given document. */
+    private DispatchShard shardOf(DocumentId id) {
+        return shards[Math.floorMod(id.hashCode(), shards.length)];
     }
 
     /** Dispatches enqueued requests until one is blocked. */
@@ -621,20 +717,35 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         return false;
     }
 
-    private long qAgeNS(HttpRequest request) {
-        Operation oldest = operations.peek();
-        return (oldest != null)
-                ? (request.relativeCreatedAtNanoTime() - oldest.request.relativeCreatedAtNanoTime())
-                : 0;
+    /** Returns the age of the oldest operation in any shard of the queue, relative to the given operation. */
+    private long qAgeNS(Operation operation) {
+        long ageNS = 0;
+        for (DispatchShard shard : shards) {
+            Operation oldest = shard.operations.peek();
+            if (oldest != null)
+                ageNS = Math.max(ageNS, operation.createdAtNanos - oldest.createdAtNanos);
+        }
+        return ageNS;
+    }
+
+    /** Enqueues the given visit request in the first shard. See {@link #enqueueAndDispatch(DocumentId, HttpRequest, ResponseHandler, long, Supplier)}. */
+    private void enqueueAndDispatch(HttpRequest request, ResponseHandler handler, long operationSize, Supplier<BooleanSupplier> operationParser) {
+        enqueueAndDispatch(shards[0], new Operation(request, handler, operationSize, operationParser));
     }
 
     /**
-     * Enqueues the given request and operation, or responds with "overload" if the queue is full,
-     * and then attempts to dispatch an enqueued operation from the head of the queue.
+     * Enqueues the given request and operation in the shard of the given document, or responds with "overload"
+     * if the queue is full, and then attempts to dispatch enqueued operations from the head of that shard.
      */
-    private void enqueueAndDispatch(HttpRequest request, ResponseHandler handler, long operationSize, Supplier<BooleanSupplier> operationParser) {
+    private void enqueueAndDispatch(DocumentId id, HttpRequest request, ResponseHandler handler, long operationSize, Supplier<BooleanSupplier> operationParser) {
+        enqueueAndDispatch(shardOf(id), new Operation(request, handler, operationSize, operationParser));
+    }
+
+    private void enqueueAndDispatch(DispatchShard shard, Operation operation) {
+        HttpRequest request = operation.request;
+        ResponseHandler handler = operation.handler;
+        long operationSize = operation.operationSize;
         if (maxThrottled == 0) {
-            var operation = new Operation(request, handler, operationSize, operationParser);
             if (!operation.dispatch()) {
                 overload(request, "Rejecting execution due to overload: "
                         + (long)asyncSession.getCurrentWindowSize() + " requests already enqueued", handler);
@@ -649,7 +760,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return;
         }
         if (numQueued > 1) {
-            long ageNS = qAgeNS(request);
+            long ageNS = qAgeNS(operation);
             sampleQueuedAge(Duration.ofNanos(ageNS).getSeconds());
             if (maxThrottledAgeNS != 0 && ageNS > maxThrottledAgeNS) {
                 enqueued.decrementAndGet();
@@ -677,8 +788,8 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return;
         }
 
-        operations.offer(new Operation(request, handler, operationSize, operationParser));
-        dispatchFirst();
+        shard.operations.offer(operation);
+        shard.dispatchEnqueued(maxDispatchWaitMillis);
     }
 
     private static JsonFormat.EncodeOptions createTensorOptionsFromRequest(HttpRequest request) {
@@ -779,14 +890,23 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         private final HttpRequest request;
         private final ResponseHandler handler;
         final long operationSize; // Estimated size of the operation in bytes, used for throttling.
+        final long createdAtNanos; // When the operation was received, used for queue age.
+        private final BooleanSupplier cancelled; // Whether the operation is cancelled, and responded to, and should be dropped.
         private BooleanSupplier operation; // The operation to attempt until it returns success.
         private Supplier<BooleanSupplier> parser; // The unparsed operation—getting this will parse it.
 
         Operation(HttpRequest request, ResponseHandler handler, long operationSize, Supplier<BooleanSupplier> parser) {
+            this(request, handler, operationSize, parser, request.relativeCreatedAtNanoTime(), request::isCancelled);
+        }
+
+        Operation(HttpRequest request, ResponseHandler handler, long operationSize, Supplier<BooleanSupplier> parser,
+                  long createdAtNanos, BooleanSupplier cancelled) {
             this.request = request;
             this.handler = handler;
             this.operationSize = operationSize;
             this.parser = parser;
+            this.createdAtNanos = createdAtNanos;
+            this.cancelled = cancelled;
         }
 
         /**
@@ -795,7 +915,7 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
          * dispatch should be retried at a later time.
          */
         boolean dispatch() {
-            if (request.isCancelled())
+            if (cancelled.getAsBoolean())
                 return true;
 
             if ( ! lock.tryLock())
@@ -823,6 +943,65 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     }
 
+    /**
+     * A shard of the operation queue. Operations in a shard are dispatched in order, by one thread at a time,
+     * while the shared counters of the handler keep the throttling and queue metrics exact across shards.
+     */
+    private class DispatchShard {
+
+        private final Deque<Operation> operations = new ConcurrentLinkedDeque<>();
+        private final Lock lock = new ReentrantLock();
+
+        /**
+         * Dispatches enqueued requests until one is blocked. Only one thread dispatches from a shard at a time, which
+         * keeps the order of operations on each document. Threads wait at most the given time for a busy shard, which
+         * holds back request threads while their shard is busy, without stalling them behind a slow dispatcher.
+         * Threads giving up leave their operations to the thread dispatching, which checks for more operations
+         * after releasing the shard, so none are left waiting for the next scheduled dispatch.
+         */
+        void dispatchEnqueued(long maxWaitMillis) {
+            while ( ! operations.isEmpty() && tryLock(maxWaitMillis)) {
+                boolean blocked = true;
+                try {
+                    blocked = dispatchUntilBlocked();
+                }
+                catch (Exception e) {
+                    log.log(WARNING, "Uncaught exception in /document/v1 dispatch thread", e);
+                }
+                finally {
+                    lock.unlock();
+                }
+                if (blocked) return;
+            }
+        }
+
+        private boolean tryLock(long maxWaitMillis) {
+            try {
+                return lock.tryLock(maxWaitMillis, MILLISECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        /** Dispatches enqueued operations until there are no more, or one is blocked, and returns whether one is. */
+        private boolean dispatchUntilBlocked() {
+            for (Operation operation; (operation = operations.poll()) != null; ) {
+                if ( ! operation.dispatch()) {
+                    operations.push(operation);
+                    return true;
+                }
+                var count = enqueued.decrementAndGet();
+                sampleQueuedOperations(count);
+                var bytes = operationBytesQueued.addAndGet(-operation.operationSize);
+                sampleQueuedBytes(bytes);
+            }
+            return false;
+        }
+
+    }
+
     /** Attempts to send the given document operation, returning false if this needs to be retried. */
     private boolean dispatchOperation(Supplier<Result> documentOperation) {
         Result result = documentOperation.get();
@@ -888,6 +1067,85 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
     }
 
+    /** Content channel which forwards each complete line of the content to a reader as soon as it is written. */
+    static class JsonLinesContentChannel implements ContentChannel {
+
+        interface LineReader {
+            void accept(int index, byte[] line);
+        }
+
+        private final LineReader reader;
+        private final Runnable onEnd;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+        private final AtomicBoolean ended = new AtomicBoolean(false);
+        private int lines = 0;
+
+        /**
+         * Creates a new channel
+         *
+         * @param reader receives each non-blank line of content, with its index among the non-blank lines
+         * @param onEnd is run once, when the content is closed, or has failed
+         */
+        JsonLinesContentChannel(LineReader reader, Runnable onEnd) {
+            this.reader = reader;
+            this.onEnd = onEnd;
+        }
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            try {
+                synchronized (line) {
+                    while (buf.hasRemaining()) {
+                        byte b = buf.get();
+                        if (b == '\n') readLine();
+                        else line.write(b);
+                    }
+                }
+                handler.completed();
+            }
+            catch (Exception e) {
+                handler.failed(e);
+            }
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            try {
+                synchronized (line) {
+                    readLine(); // The last line need not be terminated.
+                }
+                end();
+                handler.completed();
+            }
+            catch (Exception e) {
+                handler.failed(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            log.log(FINE, error, () -> "ContentChannel.onError(): " + error.getMessage());
+            end();
+        }
+
+        private void readLine() {
+            byte[] bytes = line.toByteArray();
+            line.reset();
+            for (byte b : bytes) {
+                if ( ! Character.isWhitespace(b)) {
+                    reader.accept(lines++, bytes);
+                    return;
+                }
+            }
+        }
+
+        private void end() {
+            if (ended.compareAndSet(false, true))
+                onEnd.run();
+        }
+
+    }
+
     class DocumentOperationParser {
 
         private final DocumentTypeManager manager;
@@ -904,6 +1162,16 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
             return parse(inputStream, docId, DocumentOperationType.UPDATE);
         }
 
+        /** Parses a complete document operation, such as a line of a JSONL feed, or returns null if there is none */
+        DocumentOperation parseOperation(byte[] json) {
+            try {
+                return new JsonReader(manager, new ByteArrayInputStream(json), jsonFactory).next();
+            } catch (IllegalArgumentException e) {
+                incrementMetricParseError();
+                throw e;
+            }
+        }
+
         private ParsedDocumentOperation parse(InputStream inputStream, String docId, DocumentOperationType operation) {
             try {
                 return new JsonReader(manager, inputStream, jsonFactory).readSingleDocumentStreaming(operation, docId);
@@ -926,32 +1194,36 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
                                SuccessCallback callback) {
         var tensorOptions = createTensorOptionsFromRequest(request); // request may be null; implies short form
         try (JsonResponse jsonResponse = JsonResponse.createWithPathAndId(path, handler, tensorOptions)) {
-            jsonResponse.writeTrace(response.getTrace());
-            if (response.isSuccess()) {
-                callback.onSuccess((response instanceof DocumentResponse) ? ((DocumentResponse) response).getDocument() : null, jsonResponse);
-            } else {
-                jsonResponse.writeMessage(response.getTextMessage());
-                switch (response.outcome()) {
-                    case NOT_FOUND -> jsonResponse.commit(Response.Status.NOT_FOUND);
-                    case CONDITION_FAILED -> jsonResponse.commit(Response.Status.PRECONDITION_FAILED);
-                    case INSUFFICIENT_STORAGE -> jsonResponse.commit(Response.Status.INSUFFICIENT_STORAGE);
-                    case TIMEOUT -> jsonResponse.commit(Response.Status.GATEWAY_TIMEOUT);
-                    case REJECTED -> jsonResponse.commit(Response.Status.BAD_REQUEST);
-                    case ERROR -> {
-                        log.log(FINE, () -> "Exception performing document operation: " + response.getTextMessage());
-                        jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
-                    }
-                    default -> {
-                        log.log(WARNING, "Unexpected document API operation outcome '" + response.outcome() + "' " + response.getTextMessage());
-                        jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
-                    }
-                }
-            }
+            respond(jsonResponse, response, callback);
         } catch (Exception e) {
             log.log(FINE, "Failed writing response", e);
         }
     }
 
+    private static void respond(JsonResponse jsonResponse, com.yahoo.documentapi.Response response, SuccessCallback callback) throws IOException {
+        jsonResponse.writeTrace(response.getTrace());
+        if (response.isSuccess()) {
+            callback.onSuccess((response instanceof DocumentResponse) ? ((DocumentResponse) response).getDocument() : null, jsonResponse);
+        } else {
+            jsonResponse.writeMessage(response.getTextMessage());
+            switch (response.outcome()) {
+                case NOT_FOUND -> jsonResponse.commit(Response.Status.NOT_FOUND);
+                case CONDITION_FAILED -> jsonResponse.commit(Response.Status.PRECONDITION_FAILED);
+                case INSUFFICIENT_STORAGE -> jsonResponse.commit(Response.Status.INSUFFICIENT_STORAGE);
+                case TIMEOUT -> jsonResponse.commit(Response.Status.GATEWAY_TIMEOUT);
+                case REJECTED -> jsonResponse.commit(Response.Status.BAD_REQUEST);
+                case ERROR -> {
+                    log.log(FINE, () -> "Exception performing document operation: " + response.getTextMessage());
+                    jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
+                }
+                default -> {
+                    log.log(WARNING, "Unexpected document API operation outcome '" + response.outcome() + "' " + response.getTextMessage());
+                    jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
+                }
+            }
+        }
+    }
+
     private static void handleFeedOperation(DocumentPath path,
                                             boolean fullyApplied,
                                             ResponseHandler handler,
@@ -959,7 +1231,20 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
         handle(path, null, handler, response, (document, jsonResponse) -> jsonResponse.commit(Response.Status.OK, fullyApplied));
     }
 
-    private static double latencyOf(HttpRequest r) { return (System.nanoTime() - r.relativeCreatedAtNanoTime()) / 1e+9d; }
+    /** Writes the response to an operation in a feed stream, where the document id is written by the stream. */
+    private static void handleStreamedFeedOperation(HttpRequest request,
+                                                    ResponseHandler handler,
+                                                    com.yahoo.documentapi.Response response) {
+        try (JsonResponse jsonResponse = JsonResponse.createWithPath(request, handler, createTensorOptionsFromRequest(null))) {
+            respond(jsonResponse, response, (document, json) -> json.commit(Response.Status.OK));
+        } catch (Exception e) {
+            log.log(FINE, "Failed writing response", e);
+        }
+    }
+
+    private static double latencyOf(HttpRequest r) { return latencyOf(r.relativeCreatedAtNanoTime()); }
+
+    private static double latencyOf(long createdAtNanos) { return (System.nanoTime() - createdAtNanos) / 1e+9d; }
 
     private void updatePutMetrics(Outcome outcome, double latency, boolean create) {
         if (create && outcome == Outcome.NOT_FOUND) outcome = Outcome.SUCCESS; // >_<
@@ -1376,9 +1661,11 @@ public final class DocumentV1ApiHandler extends AbstractRequestHandler {
     // ------------------------------------------------ Helpers ------------------------------------------------
 
     private static long doomMillis(HttpRequest request) {
-        long createdAtMillis = request.creationTime(MILLISECONDS);
-        long requestTimeoutMillis = getProperty(request, TIMEOUT, timeoutMillisParser).orElse(defaultTimeout.toMillis());
-        return createdAtMillis + requestTimeoutMillis;
+        return request.creationTime(MILLISECONDS) + timeoutMillis(request);
+    }
+
+    private static long timeoutMillis(HttpRequest request) {
+        return getProperty(request, TIMEOUT, timeoutMillisParser).orElse(defaultTimeout.toMillis());
     }
 
     private static String requireProperty(HttpRequest request, String name) {
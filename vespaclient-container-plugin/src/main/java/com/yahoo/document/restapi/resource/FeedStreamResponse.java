@@ -0,0 +1,194 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.restapi.resource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonFactoryBuilder;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.yahoo.document.DocumentId;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.ResponseHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.FINE;
+
+/**
+ * <p>A streaming JSONL response to a stream of document operations. The outcome of each operation is written
+ * as a line as soon as it is known, so lines come in the order the operations complete, and not in the order
+ * they were read.</p>
+ *
+ * <p>The first line holds the path of the request. Each following line holds the index of the operation in the
+ * request stream, its document id, if it could be read, and the HTTP status and fields of the JSON response the
+ * operation would have received as a single request, except the path. The response is closed when the request
+ * stream has ended, and all its operations have completed.</p>
+ *
+ * @author bratseth
+ */
+class FeedStreamResponse {
+
+    private static final Logger log = Logger.getLogger(FeedStreamResponse.class.getName());
+
+    private static final JsonFactory jsonFactory = new JsonFactoryBuilder()
+            .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(Integer.MAX_VALUE).build())
+            .build();
+
+    private final ResponseWriter writer;
+    private final AtomicLong pending = new AtomicLong(1); // The request stream itself is pending until it has ended.
+
+    FeedStreamResponse(ResponseWriter writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Commits the status and headers of this, and writes the line with the given request path,
+     * after which lines are written as soon as they are available.
+     */
+    void commit(String pathId) throws IOException {
+        writer.commit(Response.Status.OK, "application/jsonl; charset=UTF-8", true);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+            json.writeStartObject();
+            json.writeFieldName(JsonNames.PATH_ID);
+            json.writeString(pathId);
+            json.writeEndObject();
+        }
+        line.write('\n');
+        writer.write(ByteBuffer.wrap(line.toByteArray()), null);
+    }
+
+    /**
+     * Returns a handler for the response to the operation with the given index in the request stream,
+     * which writes the response as a line in this. The returned handler must receive exactly one response.
+     */
+    ResponseHandler operationHandler(int index, DocumentId id) {
+        pending.incrementAndGet();
+        return response -> new OperationLineChannel(index, id, response.getStatus());
+    }
+
+    /** Writes a line for the operation with the given index, which could not be read from the request stream. */
+    void writeError(int index, String message) {
+        try {
+            writeLine(index, null, Response.Status.BAD_REQUEST, json -> {
+                json.writeFieldName(JsonNames.MESSAGE);
+                json.writeString(message);
+            });
+        }
+        catch (IOException e) {
+            log.log(FINE, "Failed writing response line", e);
+        }
+    }
+
+    /** Signals that the request stream has ended, and that no more operations will be added to this. */
+    void endOfOperations() {
+        completed();
+    }
+
+    private void completed() {
+        if (pending.decrementAndGet() > 0) return;
+
+        try {
+            writer.close();
+        }
+        catch (IOException e) {
+            log.log(FINE, "Failed closing response", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface FieldsWriter {
+        void writeInto(JsonGenerator json) throws IOException;
+    }
+
+    private void writeLine(int index, DocumentId id, int status, FieldsWriter fields) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+            json.writeStartObject();
+            json.writeFieldName(JsonNames.INDEX);
+            json.writeNumber(index);
+            if (id != null) {
+                json.writeFieldName(JsonNames.ID);
+                json.writeString(id.toString());
+            }
+            json.writeFieldName(JsonNames.STATUS);
+            json.writeNumber(status);
+            fields.writeInto(json);
+            json.writeEndObject();
+        }
+        line.write('\n');
+        writer.write(ByteBuffer.wrap(line.toByteArray()), null);
+    }
+
+    /** Collects the JSON response to a single operation, and writes its fields as a line in this when closed. */
+    private class OperationLineChannel implements ContentChannel {
+
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        private final int index;
+        private final DocumentId id;
+        private final int status;
+
+        private OperationLineChannel(int index, DocumentId id, int status) {
+            this.index = index;
+            this.id = id;
+            this.status = status;
+        }
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            synchronized (body) {
+                if (buf.hasArray()) {
+                    body.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+                    buf.position(buf.limit());
+                }
+                else while (buf.hasRemaining())
+                    body.write(buf.get());
+            }
+            if (handler != null) handler.completed();
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            try {
+                byte[] object;
+                synchronized (body) {
+                    object = body.toByteArray();
+                }
+                writeLine(index, id, status, json -> copyFields(object, json));
+            }
+            catch (IOException e) {
+                log.log(FINE, "Failed writing response line", e);
+            }
+            finally {
+                completed();
+                if (handler != null) handler.completed();
+            }
+        }
+
+        /** Copies the fields of the single operation response object to the line, except the path, which is in the first line. */
+        private static void copyFields(byte[] object, JsonGenerator json) throws IOException {
+            if (object.length == 0) return;
+            try (JsonParser parser = jsonFactory.createParser(object)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) return;
+                for (String name; (name = parser.nextFieldName()) != null; ) {
+                    parser.nextToken();
+                    if (JsonNames.PATH_ID.getValue().equals(name)) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    json.writeFieldName(name);
+                    json.copyCurrentStructure(parser);
+                }
+            }
+        }
+
+    }
+
+}
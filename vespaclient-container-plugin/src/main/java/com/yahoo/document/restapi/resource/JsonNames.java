@@ -16,11 +16,13 @@ class JsonNames {
     static final SerializedString DOCUMENTS        = new SerializedString("documents");
     static final SerializedString DOCUMENT_COUNT   = new SerializedString("documentCount");
     static final SerializedString ID               = new SerializedString("id");
+    static final SerializedString INDEX            = new SerializedString("index");
     static final SerializedString MESSAGE          = new SerializedString("message");
     static final SerializedString PATH_ID          = new SerializedString("pathId");
     static final SerializedString PERCENT_FINISHED = new SerializedString("percentFinished");
     static final SerializedString PUT              = new SerializedString("put");
     static final SerializedString REMOVE           = new SerializedString("remove");
+    static final SerializedString STATUS           = new SerializedString("status");
     static final SerializedString TOKEN            = new SerializedString("token");
     static final SerializedString TRACE            = new SerializedString("trace");
 }
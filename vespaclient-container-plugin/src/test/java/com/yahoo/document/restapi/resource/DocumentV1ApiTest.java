@@ -66,7 +66,10 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -271,6 +274,125 @@ public class DocumentV1ApiTest {
         driver.close();
     }
 
+    @Test
+    public void testQueueIsShardedByDocument() {
+        handler.destroy();
+        handler = new DocumentV1ApiHandler(clock, Duration.ofMillis(1), metric, metrics, access, docConfig,
+                                           new DocumentOperationExecutorConfig.Builder(executorConfig)
+                                                   .maxThrottled(4)
+                                                   .dispatcherThreads(4)
+                                                   .build(),
+                                           clusterConfig, bucketConfig);
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        access.session.expect((id, parameters) -> new Result(Result.ResultType.TRANSIENT_ERROR, Result.toError(Result.ResultType.TRANSIENT_ERROR)));
+        List<RequestHandlerTestDriver.MockResponseHandler> responses = new ArrayList<>();
+        for (String document : List.of("one", "two", "one", "three"))
+            responses.add(driver.sendRequest("http://localhost/document/v1/space/music/docid/" + document, POST,
+                                             "{\"fields\": {\"artist\": \"" + responses.size() + "\"}}"));
+
+        // The queue limit is across all shards
+        var rejected = driver.sendRequest("http://localhost/document/v1/space/music/docid/four", POST, "{\"fields\": {}}");
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/docid/four\"," +
+                       "  \"message\": \"Rejecting execution due to overload: 4 requests already enqueued\"" +
+                       "}", rejected.readAll());
+        assertEquals(429, rejected.getStatus());
+
+        // Operations on the same document are dispatched in order
+        List<String> dispatched = new ArrayList<>();
+        access.session.expect((put, parameters) -> {
+            Document document = ((DocumentPut) put).getDocument();
+            dispatched.add(document.getId().getScheme().getNamespaceSpecific() + ":" + document.getFieldValue("artist"));
+            parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result(0);
+        });
+        handler.dispatchEnqueued();
+        assertEquals(4, dispatched.size());
+        assertTrue(dispatched.indexOf("one:0") < dispatched.indexOf("one:2"), dispatched.toString());
+        for (var response : responses) {
+            response.readAll();
+            assertEquals(200, response.getStatus());
+        }
+        driver.close();
+    }
+
+    @Test
+    public void testFeedStream() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<String> dispatched = new ArrayList<>();
+        access.session.expect((operation, parameters) -> {
+            dispatched.add(operation.getClass().getSimpleName());
+            Response.Outcome outcome = operation instanceof DocumentUpdate ? Response.Outcome.CONDITION_FAILED
+                                                                           : Response.Outcome.SUCCESS;
+            parameters.responseHandler().get().handleResponse(new Response(0, outcome == Response.Outcome.SUCCESS ? null : "no dice", outcome));
+            return new Result(0);
+        });
+        var response = driver.sendRequest("http://localhost/document/v1/feed", POST,
+                                          """
+                                          {"put": "id:space:music::one", "fields": {"artist": "Bob"}}
+                                          {"update": "id:space:music::two", "condition": "false", "fields": {"artist": {"assign": "Ann"}}}
+
+                                          {"put": "id:space:nope::three", "fields": {}}
+                                          {"remove": "id:space:music::four"}
+                                          """);
+        assertEquals("""
+                     {"pathId":"/document/v1/feed"}
+                     {"index":0,"id":"id:space:music::one","status":200}
+                     {"index":1,"id":"id:space:music::two","status":412,"message":"no dice"}
+                     {"index":2,"status":400,"message":"Document type nope does not exist"}
+                     {"index":3,"id":"id:space:music::four","status":200}
+                     """,
+                     response.readAll());
+        assertEquals(200, response.getStatus());
+        assertEquals(List.of("DocumentPut", "DocumentUpdate", "DocumentRemove"), dispatched);
+
+        response = driver.sendRequest("http://localhost/document/v1/feed?condition=true", POST, "");
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/feed\"," +
+                       "  \"message\": \"May not specify 'condition' at '/document/v1/feed'\"" +
+                       "}", response.readAll());
+        assertEquals(400, response.getStatus());
+        driver.close();
+    }
+
+    @Test
+    public void testFeedStreamOpenLongerThanMaxQueueAge() throws InterruptedException {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        access.session.expect((id, parameters) -> new Result(Result.ResultType.TRANSIENT_ERROR, Result.toError(Result.ResultType.TRANSIENT_ERROR)));
+        var streamResponse = new RequestHandlerTestDriver.MockResponseHandler();
+        var streamRequest = com.yahoo.jdisc.http.HttpRequest.newServerRequest(driver.jDiscDriver(), URI.create("http://localhost/document/v1/feed"), POST);
+        var stream = streamRequest.connect(streamResponse);
+        streamRequest.release();
+
+        // The stream is open longer than the max queue age before its first operation is read, and queued
+        Thread.sleep(1_500);
+        stream.write(ByteBuffer.wrap("{\"put\": \"id:space:music::one\", \"fields\": {}}\n".getBytes(UTF_8)), null);
+
+        // Queue age is counted from when the operation was read, so a request queued behind it is not rejected
+        var response = driver.sendRequest("http://localhost/document/v1/space/music/number/1/two", POST, "{\"fields\": {}}");
+        assertEquals(0, response.available());
+
+        access.session.expect((id, parameters) -> {
+            parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result(0);
+        });
+        handler.dispatchEnqueued();
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"id\": \"id:space:music:n=1:two\"" +
+                       "}", response.readAll());
+        assertEquals(200, response.getStatus());
+
+        stream.close(null);
+        assertEquals("""
+                     {"pathId":"/document/v1/feed"}
+                     {"index":0,"id":"id:space:music::one","status":200}
+                     """,
+                     streamResponse.readAll());
+        assertEquals(200, streamResponse.getStatus());
+        driver.close();
+    }
+
     @Test
     public void testOverLoadByAge() {
         RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
@@ -352,6 +474,7 @@ public class DocumentV1ApiTest {
                          "pathId": "/document/v1/not-found",
                          "message": "Nothing at '/document/v1/not-found'. Available paths are:
                        /document/v1/
+                       /document/v1/feed
                        /document/v1/{namespace}/{documentType}/docid/
                        /document/v1/{namespace}/{documentType}/group/{group}/
                        /document/v1/{namespace}/{documentType}/number/{number}/
@@ -49,7 +49,8 @@ public class CommandLineOptions {
         options.addOption(Option.builder("o")
                 .required()
                 .hasArg(true)
-                .desc("Output file")
+                .desc("Output file. Files with the " + SignificanceModelGenerator.BINARY_EXTENSION +
+                      " extension are written in a binary format which is memory-mapped when loaded")
                 .longOpt(OUTPUT_OPTION)
                 .build());
 
@@ -96,7 +97,8 @@ public class CommandLineOptions {
             builder.setOutputFile(cl.getOptionValue(OUTPUT_OPTION));
             builder.setField(cl.getOptionValue(FIELD_OPTION));
             builder.setLanguage(cl.getOptionValue(LANGUAGE_OPTION));
-            builder.setZstCompression(cl.hasOption(ZST_COMPRESSION) ? cl.getOptionValue(ZST_COMPRESSION) : "true");
+            boolean binaryOutput = cl.getOptionValue(OUTPUT_OPTION).endsWith(SignificanceModelGenerator.BINARY_EXTENSION);
+            builder.setZstCompression(cl.hasOption(ZST_COMPRESSION) ? cl.getOptionValue(ZST_COMPRESSION) : String.valueOf(!binaryOutput));
 
             return builder.build();
         } catch (ParseException e) {
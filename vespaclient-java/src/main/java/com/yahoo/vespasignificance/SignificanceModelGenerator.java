@@ -23,6 +23,7 @@ import com.yahoo.language.process.Token;
 import com.yahoo.language.process.TokenScript;
 import com.yahoo.language.process.TokenType;
 import com.yahoo.language.process.Tokenizer;
+import com.yahoo.language.significance.impl.BinarySignificanceModelFile;
 import com.yahoo.language.significance.impl.DocumentFrequencyFile;
 import com.yahoo.language.significance.impl.SignificanceModelFile;
 import com.yahoo.text.Utf8;
@@ -30,6 +31,7 @@ import io.airlift.compress.zstd.ZstdInputStream;
 import io.airlift.compress.zstd.ZstdOutputStream;
 
 import java.io.IOException;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -68,17 +70,25 @@ public class SignificanceModelGenerator {
     final DocumentTypeManager types = new DocumentTypeManager();
     final DocumentType docType;
     private final boolean useZstCompression;
+    private final boolean useBinaryFormat;
     private final static String VERSION = "1.0";
     private final static String ID = "1";
     private final static String SIGNIFICANCE_DESCRIPTION = "Significance model for input file";
     private final static String DOC_FREQ_DESCRIPTION = "Document frequency for language";
 
+    /** Output files with this extension are written in the memory-mappable format of {@link BinarySignificanceModelFile} */
+    final static String BINARY_EXTENSION = ".bin";
+
     private final static String DUMMY_DOC_TYPE = "dummy";
     private final static String DUMMY_DOC_ID = "id:dummy:" + DUMMY_DOC_TYPE + "::dummy";
 
     public SignificanceModelGenerator(ClientParameters clientParameters) {
         this.clientParameters = clientParameters;
 
+        if (clientParameters.zstCompression && clientParameters.outputFile.endsWith(BINARY_EXTENSION)) {
+            throw new IllegalArgumentException("Output file in the binary format (" + BINARY_EXTENSION + " extension) cannot use zst compression");
+        }
+
         if (clientParameters.zstCompression && !clientParameters.outputFile.endsWith(".zst")) {
             throw new IllegalArgumentException("Output file must have .zst extension when using zst compression");
         }
@@ -100,6 +110,7 @@ public class SignificanceModelGenerator {
         docType = new DocumentType(DUMMY_DOC_TYPE);
         docType.addField(new Field(clientParameters.field, DataType.STRING));
         useZstCompression = clientParameters.zstCompression;
+        useBinaryFormat = clientParameters.outputFile.endsWith(BINARY_EXTENSION);
 
         types.registerDocumentType(docType);
     }
@@ -142,7 +153,12 @@ public class SignificanceModelGenerator {
         SignificanceModelFile modelFile;
         File outputFile = Paths.get(clientParameters.outputFile).toFile();
         String languagesKey = String.join(",", this.languages.stream().map(Language::languageCode).toList());
-        if (outputFile.exists()) {
+        if (outputFile.exists() && useBinaryFormat) {
+            modelFile = BinarySignificanceModelFile.open(outputFile.toPath()).toSignificanceModelFile();
+
+            modelFile.addLanguage(languagesKey, new DocumentFrequencyFile(DOC_FREQ_DESCRIPTION, pageCount, getFinalDocumentFrequency()));
+
+        } else if (outputFile.exists()) {
 
             InputStream in = outputFile.toString().endsWith(".zst") ?
                     new ZstdInputStream(new FileInputStream(outputFile)) :
@@ -160,6 +176,13 @@ public class SignificanceModelGenerator {
             modelFile = new SignificanceModelFile(VERSION, ID, SIGNIFICANCE_DESCRIPTION + clientParameters.inputFile, languages);
         }
         try {
+            if (useBinaryFormat) {
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(clientParameters.outputFile))) {
+                    BinarySignificanceModelFile.write(modelFile, out);
+                }
+                return;
+            }
+
             ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
 
             OutputStream out = useZstCompression ?
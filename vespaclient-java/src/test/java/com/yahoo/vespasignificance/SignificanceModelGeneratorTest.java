@@ -3,6 +3,8 @@
 package com.yahoo.vespasignificance;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.language.significance.impl.BinarySignificanceModel;
+import com.yahoo.language.significance.impl.BinarySignificanceModelFile;
 import com.yahoo.language.significance.impl.DocumentFrequencyFile;
 import com.yahoo.language.significance.impl.SignificanceModelFile;
 import io.airlift.compress.zstd.ZstdInputStream;
@@ -200,4 +202,27 @@ public class SignificanceModelGeneratorTest {
         DocumentFrequencyFile documentFrequencyFile = languages.get("nb,un");
         assertNorwegianFrequencies1(documentFrequencyFile);
     }
+
+    @Test
+    void testGenerateBinaryFileWithMultipleLanguages() throws IOException {
+        String outputPath = "output.bin";
+        ClientParameters zstParams = createParameters("no_1.jsonl", outputPath, "text", "nb", "true").build();
+        assertThrows(IllegalArgumentException.class, () -> createSignificanceModelGenerator(zstParams));
+
+        createSignificanceModelGenerator(createParameters("no_1.jsonl", outputPath, "text", "nb", "false").build()).generate();
+        createSignificanceModelGenerator(createParameters("en.jsonl", outputPath, "text", "en", "false").build()).generate();
+
+        BinarySignificanceModelFile modelFile = BinarySignificanceModelFile.open(tempDir.resolve(outputPath));
+        assertEquals(2, modelFile.languages().size());
+
+        HashMap<String, DocumentFrequencyFile> languages = modelFile.toSignificanceModelFile().languages();
+        assertNorwegianFrequencies1(languages.get("nb"));
+        assertEnglishFrequencies(languages.get("en"));
+
+        BinarySignificanceModel nb = modelFile.languages().get("nb");
+        assertEquals(3, nb.documentFrequency("norske").frequency());
+        assertEquals(3, nb.documentFrequency("norske").corpusSize());
+        assertEquals(1, nb.documentFrequency("sider").frequency());
+    }
+
 }
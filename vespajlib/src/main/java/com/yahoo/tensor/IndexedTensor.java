@@ -158,6 +158,12 @@ public abstract class IndexedTensor implements Tensor {
      */
     public abstract float getFloat(long valueIndex);
 
+    /** only exposed for internal use; subject to change without notice */
+    public double[] internalDoubleCells() { return null; }
+
+    /** only exposed for internal use; subject to change without notice */
+    public float[] internalFloatCells() { return null; }
+
     static long toValueIndex(long[] indexes, DimensionSizes sizes) {
         if (indexes.length == 1) return indexes[0]; // for speed
         if (indexes.length == 0) return 0; // for speed
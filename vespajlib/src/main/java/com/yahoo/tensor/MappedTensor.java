@@ -1,14 +1,18 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor;
 
-import com.google.common.collect.ImmutableMap;
+import com.yahoo.tensor.impl.AddressIndex;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an index of the cell addresses and an array of the values.
  *
  * @author bratseth
  */
@@ -16,41 +20,51 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The addresses of the cells, where each ordinal is the index of the value of that cell */
+    private final AddressIndex index;
+
+    private final double[] values;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, AddressIndex index, double[] values) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.index = index;
+        this.values = values;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return index.size(); }
 
     /** Once we can store more cells than an int we should drop this. */
     @Override
-    public int sizeAsInt() { return cells.size(); }
+    public int sizeAsInt() { return index.size(); }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, 0.0); }
+    public double get(TensorAddress address) {
+        int ordinal = index.indexOf(address);
+        return ordinal < 0 ? 0.0 : values[ordinal];
+    }
 
     @Override
-    public boolean has(TensorAddress address) { return cells.containsKey(address); }
+    public boolean has(TensorAddress address) { return index.indexOf(address) >= 0; }
 
     @Override
-    public Double getAsDouble(TensorAddress address) { return cells.get(address); }
+    public Double getAsDouble(TensorAddress address) {
+        int ordinal = index.indexOf(address);
+        return ordinal < 0 ? null : values[ordinal];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return Arrays.stream(values, 0, index.size()).iterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() { return new CellMap(); }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -58,7 +72,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, index, values);
     }
 
     @Override
@@ -75,7 +89,12 @@ public class MappedTensor implements Tensor {
     }
 
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0; // as Map.hashCode of the cells
+        for (int i = 0; i < index.size(); i++)
+            hashCode += index.addressOf(i).hashCode() ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return toString(true, true); }
@@ -101,12 +120,17 @@ public class MappedTensor implements Tensor {
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private AddressIndex index;
+        private double[] values = new double[16];
+
+        /** Whether the current index is used by a built tensor, such that it must be copied before modification */
+        private boolean built = false;
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
         private Builder(TensorType type) {
             this.type = type;
+            this.index = new AddressIndex(type.rank(), values.length);
         }
 
         public CellBuilder cell() {
@@ -123,7 +147,19 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (built) {
+                index = index.copy();
+                values = Arrays.copyOf(values, Math.max(16, values.length));
+                built = false;
+            }
+            int size = index.size();
+            int ordinal = index.add(address);
+            if (ordinal < size)
+                throw new IllegalArgumentException("Multiple entries with same key: " + address + "=" + value +
+                                                   " and " + address + "=" + values[ordinal]);
+            if (ordinal == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[ordinal] = value;
             return this;
         }
 
@@ -134,32 +170,67 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            built = true;
+            return new MappedTensor(type, index.trim(), Arrays.copyOf(values, index.size()));
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
+
+        private int next = 0;
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        @Override
+        public boolean hasNext() { return next < index.size(); }
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException();
+            Cell cell = new Cell(index.addressOf(next), values[next]);
+            next++;
+            return cell;
         }
 
+    }
+
+    /** A read-only map view of the cells of this */
+    private class CellMap extends AbstractMap<TensorAddress, Double> {
+
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public int size() { return index.size(); }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+        public boolean containsKey(Object key) {
+            return key instanceof TensorAddress address && has(address);
+        }
+
+        @Override
+        public Double get(Object key) {
+            return key instanceof TensorAddress address ? getAsDouble(address) : null;
+        }
+
+        @Override
+        public Set<Entry<TensorAddress, Double>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public int size() { return index.size(); }
+
+                @Override
+                public Iterator<Entry<TensorAddress, Double>> iterator() {
+                    Iterator<Cell> cells = cellIterator();
+                    return new Iterator<>() {
+                        @Override public boolean hasNext() { return cells.hasNext(); }
+                        @Override public Entry<TensorAddress, Double> next() { return cells.next(); }
+                    };
+                }
+
+            };
         }
 
     }
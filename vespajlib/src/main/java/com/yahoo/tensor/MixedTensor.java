@@ -4,11 +4,12 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.yahoo.tensor.impl.AddressIndex;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -289,17 +290,19 @@ public class MixedTensor implements Tensor {
      */
     public static class BoundBuilder extends Builder {
 
-        /** For each sparse partial address, hold a dense subspace */
-        private final Map<TensorAddress, double[]> denseSubspaceMap;
+        /** The sparse partial addresses, where the ordinal of each is the index of its dense subspace */
+        private final AddressIndex sparseAddresses;
+        private final List<double[]> denseSubspaces;
         private final Index.Builder indexBuilder;
         private final Index index;
         private final TensorType denseSubtype;
 
         private BoundBuilder(TensorType type, int expectedSize) {
             super(type);
-            denseSubspaceMap = new LinkedHashMap<>(expectedSize, 0.5f);
             indexBuilder = new Index.Builder(type);
             index = indexBuilder.index();
+            sparseAddresses = new AddressIndex(index.mappedDimensions.size(), expectedSize);
+            denseSubspaces = new ArrayList<>(expectedSize);
             denseSubtype = new TensorType(type.valueType(),
                                           type.dimensions().stream().filter(TensorType.Dimension::isIndexed).toList());
         }
@@ -309,12 +312,22 @@ public class MixedTensor implements Tensor {
         }
 
         private double[] denseSubspace(TensorAddress sparseAddress) {
-            return denseSubspaceMap.computeIfAbsent(sparseAddress, (key) -> new double[(int)denseSubspaceSize()]);
+            return denseSubspace(sparseAddresses.add(sparseAddress));
+        }
+
+        private double[] denseSubspace(int ordinal) {
+            if (ordinal == denseSubspaces.size())
+                denseSubspaces.add(new double[(int)denseSubspaceSize()]);
+            return denseSubspaces.get(ordinal);
         }
 
         public IndexedTensor.DirectIndexBuilder denseSubspaceBuilder(TensorAddress sparseAddress) {
             double[] values = new double[(int)denseSubspaceSize()];
-            denseSubspaceMap.put(sparseAddress, values);
+            int ordinal = sparseAddresses.add(sparseAddress);
+            if (ordinal == denseSubspaces.size())
+                denseSubspaces.add(values);
+            else
+                denseSubspaces.set(ordinal, values);
             return new DenseSubspaceBuilder(denseSubtype, values);
         }
 
@@ -325,9 +338,9 @@ public class MixedTensor implements Tensor {
 
         @Override
         public Tensor.Builder cell(TensorAddress address, double value) {
-            TensorAddress sparsePart = address.mappedPartialAddress(index.sparseType, index.type.dimensions());
+            index.validateSize(address);
             int denseOffset = index.denseOffsetOf(address);
-            double[] denseSubspace = denseSubspace(sparsePart);
+            double[] denseSubspace = denseSubspace(sparseAddresses.add(address, index.mappedDimensionIndexes));
             denseSubspace[denseOffset] = value;
             return this;
         }
@@ -344,14 +357,8 @@ public class MixedTensor implements Tensor {
 
         @Override
         public MixedTensor build() {
-            // TODO: This can be solved more efficiently with a single map.
-            Set<Map.Entry<TensorAddress, double[]>> entrySet = denseSubspaceMap.entrySet();
-            for (Map.Entry<TensorAddress, double[]> entry : entrySet) {
-                TensorAddress sparsePart = entry.getKey();
-                double[] denseSubspace = entry.getValue();
-                var block = new DenseSubspace(sparsePart, denseSubspace);
-                indexBuilder.addBlock(block);
-            }
+            for (int ordinal = 0; ordinal < sparseAddresses.size(); ordinal++)
+                indexBuilder.addBlock(new DenseSubspace(sparseAddresses.addressOf(ordinal), denseSubspaces.get(ordinal)));
             return new MixedTensor(type, indexBuilder.build());
         }
 
@@ -371,12 +378,14 @@ public class MixedTensor implements Tensor {
      */
     private static class UnboundBuilder extends Builder {
 
-        private final Map<TensorAddress, Double> cells;
+        private final AddressIndex addresses;
+        private double[] values;
         private final long[] dimensionBounds;
 
         private UnboundBuilder(TensorType type, int expectedSize) {
             super(type);
-            cells = new LinkedHashMap<>(expectedSize, 0.5f);
+            addresses = new AddressIndex(type.rank(), expectedSize);
+            values = new double[Math.max(16, expectedSize)];
             dimensionBounds = new long[type.dimensions().size()];
         }
 
@@ -387,7 +396,10 @@ public class MixedTensor implements Tensor {
 
         @Override
         public Tensor.Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            int ordinal = addresses.add(address);
+            if (ordinal == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[ordinal] = value;
             trackBounds(address);
             return this;
         }
@@ -395,10 +407,9 @@ public class MixedTensor implements Tensor {
         @Override
         public MixedTensor build() {
             TensorType boundType = createBoundType();
-            BoundBuilder builder = new BoundBuilder(boundType, cells.size());
-            for (Map.Entry<TensorAddress, Double> cell : cells.entrySet()) {
-                builder.cell(cell.getKey(), cell.getValue());
-            }
+            BoundBuilder builder = new BoundBuilder(boundType, addresses.size());
+            for (int ordinal = 0; ordinal < addresses.size(); ordinal++)
+                builder.cell(addresses.addressOf(ordinal), values[ordinal]);
             return builder.build();
         }
 
@@ -440,13 +451,16 @@ public class MixedTensor implements Tensor {
     private static class Index {
 
         private final TensorType type;
-        private final TensorType sparseType;
         private final TensorType denseType;
         private final List<TensorType.Dimension> mappedDimensions;
         private final List<TensorType.Dimension> indexedDimensions;
         private final int[] indexedDimensionsSize;
 
-        private ImmutableMap<TensorAddress, Integer> sparseMap;
+        /** The positions of the mapped dimensions in the type */
+        private final int[] mappedDimensionIndexes;
+
+        /** The sparse addresses of the dense subspaces, where the ordinal of each is its index in denseSubspaces */
+        private AddressIndex sparseIndex;
         private List<DenseSubspace> denseSubspaces;
         private final int denseSubspaceSize;
 
@@ -463,6 +477,7 @@ public class MixedTensor implements Tensor {
             this.type = type;
             this.mappedDimensions = type.dimensions().stream().filter(d -> !d.isIndexed()).toList();
             this.indexedDimensions = type.dimensions().stream().filter(TensorType.Dimension::isIndexed).toList();
+            this.mappedDimensionIndexes = mappedDimensions.stream().mapToInt(d -> type.indexOfDimension(d.name()).get()).toArray();
             this.indexedDimensionsSize = new int[indexedDimensions.size()];
             for (int i = 0; i < indexedDimensions.size(); i++) {
                 long dimensionSize = indexedDimensions.get(i).size().orElseThrow(() ->
@@ -470,7 +485,6 @@ public class MixedTensor implements Tensor {
                 indexedDimensionsSize[i] = (int)dimensionSize;
             }
 
-            this.sparseType = createPartialType(type.valueType(), mappedDimensions);
             this.denseType = createPartialType(type.valueType(), indexedDimensions);
             this.denseSubspaceSize = computeDSS(this.indexedDimensions);
             if (this.denseSubspaceSize < 1) {
@@ -479,14 +493,19 @@ public class MixedTensor implements Tensor {
         }
 
         private DenseSubspace blockOf(TensorAddress address) {
-            TensorAddress sparsePart = address.mappedPartialAddress(sparseType, type.dimensions());
-            Integer blockNum = sparseMap.get(sparsePart);
-            if (blockNum == null || blockNum >= denseSubspaces.size()) {
+            validateSize(address);
+            int blockNum = sparseIndex.indexOf(address, mappedDimensionIndexes);
+            if (blockNum < 0 || blockNum >= denseSubspaces.size()) {
                 return null;
             }
             return denseSubspaces.get(blockNum);
         }
 
+        private void validateSize(TensorAddress address) {
+            if (address.size() != type.rank())
+                throw new IllegalArgumentException("Address " + address + " does not have the same size as the type " + type);
+        }
+
         private int denseOffsetOf(TensorAddress address) {
             long innerSize = 1;
             long offset = 0;
@@ -538,15 +557,18 @@ public class MixedTensor implements Tensor {
 
             // Exactly 1 mapped dimension
             StringBuilder b = new StringBuilder("{");
-            var cellEntries = new ArrayList<>(sparseMap.entrySet());
-            cellEntries.sort(Map.Entry.comparingByKey());
+            var subspaceIndexes = new ArrayList<Integer>(denseSubspaces.size());
+            for (int i = 0; i < denseSubspaces.size(); i++)
+                subspaceIndexes.add(i);
+            subspaceIndexes.sort(Comparator.comparing(i -> denseSubspaces.get(i).sparseAddress));
             int cellsWritten = 0;
-            for (int index = 0; index < cellEntries.size() && cellsWritten < maxCells; index++) {
+            for (int index = 0; index < subspaceIndexes.size() && cellsWritten < maxCells; index++) {
                 if (index > 0)
                     b.append(", ");
-                b.append(TensorAddress.labelToString(cellEntries.get(index).getKey().label(0)));
+                int subspaceIndex = subspaceIndexes.get(index);
+                b.append(TensorAddress.labelToString(denseSubspaces.get(subspaceIndex).sparseAddress.label(0)));
                 b.append(":");
-                cellsWritten += denseSubspaceToString(tensor, cellEntries.get(index).getValue(), maxCells - cellsWritten, b);
+                cellsWritten += denseSubspaceToString(tensor, subspaceIndex, maxCells - cellsWritten, b);
             }
             if (cellsWritten >= maxCells && cellsWritten < tensor.size())
                 b.append(", ...");
@@ -595,12 +617,12 @@ public class MixedTensor implements Tensor {
         private static class Builder {
 
             private final Index index;
-            private final ImmutableMap.Builder<TensorAddress, Integer> builder = new ImmutableMap.Builder<>();
+            private final AddressIndex sparseIndex;
             private final ImmutableList.Builder<DenseSubspace> listBuilder = new ImmutableList.Builder<>();
-            private int count = 0;
 
             Builder(TensorType type) {
                 index = new Index(type);
+                sparseIndex = new AddressIndex(index.mappedDimensions.size(), 16);
             }
 
             void addBlock(DenseSubspace block) {
@@ -608,12 +630,14 @@ public class MixedTensor implements Tensor {
                     throw new IllegalStateException("dense subspace size mismatch, expected " + index.denseSubspaceSize
                             + " cells, but got: " + block.cells.length);
                 }
-                builder.put(block.sparseAddress, count++);
+                int size = sparseIndex.size();
+                if (sparseIndex.add(block.sparseAddress) < size)
+                    throw new IllegalArgumentException("Multiple dense subspaces with sparse address " + block.sparseAddress);
                 listBuilder.add(block);
             }
 
             Index build() {
-                index.sparseMap = builder.build();
+                index.sparseIndex = sparseIndex.trim();
                 index.denseSubspaces = listBuilder.build();
                 return index;
             }
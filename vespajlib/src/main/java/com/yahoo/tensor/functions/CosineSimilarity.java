@@ -5,9 +5,11 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.MapEvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.TensorType.Dimension;
+import com.yahoo.tensor.impl.DenseKernels;
 
 import java.util.List;
 import java.util.Objects;
@@ -63,16 +65,31 @@ public class CosineSimilarity<NAMETYPE extends Name> extends TensorFunction<NAME
         return toPrimitive().type(context);
     }
 
-    /** Evaluates this by first converting it to a primitive function */
+    /** Evaluates this directly if the arguments are dense vectors, and by converting it to a primitive function otherwise */
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
-        return toPrimitive().evaluate(context);
+        Tensor a = arg1.evaluate(context);
+        Tensor b = arg2.evaluate(context);
+        if (DenseKernels.isVector(a, dimension) && DenseKernels.isVector(b, dimension)) {
+            IndexedTensor aVector = (IndexedTensor)a;
+            IndexedTensor bVector = (IndexedTensor)b;
+            int size = DenseKernels.vectorSize(aVector);
+            if (size == DenseKernels.vectorSize(bVector)) {
+                double aa = DenseKernels.dotProduct(aVector, 0, aVector, 0, size);
+                double ab = DenseKernels.dotProduct(aVector, 0, bVector, 0, size);
+                double bb = DenseKernels.dotProduct(bVector, 0, bVector, 0, size);
+                return Tensor.from(ab / Math.sqrt(aa * bb));
+            }
+        }
+        return toPrimitive(new ConstantTensor<>(a), new ConstantTensor<>(b)).evaluate(context);
     }
 
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
-        TensorFunction<NAMETYPE> a = arg1.toPrimitive();
-        TensorFunction<NAMETYPE> b = arg2.toPrimitive();
+        return toPrimitive(arg1.toPrimitive(), arg2.toPrimitive());
+    }
+
+    private PrimitiveTensorFunction<NAMETYPE> toPrimitive(TensorFunction<NAMETYPE> a, TensorFunction<NAMETYPE> b) {
         var aa = new Join<>(a, a, ScalarFunctions.multiply());
         var ab = new Join<>(a, b, ScalarFunctions.multiply());
         var bb = new Join<>(b, b, ScalarFunctions.multiply());
@@ -4,9 +4,11 @@ package com.yahoo.tensor.functions;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.TensorType.Dimension;
+import com.yahoo.tensor.impl.DenseKernels;
 
 import java.util.List;
 import java.util.Objects;
@@ -61,16 +63,25 @@ public class EuclideanDistance<NAMETYPE extends Name> extends TensorFunction<NAM
         return toPrimitive().type(context);
     }
 
-    /** Evaluates this by first converting it to a primitive function */
+    /** Evaluates this directly if the arguments are dense vectors, and by converting it to a primitive function otherwise */
     @Override
     public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
-        return toPrimitive().evaluate(context);
+        Tensor a = arg1.evaluate(context);
+        Tensor b = arg2.evaluate(context);
+        if (DenseKernels.isVector(a, dimension) && DenseKernels.isVector(b, dimension)) {
+            int size = DenseKernels.vectorSize((IndexedTensor)a);
+            if (size == DenseKernels.vectorSize((IndexedTensor)b))
+                return Tensor.from(Math.sqrt(DenseKernels.squaredDistance((IndexedTensor)a, (IndexedTensor)b, size)));
+        }
+        return toPrimitive(new ConstantTensor<>(a), new ConstantTensor<>(b)).evaluate(context);
     }
 
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
-        TensorFunction<NAMETYPE> primitive1 = arg1.toPrimitive();
-        TensorFunction<NAMETYPE> primitive2 = arg2.toPrimitive();
+        return toPrimitive(arg1.toPrimitive(), arg2.toPrimitive());
+    }
+
+    private PrimitiveTensorFunction<NAMETYPE> toPrimitive(TensorFunction<NAMETYPE> primitive1, TensorFunction<NAMETYPE> primitive2) {
         // this should match the C++ optimized "l2_distance"
         var diffs = new Join<>(primitive1, primitive2, ScalarFunctions.subtract());
         var squaredDiffs = new Map<>(diffs, ScalarFunctions.square());
@@ -1,7 +1,12 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.impl.DenseKernels;
 
 import java.util.List;
 import java.util.Objects;
@@ -29,9 +34,29 @@ public class L2Normalize<NAMETYPE extends Name> extends CompositeTensorFunction<
         return new L2Normalize<>(arguments.get(0), dimension);
     }
 
+    /** Evaluates this directly if the argument is a dense vector, and by converting it to a primitive function otherwise */
+    @Override
+    public Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor tensor = argument.evaluate(context);
+        if (DenseKernels.isVector(tensor, dimension)) {
+            IndexedTensor vector = (IndexedTensor)tensor;
+            int size = DenseKernels.vectorSize(vector);
+            double norm = Math.sqrt(DenseKernels.dotProduct(vector, 0, vector, 0, size));
+            TensorType resultType = Join.outputType(vector.type(), TensorType.empty);
+            IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(resultType, vector.dimensionSizes());
+            for (int i = 0; i < size; i++)
+                builder.cellByDirectIndex(i, vector.get(i) / norm);
+            return builder.build();
+        }
+        return toPrimitive(new ConstantTensor<>(tensor)).evaluate(context);
+    }
+
     @Override
     public PrimitiveTensorFunction<NAMETYPE> toPrimitive() {
-        TensorFunction<NAMETYPE> primitiveArgument = argument.toPrimitive();
+        return toPrimitive(argument.toPrimitive());
+    }
+
+    private PrimitiveTensorFunction<NAMETYPE> toPrimitive(TensorFunction<NAMETYPE> primitiveArgument) {
         return new Join<>(primitiveArgument,
                           new Map<>(new Reduce<>(new Map<>(primitiveArgument, ScalarFunctions.square()),
                                                  Reduce.Aggregator.sum,
@@ -12,6 +12,7 @@ import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.Name;
 import com.yahoo.tensor.evaluation.TypeContext;
 import com.yahoo.tensor.impl.Convert;
+import com.yahoo.tensor.impl.DenseKernels;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -232,8 +233,13 @@ public class Reduce<NAMETYPE extends Name> extends PrimitiveTensorFunction<NAMET
     }
 
     private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
-        ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         int dimensionSize = Convert.safe2Int(argument.dimensionSizes().size(0));
+        if (aggregator == Aggregator.sum)
+            return Tensor.from(DenseKernels.sum(argument, dimensionSize));
+        if (aggregator == Aggregator.avg)
+            return Tensor.from(DenseKernels.sum(argument, dimensionSize) / dimensionSize);
+
+        ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
         for (int i = 0; i < dimensionSize ; i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell(valueAggregator.aggregatedValue()).build();
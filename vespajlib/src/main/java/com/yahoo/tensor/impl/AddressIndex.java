@@ -0,0 +1,201 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.Label;
+import com.yahoo.tensor.TensorAddress;
+
+import java.util.Arrays;
+
+/**
+ * An insertion ordered set of tensor addresses of a given rank, which assigns each address an ordinal
+ * (0, 1, ...) which can be used to index arrays of values or other content of the address.
+ *
+ * This avoids the per entry objects of a map: The labels of each address are stored in a flat array,
+ * which also keeps the numeric ids of mapped labels valid, see {@link LabelCache}.
+ * The numeric ids are packed into a long key per address (the id itself for rank 1),
+ * which is hashed into an open addressing table of ordinals.
+ *
+ * This is not thread safe during building, but can be read by multiple threads once completed.
+ *
+ * @author bratseth
+ */
+public final class AddressIndex {
+
+    private static final int minCapacity = 4;
+
+    private final int rank;
+
+    /** The labels of each address, in ordinal order */
+    private Label[] labels;
+
+    /** The key of each address, in ordinal order */
+    private long[] keys;
+
+    /** The hash table: The ordinal + 1 of the address in each slot, or 0 if the slot is empty */
+    private int[] slots;
+
+    private int size = 0;
+
+    /** Creates an empty index of addresses of the given rank */
+    public AddressIndex(int rank, int expectedSize) {
+        if (rank < 0) throw new IllegalArgumentException("Rank cannot be negative, but was " + rank);
+        int capacity = Math.max(minCapacity, expectedSize);
+        this.rank = rank;
+        this.labels = new Label[capacity * rank];
+        this.keys = new long[capacity];
+        this.slots = new int[tableSizeFor(capacity)];
+    }
+
+    /** Returns the number of addresses in this */
+    public int size() { return size; }
+
+    /** Returns the rank of the addresses in this */
+    public int rank() { return rank; }
+
+    /** Returns the ordinal of the given address, or -1 if it is not present in this */
+    public int indexOf(TensorAddress address) {
+        if (address.size() != rank) return -1;
+        return indexOf(address, null);
+    }
+
+    /**
+     * Returns the ordinal of the address consisting of the labels of the given dimensions of the given address,
+     * or -1 if it is not present in this. This avoids creating partial addresses for lookup.
+     *
+     * @param address the address to look up a partial address of
+     * @param dimensions the indexes of the labels of the address to look up, of length equal to the rank of this
+     */
+    public int indexOf(TensorAddress address, int[] dimensions) {
+        long key = keyOf(address, dimensions);
+        int mask = slots.length - 1;
+        for (int slot = slotOf(key, mask); ; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot] - 1;
+            if (ordinal < 0) return -1;
+            if (keys[ordinal] == key && labelsEqual(ordinal, address, dimensions)) return ordinal;
+        }
+    }
+
+    /** Adds the given address if it is not already present, and returns its ordinal */
+    public int add(TensorAddress address) {
+        if (address.size() != rank)
+            throw new IllegalArgumentException("Cannot add " + address + " to an index of addresses of rank " + rank);
+        return add(address, null);
+    }
+
+    /**
+     * Adds the address consisting of the labels of the given dimensions of the given address
+     * if it is not already present, and returns its ordinal.
+     *
+     * @param address the address to add a partial address of
+     * @param dimensions the indexes of the labels of the address to add, of length equal to the rank of this
+     */
+    public int add(TensorAddress address, int[] dimensions) {
+        long key = keyOf(address, dimensions);
+        int mask = slots.length - 1;
+        int slot = slotOf(key, mask);
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot] - 1;
+            if (keys[ordinal] == key && labelsEqual(ordinal, address, dimensions)) return ordinal;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            labels = Arrays.copyOf(labels, size * 2 * rank);
+        }
+        int ordinal = size++;
+        keys[ordinal] = key;
+        for (int i = 0; i < rank; i++)
+            labels[ordinal * rank + i] = address.objectLabel(dimension(i, dimensions));
+        slots[slot] = ordinal + 1;
+        if (size * 2 > slots.length)
+            rehash(slots.length * 2);
+        return ordinal;
+    }
+
+    /** Returns the label in the given dimension of the address with the given ordinal */
+    public Label label(int ordinal, int dimension) {
+        return labels[ordinal * rank + dimension];
+    }
+
+    /** Returns the address with the given ordinal */
+    public TensorAddress addressOf(int ordinal) {
+        if (ordinal < 0 || ordinal >= size)
+            throw new IndexOutOfBoundsException("No address with ordinal " + ordinal + " in an index of size " + size);
+        int start = ordinal * rank;
+        return switch (rank) {
+            case 0 -> TensorAddressEmpty.empty;
+            case 1 -> new TensorAddressAny1(labels[start]);
+            case 2 -> new TensorAddressAny2(labels[start], labels[start + 1]);
+            case 3 -> new TensorAddressAny3(labels[start], labels[start + 1], labels[start + 2]);
+            case 4 -> new TensorAddressAny4(labels[start], labels[start + 1], labels[start + 2], labels[start + 3]);
+            default -> new TensorAddressAnyN(Arrays.copyOfRange(labels, start, start + rank));
+        };
+    }
+
+    /** Returns a copy of this which can be modified independently */
+    public AddressIndex copy() {
+        AddressIndex copy = new AddressIndex(rank, 0);
+        copy.labels = labels.clone();
+        copy.keys = keys.clone();
+        copy.slots = slots.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /** Releases unused capacity. Call this when no more addresses will be added. */
+    public AddressIndex trim() {
+        if (keys.length > Math.max(minCapacity, size)) {
+            keys = Arrays.copyOf(keys, Math.max(minCapacity, size));
+            labels = Arrays.copyOf(labels, Math.max(minCapacity, size) * rank);
+        }
+        return this;
+    }
+
+    private long keyOf(TensorAddress address, int[] dimensions) {
+        if (rank == 1) return address.numericLabel(dimension(0, dimensions));
+        long key = 0;
+        for (int i = 0; i < rank; i++)
+            key = key * 0x9E3779B97F4A7C15L + address.numericLabel(dimension(i, dimensions));
+        return key;
+    }
+
+    private boolean labelsEqual(int ordinal, TensorAddress address, int[] dimensions) {
+        if (rank == 1) return true; // the key is the label
+        for (int i = 0; i < rank; i++) {
+            if (labels[ordinal * rank + i].asNumeric() != address.numericLabel(dimension(i, dimensions)))
+                return false;
+        }
+        return true;
+    }
+
+    private void rehash(int tableSize) {
+        slots = new int[tableSize];
+        int mask = tableSize - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = slotOf(keys[ordinal], mask);
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = ordinal + 1;
+        }
+    }
+
+    private static int dimension(int i, int[] dimensions) {
+        return dimensions == null ? i : dimensions[i];
+    }
+
+    /** Returns the slot of the given key: Numeric ids are sequential, so they are mixed (by the murmur3 finalizer) */
+    private static int slotOf(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int)key & mask;
+    }
+
+    /** Returns a power of two table size with room for the given number of entries at a load factor of at most 0.5 */
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(Math.max(minCapacity, capacity) * 2 - 1) * 2;
+    }
+
+}
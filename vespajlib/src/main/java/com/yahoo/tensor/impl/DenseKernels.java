@@ -0,0 +1,184 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+
+/**
+ * Kernels computing aggregates over runs of cells in dense tensors.
+ * These work directly on the cell arrays of the tensors, and sum into several independent accumulators,
+ * which lets the JIT compiler unroll, pipeline and (for element-wise parts) vectorize the loops.
+ * The results may therefore differ from a sequential summation in the least significant bits.
+ *
+ * @author bratseth
+ */
+public class DenseKernels {
+
+    private DenseKernels() {}
+
+    /** Returns whether the given tensor is an indexed tensor with the given dimension as its only dimension */
+    public static boolean isVector(Tensor tensor, String dimension) {
+        return tensor instanceof IndexedTensor
+               && tensor.type().rank() == 1
+               && tensor.type().dimensions().get(0).name().equals(dimension);
+    }
+
+    /** Returns the size of the only dimension of the given vector */
+    public static int vectorSize(IndexedTensor vector) {
+        return Convert.safe2Int(vector.dimensionSizes().size(0));
+    }
+
+    /** Returns the sum of the products of the given number of cells of a and b, starting at the given cell indexes */
+    public static double dotProduct(IndexedTensor a, int aStart, IndexedTensor b, int bStart, int length) {
+        float[] aFloats = a.internalFloatCells(), bFloats = b.internalFloatCells();
+        double[] aDoubles = a.internalDoubleCells(), bDoubles = b.internalDoubleCells();
+        if (aFloats != null && bFloats != null) return dotProduct(aFloats, aStart, bFloats, bStart, length);
+        if (aDoubles != null && bDoubles != null) return dotProduct(aDoubles, aStart, bDoubles, bStart, length);
+        if (aFloats != null && bDoubles != null) return dotProduct(bDoubles, bStart, aFloats, aStart, length);
+        if (aDoubles != null && bFloats != null) return dotProduct(aDoubles, aStart, bFloats, bStart, length);
+
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += a.get(aStart + i) * b.get(bStart + i);
+        return sum;
+    }
+
+    /** Returns the sum of the squared differences between the first given number of cells of a and b */
+    public static double squaredDistance(IndexedTensor a, IndexedTensor b, int length) {
+        float[] aFloats = a.internalFloatCells(), bFloats = b.internalFloatCells();
+        double[] aDoubles = a.internalDoubleCells(), bDoubles = b.internalDoubleCells();
+        if (aFloats != null && bFloats != null) return squaredDistance(aFloats, bFloats, length);
+        if (aDoubles != null && bDoubles != null) return squaredDistance(aDoubles, bDoubles, length);
+
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            double difference = a.get(i) - b.get(i);
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /** Returns the sum of the first given number of cells in the given tensor */
+    public static double sum(IndexedTensor tensor, int length) {
+        float[] floats = tensor.internalFloatCells();
+        if (floats != null) return sum(floats, length);
+        double[] doubles = tensor.internalDoubleCells();
+        if (doubles != null) return sum(doubles, length);
+
+        double sum = 0;
+        for (int i = 0; i < length; i++)
+            sum += tensor.get(i);
+        return sum;
+    }
+
+    private static double dotProduct(float[] a, int aStart, float[] b, int bStart, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            s0 += (double)a[aStart + i    ] * b[bStart + i    ];
+            s1 += (double)a[aStart + i + 1] * b[bStart + i + 1];
+            s2 += (double)a[aStart + i + 2] * b[bStart + i + 2];
+            s3 += (double)a[aStart + i + 3] * b[bStart + i + 3];
+        }
+        for (; i < length; i++)
+            s0 += (double)a[aStart + i] * b[bStart + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double dotProduct(double[] a, int aStart, double[] b, int bStart, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            s0 += a[aStart + i    ] * b[bStart + i    ];
+            s1 += a[aStart + i + 1] * b[bStart + i + 1];
+            s2 += a[aStart + i + 2] * b[bStart + i + 2];
+            s3 += a[aStart + i + 3] * b[bStart + i + 3];
+        }
+        for (; i < length; i++)
+            s0 += a[aStart + i] * b[bStart + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double dotProduct(double[] a, int aStart, float[] b, int bStart, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            s0 += a[aStart + i    ] * b[bStart + i    ];
+            s1 += a[aStart + i + 1] * b[bStart + i + 1];
+            s2 += a[aStart + i + 2] * b[bStart + i + 2];
+            s3 += a[aStart + i + 3] * b[bStart + i + 3];
+        }
+        for (; i < length; i++)
+            s0 += a[aStart + i] * b[bStart + i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double squaredDistance(float[] a, float[] b, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            double d0 = (double)a[i    ] - b[i    ];
+            double d1 = (double)a[i + 1] - b[i + 1];
+            double d2 = (double)a[i + 2] - b[i + 2];
+            double d3 = (double)a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = (double)a[i] - b[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double squaredDistance(double[] a, double[] b, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            double d0 = a[i    ] - b[i    ];
+            double d1 = a[i + 1] - b[i + 1];
+            double d2 = a[i + 2] - b[i + 2];
+            double d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < length; i++) {
+            double d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double sum(float[] values, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < length; i++)
+            s0 += values[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double sum(double[] values, int length) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int unrolledEnd = length & ~3; i < unrolledEnd; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < length; i++)
+            s0 += values[i];
+        return (s0 + s1) + (s2 + s3);
+    }
+
+}
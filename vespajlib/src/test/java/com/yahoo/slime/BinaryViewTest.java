@@ -2,6 +2,7 @@
 package com.yahoo.slime;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.function.Consumer;
 
@@ -306,6 +307,22 @@ public class BinaryViewTest {
         }
     }
 
+    @Test public void testBinaryViewOfSliceParity() {
+        for (int i = 0; i < numShapes; ++i) {
+            var slime = makeSlime(i);
+            ctx = "case " + i + ": '" + slime.toString() + "'";
+            byte[] data = BinaryFormat.encode(slime);
+            byte[] padded = new byte[data.length + 7];
+            Arrays.fill(padded, (byte)0xff);
+            System.arraycopy(data, 0, padded, 3, data.length);
+            try {
+                checkParity(slime.get(), BinaryView.inspect(padded, 3, data.length));
+            } catch (Exception e) {
+                fail(ctx + ", got exception: " + e);
+            }
+        }
+    }
+
     void assertFail(byte[] data, String reason) {
         try {
             var view = BinaryView.inspect(data);
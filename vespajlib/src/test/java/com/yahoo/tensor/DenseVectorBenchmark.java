@@ -0,0 +1,92 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.Name;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.CosineSimilarity;
+import com.yahoo.tensor.functions.EuclideanDistance;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Microbenchmark of functions of dense vectors typical of embedding similarity computations,
+ * comparing the dense kernels to the general evaluation of the same functions.
+ *
+ * @author bratseth
+ */
+public class DenseVectorBenchmark {
+
+    private final static Random random = new Random();
+
+    private final VariableTensor<Name> query = new VariableTensor<>("query");
+    private final VariableTensor<Name> document = new VariableTensor<>("document");
+
+    public double benchmark(int iterations, TensorFunction<Name> function, Tensor queryVector, List<Tensor> documentVectors) {
+        evaluate(function, queryVector, documentVectors, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        evaluate(function, queryVector, documentVectors, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return (double)totalTime / 1000.0 / iterations / documentVectors.size();
+    }
+
+    private double evaluate(TensorFunction<Name> function, Tensor queryVector, List<Tensor> documentVectors, int iterations) {
+        MapEvaluationContext<Name> context = new MapEvaluationContext<>();
+        context.put("query", queryVector);
+        double largest = Double.NEGATIVE_INFINITY;
+        for (int i = 0 ; i < iterations; i++) {
+            for (Tensor documentVector : documentVectors) {
+                context.put("document", documentVector);
+                largest = Math.max(largest, function.evaluate(context).asDouble());
+            }
+        }
+        return largest;
+    }
+
+    private void run(String cellType, int size) {
+        Tensor queryVector = vectors(cellType, size, 1).get(0);
+        List<Tensor> documentVectors = vectors(cellType, size, 100);
+        int iterations = 1000;
+
+        var dotProduct = new ReduceJoin<>(query, document, ScalarFunctions.multiply(), Reduce.Aggregator.sum, List.of("x"));
+        var generalDotProduct = new Reduce<>(new Join<>(query, document, (a, b) -> a * b), Reduce.Aggregator.sum, "x");
+        var cosine = new CosineSimilarity<>(query, document, "x");
+        var euclidean = new EuclideanDistance<>(query, document, "x");
+        System.out.printf("%s vectors of size %d, microseconds per evaluation:%n", cellType, size);
+        System.out.printf("  dot product (kernel):  %8.3f%n", benchmark(iterations, dotProduct, queryVector, documentVectors));
+        System.out.printf("  dot product (general): %8.3f%n", benchmark(iterations, generalDotProduct, queryVector, documentVectors));
+        System.out.printf("  cosine (kernel):       %8.3f%n", benchmark(iterations, cosine, queryVector, documentVectors));
+        System.out.printf("  cosine (general):      %8.3f%n", benchmark(iterations, cosine.toPrimitive(), queryVector, documentVectors));
+        System.out.printf("  euclidean (kernel):    %8.3f%n", benchmark(iterations, euclidean, queryVector, documentVectors));
+        System.out.printf("  euclidean (general):   %8.3f%n", benchmark(iterations, euclidean.toPrimitive(), queryVector, documentVectors));
+    }
+
+    private static List<Tensor> vectors(String cellType, int size, int count) {
+        TensorType type = TensorType.fromSpec("tensor<" + cellType + ">(x[" + size + "])");
+        List<Tensor> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
+            for (int j = 0; j < size; j++)
+                builder.cell(random.nextDouble(), j);
+            vectors.add(builder.build());
+        }
+        return vectors;
+    }
+
+    public static void main(String[] args) {
+        DenseVectorBenchmark benchmark = new DenseVectorBenchmark();
+        for (int size : new int[] { 128, 384, 768 }) {
+            benchmark.run("float", size);
+            benchmark.run("double", size);
+        }
+    }
+
+}
@@ -3,9 +3,13 @@ package com.yahoo.tensor;
 
 import org.junit.Test;
 
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -49,4 +53,45 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0, {x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testLookupAndCells() {
+        Tensor tensor = Tensor.from("tensor(x{},y{}):{{x:a,y:b}:1.0, {x:b,y:a}:2.0, {x:c,y:c}:3.0}");
+        assertEquals(2.0, tensor.get(TensorAddress.ofLabels("b", "a")), 0.0);
+        assertEquals(0.0, tensor.get(TensorAddress.ofLabels("a", "a")), 0.0);
+        assertNull(tensor.getAsDouble(TensorAddress.ofLabels("a")));
+        assertTrue(tensor.has(TensorAddress.ofLabels("c", "c")));
+        assertFalse(tensor.has(TensorAddress.ofLabels("c", "b")));
+
+        Map<TensorAddress, Double> cells = tensor.cells();
+        assertEquals(Map.of(TensorAddress.ofLabels("a", "b"), 1.0,
+                            TensorAddress.ofLabels("b", "a"), 2.0,
+                            TensorAddress.ofLabels("c", "c"), 3.0),
+                     cells);
+        assertEquals(cells.hashCode(), tensor.hashCode());
+        assertEquals(3.0, cells.get(TensorAddress.ofLabels("c", "c")), 0.0);
+        assertTrue(cells.containsKey(TensorAddress.ofLabels("a", "b")));
+        assertEquals("tensor(x{},y{}):{{x:a,y:b}:1.0, {x:c,y:c}:3.0}",
+                     tensor.remove(Set.of(TensorAddress.ofLabels("b", "a"))).toString());
+    }
+
+    @Test
+    public void testBuilding() {
+        TensorType type = TensorType.fromSpec("tensor(x{})");
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        for (int i = 0; i < 1000; i++)
+            builder.cell(TensorAddress.ofLabels("label" + i), i);
+        Tensor first = builder.build();
+        builder.cell(TensorAddress.ofLabels("label1000"), 1000);
+        Tensor second = builder.build();
+        assertEquals(1000, first.size());
+        assertEquals(1001, second.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, first.get(TensorAddress.ofLabels("label" + i)), 0.0);
+        assertFalse(first.has(TensorAddress.ofLabels("label1000")));
+        assertEquals(1000, second.get(TensorAddress.ofLabels("label1000")), 0.0);
+
+        assertThrows(IllegalArgumentException.class,
+                     () -> Tensor.Builder.of(type).cell(TensorAddress.ofLabels("a"), 1).cell(TensorAddress.ofLabels("a"), 2));
+    }
+
 }
@@ -0,0 +1,99 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark of the memory use and throughput of sparse tensors of the sizes typical of e.g. learned sparse
+ * representations and category weights, compared to a map of cells, which is what mapped tensors used to store.
+ *
+ * @author bratseth
+ */
+public class SparseTensorBenchmark {
+
+    private final int cellsPerTensor;
+    private final List<TensorAddress> addresses = new ArrayList<>();
+
+    public SparseTensorBenchmark(int cellsPerTensor) {
+        this.cellsPerTensor = cellsPerTensor;
+        for (int i = 0; i < cellsPerTensor; i++)
+            addresses.add(TensorAddress.ofLabels("token" + i));
+    }
+
+    private Tensor buildTensor() {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor<float>(token{})"));
+        for (int i = 0; i < cellsPerTensor; i++)
+            builder.cell(addresses.get(i), i);
+        return builder.build();
+    }
+
+    private Map<TensorAddress, Double> buildMap() {
+        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+        for (int i = 0; i < cellsPerTensor; i++)
+            builder.put(addresses.get(i), (double)i);
+        return builder.build();
+    }
+
+    /** Returns the retained heap bytes per cell of the objects returned by the given supplier */
+    private double bytesPerCell(Supplier<Object> supplier) {
+        int count = Math.max(10, 2_000_000 / cellsPerTensor);
+        List<Object> retained = new ArrayList<>(count);
+        long before = usedMemory();
+        for (int i = 0; i < count; i++)
+            retained.add(supplier.get());
+        long after = usedMemory();
+        if (retained.size() != count) throw new IllegalStateException(); // keep retained reachable
+        return (double)(after - before) / count / cellsPerTensor;
+    }
+
+    /** Returns the nanoseconds per cell of building tensors, looking up all cells, and iterating over all cells */
+    private double[] nanosPerCell(int iterations) {
+        double sum = 0;
+        long buildTime = 0, lookupTime = 0, iterationTime = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            Tensor tensor = buildTensor();
+            buildTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (TensorAddress address : addresses)
+                sum += tensor.get(address);
+            lookupTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); )
+                sum += cells.next().getDoubleValue();
+            iterationTime += System.nanoTime() - start;
+        }
+        if (sum < 0) throw new IllegalStateException(); // use the result
+        double cells = (double)iterations * cellsPerTensor;
+        return new double[] { buildTime / cells, lookupTime / cells, iterationTime / cells };
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    public static void main(String[] args) {
+        for (int cells : new int[] { 10, 100, 1000, 10000, 50000 }) {
+            SparseTensorBenchmark benchmark = new SparseTensorBenchmark(cells);
+            int iterations = Math.max(10, 5_000_000 / cells);
+            benchmark.nanosPerCell(iterations); // warmup
+            double[] nanos = benchmark.nanosPerCell(iterations);
+            System.out.printf("%6d cells: %5.1f bytes/cell (map of cells: %5.1f), ns/cell: build %5.1f, get %5.1f, iterate %5.1f%n",
+                              cells,
+                              benchmark.bytesPerCell(benchmark::buildTensor),
+                              benchmark.bytesPerCell(benchmark::buildMap),
+                              nanos[0], nanos[1], nanos[2]);
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.TensorAddress;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author bratseth
+ */
+public class AddressIndexTestCase {
+
+    @Test
+    public void testIndexingAddressesOfRankOne() {
+        AddressIndex index = new AddressIndex(1, 0);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, index.add(TensorAddress.ofLabels("label" + i)));
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, index.add(TensorAddress.ofLabels("label" + i)));
+        assertEquals(1000, index.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.indexOf(TensorAddress.ofLabels("label" + i)));
+            assertEquals(TensorAddress.ofLabels("label" + i), index.addressOf(i));
+        }
+        assertEquals(-1, index.indexOf(TensorAddress.ofLabels("label1000")));
+        assertEquals(-1, index.indexOf(TensorAddress.ofLabels("label1", "label2")));
+        assertEquals(7, index.indexOf(TensorAddress.ofLabels("x", "label7"), new int[] { 1 }));
+    }
+
+    @Test
+    public void testIndexingAddressesOfHigherRank() {
+        for (int rank = 2; rank <= 6; rank++) {
+            AddressIndex index = new AddressIndex(rank, 3);
+            for (int i = 0; i < 100; i++)
+                assertEquals(i, index.add(address(rank, i, i + 1)));
+            assertEquals(100, index.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, index.indexOf(address(rank, i, i + 1)));
+                assertEquals(-1, index.indexOf(address(rank, i + 1, i)));
+                assertEquals(address(rank, i, i + 1), index.addressOf(i));
+            }
+        }
+    }
+
+    @Test
+    public void testIndexingPartialAddresses() {
+        AddressIndex index = new AddressIndex(2, 0);
+        int[] mappedDimensions = { 0, 2 };
+        assertEquals(0, index.add(TensorAddress.ofLabels("a", "0", "b"), mappedDimensions));
+        assertEquals(0, index.add(TensorAddress.ofLabels("a", "1", "b"), mappedDimensions));
+        assertEquals(1, index.add(TensorAddress.ofLabels("b", "1", "a"), mappedDimensions));
+        assertEquals(TensorAddress.ofLabels("a", "b"), index.addressOf(0));
+        assertEquals(1, index.indexOf(TensorAddress.ofLabels("b", "a")));
+        assertEquals(1, index.indexOf(TensorAddress.ofLabels("b", "7", "a"), mappedDimensions));
+        assertEquals(-1, index.indexOf(TensorAddress.ofLabels("b", "7", "b"), mappedDimensions));
+    }
+
+    @Test
+    public void testRankZero() {
+        AddressIndex index = new AddressIndex(0, 0);
+        assertEquals(-1, index.indexOf(TensorAddress.of()));
+        assertEquals(0, index.add(TensorAddress.of()));
+        assertEquals(0, index.add(TensorAddress.of()));
+        assertEquals(1, index.size());
+        assertEquals(TensorAddress.of(), index.addressOf(0));
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        AddressIndex index = new AddressIndex(1, 0);
+        index.add(TensorAddress.ofLabels("a"));
+        AddressIndex copy = index.trim().copy();
+        copy.add(TensorAddress.ofLabels("b"));
+        assertEquals(1, index.size());
+        assertEquals(-1, index.indexOf(TensorAddress.ofLabels("b")));
+        assertEquals(1, copy.indexOf(TensorAddress.ofLabels("b")));
+    }
+
+    @Test
+    public void testAddingAddressOfWrongRank() {
+        AddressIndex index = new AddressIndex(2, 0);
+        assertThrows(IllegalArgumentException.class, () -> index.add(TensorAddress.ofLabels("a")));
+    }
+
+    private static TensorAddress address(int rank, int first, int rest) {
+        String[] labels = new String[rank];
+        labels[0] = "x" + first;
+        for (int i = 1; i < rank; i++)
+            labels[i] = String.valueOf(rest);
+        return TensorAddress.ofLabels(labels);
+    }
+
+}
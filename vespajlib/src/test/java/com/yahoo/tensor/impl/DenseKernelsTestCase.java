@@ -0,0 +1,78 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.impl;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author bratseth
+ */
+public class DenseKernelsTestCase {
+
+    private static final double delta = 1e-9;
+
+    @Test
+    public void testKernelsAgreeWithSequentialComputation() {
+        Random random = new Random(42);
+        for (int size : new int[] { 1, 3, 4, 5, 17, 384 }) {
+            for (String aCellType : new String[] { "double", "float", "bfloat16", "int8" }) {
+                for (String bCellType : new String[] { "double", "float" }) {
+                    IndexedTensor a = vector(aCellType, size, random);
+                    IndexedTensor b = vector(bCellType, size, random);
+
+                    double dotProduct = 0, squaredDistance = 0, sum = 0;
+                    for (int i = 0; i < size; i++) {
+                        dotProduct += a.get(i) * b.get(i);
+                        squaredDistance += (a.get(i) - b.get(i)) * (a.get(i) - b.get(i));
+                        sum += a.get(i);
+                    }
+                    String message = aCellType + " and " + bCellType + " vectors of size " + size;
+                    assertClose(dotProduct, DenseKernels.dotProduct(a, 0, b, 0, size), message);
+                    assertClose(squaredDistance, DenseKernels.squaredDistance(a, b, size), message);
+                    assertClose(sum, DenseKernels.sum(a, size), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDotProductOfRows() {
+        IndexedTensor matrix = (IndexedTensor)Tensor.from("tensor(x[3],y[5]):[[1,2,3,4,5],[6,7,8,9,10],[11,12,13,14,15]]");
+        IndexedTensor vector = (IndexedTensor)Tensor.from("tensor(y[5]):[1,0,2,0,3]");
+        assertEquals(1 + 6 + 15, DenseKernels.dotProduct(vector, 0, matrix, 0, 5), delta);
+        assertEquals(6 + 16 + 30, DenseKernels.dotProduct(vector, 0, matrix, 5, 5), delta);
+        assertEquals(11 + 26 + 45, DenseKernels.dotProduct(matrix, 10, vector, 0, 5), delta);
+        assertEquals(2 * 7 + 3 * 8, DenseKernels.dotProduct(matrix, 1, matrix, 6, 2), delta);
+    }
+
+    @Test
+    public void testIsVector() {
+        assertTrue(DenseKernels.isVector(Tensor.from("tensor(x[2]):[1,2]"), "x"));
+        assertTrue(DenseKernels.isVector(Tensor.from("tensor<float>(x[2]):[1,2]"), "x"));
+        assertFalse(DenseKernels.isVector(Tensor.from("tensor(x[2]):[1,2]"), "y"));
+        assertFalse(DenseKernels.isVector(Tensor.from("tensor(x[2],y[1]):[[1],[2]]"), "x"));
+        assertFalse(DenseKernels.isVector(Tensor.from("tensor(x{}):{a:1}"), "x"));
+    }
+
+    /** Summation order differs, so allow a difference relative to the magnitude of the result */
+    private static void assertClose(double expected, double actual, String message) {
+        assertEquals(expected, actual, delta * Math.max(1, Math.abs(expected)), message);
+    }
+
+    private static IndexedTensor vector(String cellType, int size, Random random) {
+        TensorType type = TensorType.fromSpec("tensor<" + cellType + ">(x[" + size + "])");
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type);
+        for (int i = 0; i < size; i++)
+            builder.cell(cellType.equals("int8") ? random.nextInt(-128, 128) : random.nextDouble() * 2 - 1, i);
+        return builder.build();
+    }
+
+}
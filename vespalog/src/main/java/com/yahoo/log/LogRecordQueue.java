@@ -0,0 +1,80 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.LogRecord;
+
+/**
+ * A bounded queue of log records in a ring buffer, which may be added to by any number of threads
+ * and consumed by one thread at the time. Adding never blocks or takes locks, but fails if the queue is full.
+ *
+ * Each slot has a sequence number telling whether it is ready to be written or read for a given position,
+ * such that producers only contend on the tail position.
+ *
+ * @author bratseth
+ */
+final class LogRecordQueue {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<LogRecord> records;
+    private final AtomicLongArray sequences;
+
+    /** The next position to add at */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The next position to remove from. Only accessed by the consumer. */
+    private long head = 0;
+
+    /** Creates a queue which can hold at least the given number of records */
+    LogRecordQueue(int minCapacity) {
+        if (minCapacity < 1 || minCapacity > 1 << 30)
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, not " + minCapacity);
+        this.capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1; // a power of 2, at least 2
+        this.mask = capacity - 1;
+        this.records = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+    }
+
+    /** Adds a record to this, and returns true, or returns false without adding it if this is full */
+    boolean offer(LogRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int)position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) { // free for this position
+                if (tail.compareAndSet(position, position + 1)) {
+                    records.set(index, record);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if (sequence < position) { // not yet consumed since the previous round
+                return false;
+            }
+            else { // another producer took this position
+                position = tail.get();
+            }
+        }
+    }
+
+    /** Removes and returns the next record, or returns null if this is empty. Must only be called by one thread at the time. */
+    LogRecord poll() {
+        int index = (int)head & mask;
+        if (sequences.get(index) != head + 1) return null;
+        LogRecord record = records.get(index);
+        records.set(index, null);
+        sequences.set(index, head + capacity);
+        head++;
+        return record;
+    }
+
+    /** Returns the number of records this can hold */
+    int capacity() { return capacity; }
+
+}
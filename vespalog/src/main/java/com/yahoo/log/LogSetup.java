@@ -67,10 +67,17 @@ public class LogSetup {
      * <br>
      * System.setProperty("vespa.log.control.file", "my.logcontrol")
      * <br>
+     * System.setProperty("vespa.log.async.queue.size", "10000")
+     * <br>
      * vespa.log.control.file is used if it's set, otherwise it's
      * vespa.log.control.dir + "/" + vespa.service.name + ".logcontrol"
      * if both of those variables are set, otherwise there will be no
      * runtime log control.
+     * vespa.log.async.queue.size (or VESPA_LOG_ASYNC_QUEUE_SIZE) is the max number
+     * of log records waiting to be written by a separate writer thread, such that
+     * logging threads never block on log output. Records are dropped, and the number
+     * dropped logged, when this is full. The default is 0, which means that records
+     * are written synchronously by the logging thread.
      *
      * @param programName the name of the program that is running;
      * this is added as a prefix to the logger name to form the
@@ -90,6 +97,7 @@ public class LogSetup {
         String logService = System.getProperty("vespa.service.name");
         String logControlDir  = System.getProperty("vespa.log.control.dir");
         String logControlFile = System.getProperty("vespa.log.control.file");
+        String logAsyncQueueSize = System.getProperty("vespa.log.async.queue.size");
         if (programName == null || programName.equals("")) {
             throw new RuntimeException("invalid programName: " + programName);
         }
@@ -100,10 +108,12 @@ public class LogSetup {
         if (logControlDir == null)  logControlDir = System.getenv("VESPA_LOG_CONTROL_DIR");
         if (logControlFile == null) logControlFile = System.getenv("VESPA_LOG_CONTROL_FILE");
         if (logLevel == null)       logLevel = System.getenv("VESPA_LOG_LEVEL");
+        if (logAsyncQueueSize == null) logAsyncQueueSize = System.getenv("VESPA_LOG_ASYNC_QUEUE_SIZE");
 
         // then hardcoded defaults
         if (logTarget == null) logTarget = "fd:2";
         if (logLevel == null) logLevel = "all -debug -spam";
+        if (logAsyncQueueSize == null) logAsyncQueueSize = "0";
 
         if (logControlFile == null &&
             logControlDir != null &&
@@ -122,12 +132,20 @@ public class LogSetup {
         System.setProperty("vespa.program.name", programName);
 
         try {
-            initInternal(logTarget, logService, logControlFile, programName, logLevel);
+            initInternal(logTarget, logService, logControlFile, programName, logLevel, asyncQueueSize(logAsyncQueueSize));
         } catch (FileNotFoundException e) {
             throw new RuntimeException("Unable to initialize logging", e);
         }
     }
 
+    private static int asyncQueueSize(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("vespa.log.async.queue.size must be an integer, not '" + value + "'", e);
+        }
+    }
+
     private static LogTarget getLogTargetFromString(String target) throws FileNotFoundException {
         if ("fd:2".equals(target)) {
             return new StderrLogTarget();
@@ -143,7 +161,8 @@ public class LogSetup {
                                      String service,
                                      String logCtlFn,
                                      String app,
-                                     String lev) throws FileNotFoundException {
+                                     String lev,
+                                     int asyncQueueSize) throws FileNotFoundException {
         clearHandlers();
 
         if (app != null && app.length() > 64) app = app.substring(0, 63);
@@ -153,7 +172,7 @@ public class LogSetup {
             Logger.getLogger("").removeHandler(logHandler);
         }
         Logger.getLogger("").setLevel(Level.ALL);
-        logHandler = new VespaLogHandler(getLogTargetFromString(target), new VespaLevelControllerRepo(logCtlFn, lev, app), service, app);
+        logHandler = new VespaLogHandler(getLogTargetFromString(target), new VespaLevelControllerRepo(logCtlFn, lev, app), service, app, asyncQueueSize);
         String zookeeperLogFile = System.getProperty("zookeeper_log_file_prefix");
         if (zookeeperLogFile != null) {
             zooKeeperFilter = new ZooKeeperFilter(zookeeperLogFile);
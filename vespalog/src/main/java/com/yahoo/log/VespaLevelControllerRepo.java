@@ -24,7 +24,7 @@ class VespaLevelControllerRepo implements LevelControllerRepo {
     private RandomAccessFile ctlFile;
     private FileOutputStream ctlFileAppender;
     private MappedByteBuffer mapBuf;
-    private MappedLevelControllerRepo levelControllerRepo;
+    private volatile MappedLevelControllerRepo levelControllerRepo;
     private final String logControlFilename;
     private final String appPrefix;
 
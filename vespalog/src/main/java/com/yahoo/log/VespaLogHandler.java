@@ -3,6 +3,9 @@ package com.yahoo.log;
 
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -13,6 +16,13 @@ import static java.util.logging.Level.FINE;
 import static java.util.logging.Level.INFO;
 
 /**
+ * Writes log records to a log target in the Vespa log format.
+ *
+ * Records are either written synchronously by the publishing thread, or, if this is created with
+ * an async queue size, added to a bounded queue which a single writer thread drains in batches.
+ * In async mode publishing never blocks: When the queue is full records are dropped and counted,
+ * and the number dropped is logged when there is room again. Flushing and closing this writes all queued records.
+ *
  * @author Bjorn Borud
  * @author arnej27959
  */
@@ -35,6 +45,21 @@ class VespaLogHandler extends StreamHandler {
     private final LevelControllerRepo repo;
     private final RejectFilter logRejectFilter;
 
+    /** The records waiting to be written, or null if records are written synchronously */
+    private final LogRecordQueue queue;
+
+    /** The thread writing queued records, or null if records are written synchronously */
+    private final Thread writer;
+
+    /** Whether the writer is, or is about to start, waiting for records */
+    private volatile boolean writerIdle = false;
+
+    /** Whether the writer is stopped, such that records are written synchronously */
+    private volatile boolean writerStopped = false;
+
+    /** The number of records dropped since this was last logged */
+    private final AtomicLong droppedRecords = new AtomicLong();
+
     /**
      * Construct handler which logs to specified logTarget.  The logTarget
      * may be of the following formats:
@@ -50,19 +75,41 @@ class VespaLogHandler extends StreamHandler {
      */
     VespaLogHandler(LogTarget logTarget,
                     LevelControllerRepo levelControllerRepo, String serviceName, String applicationPrefix) {
+        this(logTarget, levelControllerRepo, serviceName, applicationPrefix, 0);
+    }
+
+    /**
+     * Construct handler which logs to specified logTarget, see above.
+     *
+     * @param asyncQueueSize the max number of records waiting to be written by a separate writer thread,
+     *                       or 0 to write records synchronously in the publishing thread
+     */
+    VespaLogHandler(LogTarget logTarget,
+                    LevelControllerRepo levelControllerRepo, String serviceName, String applicationPrefix,
+                    int asyncQueueSize) {
         this.logTarget = logTarget;
         this.serviceName = serviceName;
         this.appPrefix = applicationPrefix;
         this.repo = levelControllerRepo;
         this.logRejectFilter = RejectFilter.createDefaultRejectFilter();
         initialize();
+        if (asyncQueueSize > 0) {
+            queue = new LogRecordQueue(asyncQueueSize);
+            writer = new Thread(this::writeQueued, "vespa-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        else {
+            queue = null;
+            writer = null;
+        }
     }
 
     /**
      * Publish a log record into the Vespa log target.
      */
     @Override
-    public synchronized void publish(LogRecord record) {
+    public void publish(LogRecord record) {
         String loggerName = record.getLoggerName();
         Level level = possiblyReduceLogLevel(loggerName, record.getLevel());
 
@@ -75,8 +122,95 @@ class VespaLogHandler extends StreamHandler {
             return;
         }
 
+        if (queue == null || writerStopped) {
+            write(record);
+        }
+        else if ( ! queue.offer(record)) {
+            droppedRecords.incrementAndGet();
+        }
+        else if (writerStopped) { // stopped while adding: The writer may not see the record
+            flush();
+        }
+        else if (writerIdle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private synchronized void write(LogRecord record) {
+        openTarget();
+        super.publish(record);
+        super.flush();
+        closeFileTarget();
+    }
+
+    /** Writes the records in the queue, and returns whether there were any */
+    private synchronized boolean writeQueuedBatch() {
+        LogRecord record = queue.poll();
+        long dropped = droppedRecords.get();
+        if (record == null && dropped == 0) return false;
+
+        openTarget();
+        if (dropped > 0) {
+            droppedRecords.addAndGet(-dropped);
+            LogRecord r = new LogRecord(Level.WARNING, "Dropped " + dropped + " log records because the log queue was full");
+            r.setLoggerName(VespaLogHandler.class.getName());
+            super.publish(r);
+        }
+        // Bound the batch size to keep the target open only briefly, as it may be rotated
+        for (int i = 0; record != null && i < queue.capacity(); i++) {
+            super.publish(record);
+            if (i + 1 < queue.capacity())
+                record = queue.poll();
+        }
+        super.flush();
+        closeFileTarget();
+        return true;
+    }
+
+    private void writeQueued() {
+        while ( ! writerStopped) {
+            if (writeQueuedBatch()) continue;
+
+            // Set idle before checking again, such that a record added after the check will unpark this
+            writerIdle = true;
+            if ( ! writeQueuedBatch())
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+            writerIdle = false;
+        }
+    }
+
+    /** Stops the writer thread, if any, and writes any queued records */
+    private void stopWriter() {
+        if (writer == null || writerStopped) return;
+        writerStopped = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (writeQueuedBatch()) { }
+    }
+
+    /** Writes any queued records to the log target */
+    @Override
+    public void flush() {
+        if (queue != null)
+            while (writeQueuedBatch()) { }
+        super.flush();
+    }
+
+    /** Writes any queued records and closes this */
+    @Override
+    public void close() {
+        stopWriter();
+        super.close();
+    }
+
+    /** Sets the output stream to the log target, which provokes rotation of it */
+    private void openTarget() {
         try {
-            // provokes rotation of target
             setOutputStream(logTarget.open());
         } catch (RuntimeException e) {
             LogRecord r = new LogRecord(Level.SEVERE, "Unable to open file target");
@@ -84,9 +218,6 @@ class VespaLogHandler extends StreamHandler {
             emergencyLog(r);
             setOutputStream(System.err);
         }
-        super.publish(record);
-        flush();
-        closeFileTarget();
     }
 
     private static Level possiblyReduceLogLevel(String loggerName, Level level) {
@@ -153,6 +284,7 @@ class VespaLogHandler extends StreamHandler {
     }
 
     public void cleanup() {
+        stopWriter();
         repo.close();
     }
 }
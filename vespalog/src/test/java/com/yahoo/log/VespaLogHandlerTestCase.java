@@ -16,9 +16,11 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -324,6 +326,62 @@ public class VespaLogHandlerTestCase {
 
     }
 
+    @Test
+    public void testAsyncWritesAllRecordsOnFlush() throws InterruptedException {
+        int numThreads = 10;
+        int numLogEntries = 100;
+        MockLogTarget target = new MockLogTarget();
+        VespaLogHandler h = new VespaLogHandler(target,
+                                                new VespaLevelControllerRepo(null, "all", "TST"),
+                                                "my-test-config-id", "TST",
+                                                numThreads * numLogEntries);
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < numLogEntries; j++)
+                    h.publish(record1);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        h.flush();
+
+        String[] lines = target.getLines();
+        assertEquals(numThreads * numLogEntries, lines.length);
+        for (String line : lines)
+            assertEquals(record1String, line);
+
+        h.publish(record1);
+        h.cleanup();
+        h.close();
+        assertEquals(numThreads * numLogEntries + 1, target.getLines().length);
+    }
+
+    @Test
+    public void testAsyncDropsRecordsWhenQueueIsFull() throws InterruptedException {
+        BlockingLogTarget target = new BlockingLogTarget();
+        VespaLogHandler h = new VespaLogHandler(target,
+                                                new VespaLevelControllerRepo(null, "all", "TST"),
+                                                "my-test-config-id", "TST",
+                                                2);
+        target.block();
+        h.publish(record1);
+        target.awaitBlocked(); // the writer has taken record 1 and is waiting to write it
+        for (int i = 0; i < 5; i++)
+            h.publish(record1); // 2 fit in the queue, 3 are dropped
+        target.release();
+        h.cleanup();
+        h.close();
+
+        String[] lines = target.getLines();
+        assertEquals(4, lines.length);
+        assertEquals(3, Arrays.stream(lines).filter(record1String::equals).count());
+        assertEquals(1, Arrays.stream(lines)
+                              .filter(line -> line.endsWith("\twarning\tDropped 3 log records because the log queue was full"))
+                              .count());
+    }
+
     /**
      * Make sure unicode characters in log message works
      */
@@ -436,4 +494,37 @@ public class VespaLogHandlerTestCase {
             }
         }
     }
+
+    /** A log target which blocks when opened while it is set to block */
+    private static class BlockingLogTarget extends MockLogTarget {
+
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch released = new CountDownLatch(1);
+        private volatile boolean blocking = false;
+
+        void block() { blocking = true; }
+
+        void awaitBlocked() throws InterruptedException { blocked.await(); }
+
+        void release() {
+            blocking = false;
+            released.countDown();
+        }
+
+        @Override
+        public OutputStream open() {
+            if (blocking) {
+                blocked.countDown();
+                try {
+                    released.await();
+                }
+                catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return super.open();
+        }
+
+    }
+
 }